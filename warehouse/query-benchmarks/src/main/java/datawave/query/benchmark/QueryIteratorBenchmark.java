@@ -0,0 +1,178 @@
+package datawave.query.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import datawave.mr.bulk.BulkIteratorEnvironment;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.QueryOptions;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import datawave.query.tld.TLDQueryIterator;
+import datawave.query.util.TypeMetadata;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks a full {@link QueryIterator} against a {@link SyntheticShard}. The {@code seek} benchmark measures building the iterator tree and finding the
+ * first result, the {@code scan} benchmark additionally drains every result with {@code next()}.
+ * <p>
+ * Run with the gc profiler ({@code -prof gc}, the default for {@link QueryBenchmarkRunner}) to report the allocation rate next to ops/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class QueryIteratorBenchmark {
+    
+    /**
+     * The query shapes under test. The common value of a field is value 0, the rare value is the last one.
+     */
+    public enum Shape {
+        // AndIterator over a common and a rare term
+        INTERSECTION,
+        // OrIterator over several mid frequency terms
+        UNION,
+        // AndIterator with a NegationFilter
+        NEGATION,
+        // a regex term run through an ivarator
+        REGEX_IVARATOR,
+        // an intersection run through the TLDQueryIterator against parents with children
+        TLD
+    }
+    
+    @Param({"INTERSECTION", "UNION", "NEGATION", "REGEX_IVARATOR", "TLD"})
+    public Shape shape;
+    
+    @Param({"10000"})
+    public int documents;
+    
+    @Param({"100"})
+    public int cardinality;
+    
+    @Param({"0.0", "1.2"})
+    public double skew;
+    
+    @Param({"10"})
+    public int width;
+    
+    @Param({"3"})
+    public int children;
+    
+    private SyntheticShard shard;
+    private Map<String,String> options;
+    private TypeMetadata typeMetadata;
+    private IteratorEnvironment env;
+    private Range range;
+    private Path ivaratorDir;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (width < 3) {
+            throw new IllegalArgumentException("The query shapes need a document width of at least 3");
+        }
+        
+        shard = new SyntheticShard().withDocuments(documents).withCardinality(cardinality).withSkew(skew).withWidth(width)
+                        .withChildren(shape == Shape.TLD ? children : 0).build();
+        
+        typeMetadata = new TypeMetadata();
+        for (String field : shard.getFields()) {
+            typeMetadata.put(field, SyntheticShard.DATATYPE, "datawave.data.type.LcNoDiacriticsType");
+        }
+        
+        ivaratorDir = Files.createTempDirectory("ivarator");
+        
+        options = new HashMap<>();
+        options.put(QueryOptions.QUERY, getQuery());
+        options.put(QueryOptions.QUERY_ID, "benchmark");
+        options.put(QueryOptions.INDEXED_FIELDS, String.join(",", shard.getFields()));
+        options.put(QueryOptions.INDEX_ONLY_FIELDS, "");
+        options.put(QueryOptions.START_TIME, "0");
+        options.put(QueryOptions.END_TIME, Long.toString(Long.MAX_VALUE));
+        options.put(QueryOptions.SERIAL_EVALUATION_PIPELINE, "true");
+        options.put(QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, "true");
+        options.put(QueryOptions.IVARATOR_CACHE_DIR_CONFIG, IvaratorCacheDirConfig.toJson(new IvaratorCacheDirConfig(ivaratorDir.toUri().toString())));
+        options.put(QueryOptions.HDFS_SITE_CONFIG_URLS, getClass().getResource("/benchmark-hadoop.config").toExternalForm());
+        
+        env = new BulkIteratorEnvironment(IteratorScope.scan);
+        
+        Key start = new Key(SyntheticShard.ROW);
+        range = new Range(start, true, start.followingKey(PartialKey.ROW), false);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteQuietly(ivaratorDir.toFile());
+    }
+    
+    private String getQuery() {
+        String common = SyntheticShard.getValue(0);
+        String rare = SyntheticShard.getValue(cardinality - 1);
+        String field0 = SyntheticShard.getField(0);
+        String field1 = SyntheticShard.getField(1);
+        String field2 = SyntheticShard.getField(2);
+        switch (shape) {
+            case INTERSECTION:
+            case TLD:
+                return field0 + " == '" + common + "' && " + field1 + " == '" + rare + "'";
+            case UNION:
+                return field0 + " == '" + SyntheticShard.getValue(1) + "' || " + field1 + " == '" + SyntheticShard.getValue(2) + "' || " + field2 + " == '"
+                                + SyntheticShard.getValue(3) + "'";
+            case NEGATION:
+                return field0 + " == '" + common + "' && !(" + field1 + " == '" + common + "')";
+            case REGEX_IVARATOR:
+                return "((_Value_ = true) && (" + field0 + " =~ '" + SyntheticShard.VALUE_PREFIX + "1.*'))";
+            default:
+                throw new IllegalStateException("Unhandled shape " + shape);
+        }
+    }
+    
+    private QueryIterator createIterator() throws IOException {
+        QueryIterator iterator = (shape == Shape.TLD ? new TLDQueryIterator() : new QueryIterator());
+        iterator.setTypeMetadata(typeMetadata);
+        iterator.init(shard.source(), options, env);
+        return iterator;
+    }
+    
+    @Benchmark
+    public void seek(Blackhole blackhole) throws IOException {
+        QueryIterator iterator = createIterator();
+        iterator.seek(range, Collections.emptyList(), false);
+        blackhole.consume(iterator.hasTop() ? iterator.getTopKey() : null);
+    }
+    
+    @Benchmark
+    public void scan(Blackhole blackhole) throws IOException {
+        QueryIterator iterator = createIterator();
+        iterator.seek(range, Collections.emptyList(), false);
+        while (iterator.hasTop()) {
+            blackhole.consume(iterator.getTopKey());
+            blackhole.consume(iterator.getTopValue());
+            iterator.next();
+        }
+    }
+}
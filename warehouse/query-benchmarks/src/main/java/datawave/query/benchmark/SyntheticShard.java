@@ -0,0 +1,162 @@
+package datawave.query.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import datawave.query.Constants;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+
+/**
+ * Builds an in-memory shard with event and field index keys for a single datatype. Each document has one value for each of {@link #getFields()}, drawn from
+ * {@code cardinality} distinct values following a zipf distribution. A skew of 0 is uniform, larger skews concentrate the documents on the first few values.
+ * <p>
+ * Value {@code 0} is always the most common value of a field and value {@code cardinality - 1} the rarest, which lets benchmarks build queries with known
+ * selectivity.
+ */
+public class SyntheticShard {
+    
+    public static final String ROW = "20200101_0";
+    public static final String DATATYPE = "datatype";
+    public static final String FIELD_PREFIX = "FIELD_";
+    public static final String VALUE_PREFIX = "value";
+    public static final long TIMESTAMP = 1577836800000L;
+    
+    private static final Value EMPTY_VALUE = new Value(new byte[0]);
+    
+    private int documents = 1000;
+    private int cardinality = 100;
+    private double skew = 1.0d;
+    private int width = 10;
+    private int children = 0;
+    private long seed = 42L;
+    
+    private SortedMap<Key,Value> data = null;
+    
+    public SyntheticShard withDocuments(int documents) {
+        this.documents = documents;
+        return this;
+    }
+    
+    public SyntheticShard withCardinality(int cardinality) {
+        this.cardinality = cardinality;
+        return this;
+    }
+    
+    public SyntheticShard withSkew(double skew) {
+        this.skew = skew;
+        return this;
+    }
+    
+    public SyntheticShard withWidth(int width) {
+        this.width = width;
+        return this;
+    }
+    
+    /**
+     * @param children
+     *            the number of child documents under each parent document, used for TLD queries
+     * @return this shard
+     */
+    public SyntheticShard withChildren(int children) {
+        this.children = children;
+        return this;
+    }
+    
+    public SyntheticShard withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+    
+    public SyntheticShard build() {
+        double[] cumulative = zipf(cardinality, skew);
+        Random random = new Random(seed);
+        data = new TreeMap<>();
+        for (int doc = 0; doc < documents; doc++) {
+            String uid = String.format("%08x.%08x", doc, seed);
+            addDocument(uid, cumulative, random);
+            for (int child = 0; child < children; child++) {
+                addDocument(uid + '.' + child, cumulative, random);
+            }
+        }
+        return this;
+    }
+    
+    private void addDocument(String uid, double[] cumulative, Random random) {
+        for (int field = 0; field < width; field++) {
+            String fieldName = getField(field);
+            String value = getValue(sample(cumulative, random));
+            data.put(new Key(ROW, DATATYPE + Constants.NULL + uid, fieldName + Constants.NULL + value, TIMESTAMP), EMPTY_VALUE);
+            data.put(new Key(ROW, "fi" + Constants.NULL + fieldName, value + Constants.NULL + DATATYPE + Constants.NULL + uid, TIMESTAMP), EMPTY_VALUE);
+        }
+    }
+    
+    private static double[] zipf(int cardinality, double skew) {
+        double[] cumulative = new double[cardinality];
+        double total = 0.0d;
+        for (int i = 0; i < cardinality; i++) {
+            total += 1.0d / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < cardinality; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+    
+    private static int sample(double[] cumulative, Random random) {
+        double target = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    public static String getField(int field) {
+        return FIELD_PREFIX + field;
+    }
+    
+    public static String getValue(int rank) {
+        return VALUE_PREFIX + rank;
+    }
+    
+    public List<String> getFields() {
+        List<String> fields = new ArrayList<>(width);
+        for (int field = 0; field < width; field++) {
+            fields.add(getField(field));
+        }
+        return fields;
+    }
+    
+    public int getCardinality() {
+        return cardinality;
+    }
+    
+    public int size() {
+        return data.size();
+    }
+    
+    /**
+     * Get a fresh source over the shard. The underlying map is shared, so this is cheap enough to call per benchmark invocation.
+     *
+     * @return a sorted map iterator over the shard
+     */
+    public SortedKeyValueIterator<Key,Value> source() {
+        if (data == null) {
+            throw new IllegalStateException("The shard has not been built");
+        }
+        return new SortedMapIterator(data);
+    }
+}
@@ -9,7 +9,10 @@ import datawave.query.composite.CompositeMetadata;
 import datawave.query.composite.CompositeSeeker.FieldIndexCompositeSeeker;
 import datawave.query.iterator.CachingIterator;
 import datawave.query.exceptions.DatawaveIvaratorMaxResultsException;
+import datawave.query.iterator.filter.FieldIndexKeyDataTypeFilter;
+import datawave.query.iterator.filter.KeyIdentity;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.SharedIvaratorCache;
 import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.iterator.profile.QuerySpanCollector;
 import datawave.query.iterator.profile.SourceTrackingIterator;
@@ -27,6 +30,7 @@ import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -38,6 +42,7 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -67,6 +72,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     public static final Text ANY_FINAME = new Text("fi\0" + Constants.ANY_FIELD);
     public static final Text FI_START = new Text("fi\0");
     public static final Text FI_END = new Text("fi\0~");
+    // the prefix of the latency histogram name for the time taken to fill the set for a field
+    public static final String FILL_LATENCY_PREFIX = "IvaratorFill:";
     
     public abstract static class Builder<B extends Builder<B>> {
         private String queryId;
@@ -95,6 +102,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         private int compositeSeekThreshold;
         private IteratorEnvironment env;
         private GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool;
+        private SharedIvaratorCache sharedCache;
+        private String sharedCacheVersion;
+        private String tableName;
         
         @SuppressWarnings("unchecked")
         protected B self() {
@@ -229,6 +239,21 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return self();
         }
         
+        public B withSharedCache(SharedIvaratorCache sharedCache) {
+            this.sharedCache = sharedCache;
+            return self();
+        }
+        
+        public B withSharedCacheVersion(String sharedCacheVersion) {
+            this.sharedCacheVersion = sharedCacheVersion;
+            return self();
+        }
+        
+        public B withTableName(String tableName) {
+            this.tableName = tableName;
+            return self();
+        }
+        
         public abstract DatawaveFieldIndexCachingIteratorJexl build();
     }
     
@@ -244,6 +269,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     @SuppressWarnings("unchecked")
     protected static final Collection<ByteSequence> EMPTY_CFS = Collections.EMPTY_LIST;
     
+    // the number of consecutive keys that do not match before asking for a seek hint
+    protected static final int SEEK_HINT_THRESHOLD = 8;
+    
     // These are the ranges to scan in the field index
     private final List<Range> boundingFiRanges = new ArrayList<>();
     protected Range currentFiRange = null;
@@ -355,6 +383,19 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     
     protected GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool = null;
     
+    // the cache used to share completed sets across queries, null if not sharing
+    private final SharedIvaratorCache sharedCache;
+    // the version of the data under the shared sets, changed to stop using the sets built before it
+    private final String sharedCacheVersion;
+    // the table being scanned, as the same field index in another table holds other documents
+    private final String tableName;
+    // the key of the sets of this ivarator in the shared cache, empty if they cannot be shared
+    private String sharedCacheKey = null;
+    // was the current set loaded from (or moved into) the shared cache
+    private boolean sharedSet = false;
+    // the shared entry the current set was loaded from, which we hold a lease on until the set is cleared
+    private SharedIvaratorCache.Entry sharedEntry = null;
+    
     // -------------------------------------------------------------------------
     // ------------- Constructors
     
@@ -382,6 +423,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.maxRangeSplit = 11;
         this.maxResults = -1;
         this.persistOptions = new FileSortedSet.PersistOptions();
+        this.sharedCache = null;
+        this.sharedCacheVersion = null;
+        this.tableName = null;
         
         this.sortedUIDs = true;
     }
@@ -433,6 +477,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.numRetries = builder.numRetries;
         this.persistOptions = builder.persistOptions;
         this.maxRangeSplit = builder.maxRangeSplit;
+        this.sharedCache = builder.sharedCache;
+        this.sharedCacheVersion = builder.sharedCacheVersion;
+        this.tableName = builder.tableName;
         
         this.sortedUIDs = builder.sortedUIDs;
         
@@ -474,11 +521,17 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.maxOpenFiles = other.maxOpenFiles;
         this.numRetries = other.numRetries;
         this.persistOptions = other.persistOptions;
+        this.sharedCache = other.sharedCache;
+        this.sharedCacheVersion = other.sharedCacheVersion;
+        this.tableName = other.tableName;
+        this.sharedCacheKey = other.sharedCacheKey;
         
         this.set = other.set;
         this.keys = other.keys;
         this.currentRow = other.currentRow;
         this.createdRowDir = other.createdRowDir;
+        this.sharedSet = other.sharedSet;
+        this.sharedEntry = other.sharedEntry == null ? null : other.sharedEntry.retain();
         this.maxRangeSplit = other.maxRangeSplit;
         
         this.sortedUIDs = other.sortedUIDs;
@@ -806,6 +859,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 // if we have any persisted data or we have scanned a significant number of keys, then persist it completely
                 if (this.set != null && (this.set.hasPersistedData() || (scanThreshold <= scannedKeys.get()))) {
                     forcePersistence();
+                    publishSharedSet();
                 }
                 
                 if (this.keys == null) {
@@ -1087,6 +1141,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             QuerySpan querySpan = null;
             Key nextSeekKey = null;
             int nextCount = 0;
+            int missCount = 0;
+            long start = System.nanoTime();
             try {
                 if (collectTimingDetails && source instanceof SourceTrackingIterator) {
                     querySpan = ((SourceTrackingIterator) source).getQuerySpan();
@@ -1172,9 +1228,23 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                     
                     if (addKey(top, source.getTopValue())) {
                         matched++;
+                        missCount = 0;
                         if (!totalResults.increment()) {
                             throw new DatawaveIvaratorMaxResultsException("Exceeded the maximum set size");
                         }
+                    } else if (++missCount >= SEEK_HINT_THRESHOLD) {
+                        // skip over the keys that cannot match rather than reading them one at a time
+                        missCount = 0;
+                        Key seekHint = getSeekHint(top);
+                        if (seekHint != null && seekHint.compareTo(top) > 0) {
+                            if (boundingFiRange.afterEndKey(seekHint)) {
+                                break;
+                            }
+                            source.seek(new Range(seekHint, true, boundingFiRange.getEndKey(), boundingFiRange.isEndKeyInclusive()), EMPTY_CFS, false);
+                            scanned++;
+                            DatawaveFieldIndexCachingIteratorJexl.this.scannedKeys.incrementAndGet();
+                            continue;
+                        }
                     }
                     
                     source.next();
@@ -1195,6 +1265,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                     log.debug(builder.toString());
                 }
                 if (collectTimingDetails && querySpanCollector != null && querySpan != null) {
+                    // per field so that a slow ivarator shows up on its own
+                    querySpan.recordLatency(FILL_LATENCY_PREFIX + fieldName, System.nanoTime() - start);
                     querySpanCollector.addQuerySpan(querySpan);
                 }
             }
@@ -1224,6 +1296,15 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.keys = null;
         this.currentRow = null;
         this.set = null;
+        this.sharedSet = false;
+        releaseSharedEntry();
+    }
+    
+    private void releaseSharedEntry() {
+        if (this.sharedEntry != null) {
+            this.sharedEntry.release();
+            this.sharedEntry = null;
+        }
     }
     
     /**
@@ -1238,6 +1319,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return;
         }
         
+        // use a set completed by another query if there is one
+        if (setupSharedHdfsBackedSet(row)) {
+            return;
+        }
+        
         try {
             // for each of the ivarator cache dirs
             for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
@@ -1282,6 +1368,139 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         }
     }
     
+    /**
+     * Load the set for the specified row from the shared cache if another query has already completed it.
+     *
+     * @param row
+     * @return true if the set was loaded
+     * @throws IOException
+     */
+    private boolean setupSharedHdfsBackedSet(String row) throws IOException {
+        String key = getSharedCacheKey();
+        if (key == null) {
+            return false;
+        }
+        
+        SharedIvaratorCache.Entry entry = sharedCache.find(ivaratorCacheDirs, key, row);
+        if (entry == null) {
+            return false;
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Using shared set " + entry.getId() + " for " + row + " in " + this);
+        }
+        loadSharedSet(entry, row);
+        this.keys = new CachingIterator<>(this.set.iterator());
+        scannedKeys.set(0);
+        return true;
+    }
+    
+    /**
+     * Move the current set into the shared cache once it is complete and persisted so that other queries may use it. Only sets that were persisted are
+     * shared as those are the ones that are expensive to rebuild.
+     *
+     * @throws IOException
+     */
+    private void publishSharedSet() throws IOException {
+        String key = getSharedCacheKey();
+        if (key == null || this.sharedSet || !this.set.isPersisted() || !this.setControl.isCompleteAndPersisted(this.currentRow)) {
+            return;
+        }
+        
+        SharedIvaratorCache.Entry entry;
+        try {
+            entry = sharedCache.publish(ivaratorCacheDirs, key, this.currentRow);
+        } catch (IOException e) {
+            log.warn("Unable to share the set for " + this.currentRow + " in " + this + ", continuing with our own", e);
+            return;
+        }
+        
+        // the files have moved, so reload the set from its new location
+        loadSharedSet(entry, this.currentRow);
+        
+        try {
+            sharedCache.evictIfNeeded(ivaratorCacheDirs);
+        } catch (IOException e) {
+            log.warn("Unable to evict from the shared ivarator cache", e);
+        }
+    }
+    
+    private void loadSharedSet(SharedIvaratorCache.Entry entry, String row) throws IOException {
+        releaseSharedEntry();
+        this.sharedEntry = entry;
+        this.set = new HdfsBackedSortedSet<>(null, hdfsBackedSetBufferSize, entry.getIvaratorCacheDirs(), entry.getId(), maxOpenFiles, numRetries,
+                        persistOptions, new FileKeySortedSet.Factory());
+        this.threadSafeSet = Collections.synchronizedSortedSet(this.set);
+        this.currentRow = row;
+        this.sharedSet = true;
+    }
+    
+    /**
+     * Get the key of the sets of this ivarator in the shared cache
+     *
+     * @return the key, or null if we are not sharing or the sets cannot be shared
+     */
+    private String getSharedCacheKey() {
+        if (sharedCache == null || !sortedUIDs) {
+            return null;
+        }
+        if (sharedCacheKey == null) {
+            String identity = getSharedCacheIdentity();
+            String datatypes = getDatatypeFilterIdentity();
+            String auths = getAuthorizationsIdentity();
+            // without the table, the sets of one table could be served to a query of another
+            if (identity == null || datatypes == null || auths == null || tableName == null) {
+                sharedCacheKey = "";
+            } else {
+                StringBuilder builder = new StringBuilder();
+                builder.append(getClass().getName()).append(NULL_BYTE).append(tableName).append(NULL_BYTE).append(fiName).append(NULL_BYTE).append(identity)
+                                .append(NULL_BYTE).append(negated).append(NULL_BYTE).append(returnKeyType).append(NULL_BYTE).append(timeFilter)
+                                .append(NULL_BYTE).append(datatypes).append(NULL_BYTE).append(auths).append(NULL_BYTE).append(maxResults).append(NULL_BYTE)
+                                .append(sharedCacheVersion);
+                sharedCacheKey = SharedIvaratorCache.getKey(builder.toString());
+            }
+        }
+        return sharedCacheKey.isEmpty() ? null : sharedCacheKey;
+    }
+    
+    private String getDatatypeFilterIdentity() {
+        if (datatypeFilter == null || datatypeFilter == KeyIdentity.Function) {
+            return "*";
+        } else if (datatypeFilter instanceof FieldIndexKeyDataTypeFilter) {
+            return datatypeFilter.toString();
+        }
+        return null;
+    }
+    
+    private String getAuthorizationsIdentity() {
+        if (initEnv == null) {
+            return null;
+        }
+        try {
+            Authorizations auths = initEnv.getAuthorizations();
+            if (auths == null) {
+                return null;
+            }
+            TreeSet<String> sorted = new TreeSet<>();
+            for (byte[] auth : auths.getAuthorizations()) {
+                sorted.add(new String(auth, StandardCharsets.UTF_8));
+            }
+            return sorted.toString();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Describes what this ivarator matches, to be used as part of the key when sharing completed sets across queries. The field name, negation, filters, and
+     * authorizations are added by this class.
+     *
+     * @return the identity of the matching criteria, or null if the sets of this ivarator cannot be shared
+     */
+    protected String getSharedCacheIdentity() {
+        return null;
+    }
+    
     /**
      * Build the bounding FI ranges. Normally this returns only one range, but it could return multiple (@see DatawaveFieldIndexRegex/Range/ListIteratorJexl
      * superclasses). If multiple are returned, then they must be sorted. These ranges are expected to be exclusively in the field index!
@@ -1389,6 +1608,18 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      */
     protected abstract boolean matches(Key k) throws IOException;
     
+    /**
+     * Get a key to seek to after a run of keys that did not match, skipping over the keys that cannot match. NOTE: This method must be thread safe NOTE: The
+     * hint must account for the negation
+     *
+     * @param k
+     *            the last key that did not match
+     * @return a key greater than k to seek to, or null to continue with the next key
+     */
+    protected Key getSeekHint(Key k) {
+        return null;
+    }
+    
     /**
      * A protected method to force persistence of the set. This can be used by test cases to verify tear down and rebuilding with reuse of the previous results.
      * 
@@ -97,6 +97,7 @@ public class DatawaveFieldIndexRangeIteratorJexl extends DatawaveFieldIndexCachi
         this.lowerInclusive = other.lowerInclusive;
         this.upperBound = other.upperBound;
         this.upperInclusive = other.upperInclusive;
+        this.subRanges = other.subRanges;
     }
     
     // -------------------------------------------------------------------------
@@ -115,6 +116,16 @@ public class DatawaveFieldIndexRangeIteratorJexl extends DatawaveFieldIndexCachi
         return builder.toString();
     }
     
+    @Override
+    protected String getSharedCacheIdentity() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(lowerInclusive ? '[' : '(').append(getFieldValue()).append(NULL_BYTE).append(upperBound).append(upperInclusive ? ']' : ')');
+        if (subRanges != null) {
+            builder.append(subRanges);
+        }
+        return builder.toString();
+    }
+    
     @Override
     protected List<Range> buildBoundingFiRanges(Text rowId, Text fiName, Text fieldValue) {
         if (ANY_FINAME.equals(fiName)) {
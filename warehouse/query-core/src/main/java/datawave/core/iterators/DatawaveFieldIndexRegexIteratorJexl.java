@@ -2,10 +2,13 @@ package datawave.core.iterators;
 
 import datawave.data.ColumnFamilyConstants;
 import datawave.query.Constants;
+import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.RegexAutomaton;
 import datawave.query.parser.JavaRegexAnalyzer;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
@@ -14,7 +17,6 @@ import org.apache.hadoop.io.Text;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * 
@@ -44,6 +46,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     protected DatawaveFieldIndexRegexIteratorJexl(Builder builder) {
         super(builder);
         this.regex = builder.fieldValue.toString();
+        this.automaton = JexlPatternCache.getAutomaton(regex, 0);
         try {
             // now fix the fValue to be the part we use for ranges
             JavaRegexAnalyzer analyzer = new JavaRegexAnalyzer(this.regex);
@@ -59,7 +62,8 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     }
     
     private String regex = null;
-    private ThreadLocal<Pattern> pattern = ThreadLocal.withInitial(() -> Pattern.compile(regex));
+    // matched case sensitively as the regex is already normalized
+    private RegexAutomaton automaton = null;
     
     // -------------------------------------------------------------------------
     // ------------- Constructors
@@ -70,6 +74,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     public DatawaveFieldIndexRegexIteratorJexl(DatawaveFieldIndexRegexIteratorJexl other, IteratorEnvironment env) {
         super(other, env);
         this.regex = other.regex;
+        this.automaton = other.automaton;
     }
     
     // -------------------------------------------------------------------------
@@ -87,6 +92,11 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
         return builder.toString();
     }
     
+    @Override
+    protected String getSharedCacheIdentity() {
+        return regex;
+    }
+    
     @Override
     protected List<Range> buildBoundingFiRanges(Text rowId, Text fiName, Text fieldValue) {
         Key startKey = null;
@@ -123,15 +133,37 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
      */
     @Override
     protected boolean matches(Key k) throws IOException {
-        boolean matches = false;
+        return automaton.matches(getValue(k));
+    }
+    
+    /**
+     * Seek to the next value that could match the regex, or past the field if no later value can
+     *
+     * @param k
+     * @return
+     */
+    @Override
+    protected Key getSeekHint(Key k) {
+        if (isNegated()) {
+            return null;
+        }
+        String value = getValue(k);
+        String hint = automaton.getSeekHint(value);
+        if (hint == null) {
+            return k.followingKey(PartialKey.ROW_COLFAM);
+        } else if (hint.equals(value)) {
+            return null;
+        }
+        return new Key(k.getRow(), k.getColumnFamily(), new Text(hint));
+    }
+    
+    private String getValue(Key k) {
         String colq = k.getColumnQualifier().toString();
         
         // search backwards for the null bytes to expose the value in value\0datatype\0UID
         int index = colq.lastIndexOf('\0');
         index = colq.lastIndexOf('\0', index - 1);
-        matches = (pattern.get().matcher(colq.substring(0, index)).matches());
-        
-        return matches;
+        return colq.substring(0, index);
     }
     
 }
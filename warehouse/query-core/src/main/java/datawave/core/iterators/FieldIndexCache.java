@@ -0,0 +1,322 @@
+package datawave.core.iterators;
+
+import java.io.ByteArrayOutputStream;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+/**
+ * A tserver wide cache of the field index keys for a term within a shard, so that concurrent queries on the same popular terms share the work of reading them.
+ * An entry holds every fi\0FIELD key in a row whose column qualifier starts with value\0, which is the sorted list of datatype\0uid for that term, along with
+ * their visibilities and timestamps. The keys are prefix compressed into a single byte array and the cache is bounded by the total size of those arrays.
+ * <p>
+ * The cache is shared by every table on the tserver, so the name of the table an entry was read from is part of the cache key, and a scan that does not
+ * know its table is not cached. The keys a scan sees are limited by its authorizations, so they are part of the cache key as well. Any datatype or time
+ * filtering is done above the cache by the index iterators.
+ * <p>
+ * An iterator cannot see which files make up the tablet, so an entry cannot be dropped when they change. Instead an entry is only trusted for
+ * {@value #CACHE_TTL_PROP} milliseconds after it was read, no matter how often it is used in the meantime.
+ * <p>
+ * The cache is disabled unless {@value #CACHE_SIZE_PROP} is set to a positive number of MiB.
+ */
+public class FieldIndexCache {
+    private static final Logger log = Logger.getLogger(FieldIndexCache.class);
+    
+    public static final String CACHE_SIZE_PROP = "tserver.datawave.fi.cache.size.mb";
+    public static final String CACHE_TTL_PROP = "tserver.datawave.fi.cache.ttl.ms";
+    public static final String CACHE_MAX_KEYS_PROP = "tserver.datawave.fi.cache.max.keys";
+    
+    public static final long DEFAULT_TTL_MS = 60 * 1000L;
+    public static final int DEFAULT_MAX_KEYS = 10000;
+    
+    // marks a term that has too many keys to be cached, so that it is not read again just to find that out
+    static final byte[] TOO_LARGE = new byte[0];
+    
+    private static final Object instanceSemaphore = new Object();
+    private static volatile FieldIndexCache instance;
+    private static volatile boolean configured = false;
+    
+    private final Cache<CacheKey,byte[]> cache;
+    private final int maxKeys;
+    
+    public FieldIndexCache(long maxSizeMiB, long ttlMs, int maxKeys) {
+        this.cache = CacheBuilder.newBuilder().maximumWeight(maxSizeMiB * 1024L * 1024L)
+                        .weigher((CacheKey key, byte[] keys) -> key.size() + Math.max(1, keys.length)).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                        .build();
+        this.maxKeys = maxKeys;
+    }
+    
+    /**
+     * Get the tserver wide cache
+     * 
+     * @param env
+     *            the iterator environment to read the configuration from
+     * @return the cache, or null if it is disabled
+     */
+    public static FieldIndexCache getInstance(IteratorEnvironment env) {
+        if (!configured) {
+            synchronized (instanceSemaphore) {
+                if (!configured) {
+                    AccumuloConfiguration conf = (env != null ? env.getConfig() : DefaultConfiguration.getInstance());
+                    long maxSizeMiB = getLong(conf, CACHE_SIZE_PROP, 0);
+                    if (maxSizeMiB > 0) {
+                        instance = new FieldIndexCache(maxSizeMiB, getLong(conf, CACHE_TTL_PROP, DEFAULT_TTL_MS),
+                                        (int) getLong(conf, CACHE_MAX_KEYS_PROP, DEFAULT_MAX_KEYS));
+                        log.info("Created a field index cache of " + maxSizeMiB + " MiB");
+                    }
+                    configured = true;
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static long getLong(AccumuloConfiguration conf, final String prop, long defaultValue) {
+        if (conf != null) {
+            Map<String,String> properties = new TreeMap<>();
+            conf.getProperties(properties, k -> Objects.equals(k, prop));
+            if (properties.containsKey(prop)) {
+                return Long.parseLong(properties.get(prop));
+            }
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * Wrap a source of the shard table so that the field index lookups of an index iterator on it can be served from the cache
+     * 
+     * @param source
+     *            the source
+     * @param tableName
+     *            the name of the table being scanned
+     * @param env
+     *            the iterator environment of the scan
+     * @return the wrapped source, or the source itself if the cache is disabled or the table or authorizations of the scan are not known
+     */
+    public static SortedKeyValueIterator<Key,Value> wrap(SortedKeyValueIterator<Key,Value> source, String tableName, IteratorEnvironment env) {
+        FieldIndexCache cache = getInstance(env);
+        ByteSequence authorizations = getAuthorizations(env);
+        if (cache == null || tableName == null || authorizations == null) {
+            return source;
+        }
+        return new FieldIndexCachingIterator(source, cache, tableName, authorizations);
+    }
+    
+    /**
+     * @param env
+     *            the iterator environment of the scan
+     * @return the serialized authorizations of the scan, or null if they are not known
+     */
+    static ByteSequence getAuthorizations(IteratorEnvironment env) {
+        if (env == null) {
+            return null;
+        }
+        Authorizations authorizations;
+        try {
+            authorizations = env.getAuthorizations();
+        } catch (UnsupportedOperationException e) {
+            // not a scan
+            return null;
+        }
+        return (authorizations == null ? null : new ArrayByteSequence(authorizations.serialize()));
+    }
+    
+    byte[] get(CacheKey key) {
+        return cache.getIfPresent(key);
+    }
+    
+    void put(CacheKey key, byte[] keys) {
+        cache.put(key, keys);
+    }
+    
+    int getMaxKeys() {
+        return maxKeys;
+    }
+    
+    public long size() {
+        return cache.size();
+    }
+    
+    /**
+     * The term in a row of a table, and the authorizations it was read with
+     */
+    static class CacheKey {
+        private final ByteSequence tableName;
+        private final ByteSequence row;
+        private final ByteSequence columnFamily;
+        private final ByteSequence valuePrefix;
+        private final ByteSequence authorizations;
+        private final int hashCode;
+        
+        CacheKey(ByteSequence tableName, ByteSequence row, ByteSequence columnFamily, ByteSequence valuePrefix, ByteSequence authorizations) {
+            this.tableName = tableName;
+            this.row = row;
+            this.columnFamily = columnFamily;
+            this.valuePrefix = valuePrefix;
+            this.authorizations = authorizations;
+            this.hashCode = Objects.hash(tableName, row, columnFamily, valuePrefix, authorizations);
+        }
+        
+        int size() {
+            return tableName.length() + row.length() + columnFamily.length() + valuePrefix.length() + authorizations.length();
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return hashCode == other.hashCode && tableName.equals(other.tableName) && row.equals(other.row) && columnFamily.equals(other.columnFamily)
+                            && valuePrefix.equals(other.valuePrefix) && authorizations.equals(other.authorizations);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+    
+    /**
+     * Encodes the keys of a term in order. Each key is written as the length of the prefix its column qualifier suffix (datatype\0uid) shares with the previous
+     * one, the rest of that suffix, the visibility, the timestamp, the delete flag and the value.
+     */
+    static class Encoder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int prefixLength;
+        private byte[] previous = new byte[0];
+        private int count = 0;
+        
+        Encoder(int prefixLength) {
+            this.prefixLength = prefixLength;
+        }
+        
+        void add(Key key, Value value) {
+            ByteSequence cq = key.getColumnQualifierData();
+            byte[] suffix = Arrays.copyOfRange(cq.getBackingArray(), cq.offset() + prefixLength, cq.offset() + cq.length());
+            int shared = 0;
+            while (shared < suffix.length && shared < previous.length && suffix[shared] == previous[shared]) {
+                shared++;
+            }
+            writeVarInt(shared);
+            writeBytes(suffix, shared, suffix.length - shared);
+            ByteSequence cv = key.getColumnVisibilityData();
+            writeBytes(cv.getBackingArray(), cv.offset(), cv.length());
+            writeVarLong(key.getTimestamp());
+            out.write(key.isDeleted() ? 1 : 0);
+            byte[] valueBytes = value.get();
+            writeBytes(valueBytes, 0, valueBytes.length);
+            previous = suffix;
+            count++;
+        }
+        
+        int getCount() {
+            return count;
+        }
+        
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+        
+        private void writeBytes(byte[] bytes, int offset, int length) {
+            writeVarInt(length);
+            out.write(bytes, offset, length);
+        }
+        
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+        
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+    
+    /**
+     * Reads the keys of a term back in order
+     */
+    static class Decoder {
+        private final byte[] keys;
+        private final byte[] row;
+        private final byte[] columnFamily;
+        private final byte[] valuePrefix;
+        private int position = 0;
+        private byte[] previous = new byte[0];
+        
+        Decoder(byte[] keys, byte[] row, byte[] columnFamily, byte[] valuePrefix) {
+            this.keys = keys;
+            this.row = row;
+            this.columnFamily = columnFamily;
+            this.valuePrefix = valuePrefix;
+        }
+        
+        boolean hasNext() {
+            return position < keys.length;
+        }
+        
+        /**
+         * @return the next key and value
+         */
+        Map.Entry<Key,Value> next() {
+            int shared = (int) readVarLong();
+            int length = (int) readVarLong();
+            byte[] suffix = new byte[shared + length];
+            System.arraycopy(previous, 0, suffix, 0, shared);
+            System.arraycopy(keys, position, suffix, shared, length);
+            position += length;
+            previous = suffix;
+            
+            byte[] cq = new byte[valuePrefix.length + suffix.length];
+            System.arraycopy(valuePrefix, 0, cq, 0, valuePrefix.length);
+            System.arraycopy(suffix, 0, cq, valuePrefix.length, suffix.length);
+            byte[] cv = readBytes();
+            long timestamp = readVarLong();
+            boolean deleted = keys[position++] != 0;
+            byte[] value = readBytes();
+            
+            Key key = new Key(row, columnFamily, cq, cv, timestamp, deleted, false);
+            return new AbstractMap.SimpleImmutableEntry<>(key, new Value(value, false));
+        }
+        
+        private byte[] readBytes() {
+            int length = (int) readVarLong();
+            byte[] bytes = Arrays.copyOfRange(keys, position, position + length);
+            position += length;
+            return bytes;
+        }
+        
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = keys[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
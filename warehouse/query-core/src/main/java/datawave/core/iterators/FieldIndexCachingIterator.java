@@ -0,0 +1,227 @@
+package datawave.core.iterators;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Serves the field index keys of one term from the {@link FieldIndexCache}. Once the term is set, a seek that starts within the term in some row is answered
+ * from the cached keys of the term in that row, which are read from the source and cached if they are not there yet. When the cached keys run out the source
+ * is seeked past the term for the rest of the range. Any other seek is passed through to the source.
+ * <p>
+ * When initialized as an iterator, the cache and authorizations are taken from the environment and the name of the table from the {@value #TABLE_NAME}
+ * option. Every seek is passed through if the cache is disabled or either of them is not known.
+ */
+public class FieldIndexCachingIterator implements SortedKeyValueIterator<Key,Value> {
+    
+    public static final String TABLE_NAME = "table.name";
+    
+    private SortedKeyValueIterator<Key,Value> source;
+    private FieldIndexCache cache;
+    private ByteSequence tableName;
+    private ByteSequence authorizations;
+    
+    // fi\0FIELD
+    private byte[] columnFamily;
+    // value\0
+    private byte[] valuePrefix;
+    
+    // the keys being served from the cache, null when the source is being used
+    private FieldIndexCache.Decoder cached;
+    private Range range;
+    private Collection<ByteSequence> columnFamilies;
+    private boolean inclusive;
+    private boolean exhausted = false;
+    private Key topKey;
+    private Value topValue;
+    
+    public FieldIndexCachingIterator() {}
+    
+    public FieldIndexCachingIterator(SortedKeyValueIterator<Key,Value> source, FieldIndexCache cache, String tableName, ByteSequence authorizations) {
+        this.source = source;
+        this.cache = cache;
+        this.tableName = new ArrayByteSequence(tableName);
+        this.authorizations = authorizations;
+    }
+    
+    private FieldIndexCachingIterator(FieldIndexCachingIterator other, IteratorEnvironment env) {
+        this.source = other.source.deepCopy(env);
+        this.cache = other.cache;
+        this.tableName = other.tableName;
+        this.authorizations = other.authorizations;
+        this.columnFamily = other.columnFamily;
+        this.valuePrefix = other.valuePrefix;
+    }
+    
+    /**
+     * Set the term whose keys are served from the cache
+     * 
+     * @param columnFamily
+     *            the field index column family, fi\0FIELD
+     * @param valuePrefix
+     *            the value followed by a null byte
+     */
+    public void setTerm(Text columnFamily, Text valuePrefix) {
+        this.columnFamily = columnFamily.copyBytes();
+        this.valuePrefix = valuePrefix.copyBytes();
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        this.source = source;
+        this.cache = FieldIndexCache.getInstance(env);
+        String table = (options == null ? null : options.get(TABLE_NAME));
+        this.tableName = (table == null ? null : new ArrayByteSequence(table));
+        this.authorizations = FieldIndexCache.getAuthorizations(env);
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        cached = null;
+        exhausted = false;
+        topKey = null;
+        topValue = null;
+        
+        if (isCacheable(range, columnFamilies, inclusive)) {
+            byte[] row = range.getStartKey().getRowData().toArray();
+            byte[] keys = getKeys(row);
+            if (keys != FieldIndexCache.TOO_LARGE) {
+                this.cached = new FieldIndexCache.Decoder(keys, row, columnFamily, valuePrefix);
+                this.range = range;
+                this.columnFamilies = columnFamilies;
+                this.inclusive = inclusive;
+                findTop();
+                return;
+            }
+        }
+        
+        source.seek(range, columnFamilies, inclusive);
+    }
+    
+    private boolean isCacheable(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+        if (cache == null || tableName == null || authorizations == null || columnFamily == null || range.isInfiniteStartKey()) {
+            return false;
+        }
+        Key start = range.getStartKey();
+        ByteSequence cf = start.getColumnFamilyData();
+        ByteSequence cq = start.getColumnQualifierData();
+        if (!cf.equals(new ArrayByteSequence(columnFamily)) || cq.length() < valuePrefix.length
+                        || !cq.subSequence(0, valuePrefix.length).equals(new ArrayByteSequence(valuePrefix))) {
+            return false;
+        }
+        return columnFamilies.contains(cf) == inclusive;
+    }
+    
+    private byte[] getKeys(byte[] row) throws IOException {
+        FieldIndexCache.CacheKey cacheKey = new FieldIndexCache.CacheKey(tableName, new ArrayByteSequence(row), new ArrayByteSequence(columnFamily),
+                        new ArrayByteSequence(valuePrefix), authorizations);
+        byte[] keys = cache.get(cacheKey);
+        if (keys == null) {
+            keys = load(row);
+            cache.put(cacheKey, keys);
+        }
+        return keys;
+    }
+    
+    private byte[] load(byte[] row) throws IOException {
+        Range term = new Range(new Key(row, columnFamily, valuePrefix), true, getPastTerm(row), false);
+        source.seek(term, Collections.singleton(new ArrayByteSequence(columnFamily)), true);
+        
+        FieldIndexCache.Encoder encoder = new FieldIndexCache.Encoder(valuePrefix.length);
+        while (source.hasTop()) {
+            if (encoder.getCount() >= cache.getMaxKeys()) {
+                return FieldIndexCache.TOO_LARGE;
+            }
+            encoder.add(source.getTopKey(), source.getTopValue());
+            source.next();
+        }
+        return encoder.toByteArray();
+    }
+    
+    /**
+     * @return the first key after all of the keys of the term in the row
+     */
+    private Key getPastTerm(byte[] row) {
+        byte[] pastValue = valuePrefix.clone();
+        pastValue[pastValue.length - 1]++;
+        return new Key(row, columnFamily, pastValue);
+    }
+    
+    private void findTop() throws IOException {
+        while (cached.hasNext()) {
+            Map.Entry<Key,Value> entry = cached.next();
+            if (range.beforeStartKey(entry.getKey())) {
+                continue;
+            }
+            if (range.afterEndKey(entry.getKey())) {
+                exhausted = true;
+                return;
+            }
+            topKey = entry.getKey();
+            topValue = entry.getValue();
+            return;
+        }
+        
+        // the rest of the range is beyond the term
+        topKey = null;
+        topValue = null;
+        cached = null;
+        Key pastTerm = getPastTerm(range.getStartKey().getRowData().toArray());
+        if (range.afterEndKey(pastTerm)) {
+            exhausted = true;
+        } else {
+            source.seek(new Range(pastTerm, true, range.getEndKey(), range.isEndKeyInclusive()), columnFamilies, inclusive);
+        }
+    }
+    
+    @Override
+    public boolean hasTop() {
+        if (exhausted) {
+            return false;
+        }
+        return cached != null ? topKey != null : source.hasTop();
+    }
+    
+    @Override
+    public void next() throws IOException {
+        if (exhausted) {
+            return;
+        }
+        if (cached != null) {
+            findTop();
+        } else {
+            source.next();
+        }
+    }
+    
+    @Override
+    public Key getTopKey() {
+        if (exhausted) {
+            return null;
+        }
+        return cached != null ? topKey : source.getTopKey();
+    }
+    
+    @Override
+    public Value getTopValue() {
+        if (exhausted) {
+            return null;
+        }
+        return cached != null ? topValue : source.getTopValue();
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        return new FieldIndexCachingIterator(this, env);
+    }
+}
@@ -19,6 +19,9 @@ import org.apache.log4j.Logger;
 public class GlobalIndexTermMatchingIterator extends GlobalIndexTermMatchingFilter implements SortedKeyValueIterator<Key,Value>, OptionDescriber {
     
     public static final String UNIQUE_TERMS_IN_FIELD = "term.unique";
+    
+    // the number of consecutive rows that do not match before asking for a seek hint
+    protected static final int SEEK_HINT_THRESHOLD = 8;
     private static final Logger log = Logger.getLogger(GlobalIndexTermMatchingIterator.class);
     
     private SortedKeyValueIterator<Key,Value> source;
@@ -105,18 +108,56 @@ public class GlobalIndexTermMatchingIterator extends GlobalIndexTermMatchingFilt
         foundMatch = false;
         if (log.isTraceEnabled())
             log.trace("has top ? " + getSource().hasTop());
+        int misses = 0;
         while (!foundMatch && getSource().hasTop()) {
             Key top = getSource().getTopKey();
             if (log.isTraceEnabled())
                 log.trace("top key is " + top);
             if (accept(top, getSource().getTopValue())) {
                 foundMatch = true;
+            } else if (++misses >= SEEK_HINT_THRESHOLD) {
+                misses = 0;
+                if (!seekToHint(top)) {
+                    break;
+                }
             } else {
                 getSource().next();
             }
         }
     }
     
+    /**
+     * Skip ahead to the next row that could match, or to the next key if we cannot
+     *
+     * @param top
+     *            current key that we see
+     * @return false if there are no more rows that can match
+     * @throws IOException
+     */
+    protected boolean seekToHint(final Key top) throws IOException {
+        String row = top.getRow().toString();
+        String hint = getSeekHint(row);
+        if (hint == null) {
+            if (log.isTraceEnabled())
+                log.trace("no more matches after " + top);
+            return false;
+        }
+        
+        Key next = new Key(hint);
+        if (hint.equals(row) || next.compareTo(top) <= 0) {
+            getSource().next();
+        } else if (scanRange.afterEndKey(next)) {
+            if (log.isTraceEnabled())
+                log.trace("seek hint " + hint + " is past the end of " + scanRange);
+            return false;
+        } else {
+            if (log.isTraceEnabled())
+                log.trace("seeking to hint " + hint + " top key is " + top);
+            getSource().seek(new Range(next, true, scanRange.getEndKey(), scanRange.isEndKeyInclusive()), scanCFs, scanInclusive);
+        }
+        return true;
+    }
+    
     /**
      * Advances to the next top key
      * 
@@ -113,4 +113,30 @@ public class IteratorThreadPoolManager {
         return instance(env).execute(EVALUATOR_THREAD_NAME, task, taskName);
     }
     
+    /**
+     * Get the load on a thread pool as the number of running plus queued tasks divided by the maximum number of threads. A value above 1.0 means that tasks
+     * are waiting for a thread.
+     *
+     * @param name
+     *            the thread pool name
+     * @return the thread pool load
+     */
+    private double getLoad(String name) {
+        ExecutorService service = threadPools.get(name);
+        if (service instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) service;
+            int maxThreads = Math.max(1, pool.getMaximumPoolSize());
+            return ((double) (pool.getActiveCount() + pool.getQueue().size())) / maxThreads;
+        }
+        return 0.0d;
+    }
+    
+    public static double getIvaratorLoad(IteratorEnvironment env) {
+        return instance(env).getLoad(IVARATOR_THREAD_NAME);
+    }
+    
+    public static double getEvaluationLoad(IteratorEnvironment env) {
+        return instance(env).getLoad(EVALUATOR_THREAD_NAME);
+    }
+    
 }
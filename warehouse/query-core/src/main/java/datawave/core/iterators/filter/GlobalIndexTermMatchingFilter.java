@@ -5,15 +5,17 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import datawave.ingest.protobuf.Uid;
+import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.RegexAutomaton;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
 /**
@@ -26,7 +28,7 @@ public class GlobalIndexTermMatchingFilter extends Filter {
     public static final String LITERAL = "term.literal.";
     public static final String PATTERN = "term.pattern.";
     public static final String REVERSE_INDEX = "reverse.index";
-    private Map<String,Pattern> patterns = new HashMap<>();
+    private Map<String,RegexAutomaton> patterns = new HashMap<>();
     private Set<String> literals = new HashSet<>();
     private boolean reverseIndex = false;
     private String matchedValue = null;
@@ -88,8 +90,8 @@ public class GlobalIndexTermMatchingFilter extends Filter {
         }
     }
     
-    private Pattern getPattern(String term) {
-        return Pattern.compile(term);
+    private RegexAutomaton getPattern(String term) {
+        return JexlPatternCache.getAutomaton(term, 0);
     }
     
     private boolean matches(String term) {
@@ -107,8 +109,8 @@ public class GlobalIndexTermMatchingFilter extends Filter {
             return true;
         }
         
-        for (Map.Entry<String,Pattern> entry : patterns.entrySet()) {
-            if (entry.getValue().matcher(term).matches()) {
+        for (Map.Entry<String,RegexAutomaton> entry : patterns.entrySet()) {
+            if (entry.getValue().matches(term)) {
                 matchedValue = entry.getKey();
                 return true;
             }
@@ -117,6 +119,47 @@ public class GlobalIndexTermMatchingFilter extends Filter {
         return false;
     }
     
+    /**
+     * Get the smallest term at or after the given row that could match one of the literals or patterns
+     *
+     * @param row
+     *            a row that did not match
+     * @return the row itself if we cannot skip ahead, the term to skip ahead to, or null if no later row can match
+     */
+    public String getSeekHint(String row) {
+        // the reverse index rows are not in the order of the terms we match
+        if (reverseIndex) {
+            return row;
+        }
+        
+        Text hint = null;
+        for (RegexAutomaton pattern : patterns.values()) {
+            String patternHint = pattern.getSeekHint(row);
+            if (row.equals(patternHint)) {
+                return row;
+            }
+            hint = min(hint, patternHint);
+        }
+        
+        Text rowText = new Text(row);
+        for (String literal : literals) {
+            if (new Text(literal).compareTo(rowText) > 0) {
+                hint = min(hint, literal);
+            }
+        }
+        
+        return (hint == null ? null : hint.toString());
+    }
+    
+    // compare as the row bytes are sorted
+    private Text min(Text hint, String term) {
+        if (term == null) {
+            return hint;
+        }
+        Text termText = new Text(term);
+        return (hint == null || termText.compareTo(hint) < 0) ? termText : hint;
+    }
+    
     public String getMatchedValue() {
         return matchedValue;
     }
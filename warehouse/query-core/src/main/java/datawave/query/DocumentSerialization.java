@@ -5,6 +5,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -38,11 +39,23 @@ public class DocumentSerialization {
     
     private static final int DOC_MAGIC = 0x8b2f;
     
+    // a Value holding a batch of serialized documents, see DocumentBatchSerializer
+    private static final int BATCH_MAGIC = 0x8b30;
+    
     public static final byte NONE = 0;
     public static final byte GZIP = 1;
     
     public static final int ZLIB_NUMBER = 2;
     
+    // the third header byte holds the compression in the low bits and the encoding version in the high bits
+    private static final int COMPRESSION_MASK = 0x0f;
+    private static final int VERSION_SHIFT = 4;
+    
+    // the original encoding, kryo documents contain the class name of each attribute
+    public static final int LEGACY_VERSION = 0;
+    // kryo documents contain attribute class ids, see AttributeClassIds
+    public static final int CLASS_ID_VERSION = 1;
+    
     /**
      * If a user-supplied ReturnType is specified, use it; otherwise, use the default ReturnType of {@link #DEFAULT_RETURN_TYPE}
      *
@@ -93,22 +106,79 @@ public class DocumentSerialization {
     }
     
     public static byte[] getHeader(int compression) {
+        return getHeader(compression, LEGACY_VERSION);
+    }
+    
+    public static byte[] getHeader(int compression, int version) {
         
         return new byte[] {(byte) DOC_MAGIC, // Magic number (short)
                 (byte) (DOC_MAGIC >> 8), // Magic number (short)
-                (byte) compression};
+                (byte) (compression | (version << VERSION_SHIFT))};
+    }
+    
+    public static byte[] getBatchHeader(int compression) {
+        return new byte[] {(byte) BATCH_MAGIC, (byte) (BATCH_MAGIC >> 8), (byte) compression};
+    }
+    
+    /**
+     * Determine whether a Value holds a batch of documents rather than a single document
+     *
+     * @param data
+     *            the value
+     * @return true if this is a batch
+     */
+    public static boolean isBatch(byte[] data) {
+        return null != data && 3 <= data.length && BATCH_MAGIC == ((data[0] & 0xff) | ((data[1] & 0xff) << 8));
+    }
+    
+    /**
+     * Get the encoding version of a document. Documents written before the version was added to the header are {@link #LEGACY_VERSION}.
+     *
+     * @param data
+     *            the serialized document, including the header
+     * @return the encoding version
+     */
+    public static int getVersion(byte[] data) throws InvalidDocumentHeader {
+        return getFlags(data) >>> VERSION_SHIFT;
+    }
+    
+    /**
+     * Get the compression of a document
+     *
+     * @param data
+     *            the serialized document, including the header
+     * @return the compression, {@link #NONE} or {@link #GZIP}
+     */
+    public static int getCompression(byte[] data) throws InvalidDocumentHeader {
+        return getFlags(data) & COMPRESSION_MASK;
+    }
+    
+    private static int getFlags(byte[] data) throws InvalidDocumentHeader {
+        if (null == data || 3 > data.length) {
+            QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, MessageFormat.format("Length: {0}",
+                            (null != data ? data.length : null)));
+            throw new InvalidDocumentHeader(qe);
+        }
+        return data[2] & 0xff;
     }
     
     public static byte[] writeBody(byte[] data, int compression) throws InvalidDocumentHeader {
         if (NONE == compression) {
             return data;
+        }
+        return writeBody(data, 0, data.length, compression);
+    }
+    
+    public static byte[] writeBody(byte[] data, int offset, int length, int compression) throws InvalidDocumentHeader {
+        if (NONE == compression) {
+            return Arrays.copyOfRange(data, offset, offset + length);
         } else if (GZIP == compression) {
-            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(length);
             
             try {
                 Deflater deflater = new Deflater(ZLIB_NUMBER);
                 DeflaterOutputStream deflate = new DeflaterOutputStream(bytes, deflater, 1024);
-                deflate.write(data);
+                deflate.write(data, offset, length);
                 deflate.close();
                 return bytes.toByteArray();
             } catch (IOException e) {
@@ -122,6 +192,14 @@ public class DocumentSerialization {
     }
     
     public static InputStream consumeHeader(byte[] data) throws InvalidDocumentHeader {
+        return consumeHeader(data, DOC_MAGIC);
+    }
+    
+    public static InputStream consumeBatchHeader(byte[] data) throws InvalidDocumentHeader {
+        return consumeHeader(data, BATCH_MAGIC);
+    }
+    
+    private static InputStream consumeHeader(byte[] data, int expectedMagic) throws InvalidDocumentHeader {
         if (null == data || 3 > data.length) {
             QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, MessageFormat.format("Length: {0}",
                             (null != data ? data.length : null)));
@@ -131,12 +209,12 @@ public class DocumentSerialization {
         ByteArrayInputStream bais = new ByteArrayInputStream(data);
         int magic = readUShort(bais);
         
-        if (DOC_MAGIC != magic) {
+        if (expectedMagic != magic) {
             NotFoundQueryException qe = new NotFoundQueryException(DatawaveErrorCode.EXPECTED_HEADER_NOT_FOUND);
             throw new InvalidDocumentHeader(qe);
         }
         
-        int compression = readUByte(bais);
+        int compression = readUByte(bais) & COMPRESSION_MASK;
         
         if (NONE == compression) {
             return new ByteArrayInputStream(data, 3, data.length - 3);
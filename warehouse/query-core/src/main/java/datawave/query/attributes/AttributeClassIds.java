@@ -0,0 +1,171 @@
+package datawave.query.attributes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Stable ids for the {@link Attribute} types, used in place of class names when a {@link Document} or {@link Attributes} is written with kryo. Writing the
+ * class name of every attribute typically accounts for a good part of a serialized document.
+ * <p>
+ * The ids are only used when enabled on the {@link Kryo} instance, see {@link #enable(Kryo)}, otherwise the legacy class name encoding is written. Attribute
+ * types without an id are written as {@link #UNREGISTERED} followed by their class name.
+ * <p>
+ * The ids are part of the wire format: never reorder or reuse them, only append.
+ */
+public class AttributeClassIds {
+    
+    // the kryo context key under which the class ids are enabled
+    public static final String CONTEXT_KEY = AttributeClassIds.class.getName();
+    
+    public static final int UNREGISTERED = 0;
+    
+    private static final Class<?>[] CLASSES = new Class<?>[] {
+            // 0 is reserved for unregistered classes
+            null,
+            // 1
+            Attributes.class,
+            // 2
+            Cardinality.class,
+            // 3
+            Content.class,
+            // 4
+            DateContent.class,
+            // 5
+            DiacriticContent.class,
+            // 6
+            Document.class,
+            // 7
+            DocumentKey.class,
+            // 8
+            GeoPoint.class,
+            // 9
+            Geometry.class,
+            // 10
+            IpAddress.class,
+            // 11
+            Latitude.class,
+            // 12
+            Longitude.class,
+            // 13
+            Metadata.class,
+            // 14
+            Numeric.class,
+            // 15
+            PreNormalizedAttribute.class,
+            // 16
+            TimingMetadata.class,
+            // 17
+            TypeAttribute.class};
+    
+    private static final Map<Class<?>,Integer> IDS = new HashMap<>();
+    
+    static {
+        for (int id = 1; id < CLASSES.length; id++) {
+            IDS.put(CLASSES[id], id);
+        }
+    }
+    
+    private AttributeClassIds() {}
+    
+    /**
+     * Write attribute class ids instead of class names with this kryo instance
+     *
+     * @param kryo
+     *            the kryo instance
+     */
+    public static void enable(Kryo kryo) {
+        kryo.getContext().put(CONTEXT_KEY, Boolean.TRUE);
+    }
+    
+    /**
+     * Write attribute class names with this kryo instance, the legacy encoding
+     *
+     * @param kryo
+     *            the kryo instance
+     */
+    public static void disable(Kryo kryo) {
+        kryo.getContext().remove(CONTEXT_KEY);
+    }
+    
+    public static boolean isEnabled(Kryo kryo) {
+        return kryo != null && kryo.getContext().get(CONTEXT_KEY) != null;
+    }
+    
+    /**
+     * @param clz
+     *            an attribute class
+     * @return the id of the class or {@link #UNREGISTERED}
+     */
+    public static int getId(Class<?> clz) {
+        Integer id = IDS.get(clz);
+        return id == null ? UNREGISTERED : id;
+    }
+    
+    /**
+     * Write the class of an attribute
+     *
+     * @param kryo
+     *            the kryo instance, which determines the encoding
+     * @param output
+     *            the output
+     * @param attr
+     *            the attribute
+     */
+    public static void writeClass(Kryo kryo, Output output, Attribute<?> attr) {
+        Class<?> clz = attr.getClass();
+        if (isEnabled(kryo)) {
+            int id = getId(clz);
+            output.writeInt(id, true);
+            if (id != UNREGISTERED) {
+                return;
+            }
+        }
+        // writeAscii fails to be read correctly if the value has only one character
+        // need to use writeString here
+        output.writeString(clz.getName());
+    }
+    
+    /**
+     * Read the class of an attribute as written by {@link #writeClass(Kryo, Output, Attribute)} and create an empty instance of it
+     *
+     * @param kryo
+     *            the kryo instance, which determines the encoding
+     * @param input
+     *            the input
+     * @return a new instance of the attribute class
+     */
+    public static Attribute<?> newAttribute(Kryo kryo, Input input) {
+        Class<?> clz;
+        int id = UNREGISTERED;
+        if (isEnabled(kryo)) {
+            id = input.readInt(true);
+        }
+        if (id == UNREGISTERED) {
+            String attrClassName = input.readString();
+            try {
+                clz = Class.forName(attrClassName);
+            } catch (ClassNotFoundException e) {
+                throw new KryoException("Could not find class for \"" + attrClassName + "\"", e);
+            }
+        } else if (id < CLASSES.length) {
+            clz = CLASSES[id];
+        } else {
+            throw new KryoException("Unknown attribute class id " + id);
+        }
+        
+        if (!Attribute.class.isAssignableFrom(clz)) {
+            throw new ClassCastException("Found class that was not an instance of Attribute");
+        }
+        
+        try {
+            return (Attribute<?>) clz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new KryoException(e);
+        }
+    }
+}
@@ -132,6 +132,33 @@ public class AttributeFactory {
         }
     }
     
+    /**
+     * Get new instances of the types that values of a field are created with for a datatype
+     * 
+     * @param fieldName
+     *            the field name
+     * @param ingestType
+     *            the datatype
+     * @return the types, which are not populated with a value
+     */
+    public List<Type<?>> getTypes(String fieldName, String ingestType) {
+        Collection<String> dataTypes = this.typeMetadata.getTypeMetadata(fieldName, ingestType);
+        if (null == dataTypes || dataTypes.isEmpty()) {
+            dataTypes = Collections.singleton(this.defaultType);
+        }
+        
+        List<Type<?>> types = Lists.newArrayListWithCapacity(dataTypes.size());
+        for (String dataType : dataTypes) {
+            try {
+                types.add((Type<?>) clazzCache.get(dataType).newInstance());
+            } catch (Exception ex) {
+                log.error("Could not create a " + dataType + " for " + fieldName, ex);
+                throw new RuntimeException("Could not create a " + dataType + " for " + fieldName, ex);
+            }
+        }
+        return types;
+    }
+    
     protected Attribute<?> getAttribute(Class<?> dataTypeClass, String fieldName, String data, Key key, boolean toKeep) throws Exception {
         Type<?> type = (Type<?>) dataTypeClass.newInstance();
         try {
@@ -34,7 +34,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 
 public class Document extends AttributeBag<Document> implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -45,7 +44,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     private int _count = 0;
     long _bytes = 0;
-    TreeMap<String,Attribute<? extends Comparable<?>>> dict;
+    DocumentDictionary dict;
     
     /**
      * should sizes of the documents be tracked
@@ -81,7 +80,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     public Document(Key key, boolean toKeep, boolean trackSizes) {
         super(key, toKeep);
-        dict = new TreeMap<>();
+        dict = new DocumentDictionary();
         this.trackSizes = trackSizes;
     }
     
@@ -111,7 +110,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
         return Collections.unmodifiableMap(this.dict);
     }
     
-    private TreeMap<String,Attribute<? extends Comparable<?>>> _getDictionary() {
+    private DocumentDictionary _getDictionary() {
         return dict;
     }
     
@@ -472,10 +471,10 @@ public class Document extends AttributeBag<Document> implements Serializable {
     @Override
     public long sizeInBytes() {
         if (trackSizes) {
-            return super.sizeInBytes(40) + _bytes + (this.dict.size() * 24) + 40;
-            // 32 for local members
-            // 24 for TreeMap.Entry overhead, and members
-            // 56 for TreeMap members and overhead
+            return super.sizeInBytes(40) + _bytes + (this.dict.capacity() * 8) + 56;
+            // 40 for local members
+            // 8 per slot in the key and value arrays of the dictionary
+            // 56 for the dictionary members and array overhead
         } else {
             return 1;
         }
@@ -559,7 +558,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         int numAttrs = WritableUtils.readVInt(in);
         
-        this.dict = new TreeMap<>();
+        this.dict = new DocumentDictionary(numAttrs);
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
@@ -609,8 +608,8 @@ public class Document extends AttributeBag<Document> implements Serializable {
         } else if (size() > o.size()) {
             return 1;
         } else {
-            TreeMap<String,Attribute<? extends Comparable<?>>> map1 = _getDictionary();
-            TreeMap<String,Attribute<? extends Comparable<?>>> map2 = o._getDictionary();
+            DocumentDictionary map1 = _getDictionary();
+            DocumentDictionary map2 = o._getDictionary();
             Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iter1 = map1.entrySet().iterator();
             Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iter2 = map2.entrySet().iterator();
             
@@ -776,7 +775,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
             output.writeString(entry.getKey());
             
             Attribute<?> attribute = entry.getValue();
-            output.writeString(attribute.getClass().getName());
+            AttributeClassIds.writeClass(kryo, output, attribute);
             attribute.write(kryo, output, reducedResponse);
         }
         
@@ -791,35 +790,15 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         int numAttrs = input.readInt(true);
         
-        this.dict = new TreeMap<>();
+        this.dict = new DocumentDictionary(numAttrs);
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
             String fieldName = input.readString();
             
-            // Get the class name for the concrete Attribute
-            String attrClassName = input.readString();
-            Class<?> clz;
-            
-            // Get the Class for the name of the class of the concrete Attribute
-            try {
-                clz = Class.forName(attrClassName);
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException(e);
-            }
+            // Get an instance of the concrete Attribute
+            Attribute<?> attr = AttributeClassIds.newAttribute(kryo, input);
             
-            Attribute<?> attr;
-            if (Attribute.class.isAssignableFrom(clz)) {
-                // Get an instance of the concrete Attribute
-                try {
-                    attr = (Attribute<?>) clz.newInstance();
-                } catch (InstantiationException | IllegalAccessException e) {
-                    throw new RuntimeException(e);
-                }
-                
-            } else {
-                throw new ClassCastException("Found class that was not an instance of Attribute");
-            }
             // Reload the attribute
             attr.read(kryo, input);
             
@@ -0,0 +1,343 @@
+package datawave.query.attributes;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The field name to {@link Attribute} dictionary backing a {@link Document}. The entries are kept in sorted parallel arrays instead of a TreeMap, which saves
+ * an entry object (and its pointers) per field and keeps iteration to a walk over two arrays. Lookups are a binary search and inserts shift the tail of the
+ * arrays, however documents are usually built in field name order as they are read off of the event keys in which case an insert is an append.
+ * <p>
+ * Field names are interned as they are added so that the many documents returned by a query share a single copy of each field name.
+ * <p>
+ * Iteration is in field name order, matching the TreeMap previously used. This class is not thread safe.
+ * <p>
+ * Only the entries are written when serialized, and the field names are interned again when read.
+ */
+public class DocumentDictionary extends AbstractMap<String,Attribute<? extends Comparable<?>>> implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private static final Interner<String> FIELD_NAMES = Interners.newWeakInterner();
+    
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final String[] EMPTY_KEYS = new String[0];
+    private static final Attribute<?>[] EMPTY_VALUES = new Attribute<?>[0];
+    
+    private transient String[] keys;
+    private transient Attribute<?>[] values;
+    private int size = 0;
+    
+    public DocumentDictionary() {
+        this.keys = EMPTY_KEYS;
+        this.values = EMPTY_VALUES;
+    }
+    
+    /**
+     * @param capacity
+     *            the expected number of fields, used when the field count is known up front as is the case when deserializing
+     */
+    public DocumentDictionary(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        this.keys = (capacity == 0 ? EMPTY_KEYS : new String[capacity]);
+        this.values = (capacity == 0 ? EMPTY_VALUES : new Attribute<?>[capacity]);
+    }
+    
+    /**
+     * Find the index of a field name.
+     *
+     * @param key
+     *            the field name
+     * @return the index of the field name, or (-(insertion point) - 1) if not found
+     */
+    private int indexOf(String key) {
+        // documents are mostly built in order, so check the end first
+        if (size > 0) {
+            int cmp = keys[size - 1].compareTo(key);
+            if (cmp == 0) {
+                return size - 1;
+            } else if (cmp < 0) {
+                return -(size + 1);
+            }
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * @return the number of fields this dictionary can hold before the arrays are grown
+     */
+    public int capacity() {
+        return keys.length;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && indexOf((String) key) >= 0;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> get(Object key) {
+        if (key instanceof String) {
+            int index = indexOf((String) key);
+            if (index >= 0) {
+                return valueAt(index);
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> put(String key, Attribute<? extends Comparable<?>> value) {
+        Objects.requireNonNull(key, "Field names cannot be null");
+        int index = indexOf(key);
+        if (index >= 0) {
+            Attribute<? extends Comparable<?>> previous = valueAt(index);
+            values[index] = value;
+            return previous;
+        }
+        insert(-(index + 1), FIELD_NAMES.intern(key), value);
+        return null;
+    }
+    
+    private void insert(int index, String key, Attribute<?> value) {
+        if (size == keys.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (index < size) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> remove(Object key) {
+        if (key instanceof String) {
+            int index = indexOf((String) key);
+            if (index >= 0) {
+                Attribute<? extends Comparable<?>> previous = valueAt(index);
+                removeAt(index);
+                return previous;
+            }
+        }
+        return null;
+    }
+    
+    private void removeAt(int index) {
+        int tail = size - index - 1;
+        if (tail > 0) {
+            System.arraycopy(keys, index + 1, keys, index, tail);
+            System.arraycopy(values, index + 1, values, index, tail);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+    }
+    
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int i = 0; i < size; i++) {
+            out.writeObject(keys[i]);
+            out.writeObject(values[i]);
+        }
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (size < 0) {
+            throw new IllegalStateException("Invalid size: " + size);
+        }
+        keys = (size == 0 ? EMPTY_KEYS : new String[size]);
+        values = (size == 0 ? EMPTY_VALUES : new Attribute<?>[size]);
+        for (int i = 0; i < size; i++) {
+            keys[i] = FIELD_NAMES.intern((String) in.readObject());
+            values[i] = (Attribute<?>) in.readObject();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Attribute<? extends Comparable<?>> valueAt(int index) {
+        return (Attribute<? extends Comparable<?>>) values[index];
+    }
+    
+    @Override
+    public Set<Entry<String,Attribute<? extends Comparable<?>>>> entrySet() {
+        return new EntrySet();
+    }
+    
+    @Override
+    public Collection<Attribute<? extends Comparable<?>>> values() {
+        return new Values();
+    }
+    
+    private abstract class ArrayIterator<T> implements Iterator<T> {
+        // the index of the next element
+        int next = 0;
+        // the index of the last element returned
+        int last = -1;
+        
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+        
+        int nextIndex() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return last;
+        }
+        
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+    
+    private class EntrySet extends AbstractSet<Entry<String,Attribute<? extends Comparable<?>>>> {
+        @Override
+        public Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iterator() {
+            return new ArrayIterator<Entry<String,Attribute<? extends Comparable<?>>>>() {
+                @Override
+                public Entry<String,Attribute<? extends Comparable<?>>> next() {
+                    return new DictionaryEntry(nextIndex());
+                }
+            };
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        @Override
+        public void clear() {
+            DocumentDictionary.this.clear();
+        }
+    }
+    
+    private class Values extends AbstractCollection<Attribute<? extends Comparable<?>>> {
+        @Override
+        public Iterator<Attribute<? extends Comparable<?>>> iterator() {
+            return new ArrayIterator<Attribute<? extends Comparable<?>>>() {
+                @Override
+                public Attribute<? extends Comparable<?>> next() {
+                    return valueAt(nextIndex());
+                }
+            };
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        @Override
+        public void clear() {
+            DocumentDictionary.this.clear();
+        }
+    }
+    
+    /**
+     * A view of a single entry. Writes go through to the dictionary as long as the entry has not been removed.
+     */
+    private class DictionaryEntry implements Entry<String,Attribute<? extends Comparable<?>>> {
+        private final String key;
+        private Attribute<? extends Comparable<?>> value;
+        private int index;
+        
+        DictionaryEntry(int index) {
+            this.index = index;
+            this.key = keys[index];
+            this.value = valueAt(index);
+        }
+        
+        @Override
+        public String getKey() {
+            return key;
+        }
+        
+        @Override
+        public Attribute<? extends Comparable<?>> getValue() {
+            return value;
+        }
+        
+        @Override
+        public Attribute<? extends Comparable<?>> setValue(Attribute<? extends Comparable<?>> value) {
+            Attribute<? extends Comparable<?>> previous = this.value;
+            // entries before this one may have been removed since it was created
+            if (index >= size || keys[index] != key) {
+                index = indexOf(key);
+                if (index < 0) {
+                    throw new IllegalStateException("The entry for " + key + " has been removed");
+                }
+            }
+            values[index] = value;
+            this.value = value;
+            return previous;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Entry<?,?> other = (Entry<?,?>) o;
+            return key.equals(other.getKey()) && Objects.equals(value, other.getValue());
+        }
+        
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+        
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
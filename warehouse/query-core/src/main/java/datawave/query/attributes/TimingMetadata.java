@@ -3,17 +3,26 @@ package datawave.query.attributes;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import datawave.query.iterator.profile.LatencyHistogram;
+import org.apache.log4j.Logger;
+
 /**
- * Holds timing information for query iterator next, source, seek, and yield counts.
+ * Holds timing information for query iterator next, source, seek, yield, and resume counts as well as the time spent resuming from yields. Latency histograms
+ * are carried in their encoded form so that they can be merged across scans.
  */
 public class TimingMetadata extends Metadata {
     
+    private static final Logger log = Logger.getLogger(TimingMetadata.class);
+    
     private static final String NEXT_COUNT = "NEXT_COUNT";
     private static final String SOURCE_COUNT = "SOURCE_COUNT";
     private static final String SEEK_COUNT = "SEEK_COUNT";
     private static final String YIELD_COUNT = "YIELD_COUNT";
+    private static final String RESUME_COUNT = "RESUME_COUNT";
+    private static final String YIELD_RESUME_MS = "YIELD_RESUME_MS";
     private static final String STAGE_TIMERS = "STAGE_TIMERS";
     private static final String HOST = "HOST";
+    private static final String LATENCIES = "LATENCIES";
     
     public long getNextCount() {
         Numeric numericValue = (Numeric) get(NEXT_COUNT);
@@ -68,6 +77,32 @@ public class TimingMetadata extends Metadata {
         put(YIELD_COUNT, new Numeric(yieldCount, this.getMetadata(), this.isToKeep()));
     }
     
+    public long getResumeCount() {
+        Numeric numericValue = (Numeric) get(RESUME_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setResumeCount(long resumeCount) {
+        put(RESUME_COUNT, new Numeric(resumeCount, this.getMetadata(), this.isToKeep()));
+    }
+    
+    public long getYieldResumeMs() {
+        Numeric numericValue = (Numeric) get(YIELD_RESUME_MS);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setYieldResumeMs(long yieldResumeMs) {
+        put(YIELD_RESUME_MS, new Numeric(yieldResumeMs, this.getMetadata(), this.isToKeep()));
+    }
+    
     public void addStageTimer(String stageName, Numeric elapsed) {
         Metadata stageTimers = (Metadata) get(STAGE_TIMERS);
         if (stageTimers == null) {
@@ -93,6 +128,34 @@ public class TimingMetadata extends Metadata {
         return stageTimers;
     }
     
+    public void addLatency(String name, LatencyHistogram histogram) {
+        Metadata latencies = (Metadata) get(LATENCIES);
+        if (latencies == null) {
+            latencies = new Metadata();
+            put(LATENCIES, latencies);
+        }
+        latencies.put(name, new Content(histogram.encode(), this.getMetadata(), this.isToKeep()));
+        put(LATENCIES, latencies);
+    }
+    
+    public Map<String,LatencyHistogram> getLatencies() {
+        Map<String,LatencyHistogram> latencies = new LinkedHashMap<>();
+        Attribute latenciesAttribute = get(LATENCIES);
+        if (latenciesAttribute instanceof Metadata) {
+            Metadata latenciesMetadata = (Metadata) latenciesAttribute;
+            for (Map.Entry<String,Attribute<? extends Comparable<?>>> entry : latenciesMetadata.entrySet()) {
+                if (entry.getValue() instanceof Content) {
+                    try {
+                        latencies.put(entry.getKey(), LatencyHistogram.decode(((Content) entry.getValue()).getContent()));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Ignoring latency histogram " + entry.getKey() + " that could not be decoded", e);
+                    }
+                }
+            }
+        }
+        return latencies;
+    }
+    
     public String getHost() {
         Attribute hostAttribute = get(HOST);
         if (hostAttribute instanceof Content) {
@@ -17,6 +17,7 @@ import datawave.query.QueryParameters;
 import datawave.query.attributes.ExcerptFields;
 import datawave.query.attributes.UniqueFields;
 import datawave.query.function.DocumentPermutation;
+import datawave.query.iterator.LoadAverageWatchIterator;
 import datawave.query.iterator.QueryIterator;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.query.jexl.JexlASTHelper;
@@ -139,6 +140,18 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * Used to determine the poll interval when buffering ranges in ThreadedRangeBundler
      */
     private long rangeBufferPollMillis = 100;
+    /**
+     * Used to bound the estimated bytes of the query plans queued in ThreadedRangeBundler, or not bounded if not positive
+     */
+    private long maxRangeQueueBytes = 0;
+    /**
+     * Used to enable sorting query ranges so that the most recent days come first in ThreadedRangeBundler
+     */
+    private boolean sortQueryPlansByRecency = false;
+    /**
+     * Used to enable sorting query ranges so that the shards which matched the most query terms come first in ThreadedRangeBundler
+     */
+    private boolean sortQueryPlansByMatchedTerms = false;
     /**
      * Used to determine the maximum number of query ranges to generate per tier when performing a geowave query against a GeometryType field.
      */
@@ -176,6 +189,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     // BatchScanner and query results options
     private Integer numQueryThreads = 8;
     private Integer numLookupThreads = 8;
+    // should the global index lookups of the terms in a union share batch scanners?
+    private boolean coalesceIndexLookups = false;
+    // the maximum number of terms looked up by a shared global index batch scanner
+    private int maxTermsPerIndexLookup = 100;
     private Integer numDateIndexThreads = 8;
     private Integer maxDocScanTimeout = -1;
     // A counter used to uniquely identify FSTs generated in the
@@ -309,6 +326,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private int maxRangesPerRangeIvarator = 5;
     private int maxOrExpansionFstThreshold = 750;
     private long yieldThresholdMs = Long.MAX_VALUE;
+    // scale the yield threshold with the tserver load, bounded by the min and max thresholds
+    private boolean adaptiveYieldThreshold = false;
+    private long minYieldThresholdMs = 100L;
+    private long maxYieldThresholdMs = Long.MAX_VALUE;
+    // shrink the evaluation pipelines and document batches when the tserver is under load or heap pressure
+    private boolean adaptiveBackpressure = false;
+    // the pool backlog and heap are only watched by adaptive backpressure when their thresholds are set
+    private double backpressurePoolLoadThreshold = LoadAverageWatchIterator.DISABLED_THRESHOLD;
+    private double backpressureHeapThreshold = LoadAverageWatchIterator.DISABLED_THRESHOLD;
     private String hdfsSiteConfigURLs = null;
     private String hdfsFileCompressionCodec = null;
     private String zookeeperConfig = null;
@@ -324,8 +350,18 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private int ivaratorPersistVerifyCount = 100;
     private int maxIvaratorSources = 33;
     private long maxIvaratorResults = -1;
+    // share completed ivarator sets with other queries
+    private boolean ivaratorSharedCache = false;
+    private long ivaratorSharedCacheMaxSizeMB = 10240;
+    private long ivaratorSharedCacheMaxAgeMs = 1000L * 60 * 60;
+    // changed when the data under the shared ivarator sets changes so that the sets built before are no longer used
+    private String ivaratorSharedCacheVersion = null;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    // start a new evaluation as soon as any evaluation completes
+    private boolean completionEvaluationPipeline = false;
+    // compile the query once per scan for document evaluation rather than interpreting it per document
+    private boolean compiledEvaluation = false;
     private boolean expandAllTerms = false;
     // Adding the ability to pre-cache the query model for performance sake. If this is null
     // then the query model will be pulled from the MetadataHelper
@@ -339,6 +375,12 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     @JsonIgnore
     private transient ASTJexlScript queryTree = null;
     private boolean compressServerSideResults = false;
+    // write kryo documents with attribute class ids, only once every webserver can read them
+    private boolean kryoAttributeClassIds = false;
+    // the max number of documents the tservers pack into a single returned value, batching is disabled when this is less than 2
+    private int documentBatchSize = 0;
+    private long documentBatchMaxBytes = 1024L * 1024L;
+    private long documentBatchMaxLatencyMs = 500L;
     private boolean indexOnlyFilterFunctionsEnabled = false;
     private boolean compositeFilterFunctionsEnabled = false;
     
@@ -347,6 +389,19 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private Set<String> groupFields = new HashSet<>(0);
     private UniqueFields uniqueFields = new UniqueFields();
     private boolean cacheModel = false;
+    // cache the plans streamed from the global index for queries that are submitted again, keyed on the expanded query so expansion still runs every time
+    private boolean cacheQueryPlans = false;
+    private int queryPlanCacheSize = 100;
+    private long queryPlanCacheTtlMs = 300000L;
+    private int queryPlanCacheMaxPlans = 10000;
+    // cache the regex, range, and unfielded term expansions looked up in the global index, across queries
+    private boolean cacheIndexExpansions = false;
+    private int indexExpansionCacheSize = 1000;
+    private long indexExpansionCacheTtlMs = 300000L;
+    // order the terms of the query by their estimated cost, using the metadata term counts and index stats
+    private boolean costBasedPlanning = false;
+    // delay a term that is estimated to be this many times costlier than its cheapest sibling, or never if not positive
+    private double costBasedDelayRatio = 1000.0d;
     /**
      * should the sizes of documents be tracked for this query
      */
@@ -436,6 +491,9 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setNumRangesToBuffer(other.getNumRangesToBuffer());
         this.setRangeBufferTimeoutMillis(other.getRangeBufferTimeoutMillis());
         this.setRangeBufferPollMillis(other.getRangeBufferPollMillis());
+        this.setMaxRangeQueueBytes(other.getMaxRangeQueueBytes());
+        this.setSortQueryPlansByRecency(other.isSortQueryPlansByRecency());
+        this.setSortQueryPlansByMatchedTerms(other.isSortQueryPlansByMatchedTerms());
         this.setGeometryMaxExpansion(other.getGeometryMaxExpansion());
         this.setPointMaxExpansion(other.getPointMaxExpansion());
         this.setGeoWaveRangeSplitThreshold(other.getGeoWaveRangeSplitThreshold());
@@ -452,6 +510,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setCleanupShardsAndDaysQueryHints(other.isCleanupShardsAndDaysQueryHints());
         this.setNumQueryThreads(other.getNumQueryThreads());
         this.setNumIndexLookupThreads(other.getNumIndexLookupThreads());
+        this.setCoalesceIndexLookups(other.isCoalesceIndexLookups());
+        this.setMaxTermsPerIndexLookup(other.getMaxTermsPerIndexLookup());
         this.setNumDateIndexThreads(other.getNumDateIndexThreads());
         this.setMaxDocScanTimeout(other.getMaxDocScanTimeout());
         this.setFstCount(other.getFstCount());
@@ -527,6 +587,12 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setMaxRangesPerRangeIvarator(other.getMaxRangesPerRangeIvarator());
         this.setMaxOrExpansionFstThreshold(other.getMaxOrExpansionFstThreshold());
         this.setYieldThresholdMs(other.getYieldThresholdMs());
+        this.setAdaptiveYieldThreshold(other.isAdaptiveYieldThreshold());
+        this.setMinYieldThresholdMs(other.getMinYieldThresholdMs());
+        this.setMaxYieldThresholdMs(other.getMaxYieldThresholdMs());
+        this.setAdaptiveBackpressure(other.isAdaptiveBackpressure());
+        this.setBackpressurePoolLoadThreshold(other.getBackpressurePoolLoadThreshold());
+        this.setBackpressureHeapThreshold(other.getBackpressureHeapThreshold());
         this.setHdfsSiteConfigURLs(other.getHdfsSiteConfigURLs());
         this.setHdfsFileCompressionCodec(other.getHdfsFileCompressionCodec());
         this.setZookeeperConfig(other.getZookeeperConfig());
@@ -542,8 +608,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setIvaratorPersistVerifyCount(other.getIvaratorPersistVerifyCount());
         this.setMaxIvaratorSources(other.getMaxIvaratorSources());
         this.setMaxIvaratorResults(other.getMaxIvaratorResults());
+        this.setIvaratorSharedCache(other.isIvaratorSharedCache());
+        this.setIvaratorSharedCacheMaxSizeMB(other.getIvaratorSharedCacheMaxSizeMB());
+        this.setIvaratorSharedCacheMaxAgeMs(other.getIvaratorSharedCacheMaxAgeMs());
+        this.setIvaratorSharedCacheVersion(other.getIvaratorSharedCacheVersion());
         this.setMaxEvaluationPipelines(other.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(other.getMaxPipelineCachedResults());
+        this.setCompletionEvaluationPipeline(other.isCompletionEvaluationPipeline());
+        this.setCompiledEvaluation(other.isCompiledEvaluation());
         this.setExpandAllTerms(other.isExpandAllTerms());
         this.setQueryModel(null == other.getQueryModel() ? null : new QueryModel(other.getQueryModel()));
         this.setModelName(other.getModelName());
@@ -552,6 +624,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setQuery(null == other.getQuery() ? null : other.getQuery().duplicate(other.getQuery().getQueryName()));
         this.setQueryTree(null == other.getQueryTree() ? null : (ASTJexlScript) RebuildingVisitor.copy(other.getQueryTree()));
         this.setCompressServerSideResults(other.isCompressServerSideResults());
+        this.setKryoAttributeClassIds(other.isKryoAttributeClassIds());
+        this.setDocumentBatchSize(other.getDocumentBatchSize());
+        this.setDocumentBatchMaxBytes(other.getDocumentBatchMaxBytes());
+        this.setDocumentBatchMaxLatencyMs(other.getDocumentBatchMaxLatencyMs());
         this.setIndexOnlyFilterFunctionsEnabled(other.isIndexOnlyFilterFunctionsEnabled());
         this.setCompositeFilterFunctionsEnabled(other.isCompositeFilterFunctionsEnabled());
         this.setGroupFieldsBatchSize(other.getGroupFieldsBatchSize());
@@ -559,6 +635,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setGroupFields(null == other.getGroupFields() ? null : Sets.newHashSet(other.getGroupFields()));
         this.setUniqueFields(UniqueFields.copyOf(other.getUniqueFields()));
         this.setCacheModel(other.getCacheModel());
+        this.setCacheQueryPlans(other.isCacheQueryPlans());
+        this.setQueryPlanCacheSize(other.getQueryPlanCacheSize());
+        this.setQueryPlanCacheTtlMs(other.getQueryPlanCacheTtlMs());
+        this.setQueryPlanCacheMaxPlans(other.getQueryPlanCacheMaxPlans());
+        this.setCacheIndexExpansions(other.isCacheIndexExpansions());
+        this.setIndexExpansionCacheSize(other.getIndexExpansionCacheSize());
+        this.setIndexExpansionCacheTtlMs(other.getIndexExpansionCacheTtlMs());
+        this.setCostBasedPlanning(other.isCostBasedPlanning());
+        this.setCostBasedDelayRatio(other.getCostBasedDelayRatio());
         this.setTrackSizes(other.isTrackSizes());
         this.setContentFieldNames(null == other.getContentFieldNames() ? null : Lists.newArrayList(other.getContentFieldNames()));
         this.setEvaluationOnlyFields(other.getEvaluationOnlyFields());
@@ -764,6 +849,22 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.numLookupThreads = numIndexLookupThreads;
     }
     
+    public boolean isCoalesceIndexLookups() {
+        return coalesceIndexLookups;
+    }
+    
+    public void setCoalesceIndexLookups(boolean coalesceIndexLookups) {
+        this.coalesceIndexLookups = coalesceIndexLookups;
+    }
+    
+    public int getMaxTermsPerIndexLookup() {
+        return maxTermsPerIndexLookup;
+    }
+    
+    public void setMaxTermsPerIndexLookup(int maxTermsPerIndexLookup) {
+        this.maxTermsPerIndexLookup = maxTermsPerIndexLookup;
+    }
+    
     public Integer getNumDateIndexThreads() {
         return numDateIndexThreads;
     }
@@ -912,6 +1013,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.rangeBufferPollMillis = rangeBufferPollMillis;
     }
     
+    public long getMaxRangeQueueBytes() {
+        return maxRangeQueueBytes;
+    }
+    
+    public void setMaxRangeQueueBytes(long maxRangeQueueBytes) {
+        this.maxRangeQueueBytes = maxRangeQueueBytes;
+    }
+    
+    public boolean isSortQueryPlansByRecency() {
+        return sortQueryPlansByRecency;
+    }
+    
+    public void setSortQueryPlansByRecency(boolean sortQueryPlansByRecency) {
+        this.sortQueryPlansByRecency = sortQueryPlansByRecency;
+    }
+    
+    public boolean isSortQueryPlansByMatchedTerms() {
+        return sortQueryPlansByMatchedTerms;
+    }
+    
+    public void setSortQueryPlansByMatchedTerms(boolean sortQueryPlansByMatchedTerms) {
+        this.sortQueryPlansByMatchedTerms = sortQueryPlansByMatchedTerms;
+    }
+    
     public int getGeometryMaxExpansion() {
         return geometryMaxExpansion;
     }
@@ -1345,6 +1470,38 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.maxIvaratorResults = maxIvaratorResults;
     }
     
+    public boolean isIvaratorSharedCache() {
+        return ivaratorSharedCache;
+    }
+    
+    public void setIvaratorSharedCache(boolean ivaratorSharedCache) {
+        this.ivaratorSharedCache = ivaratorSharedCache;
+    }
+    
+    public long getIvaratorSharedCacheMaxSizeMB() {
+        return ivaratorSharedCacheMaxSizeMB;
+    }
+    
+    public void setIvaratorSharedCacheMaxSizeMB(long ivaratorSharedCacheMaxSizeMB) {
+        this.ivaratorSharedCacheMaxSizeMB = ivaratorSharedCacheMaxSizeMB;
+    }
+    
+    public long getIvaratorSharedCacheMaxAgeMs() {
+        return ivaratorSharedCacheMaxAgeMs;
+    }
+    
+    public void setIvaratorSharedCacheMaxAgeMs(long ivaratorSharedCacheMaxAgeMs) {
+        this.ivaratorSharedCacheMaxAgeMs = ivaratorSharedCacheMaxAgeMs;
+    }
+    
+    public String getIvaratorSharedCacheVersion() {
+        return ivaratorSharedCacheVersion;
+    }
+    
+    public void setIvaratorSharedCacheVersion(String ivaratorSharedCacheVersion) {
+        this.ivaratorSharedCacheVersion = ivaratorSharedCacheVersion;
+    }
+    
     public int getMaxEvaluationPipelines() {
         return maxEvaluationPipelines;
     }
@@ -1361,6 +1518,22 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public boolean isCompletionEvaluationPipeline() {
+        return completionEvaluationPipeline;
+    }
+    
+    public void setCompletionEvaluationPipeline(boolean completionEvaluationPipeline) {
+        this.completionEvaluationPipeline = completionEvaluationPipeline;
+    }
+    
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
     public boolean isExpandAllTerms() {
         return expandAllTerms;
     }
@@ -1850,6 +2023,38 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.compressServerSideResults = compressServerSideResults;
     }
     
+    public boolean isKryoAttributeClassIds() {
+        return kryoAttributeClassIds;
+    }
+    
+    public void setKryoAttributeClassIds(boolean kryoAttributeClassIds) {
+        this.kryoAttributeClassIds = kryoAttributeClassIds;
+    }
+    
+    public int getDocumentBatchSize() {
+        return documentBatchSize;
+    }
+    
+    public void setDocumentBatchSize(int documentBatchSize) {
+        this.documentBatchSize = documentBatchSize;
+    }
+    
+    public long getDocumentBatchMaxBytes() {
+        return documentBatchMaxBytes;
+    }
+    
+    public void setDocumentBatchMaxBytes(long documentBatchMaxBytes) {
+        this.documentBatchMaxBytes = documentBatchMaxBytes;
+    }
+    
+    public long getDocumentBatchMaxLatencyMs() {
+        return documentBatchMaxLatencyMs;
+    }
+    
+    public void setDocumentBatchMaxLatencyMs(long documentBatchMaxLatencyMs) {
+        this.documentBatchMaxLatencyMs = documentBatchMaxLatencyMs;
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -2065,6 +2270,78 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.cacheModel = cacheModel;
     }
     
+    public boolean isCacheQueryPlans() {
+        return cacheQueryPlans;
+    }
+    
+    public void setCacheQueryPlans(boolean cacheQueryPlans) {
+        this.cacheQueryPlans = cacheQueryPlans;
+    }
+    
+    public int getQueryPlanCacheSize() {
+        return queryPlanCacheSize;
+    }
+    
+    public void setQueryPlanCacheSize(int queryPlanCacheSize) {
+        this.queryPlanCacheSize = queryPlanCacheSize;
+    }
+    
+    public long getQueryPlanCacheTtlMs() {
+        return queryPlanCacheTtlMs;
+    }
+    
+    public void setQueryPlanCacheTtlMs(long queryPlanCacheTtlMs) {
+        this.queryPlanCacheTtlMs = queryPlanCacheTtlMs;
+    }
+    
+    public int getQueryPlanCacheMaxPlans() {
+        return queryPlanCacheMaxPlans;
+    }
+    
+    public void setQueryPlanCacheMaxPlans(int queryPlanCacheMaxPlans) {
+        this.queryPlanCacheMaxPlans = queryPlanCacheMaxPlans;
+    }
+    
+    public boolean isCacheIndexExpansions() {
+        return cacheIndexExpansions;
+    }
+    
+    public void setCacheIndexExpansions(boolean cacheIndexExpansions) {
+        this.cacheIndexExpansions = cacheIndexExpansions;
+    }
+    
+    public int getIndexExpansionCacheSize() {
+        return indexExpansionCacheSize;
+    }
+    
+    public void setIndexExpansionCacheSize(int indexExpansionCacheSize) {
+        this.indexExpansionCacheSize = indexExpansionCacheSize;
+    }
+    
+    public long getIndexExpansionCacheTtlMs() {
+        return indexExpansionCacheTtlMs;
+    }
+    
+    public void setIndexExpansionCacheTtlMs(long indexExpansionCacheTtlMs) {
+        this.indexExpansionCacheTtlMs = indexExpansionCacheTtlMs;
+    }
+    
+    public boolean isCostBasedPlanning() {
+        return costBasedPlanning;
+    }
+    
+    public void setCostBasedPlanning(boolean costBasedPlanning) {
+        this.costBasedPlanning = costBasedPlanning;
+    }
+    
+    public double getCostBasedDelayRatio() {
+        return costBasedDelayRatio;
+    }
+    
+    public void setCostBasedDelayRatio(double costBasedDelayRatio) {
+        this.costBasedDelayRatio = costBasedDelayRatio;
+    }
+    
     public boolean isBypassExecutabilityCheck() {
         return bypassExecutabilityCheck;
     }
@@ -2125,6 +2402,54 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.yieldThresholdMs = yieldThresholdMs;
     }
     
+    public boolean isAdaptiveYieldThreshold() {
+        return adaptiveYieldThreshold;
+    }
+    
+    public void setAdaptiveYieldThreshold(boolean adaptiveYieldThreshold) {
+        this.adaptiveYieldThreshold = adaptiveYieldThreshold;
+    }
+    
+    public long getMinYieldThresholdMs() {
+        return minYieldThresholdMs;
+    }
+    
+    public void setMinYieldThresholdMs(long minYieldThresholdMs) {
+        this.minYieldThresholdMs = minYieldThresholdMs;
+    }
+    
+    public long getMaxYieldThresholdMs() {
+        return maxYieldThresholdMs;
+    }
+    
+    public void setMaxYieldThresholdMs(long maxYieldThresholdMs) {
+        this.maxYieldThresholdMs = maxYieldThresholdMs;
+    }
+    
+    public boolean isAdaptiveBackpressure() {
+        return adaptiveBackpressure;
+    }
+    
+    public void setAdaptiveBackpressure(boolean adaptiveBackpressure) {
+        this.adaptiveBackpressure = adaptiveBackpressure;
+    }
+    
+    public double getBackpressurePoolLoadThreshold() {
+        return backpressurePoolLoadThreshold;
+    }
+    
+    public void setBackpressurePoolLoadThreshold(double backpressurePoolLoadThreshold) {
+        this.backpressurePoolLoadThreshold = backpressurePoolLoadThreshold;
+    }
+    
+    public double getBackpressureHeapThreshold() {
+        return backpressureHeapThreshold;
+    }
+    
+    public void setBackpressureHeapThreshold(double backpressureHeapThreshold) {
+        this.backpressureHeapThreshold = backpressureHeapThreshold;
+    }
+    
     public boolean isTrackSizes() {
         return trackSizes;
     }
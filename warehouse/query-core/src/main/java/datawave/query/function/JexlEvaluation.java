@@ -4,6 +4,7 @@ import datawave.query.Constants;
 import datawave.query.attributes.Attributes;
 import datawave.query.attributes.ValueTuple;
 import datawave.query.jexl.ArithmeticJexlEngines;
+import datawave.query.jexl.CompiledJexlScript;
 import datawave.query.jexl.DefaultArithmetic;
 import datawave.query.jexl.DelayedNonEventIndexContext;
 import datawave.query.postprocessing.tf.PhraseIndexes;
@@ -40,11 +41,20 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
      */
     protected DatawaveJexlScript script;
     
+    /**
+     * The script compiled for evaluation, null if documents are evaluated by the interpreter
+     */
+    protected CompiledJexlScript compiledScript;
+    
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
     }
     
     public JexlEvaluation(String query, JexlArithmetic arithmetic) {
+        this(query, arithmetic, false);
+    }
+    
+    public JexlEvaluation(String query, JexlArithmetic arithmetic, boolean compiled) {
         this.query = query;
         this.arithmetic = arithmetic;
         
@@ -53,6 +63,10 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         
         // Evaluate the JexlContext against the Script
         this.script = DatawaveJexlScript.create((ExpressionImpl) this.engine.createScript(this.query));
+        
+        if (compiled) {
+            this.compiledScript = new CompiledJexlScript(this.script, arithmetic);
+        }
     }
     
     public JexlArithmetic getArithmetic() {
@@ -67,6 +81,10 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         return engine.parse(expression);
     }
     
+    public boolean isCompiled() {
+        return compiledScript != null;
+    }
+    
     public boolean isMatched(Object o) {
         return ArithmeticJexlEngines.isMatched(o);
     }
@@ -74,7 +92,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
+        Object o = (compiledScript != null ? compiledScript.execute(input.third()) : script.execute(input.third()));
         
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
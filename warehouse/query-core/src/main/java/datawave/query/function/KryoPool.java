@@ -0,0 +1,126 @@
+package datawave.query.function;
+
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import datawave.query.attributes.Attribute;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A pool of configured {@link Kryo} instances along with their {@link Output} and {@link Input} buffers. Creating a kryo instance is expensive, and allocating
+ * a new buffer per document adds up quickly when returning many documents, so the document serializers borrow them from here instead.
+ */
+public class KryoPool {
+    
+    // the most instances we will hold on to, any more are left to the garbage collector
+    public static final int MAX_POOLED = 64;
+    
+    // buffers grown beyond this size by a large document are not pooled
+    public static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    
+    private static final BlockingQueue<PooledKryo> pool = new ArrayBlockingQueue<>(MAX_POOLED);
+    
+    /**
+     * A kryo instance and its buffers. This must only be used by a single thread between {@link #borrow(boolean)} and {@link #release(PooledKryo)}.
+     */
+    public static class PooledKryo {
+        private final Kryo kryo = new Kryo();
+        private final KryoCVAwareSerializableSerializer serializer = new KryoCVAwareSerializableSerializer(false);
+        private final Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+        private final byte[] inputBuffer = new byte[INITIAL_BUFFER_SIZE];
+        private final Input input = new Input(inputBuffer);
+        
+        private PooledKryo() {
+            kryo.addDefaultSerializer(Attribute.class, serializer);
+        }
+        
+        public Kryo getKryo() {
+            return kryo;
+        }
+        
+        /**
+         * @return the output, cleared
+         */
+        public Output getOutput() {
+            output.clear();
+            return output;
+        }
+        
+        /**
+         * Get an input that reads directly from an array
+         *
+         * @param data
+         *            the data
+         * @param offset
+         *            where to start reading
+         * @param length
+         *            how many bytes may be read
+         * @return the input
+         */
+        public Input getInput(byte[] data, int offset, int length) {
+            input.setBuffer(data, 0, offset + length);
+            input.setPosition(offset);
+            return input;
+        }
+        
+        /**
+         * Get an input that reads from a stream through a pooled buffer
+         *
+         * @param data
+         *            the stream
+         * @return the input
+         */
+        public Input getInput(InputStream data) {
+            input.setBuffer(inputBuffer);
+            input.setInputStream(data);
+            return input;
+        }
+        
+        private void reset() {
+            // drop any references to the data that was read
+            input.setBuffer(inputBuffer);
+            input.setInputStream(null);
+        }
+        
+        private boolean isPoolable() {
+            return output.getBuffer().length <= MAX_POOLED_BUFFER_SIZE;
+        }
+    }
+    
+    private KryoPool() {}
+    
+    /**
+     * Borrow a kryo instance
+     *
+     * @param reducedResponse
+     *            whether documents written with this instance should be reduced
+     * @return a kryo instance
+     */
+    public static PooledKryo borrow(boolean reducedResponse) {
+        PooledKryo pooled = pool.poll();
+        if (pooled == null) {
+            pooled = new PooledKryo();
+        }
+        pooled.serializer.setReducedResponse(reducedResponse);
+        return pooled;
+    }
+    
+    /**
+     * Return a kryo instance to the pool
+     *
+     * @param pooled
+     *            the instance, which may not be used after this call
+     */
+    public static void release(PooledKryo pooled) {
+        pooled.reset();
+        if (pooled.isPoolable()) {
+            pool.offer(pooled);
+        }
+    }
+}
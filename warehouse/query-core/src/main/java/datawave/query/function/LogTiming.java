@@ -5,6 +5,7 @@ import java.net.UnknownHostException;
 import java.util.Map.Entry;
 
 import datawave.query.attributes.Numeric;
+import datawave.query.iterator.profile.LatencyHistogram;
 import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.attributes.Document;
 import datawave.query.attributes.TimingMetadata;
@@ -52,11 +53,9 @@ public class LogTiming implements Function<Entry<Key,Document>,Entry<Key,Documen
                 timingMetadata.setSourceCount(querySpan.getSourceCount());
                 timingMetadata.setSeekCount(querySpan.getSeekCount());
                 timingMetadata.setNextCount(querySpan.getNextCount());
-                if (querySpan.getYield()) {
-                    timingMetadata.setYieldCount(1L);
-                } else {
-                    timingMetadata.setYieldCount(0L);
-                }
+                timingMetadata.setYieldCount(querySpan.getYieldCount());
+                timingMetadata.setResumeCount(querySpan.getResumeCount());
+                timingMetadata.setYieldResumeMs(querySpan.getYieldResumeMs());
                 
                 long totalStageTimers = querySpan.getStageTimerTotal();
                 // do not report timers that are less than 5% of the total
@@ -66,6 +65,10 @@ public class LogTiming implements Function<Entry<Key,Document>,Entry<Key,Documen
                         timingMetadata.addStageTimer(e.getKey(), new Numeric(e.getValue(), document.getMetadata(), document.isToKeep()));
                     }
                 }
+                // unlike the stage timers every histogram is kept, they are what show where the time of a slow query went
+                for (Entry<String,LatencyHistogram> e : querySpan.getLatencies().entrySet()) {
+                    timingMetadata.addLatency(e.getKey(), e.getValue());
+                }
                 querySpan.reset();
             }
             document.put(TIMING_METADATA, timingMetadata);
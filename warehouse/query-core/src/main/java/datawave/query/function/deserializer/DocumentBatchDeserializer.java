@@ -0,0 +1,70 @@
+package datawave.query.function.deserializer;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.exceptions.InvalidDocumentHeader;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+
+/**
+ * Unpacks a Value written by the {@link datawave.query.function.serializer.DocumentBatchSerializer} back into its individual serialized documents. Entries that
+ * are not batches are passed through as is.
+ */
+public class DocumentBatchDeserializer implements Function<Entry<Key,Value>,Iterator<Entry<Key,Value>>> {
+    
+    /**
+     * Unpack any batches from a stream of results
+     *
+     * @param results
+     *            the results as returned from the tservers
+     * @return the results with one document per entry
+     */
+    public static Iterator<Entry<Key,Value>> unbatch(Iterator<Entry<Key,Value>> results) {
+        return Iterators.concat(Iterators.transform(results, new DocumentBatchDeserializer()));
+    }
+    
+    @Override
+    public Iterator<Entry<Key,Value>> apply(Entry<Key,Value> from) {
+        if (from == null || from.getValue() == null || !DocumentSerialization.isBatch(from.getValue().get())) {
+            return Iterators.singletonIterator(from);
+        }
+        return deserialize(from.getValue().get()).iterator();
+    }
+    
+    public List<Entry<Key,Value>> deserialize(byte[] data) {
+        try (DataInputStream in = new DataInputStream(DocumentSerialization.consumeBatchHeader(data))) {
+            int count = WritableUtils.readVInt(in);
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            
+            List<Entry<Key,Value>> documents = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Key key = new Key();
+                key.readFields(in);
+                byte[] value = new byte[WritableUtils.readVInt(in)];
+                in.readFully(value);
+                documents.add(Maps.immutableEntry(key, new Value(value, false)));
+            }
+            return documents;
+        } catch (IOException e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.BUFFER_READ_ERROR, e);
+            throw new InvalidDocumentHeader(qe);
+        }
+    }
+}
@@ -16,13 +16,27 @@ public abstract class DocumentDeserializer implements Function<Entry<Key,Value>,
     
     @Override
     public Entry<Key,Document> apply(Entry<Key,Value> from) {
-        InputStream is = DocumentSerialization.consumeHeader(from.getValue().get());
+        byte[] data = from.getValue().get();
+        InputStream is = DocumentSerialization.consumeHeader(data);
         
-        Document document = deserialize(is);
+        Document document = deserialize(is, DocumentSerialization.getVersion(data));
         
         return Maps.immutableEntry(from.getKey(), document);
     }
     
     public abstract Document deserialize(InputStream data);
     
+    /**
+     * Deserialize a document written with the given encoding version. Deserializers whose encoding has not changed can ignore the version.
+     *
+     * @param data
+     *            the document, after the header
+     * @param version
+     *            the encoding version from the header
+     * @return the document
+     */
+    public Document deserialize(InputStream data, int version) {
+        return deserialize(data);
+    }
+    
 }
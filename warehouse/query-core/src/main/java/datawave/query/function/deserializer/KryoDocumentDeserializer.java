@@ -2,40 +2,83 @@ package datawave.query.function.deserializer;
 
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Map.Entry;
 
-import datawave.query.attributes.Attribute;
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.AttributeClassIds;
 import datawave.query.attributes.Document;
-import datawave.query.function.KryoCVAwareSerializableSerializer;
+import datawave.query.function.KryoPool;
+import datawave.query.function.KryoPool.PooledKryo;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.Maps;
 
 /**
  * Transform Kryo-serialized bytes back into a Document. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
- * 
+ * <p>
+ * Both the {@link DocumentSerialization#LEGACY_VERSION} and the {@link DocumentSerialization#CLASS_ID_VERSION} encodings are read, as given by the header.
+ * Uncompressed documents are read directly from the Value without copying.
  *
  */
 public class KryoDocumentDeserializer extends DocumentDeserializer implements Serializable {
     private static final long serialVersionUID = 1L;
     
-    final transient Kryo kryo = new Kryo();
-    
-    public KryoDocumentDeserializer() {
-        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(true));
+    @Override
+    public Entry<Key,Document> apply(Entry<Key,Value> from) {
+        byte[] data = from.getValue().get();
+        if (DocumentSerialization.NONE != DocumentSerialization.getCompression(data)) {
+            return super.apply(from);
+        }
+        
+        // validate the header
+        DocumentSerialization.consumeHeader(data);
+        
+        PooledKryo pooled = KryoPool.borrow(true);
+        try {
+            Input input = pooled.getInput(data, 3, data.length - 3);
+            Document document = read(pooled.getKryo(), input, DocumentSerialization.getVersion(data));
+            return Maps.immutableEntry(from.getKey(), document);
+        } finally {
+            KryoPool.release(pooled);
+        }
     }
     
     @Override
     public Document deserialize(InputStream data) {
-        Input input = new Input(data);
+        return deserialize(data, DocumentSerialization.LEGACY_VERSION);
+    }
+    
+    @Override
+    public Document deserialize(InputStream data, int version) {
+        PooledKryo pooled = KryoPool.borrow(true);
+        Input input = pooled.getInput(data);
+        try {
+            return read(pooled.getKryo(), input, version);
+        } finally {
+            input.close();
+            KryoPool.release(pooled);
+        }
+    }
+    
+    private Document read(Kryo kryo, Input input, int version) {
+        if (DocumentSerialization.CLASS_ID_VERSION == version) {
+            AttributeClassIds.enable(kryo);
+        } else if (DocumentSerialization.LEGACY_VERSION == version) {
+            AttributeClassIds.disable(kryo);
+        } else {
+            throw new IllegalArgumentException("Unknown document encoding version " + version);
+        }
+        
         Document document = kryo.readObject(input, Document.class);
         
         if (null == document) {
             throw new RuntimeException("Deserialized null Document");
         }
         
-        input.close();
-        
         return document;
     }
     
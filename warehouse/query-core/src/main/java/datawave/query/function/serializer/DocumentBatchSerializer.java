@@ -0,0 +1,73 @@
+package datawave.query.function.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.exceptions.InvalidDocumentHeader;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Packs a number of serialized documents into a single Value so that small documents do not each pay the per entry overhead of returning a result from the
+ * tserver. The Value is a batch header followed by the number of documents and then the key and the serialized document of each. When compression is enabled
+ * the whole block is compressed at once, which also takes care of the field names repeated across the documents.
+ * <p>
+ * The documents keep their own headers and are returned as is by the {@link datawave.query.function.deserializer.DocumentBatchDeserializer}.
+ */
+public class DocumentBatchSerializer {
+    
+    private final int compression;
+    
+    public DocumentBatchSerializer(boolean compress) {
+        this.compression = compress ? DocumentSerialization.GZIP : DocumentSerialization.NONE;
+    }
+    
+    public Value serialize(List<Entry<Key,Value>> documents) {
+        int size = 0;
+        for (Entry<Key,Value> document : documents) {
+            size += document.getKey().getSize() + document.getValue().getSize() + 16;
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size + 3);
+        try {
+            bytes.write(DocumentSerialization.getBatchHeader(compression));
+            
+            Deflater deflater = null;
+            OutputStream body = bytes;
+            if (DocumentSerialization.GZIP == compression) {
+                deflater = new Deflater(DocumentSerialization.ZLIB_NUMBER);
+                body = new DeflaterOutputStream(bytes, deflater, 1024);
+            }
+            
+            DataOutputStream out = new DataOutputStream(body);
+            WritableUtils.writeVInt(out, documents.size());
+            for (Entry<Key,Value> document : documents) {
+                document.getKey().write(out);
+                byte[] value = document.getValue().get();
+                WritableUtils.writeVInt(out, value.length);
+                out.write(value);
+            }
+            out.close();
+            
+            if (deflater != null) {
+                deflater.end();
+            }
+        } catch (IOException e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.GZIP_STREAM_WRITE_ERROR, e);
+            throw new InvalidDocumentHeader(qe);
+        }
+        
+        return new Value(bytes.toByteArray(), false);
+    }
+}
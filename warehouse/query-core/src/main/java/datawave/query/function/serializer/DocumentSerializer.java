@@ -48,11 +48,7 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
             s = Trace.start("Document Serialization");
             s.data("Serialization type", this.concreteName);
             
-            byte[] bytes = serialize(from.getValue());
-            
-            s.data("Raw size", Integer.toString(bytes.length));
-            
-            Value v = getValue(bytes, s);
+            Value v = toValue(from.getValue(), s);
             
             return Maps.immutableEntry(from.getKey(), v);
         } finally {
@@ -64,6 +60,23 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
     
     public abstract byte[] serialize(Document d);
     
+    /**
+     * Serialize a document into a Value, including the header
+     *
+     * @param d
+     *            the document
+     * @param span
+     *            the trace span
+     * @return the value
+     */
+    protected Value toValue(Document d, Span span) {
+        byte[] bytes = serialize(d);
+        
+        span.data("Raw size", Integer.toString(bytes.length));
+        
+        return getValue(bytes, span);
+    }
+    
     protected Value getValue(byte[] document, Span span) {
         byte[] header;
         byte[] dataToWrite;
@@ -1,11 +1,13 @@
 package datawave.query.function.serializer;
 
-import java.io.ByteArrayOutputStream;
-
-import datawave.query.attributes.Attribute;
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.AttributeClassIds;
 import datawave.query.attributes.Document;
-import datawave.query.function.KryoCVAwareSerializableSerializer;
+import datawave.query.function.KryoPool;
+import datawave.query.function.KryoPool.PooledKryo;
 
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.trace.Span;
 import org.apache.log4j.Logger;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -13,14 +15,17 @@ import com.esotericsoftware.kryo.io.Output;
 
 /**
  * Transform the Document into a Kryo-serialized version. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
- * 
+ * <p>
+ * Documents returned through {@link #apply(java.util.Map.Entry)} are written directly behind the header in a pooled buffer, and the buffer is copied once into
+ * the array backing the returned Value. They are written with the legacy encoding unless attribute class ids are enabled, in which case they are written with
+ * {@link DocumentSerialization#CLASS_ID_VERSION}. Only enable the class ids once every webserver reading the results can read that version.
+ * {@link #serialize(Document)} has no header to carry a version and always writes the legacy encoding.
  *
  */
 public class KryoDocumentSerializer extends DocumentSerializer {
     private static final Logger log = Logger.getLogger(KryoDocumentSerializer.class);
-    final Kryo kryo = new Kryo();
-    final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+    
+    private final boolean attributeClassIds;
     
     public KryoDocumentSerializer() {
         this(false, false);
@@ -31,21 +36,77 @@ public class KryoDocumentSerializer extends DocumentSerializer {
     }
     
     public KryoDocumentSerializer(boolean reducedResponse, boolean compress) {
+        this(reducedResponse, compress, false);
+    }
+    
+    public KryoDocumentSerializer(boolean reducedResponse, boolean compress, boolean attributeClassIds) {
         super(reducedResponse, compress);
-        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
+        this.attributeClassIds = attributeClassIds;
     }
     
     @Override
     public byte[] serialize(Document doc) {
-        baos.reset();
-        
-        Output output = new Output(baos);
-        
-        kryo.writeObject(output, doc);
-        
-        output.close();
-        
-        return baos.toByteArray();
+        PooledKryo pooled = KryoPool.borrow(reducedResponse);
+        try {
+            Kryo kryo = pooled.getKryo();
+            AttributeClassIds.disable(kryo);
+            
+            Output output = pooled.getOutput();
+            kryo.writeObject(output, doc);
+            
+            return output.toBytes();
+        } finally {
+            KryoPool.release(pooled);
+        }
     }
     
+    @Override
+    protected Value toValue(Document doc, Span span) {
+        PooledKryo pooled = KryoPool.borrow(reducedResponse);
+        try {
+            Kryo kryo = pooled.getKryo();
+            int version;
+            if (attributeClassIds) {
+                AttributeClassIds.enable(kryo);
+                version = DocumentSerialization.CLASS_ID_VERSION;
+            } else {
+                AttributeClassIds.disable(kryo);
+                version = DocumentSerialization.LEGACY_VERSION;
+            }
+            
+            // write the header first so that the document does not need to be copied behind it
+            Output output = pooled.getOutput();
+            byte[] header = DocumentSerialization.getHeader(DocumentSerialization.NONE, version);
+            output.writeBytes(header);
+            kryo.writeObject(output, doc);
+            
+            int rawSize = output.position() - header.length;
+            span.data("Raw size", Integer.toString(rawSize));
+            
+            // Only compress the data if it's greater than minCompressionSize in size (bytes)
+            if (DocumentSerialization.NONE != this.compression && rawSize > minCompressionSize) {
+                byte[] body = DocumentSerialization.writeBody(output.getBuffer(), header.length, rawSize, this.compression);
+                span.data("Compressed size", Integer.toString(body.length));
+                
+                header = DocumentSerialization.getHeader(this.compression, version);
+                byte[] bytes = new byte[header.length + body.length];
+                System.arraycopy(header, 0, bytes, 0, header.length);
+                System.arraycopy(body, 0, bytes, header.length, body.length);
+                return new Value(bytes, false);
+            }
+            
+            if (log.isTraceEnabled()) {
+                log.trace("Serialized document to " + rawSize + " bytes");
+            }
+            
+            // the Value takes ownership of the array
+            return new Value(output.toBytes(), false);
+        } finally {
+            KryoPool.release(pooled);
+        }
+    }
+    
+    public boolean isAttributeClassIds() {
+        return attributeClassIds;
+    }
 }
@@ -0,0 +1,285 @@
+package datawave.query.index.lookup;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import datawave.query.tables.RangeStreamScanner;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.util.QueryScannerHelper;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Looks up many terms against the global index with one batch scanner, rather than with a {@link RangeStreamScanner} per term. The ranges of the terms are
+ * scanned together, and the entries are demultiplexed by their row (the term) and column family (the field) into a stream of shards for each term.
+ * <p>
+ * The lookup is submitted to an executor once all of its terms have been added, and the stream of a term blocks until the lookup has completed. The entries of
+ * every term are held in memory, so the number of terms in a lookup is bounded by {@link ShardQueryConfiguration#getMaxTermsPerIndexLookup()}.
+ */
+public class CoalescedIndexLookup implements Callable<Map<Entry<String,String>,List<Entry<Key,Value>>>> {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(CoalescedIndexLookup.class);
+    
+    private static final int MAX_MEDIAN = 20;
+    
+    private final ShardQueryConfiguration config;
+    private final ScannerFactory scanners;
+    private final List<IteratorSetting> iterators;
+    
+    // the range of each term, keyed by field and term
+    private final Map<Entry<String,String>,Range> ranges = new LinkedHashMap<>();
+    
+    private Future<Map<Entry<String,String>,List<Entry<Key,Value>>>> future = null;
+    
+    /**
+     * @param config
+     *            the query configuration
+     * @param scanners
+     *            the scanner factory
+     * @param iterators
+     *            the iterators to apply to the global index scan
+     */
+    public CoalescedIndexLookup(ShardQueryConfiguration config, ScannerFactory scanners, List<IteratorSetting> iterators) {
+        this.config = config;
+        this.scanners = scanners;
+        this.iterators = iterators;
+    }
+    
+    /**
+     * Add a term to this lookup
+     * 
+     * @param field
+     *            the field
+     * @param term
+     *            the normalized term
+     * @param range
+     *            the global index range of the term
+     * @return the entries of the term in shard order, which are available once the lookup has completed
+     */
+    public synchronized Iterator<Entry<Key,Value>> addTerm(String field, String term, Range range) {
+        if (future != null) {
+            throw new IllegalStateException("Cannot add a term to an index lookup which has been started");
+        }
+        Entry<String,String> key = Maps.immutableEntry(field, term);
+        ranges.put(key, range);
+        return new TermIterator(key);
+    }
+    
+    public synchronized int size() {
+        return ranges.size();
+    }
+    
+    /**
+     * Submit this lookup to the executor
+     * 
+     * @param executor
+     *            the executor to run the lookup with
+     */
+    public synchronized void start(ExecutorService executor) {
+        if (future == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Looking up " + ranges.size() + " terms against the global index with one scanner");
+            }
+            future = executor.submit(this);
+        }
+    }
+    
+    @Override
+    public Map<Entry<String,String>,List<Entry<Key,Value>>> call() throws Exception {
+        Map<Entry<String,String>,TreeMap<Key,Value>> entries = new HashMap<>();
+        for (Entry<String,String> key : ranges.keySet()) {
+            entries.put(key, new TreeMap<>());
+        }
+        
+        BatchScanner scanner = scanners.newScanner(config.getIndexTableName(), config.getAuthorizations(), config.getNumIndexLookupThreads(),
+                        config.getQuery());
+        try {
+            for (IteratorSetting setting : iterators) {
+                scanner.addScanIterator(setting);
+            }
+            
+            // replace the query information added by the scanner factory with one that names the terms, as the scanner of a single term does
+            IteratorSetting queryInfo = QueryScannerHelper.getQueryInfoIterator(config.getQuery(), false, getQueryString());
+            scanner.removeScanIterator(queryInfo.getName());
+            scanner.addScanIterator(queryInfo);
+            
+            scanner.setRanges(ranges.values());
+            
+            // the batch scanner returns the entries of the terms interleaved, so sort them by term
+            for (Entry<Key,Value> entry : scanner) {
+                Key key = RangeStreamScanner.trimTrailingUnderscore(entry.getKey());
+                TreeMap<Key,Value> termEntries = entries.get(Maps.immutableEntry(key.getColumnFamily().toString(), key.getRow().toString()));
+                if (termEntries != null) {
+                    termEntries.put(key, entry.getValue());
+                }
+            }
+        } finally {
+            scanners.close(scanner);
+        }
+        
+        Map<Entry<String,String>,List<Entry<Key,Value>>> results = new HashMap<>();
+        for (Entry<Entry<String,String>,TreeMap<Key,Value>> entry : entries.entrySet()) {
+            results.put(entry.getKey(), collapseDays(entry.getValue()));
+        }
+        return results;
+    }
+    
+    /**
+     * @return the terms of this lookup as a query, for the query information reported by the tablet servers
+     */
+    private String getQueryString() {
+        StringBuilder query = new StringBuilder();
+        for (Entry<String,String> key : ranges.keySet()) {
+            if (query.length() > 0) {
+                query.append(" || ");
+            }
+            query.append(key.getKey()).append("=='").append(key.getValue()).append("'");
+        }
+        return query.toString();
+    }
+    
+    /**
+     * Replace the shards of a day with the day when there are at least {@link ShardQueryConfiguration#getShardsPerDayThreshold()} of them and they match
+     * many documents, as the {@link RangeStreamScanner} does
+     * 
+     * @param entries
+     *            the sorted entries of a term
+     * @return the entries, with busy days collapsed
+     */
+    protected List<Entry<Key,Value>> collapseDays(TreeMap<Key,Value> entries) {
+        List<Entry<Key,Value>> collapsed = new ArrayList<>(entries.size());
+        List<Entry<Key,Value>> day = new ArrayList<>();
+        String currentDay = null;
+        for (Entry<Key,Value> entry : entries.entrySet()) {
+            String shard = entry.getKey().getColumnQualifier().toString();
+            String nextDay = shard.length() > 8 ? shard.substring(0, 8) : shard;
+            if (!nextDay.equals(currentDay)) {
+                collapseDay(day, collapsed);
+                day.clear();
+                currentDay = nextDay;
+            }
+            day.add(entry);
+        }
+        collapseDay(day, collapsed);
+        return collapsed;
+    }
+    
+    private void collapseDay(List<Entry<Key,Value>> day, List<Entry<Key,Value>> collapsed) {
+        if (!day.isEmpty() && day.size() >= config.getShardsPerDayThreshold()) {
+            long[] counts = new long[day.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = readInfo(day.get(i).getValue()).count();
+            }
+            Arrays.sort(counts);
+            if (counts[counts.length / 2] > MAX_MEDIAN) {
+                Key top = day.get(0).getKey();
+                String shard = top.getColumnQualifier().toString();
+                Key dayKey = new Key(top.getRow(), top.getColumnFamily(), new Text(shard.substring(0, Math.min(8, shard.length()))), top.getColumnVisibility(),
+                                top.getTimestamp());
+                collapsed.add(Maps.immutableEntry(dayKey, writeInfo(new IndexInfo(-1))));
+                return;
+            }
+        }
+        collapsed.addAll(day);
+    }
+    
+    private static IndexInfo readInfo(Value value) {
+        try {
+            IndexInfo info = new IndexInfo();
+            info.readFields(new DataInputStream(new ByteArrayInputStream(value.get())));
+            return info;
+        } catch (IOException e) {
+            throw new DatawaveFatalQueryException(e);
+        }
+    }
+    
+    private static Value writeInfo(IndexInfo info) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            info.write(out);
+            out.close();
+            return new Value(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new DatawaveFatalQueryException(e);
+        }
+    }
+    
+    /**
+     * Get the entries of a term, running the lookup in this thread if it has not been started
+     */
+    private List<Entry<Key,Value>> getEntries(Entry<String,String> key) {
+        Future<Map<Entry<String,String>,List<Entry<Key,Value>>>> lookup;
+        synchronized (this) {
+            if (future == null) {
+                start(MoreExecutors.sameThreadExecutor());
+            }
+            lookup = future;
+        }
+        try {
+            List<Entry<Key,Value>> entries = lookup.get().get(key);
+            return entries == null ? Collections.emptyList() : entries;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            log.error(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+    
+    /**
+     * Iterates over the entries of a term once the lookup has completed
+     */
+    private class TermIterator implements Iterator<Entry<Key,Value>> {
+        private final Entry<String,String> key;
+        private Iterator<Entry<Key,Value>> entries = null;
+        
+        TermIterator(Entry<String,String> key) {
+            this.key = key;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (entries == null) {
+                entries = getEntries(key).iterator();
+            }
+            return entries.hasNext();
+        }
+        
+        @Override
+        public Entry<Key,Value> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return entries.next();
+        }
+    }
+}
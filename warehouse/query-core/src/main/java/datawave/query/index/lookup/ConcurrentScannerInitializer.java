@@ -1,6 +1,7 @@
 package datawave.query.index.lookup;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -10,6 +11,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import datawave.query.index.lookup.IndexStream.StreamContext;
+import datawave.query.util.Tuple2;
 
 import com.google.common.collect.Lists;
 
@@ -35,6 +37,10 @@ public class ConcurrentScannerInitializer implements Callable<BaseIndexStream> {
     public BaseIndexStream call() throws Exception {
         if (stream.context() == StreamContext.INITIALIZED) {
             if (stream.hasNext()) {
+                if (null == stream.rangeStreamScanner) {
+                    // the stream of a coalesced index lookup has no scanner of its own, so it is seeked by advancing the stream
+                    return ScannerStream.variable((Iterator<Tuple2<String,IndexInfo>>) stream, stream.currentNode());
+                }
                 return ScannerStream.variable(stream, stream.currentNode());
             } else {
                 return ScannerStream.noData(stream.currentNode());
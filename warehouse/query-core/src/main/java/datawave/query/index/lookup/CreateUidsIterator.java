@@ -27,6 +27,7 @@ import org.apache.hadoop.io.WritableUtils;
 import org.apache.log4j.Logger;
 
 import com.google.common.collect.Lists;
+import com.google.protobuf.CodedInputStream;
 
 /**
  * <pre>
@@ -113,7 +114,8 @@ public class CreateUidsIterator implements SortedKeyValueIterator<Key,Value>, Op
             }
             while (src.hasTop() && sameShard(reference, src.getTopKey())) {
                 Key nextTop = src.getTopKey();
-                Tuple3<Long,Boolean,List<String>> uidInfo = parseUids(nextTop, src.getTopValue());
+                // once the uids are being ignored only the counts are needed, so avoid decoding the uid lists
+                Tuple3<Long,Boolean,List<String>> uidInfo = parseUids(nextTop, src.getTopValue(), ignore);
                 count += uidInfo.first();
                 ignore |= uidInfo.second();
                 if (!ignore)
@@ -202,6 +204,29 @@ public class CreateUidsIterator implements SortedKeyValueIterator<Key,Value>, Op
         return testCq.byteAt(refCq.length()) == 0x00;
     }
     
+    public static Tuple3<Long,Boolean,List<String>> parseUids(Key k, Value v, boolean countOnly) throws IOException {
+        if (!countOnly) {
+            return parseUids(k, v);
+        }
+        
+        // read the count and ignore flag directly from the encoded list, skipping over the uids
+        long count = 0L;
+        boolean ignore = false;
+        CodedInputStream input = CodedInputStream.newInstance(v.get());
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            int field = tag >>> 3;
+            if (field == Uid.List.COUNT_FIELD_NUMBER) {
+                count = input.readUInt64();
+            } else if (field == Uid.List.IGNORE_FIELD_NUMBER) {
+                ignore = input.readBool();
+            } else {
+                input.skipField(tag);
+            }
+        }
+        return Tuples.tuple(count, ignore, Collections.emptyList());
+    }
+    
     public static Tuple3<Long,Boolean,List<String>> parseUids(Key k, Value v) throws IOException {
         final String dataType = parseDataType(k);
         Uid.List docIds = Uid.List.parseFrom(v.get());
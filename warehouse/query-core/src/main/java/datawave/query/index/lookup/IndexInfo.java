@@ -5,6 +5,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import datawave.query.jexl.JexlNodeFactory;
 import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
@@ -29,8 +30,10 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
 
 /**
  * This class represents information about hits in the index.
@@ -257,29 +260,10 @@ public class IndexInfo implements Writable, UidIntersector {
             merged.count = count + o.count;
             merged.uids = ImmutableSortedSet.of();
         } else {
-            HashMultimap<String,JexlNode> ids = HashMultimap.create();
-            
             /*
-             * Concatenate all UIDs and merge the individual nodes
+             * Merge the UIDs, which are both sorted, and the individual nodes
              */
-            for (IndexMatch match : Iterables.concat(uids, o.uids)) {
-                
-                JexlNode newNode = match.getNode();
-                if (null != newNode)
-                    ids.put(match.uid, newNode);
-            }
-            
-            Set<IndexMatch> matches = Sets.newHashSet();
-            
-            for (String uid : ids.keySet()) {
-                Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
-                if (!nodes.isEmpty()) {
-                    nodes.addAll(delayedNodes);
-                    matches.add(new IndexMatch(nodes, uid, IndexMatchType.OR));
-                }
-                
-            }
-            merged.uids = ImmutableSortedSet.copyOf(matches);
+            merged.uids = ImmutableSortedSet.copyOf(mergeUnion(toArray(uids), toArray(o.uids), delayedNodes));
             merged.count = merged.uids.size();
         }
         
@@ -541,6 +525,10 @@ public class IndexInfo implements Writable, UidIntersector {
     
     @Override
     public Set<IndexMatch> intersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        if (isSortedByUid(uids1) && isSortedByUid(uids2)) {
+            return mergeIntersection(toArray(uids1), toArray(uids2), delayedNodes);
+        }
+        
         HashMultimap<String,JexlNode> ids = HashMultimap.create();
         for (IndexMatch match : Iterables.concat(uids1, uids2)) {
             JexlNode newNode = match.getNode();
@@ -570,6 +558,145 @@ public class IndexInfo implements Writable, UidIntersector {
         return matches;
     }
     
+    /**
+     * @return true if the matches are sorted by uid, in which case there is only one match per uid
+     */
+    private static boolean isSortedByUid(Set<IndexMatch> matches) {
+        if (matches instanceof SortedSet) {
+            Comparator<?> comparator = ((SortedSet<IndexMatch>) matches).comparator();
+            return null == comparator || Ordering.natural().equals(comparator);
+        }
+        return false;
+    }
+    
+    private static IndexMatch[] toArray(Set<IndexMatch> matches) {
+        return matches.toArray(new IndexMatch[matches.size()]);
+    }
+    
+    /**
+     * Intersect two arrays of matches sorted by uid. The arrays are walked together, galloping over runs of uids that are only in one of them, so that the
+     * intersection of a few uids with many costs little more than a search for each of the few. This produces the same matches as
+     * {@link #buildNodeList(HashMultimap, IndexMatchType, boolean, List)} over all of the uids, without hashing all of them.
+     * 
+     * @param matches1
+     *            matches sorted by uid
+     * @param matches2
+     *            matches sorted by uid
+     * @param delayedNodes
+     *            delayed nodes to add to each match
+     * @return the matches of the uids in both arrays, in uid order
+     */
+    protected Set<IndexMatch> mergeIntersection(IndexMatch[] matches1, IndexMatch[] matches2, List<JexlNode> delayedNodes) {
+        Set<IndexMatch> matches = Sets.newLinkedHashSet();
+        int i = 0;
+        int j = 0;
+        while (i < matches1.length && j < matches2.length) {
+            int cmp = matches1[i].uid.compareTo(matches2[j].uid);
+            if (cmp < 0) {
+                i = gallop(matches1, i, matches2[j].uid);
+            } else if (cmp > 0) {
+                j = gallop(matches2, j, matches1[i].uid);
+            } else {
+                String uid = matches1[i].uid;
+                Set<JexlNode> nodes = Sets.newHashSet();
+                addNode(nodes, matches1[i++]);
+                addNode(nodes, matches2[j++]);
+                
+                // make sure that we have nodes, otherwise we are pruned to nothing
+                if (nodes.size() > 1) {
+                    JexlNodeSet nodeSet = new JexlNodeSet();
+                    nodeSet.addAll(nodes);
+                    nodeSet.addAll(delayedNodes);
+                    matches.add(new IndexMatch(Sets.newHashSet(nodeSet.getNodes()), uid, IndexMatchType.AND));
+                }
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Union two arrays of matches sorted by uid, merging the nodes of the uids that are in both
+     * 
+     * @param matches1
+     *            matches sorted by uid
+     * @param matches2
+     *            matches sorted by uid
+     * @param delayedNodes
+     *            delayed nodes to add to each match
+     * @return the matches of the uids in either array, in uid order
+     */
+    protected List<IndexMatch> mergeUnion(IndexMatch[] matches1, IndexMatch[] matches2, List<JexlNode> delayedNodes) {
+        List<IndexMatch> matches = new ArrayList<>(Math.max(matches1.length, matches2.length));
+        int i = 0;
+        int j = 0;
+        while (i < matches1.length || j < matches2.length) {
+            int cmp;
+            if (i == matches1.length) {
+                cmp = 1;
+            } else if (j == matches2.length) {
+                cmp = -1;
+            } else {
+                cmp = matches1[i].uid.compareTo(matches2[j].uid);
+            }
+            
+            String uid = cmp <= 0 ? matches1[i].uid : matches2[j].uid;
+            Set<JexlNode> nodes = Sets.newHashSet();
+            if (cmp <= 0) {
+                addNode(nodes, matches1[i++]);
+            }
+            if (cmp >= 0) {
+                addNode(nodes, matches2[j++]);
+            }
+            
+            if (!nodes.isEmpty()) {
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, uid, IndexMatchType.OR));
+            }
+        }
+        return matches;
+    }
+    
+    private static void addNode(Set<JexlNode> nodes, IndexMatch match) {
+        JexlNode node = match.getNode();
+        if (null != node) {
+            nodes.add(node);
+        }
+    }
+    
+    /**
+     * Find the first match at or after from whose uid is not less than the given uid, by doubling the step until it is passed and then searching back
+     * 
+     * @param matches
+     *            matches sorted by uid
+     * @param from
+     *            the index to start from, whose uid is less than the given uid
+     * @param uid
+     *            the uid to find
+     * @return the index of the first match whose uid is not less than the given uid, or the length of the array if there is none
+     */
+    static int gallop(IndexMatch[] matches, int from, String uid) {
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < matches.length && matches[high].uid.compareTo(uid) < 0) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, matches.length);
+        
+        // the match at low is less than the uid, and the match at high (if any) is not
+        while (low + 1 < high) {
+            int mid = (low + high) >>> 1;
+            if (matches[mid].uid.compareTo(uid) < 0) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+    
     public boolean equals(Object o) {
         if (o == this) {
             return true;
@@ -83,6 +83,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -136,6 +137,9 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
     
     protected Set<String> indexOnlyFields = Sets.newHashSet();
     
+    // the index lookup that the terms of the union being visited are added to, when the lookups are coalesced
+    protected CoalescedIndexLookup pendingLookup = null;
+    
     public RangeStream(ShardQueryConfiguration config, ScannerFactory scanners, MetadataHelper metadataHelper) {
         this.config = config;
         this.scanners = scanners;
@@ -221,6 +225,7 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
     public Iterator<QueryPlan> iterator() {
         try {
             if (null == itr) {
+                startIndexLookup();
                 if (queryStream.context() == StreamContext.INITIALIZED) {
                     List<ConcurrentScannerInitializer> todo = Lists.newArrayList();
                     todo.add(new ConcurrentScannerInitializer(queryStream));
@@ -320,6 +325,8 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
             return ScannerStream.unindexed(node);
         } else {
             
+            // the terms of the union are looked up together while its children are initialized
+            startIndexLookup();
             Union union = builder.build(executor);
             
             switch (union.context()) {
@@ -368,6 +375,7 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         } else if (builder.size() == 0) {
             return ScannerStream.unindexed(node);
         } else {
+            startIndexLookup();
             Intersection build = builder.build(executor);
             switch (build.context()) {
                 case ABSENT:
@@ -435,6 +443,15 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         log.debug("\"" + fieldName + "\" is indexed. for " + literal);
         try {
             
+            // Create the range for the term from the provided config.
+            Range range = rangeForTerm(literal, fieldName, config);
+            
+            if (config.isCoalesceIndexLookups() && data instanceof Union.Builder) {
+                // the term is looked up along with the other terms of the union, rather than with a scanner of its own
+                Iterator<Entry<Key,Value>> entries = addToIndexLookup(fieldName, literal, range);
+                return ScannerStream.initialized(transform(entries, new EntryParser(node, fieldName, literal, indexOnlyFields)), node);
+            }
+            
             int stackStart = config.getBaseIteratorPriority();
             
             RangeStreamScanner scannerSession;
@@ -445,9 +462,6 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
             
             final IteratorSetting uidSetting;
             
-            // Create the range for the term from the provided config.
-            Range range = rangeForTerm(literal, fieldName, config);
-            
             if (limitScanners) {
                 // Setup the CreateUidsIterator
                 scannerSession = scanners.newRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
@@ -724,6 +738,43 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         return null;
     }
     
+    /**
+     * Add a term to the pending index lookup, starting the lookup once it holds {@link ShardQueryConfiguration#getMaxTermsPerIndexLookup()} terms
+     * 
+     * @param fieldName
+     *            the field
+     * @param literal
+     *            the normalized term
+     * @param range
+     *            the global index range of the term
+     * @return the entries of the term
+     */
+    protected Iterator<Entry<Key,Value>> addToIndexLookup(String fieldName, String literal, Range range) {
+        if (null == pendingLookup) {
+            int stackStart = config.getBaseIteratorPriority();
+            IteratorSetting uidSetting = new IteratorSetting(stackStart + 1, createUidsIteratorClass);
+            uidSetting.addOption(CreateUidsIterator.COLLAPSE_UIDS, Boolean.valueOf(limitScanners && collapseUids).toString());
+            uidSetting.addOption(CreateUidsIterator.PARSE_TLD_UIDS, Boolean.valueOf(limitScanners && config.getParseTldUids()).toString());
+            pendingLookup = new CoalescedIndexLookup(config, scanners, Arrays.asList(makeDataTypeFilter(config, stackStart), uidSetting));
+        }
+        
+        Iterator<Entry<Key,Value>> entries = pendingLookup.addTerm(fieldName, literal, range);
+        if (pendingLookup.size() >= config.getMaxTermsPerIndexLookup()) {
+            startIndexLookup();
+        }
+        return entries;
+    }
+    
+    /**
+     * Start the pending index lookup, if any, so that the terms added to it can be initialized
+     */
+    protected void startIndexLookup() {
+        if (null != pendingLookup) {
+            pendingLookup.start(streamExecutor);
+            pendingLookup = null;
+        }
+    }
+    
     public Range rangeForTerm(String term, String field, ShardQueryConfiguration config) {
         return rangeForTerm(term, field, config.getBeginDate(), config.getEndDate());
     }
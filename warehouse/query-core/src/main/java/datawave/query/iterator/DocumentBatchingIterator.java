@@ -0,0 +1,113 @@
+package datawave.query.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import datawave.query.function.serializer.DocumentBatchSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Packs serialized documents into batches of up to a maximum number of documents, a maximum number of bytes, or whatever was gathered within a maximum
+ * latency. A batch is returned under the key of its last document so that a rebuilt scan resumes after the batch. A batch of a single document is returned as
+ * is.
+ * <p>
+ * If the scan yields while documents are being gathered, the yield is held back until the partial batch has been returned. Accumulo does not allow a top key
+ * once an iterator has yielded.
+ */
+public class DocumentBatchingIterator implements Iterator<Entry<Key,Value>> {
+    
+    private static final Logger log = Logger.getLogger(DocumentBatchingIterator.class);
+    
+    private final Iterator<Entry<Key,Value>> serializedDocuments;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final long maxLatencyMs;
+    private final DocumentBatchSerializer serializer;
+    private final YieldCallback<Key> yield;
+    
+    private Entry<Key,Value> next = null;
+    private Key pendingYield = null;
+    
+    public DocumentBatchingIterator(Iterator<Entry<Key,Value>> serializedDocuments, int maxDocuments, long maxBytes, long maxLatencyMs, boolean compress,
+                    YieldCallback<Key> yieldCallback) {
+        this.serializedDocuments = serializedDocuments;
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+        this.maxLatencyMs = maxLatencyMs;
+        this.serializer = new DocumentBatchSerializer(compress);
+        this.yield = yieldCallback;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        
+        if (pendingYield != null) {
+            // the partial batch has been returned, now we can yield
+            yield.yield(pendingYield);
+            pendingYield = null;
+            return false;
+        }
+        
+        List<Entry<Key,Value>> batch = new ArrayList<>();
+        long bytes = 0;
+        long start = System.currentTimeMillis();
+        while (batch.size() < maxDocuments && bytes < maxBytes && serializedDocuments.hasNext()) {
+            Entry<Key,Value> document = serializedDocuments.next();
+            if (document == null) {
+                continue;
+            }
+            batch.add(document);
+            bytes += document.getKey().getSize() + document.getValue().getSize();
+            if (System.currentTimeMillis() - start >= maxLatencyMs) {
+                break;
+            }
+        }
+        
+        if (yield != null && yield.hasYielded()) {
+            if (batch.isEmpty()) {
+                return false;
+            }
+            pendingYield = yield.getPositionAndReset();
+        }
+        
+        if (batch.isEmpty()) {
+            return false;
+        } else if (batch.size() == 1) {
+            next = batch.get(0);
+        } else {
+            Key lastKey = batch.get(batch.size() - 1).getKey();
+            next = Maps.immutableEntry(lastKey, serializer.serialize(batch));
+            if (log.isTraceEnabled()) {
+                log.trace("Batched " + batch.size() + " documents of " + bytes + " bytes into " + next.getValue().getSize() + " bytes");
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Entry<Key,Value> result = next;
+        next = null;
+        return result;
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -2,43 +2,109 @@ package datawave.query.iterator;
 
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.lang.management.OperatingSystemMXBean;
 import java.util.Collection;
 import java.util.Map;
 
+import datawave.core.iterators.IteratorThreadPoolManager;
 import datawave.query.exceptions.LoadAverageWatchException;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.accumulo.core.iterators.YieldingKeyValueIterator;
+import org.apache.log4j.Logger;
 
-public class LoadAverageWatchIterator extends WrappingIterator {
+/**
+ * Watches the pressure on the tserver and holds back scans when it is too high. The pressure is the largest of the system load average per processor, the
+ * backlog of the evaluation and ivarator thread pools, and the heap left in use after the last garbage collection, each relative to its threshold. A pressure
+ * above 1.0 means that at least one of them is over its threshold. Only the system load is watched by default. The pool backlog and heap are only watched when
+ * their thresholds are set with {@link #POOL_LOAD_THRESHOLD} and {@link #HEAP_THRESHOLD}.
+ * <p>
+ * By default a scan under pressure fails with a {@link LoadAverageWatchException}. With {@link #YIELD_ON_LOAD} set and yielding enabled, a scan under pressure
+ * instead yields right after the last key it returned, which sends the partial results back and resumes the scan from there later. A seek is never held back
+ * in that mode, so a scan under pressure returns at least one key before it yields.
+ * <p>
+ * The query iterator does not fail under pressure. It uses {@link #getPressure(IteratorEnvironment, double, double, double)} and {@link #relieve(int, double)}
+ * to shrink its evaluation pipelines and document batches when the tserver is under pressure.
+ */
+public class LoadAverageWatchIterator extends WrappingIterator implements YieldingKeyValueIterator<Key,Value> {
+    
+    private static final Logger log = Logger.getLogger(LoadAverageWatchIterator.class);
     
     private static final String CAPTURE_LOAD_AVERAGE = "CAPTURE_LOAD_AVERAGE";
     
     private static final String SYSTEM_LOAD_THRESHOLD = "SYSTEM_LOAD_THRESHOLD";
     
+    public static final String POOL_LOAD_THRESHOLD = "POOL_LOAD_THRESHOLD";
+    
+    public static final String HEAP_THRESHOLD = "HEAP_THRESHOLD";
+    
+    public static final String YIELD_ON_LOAD = "YIELD_ON_LOAD";
+    
+    public static final double DEFAULT_SYSTEM_LOAD_THRESHOLD = 2.0d;
+    
+    // a threshold of 0 or less disables its signal. A pool load of 2.0 means as many tasks waiting as there are threads, and a heap threshold is the fraction
+    // of the old generation still in use after a collection.
+    public static final double DISABLED_THRESHOLD = 0.0d;
+    
+    // how often the pressure is sampled
+    public static final long PRESSURE_SAMPLE_PERIOD_MS = 1000L;
+    
     protected boolean reportHighLoad = false;
     
-    protected double loadThresholdAboveProcs = 2.0;
+    protected double loadThresholdAboveProcs = DEFAULT_SYSTEM_LOAD_THRESHOLD;
+    
+    protected double poolLoadThreshold = DISABLED_THRESHOLD;
+    
+    protected double heapThreshold = DISABLED_THRESHOLD;
+    
+    protected boolean yieldOnLoad = false;
     
     protected static final OperatingSystemMXBean OS_BEAN = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
     
+    private IteratorEnvironment env;
+    
+    private YieldCallback<Key> yield;
+    
+    private boolean yielded = false;
+    
+    private Range range;
+    
+    private double pressure = 0.0d;
+    
+    private long lastSampleMs = 0L;
+    
+    public LoadAverageWatchIterator() {}
+    
     public LoadAverageWatchIterator(LoadAverageWatchIterator other, IteratorEnvironment env) {
         this.setSource(other.getSource().deepCopy(env));
+        this.env = env;
         reportHighLoad = other.reportHighLoad;
         loadThresholdAboveProcs = other.loadThresholdAboveProcs;
+        poolLoadThreshold = other.poolLoadThreshold;
+        heapThreshold = other.heapThreshold;
+        yieldOnLoad = other.yieldOnLoad;
     }
     
     public static void setErrorReporting(IteratorSetting cfg) {
         cfg.addOption(CAPTURE_LOAD_AVERAGE, CAPTURE_LOAD_AVERAGE);
     }
     
+    public static void setYieldOnLoad(IteratorSetting cfg) {
+        cfg.addOption(YIELD_ON_LOAD, Boolean.toString(true));
+    }
+    
     @Override
     public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
         
@@ -46,57 +112,189 @@ public class LoadAverageWatchIterator extends WrappingIterator {
             reportHighLoad = true;
         }
         
-        if (null != options.get(SYSTEM_LOAD_THRESHOLD)) {
+        loadThresholdAboveProcs = getDouble(options, SYSTEM_LOAD_THRESHOLD, loadThresholdAboveProcs);
+        poolLoadThreshold = getDouble(options, POOL_LOAD_THRESHOLD, poolLoadThreshold);
+        heapThreshold = getDouble(options, HEAP_THRESHOLD, heapThreshold);
+        
+        if (null != options.get(YIELD_ON_LOAD)) {
+            yieldOnLoad = Boolean.parseBoolean(options.get(YIELD_ON_LOAD));
+        }
+        
+        this.env = env;
+        super.init(source, options, env);
+    }
+    
+    private static double getDouble(Map<String,String> options, String option, double defaultValue) {
+        if (null != options.get(option)) {
             try {
-                loadThresholdAboveProcs = Double.valueOf(options.get(SYSTEM_LOAD_THRESHOLD));
-            } catch (Exception e) {
-                
+                return Double.parseDouble(options.get(option));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid " + option + " of " + options.get(option));
             }
         }
-        
-        try {
-            
-            super.init(source, options, env);
-            
-        } catch (RuntimeException | IOException e) {
-            throw e;
+        return defaultValue;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public void enableYielding(YieldCallback<Key> yieldCallback) {
+        this.yield = yieldCallback;
+        if (getSource() instanceof YieldingKeyValueIterator) {
+            ((YieldingKeyValueIterator<Key,Value>) getSource()).enableYielding(yieldCallback);
+        }
+    }
+    
+    /**
+     * Get the pressure on the tserver from the system load alone
+     * 
+     * @param env
+     *            the iterator environment used to find the thread pools
+     * @return the pressure, where anything above 1.0 is over a threshold
+     */
+    public static double getPressure(IteratorEnvironment env) {
+        return getPressure(env, DEFAULT_SYSTEM_LOAD_THRESHOLD, DISABLED_THRESHOLD, DISABLED_THRESHOLD);
+    }
+    
+    /**
+     * Get the pressure on the tserver
+     * 
+     * @param env
+     *            the iterator environment used to find the thread pools
+     * @param systemLoadThreshold
+     *            the threshold for the system load average per processor
+     * @param poolLoadThreshold
+     *            the threshold for the running plus queued tasks per thread of the evaluation and ivarator pools, or 0 to ignore the pools
+     * @param heapThreshold
+     *            the threshold for the fraction of the heap in use after a garbage collection, or 0 to ignore the heap
+     * @return the pressure, where anything above 1.0 is over a threshold
+     */
+    public static double getPressure(IteratorEnvironment env, double systemLoadThreshold, double poolLoadThreshold, double heapThreshold) {
+        double pressure = 0.0d;
+        double systemLoad = OS_BEAN.getSystemLoadAverage();
+        // a negative value means the load average is not available on this platform
+        if (systemLoad >= 0) {
+            pressure = (systemLoad / OS_BEAN.getAvailableProcessors()) / systemLoadThreshold;
+        }
+        if (poolLoadThreshold > DISABLED_THRESHOLD) {
+            double poolLoad = Math.max(IteratorThreadPoolManager.getEvaluationLoad(env), IteratorThreadPoolManager.getIvaratorLoad(env));
+            pressure = Math.max(pressure, poolLoad / poolLoadThreshold);
+        }
+        if (heapThreshold > DISABLED_THRESHOLD) {
+            pressure = Math.max(pressure, getHeapUsage() / heapThreshold);
+        }
+        return pressure;
+    }
+    
+    /**
+     * Get the fraction of the tenured heap still in use after the last garbage collection. The heap in use right now says little as it includes the garbage
+     * that has not been collected yet.
+     * 
+     * @return the fraction of the heap in use, or 0 if it is not known
+     */
+    protected static double getHeapUsage() {
+        double usage = 0.0d;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // only the tenured pools support both usage thresholds
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+                MemoryUsage afterCollection = pool.getCollectionUsage();
+                long max = pool.getUsage().getMax();
+                if (afterCollection != null && max > 0) {
+                    usage = Math.max(usage, ((double) afterCollection.getUsed()) / max);
+                }
+            }
         }
+        return usage;
+    }
+    
+    /**
+     * Shrink a batch size or concurrency in proportion to the pressure on the tserver
+     * 
+     * @param value
+     *            the configured value
+     * @param pressure
+     *            the pressure
+     * @return the value divided by the pressure when over 1.0, and never below 1
+     */
+    public static int relieve(int value, double pressure) {
+        if (pressure <= 1.0d || value <= 1) {
+            return value;
+        }
+        return Math.max(1, (int) (value / pressure));
+    }
+    
+    /**
+     * @return the pressure on the tserver, sampled at most every {@link #PRESSURE_SAMPLE_PERIOD_MS}
+     */
+    protected double getPressure() {
+        long now = System.currentTimeMillis();
+        if (now - lastSampleMs >= PRESSURE_SAMPLE_PERIOD_MS) {
+            lastSampleMs = now;
+            pressure = getPressure(env, loadThresholdAboveProcs, poolLoadThreshold, heapThreshold);
+            if (log.isTraceEnabled()) {
+                log.trace("Tserver pressure is " + pressure);
+            }
+        }
+        return pressure;
     }
     
     protected boolean loadExceedThreshold() {
-        
-        if (OS_BEAN.getSystemLoadAverage() / OS_BEAN.getAvailableProcessors() > loadThresholdAboveProcs) {
-            return true;
+        return getPressure() > 1.0d;
+    }
+    
+    private boolean canYield() {
+        return yieldOnLoad && yield != null;
+    }
+    
+    /**
+     * Get the position to yield at once a key has been returned. The scan resumes after the yield position, which has to follow the returned key without
+     * passing any other key. A delete marker one timestamp older does that, as deleted keys sort first and are never returned by a scan.
+     * 
+     * @param key
+     *            the key that was returned last
+     * @return the yield position
+     */
+    protected static Key getYieldPosition(Key key) {
+        if (key.getTimestamp() == Long.MIN_VALUE) {
+            return key.followingKey(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME);
         }
-        return false;
-        
+        Key position = new Key(key);
+        position.setTimestamp(key.getTimestamp() - 1);
+        position.setDeleted(true);
+        return position;
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return !yielded && super.hasTop();
     }
     
     @Override
     public void next() throws IOException {
         if (loadExceedThreshold()) {
-            throw new LoadAverageWatchException();
-        }
-        try {
-            
-            super.next();
-            
-        } catch (RuntimeException | IOException e) {
-            throw e;
+            if (!canYield()) {
+                throw new LoadAverageWatchException();
+            }
+            // the top key has been returned, so resume right after it. Past the end of the range there is nothing left to resume.
+            Key position = getYieldPosition(getTopKey());
+            if (range.contains(position)) {
+                log.debug("Yielding under tserver pressure of " + pressure);
+                yield.yield(position);
+                yielded = true;
+                return;
+            }
         }
+        super.next();
     }
     
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
-        if (loadExceedThreshold()) {
+        this.range = range;
+        yielded = false;
+        // nothing has been returned to yield after, so a scan that can yield is let through and yields once it has returned a key
+        if (!canYield() && loadExceedThreshold()) {
             throw new LoadAverageWatchException();
         }
-        try {
-            super.seek(range, columnFamilies, inclusive);
-        } catch (RuntimeException | IOException e) {
-            throw e;
-        }
-        
+        super.seek(range, columnFamilies, inclusive);
     }
     
     @Override
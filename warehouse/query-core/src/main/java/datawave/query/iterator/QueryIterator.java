@@ -40,6 +40,7 @@ import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
 import datawave.query.iterator.aggregation.DocumentData;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import datawave.query.iterator.pipeline.AdaptiveYieldThreshold;
 import datawave.query.iterator.pipeline.PipelineFactory;
 import datawave.query.iterator.pipeline.PipelineIterator;
 import datawave.query.iterator.profile.EvaluationTrackingFunction;
@@ -177,6 +178,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     protected Value value;
     protected YieldCallback<Key> yield;
     
+    // whether the yield of this scan has been counted
+    private boolean yieldTracked = false;
+    
     protected IteratorEnvironment myEnvironment;
     
     protected ASTJexlScript script = null;
@@ -249,7 +253,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         // Parse the query
         try {
             this.script = JexlASTHelper.parseAndFlattenJexlQuery(this.getQuery());
-            this.myEvaluationFunction = new JexlEvaluation(this.getQuery(), arithmetic);
+            this.myEvaluationFunction = new JexlEvaluation(this.getQuery(), arithmetic, isCompiledEvaluation());
             
         } catch (Exception e) {
             throw new IOException("Could not parse the JEXL query: '" + this.getQuery() + "'", e);
@@ -371,6 +375,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         } catch (Exception e) {
             handleException(e);
         } finally {
+            trackYield();
             if (null != s) {
                 s.stop();
             }
@@ -393,6 +398,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         originalRange = range;
         getActiveQueryLog().get(getQueryId()).beginCall(this.originalRange, ActiveQuery.CallType.SEEK);
         Span span = Trace.start("QueryIterator.seek");
+        long seekStartMs = System.currentTimeMillis();
+        boolean resumed = false;
+        this.yieldTracked = false;
         
         if (!this.isIncludeGroupingContext()
                         && (this.query.contains("grouping:") || this.query.contains("matchesInGroup") || this.query.contains("MatchesInGroup") || this.query
@@ -420,6 +428,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                     return;
                 }
                 
+                // we are resuming a scan that yielded or was torn down
+                resumed = true;
+                
                 // see if we have a count in the cf
                 Key startKey = range.getStartKey();
                 String[] parts = StringUtils.split(startKey.getColumnFamily().toString(), '\0');
@@ -474,11 +485,33 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             
             // Create the pipeline iterator for document aggregation and
             // evaluation within a thread pool
-            PipelineIterator pipelineIter = PipelineFactory.createIterator(this.seekKeySource, getMaxEvaluationPipelines(), getMaxPipelineCachedResults(),
-                            getSerialPipelineRequest(), querySpanCollector, trackingSpan, this, sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment,
+            // under pressure the tserver is relieved by evaluating fewer documents at once and returning smaller batches
+            int pipelines = getMaxEvaluationPipelines();
+            int cachedResults = getMaxPipelineCachedResults();
+            int batchSize = getDocumentBatchSize();
+            if (isAdaptiveBackpressure()) {
+                double pressure = LoadAverageWatchIterator.getPressure(myEnvironment, LoadAverageWatchIterator.DEFAULT_SYSTEM_LOAD_THRESHOLD,
+                                getBackpressurePoolLoadThreshold(), getBackpressureHeapThreshold());
+                if (pressure > 1.0d) {
+                    pipelines = LoadAverageWatchIterator.relieve(pipelines, pressure);
+                    cachedResults = LoadAverageWatchIterator.relieve(cachedResults, pressure);
+                    batchSize = LoadAverageWatchIterator.relieve(batchSize, pressure);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Tserver pressure of " + pressure + " reduced the evaluation pipelines to " + pipelines
+                                        + " and the document batch size to " + batchSize);
+                    }
+                }
+            }
+            
+            PipelineIterator pipelineIter = PipelineFactory.createIterator(this.seekKeySource, pipelines, cachedResults, getSerialPipelineRequest(),
+                            isCompletionEvaluationPipeline(), querySpanCollector, trackingSpan, this, sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment,
                             yield, yieldThresholdMs, columnFamilies, inclusive);
             
             pipelineIter.setCollectTimingDetails(collectTimingDetails);
+            if (yield != null && isAdaptiveYieldThreshold() && yieldThresholdMs != Long.MAX_VALUE) {
+                pipelineIter.setAdaptiveYieldThreshold(new AdaptiveYieldThreshold(yieldThresholdMs, getMinYieldThresholdMs(), getMaxYieldThresholdMs(),
+                                myEnvironment));
+            }
             // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
             
             pipelineIter.startPipeline();
@@ -523,18 +556,24 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                             return true;
                         });
             
+            Function<Entry<Key,Document>,Entry<Key,Value>> serializer;
             if (this.getReturnType() == ReturnType.kryo) {
                 // Serialize the Document using Kryo
-                this.serializedDocuments = Iterators.transform(pipelineDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+                // when batching the batches are compressed as a whole rather than the individual documents
+                serializer = new KryoDocumentSerializer(isReducedResponse(), isCompressResults() && !isBatchDocuments(), isKryoAttributeClassIds());
             } else if (this.getReturnType() == ReturnType.writable) {
                 // Use the Writable interface to serialize the Document
-                this.serializedDocuments = Iterators.transform(pipelineDocuments, new WritableDocumentSerializer(isReducedResponse()));
+                serializer = new WritableDocumentSerializer(isReducedResponse());
             } else if (this.getReturnType() == ReturnType.tostring) {
                 // Just return a toString() representation of the document
-                this.serializedDocuments = Iterators.transform(pipelineDocuments, new ToStringDocumentSerializer(isReducedResponse()));
+                serializer = new ToStringDocumentSerializer(isReducedResponse());
             } else {
                 throw new IllegalArgumentException("Unknown return type of: " + this.getReturnType());
             }
+            if (gatherTimingDetails() && trackingSpan != null) {
+                serializer = new EvaluationTrackingFunction<>(QuerySpan.Stage.DocumentSerialization, trackingSpan, serializer);
+            }
+            this.serializedDocuments = Iterators.transform(pipelineDocuments, serializer);
             
             if (log.isTraceEnabled()) {
                 KryoDocumentDeserializer dser = new KryoDocumentDeserializer();
@@ -558,8 +597,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 // if there is no document to return, then add an empty document
                 // to store the timing metadata
                 this.serializedDocuments = new FinalDocumentTrackingIterator(querySpanCollector, trackingSpan, originalRange, this.serializedDocuments,
-                                this.getReturnType(), this.isReducedResponse(), this.isCompressResults(), this.yield);
+                                this.getReturnType(), this.isReducedResponse(), this.isCompressResults() && !isBatchDocuments(), this.yield);
             }
+            
             if (log.isTraceEnabled()) {
                 KryoDocumentDeserializer dser = new KryoDocumentDeserializer();
                 this.serializedDocuments = Iterators.filter(this.serializedDocuments, keyValueEntry -> {
@@ -568,12 +608,23 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 });
             }
             
+            // pack the documents into batches, which are unpacked on the webserver
+            if (isBatchDocuments()) {
+                this.serializedDocuments = new DocumentBatchingIterator(this.serializedDocuments, batchSize, getDocumentBatchMaxBytes(),
+                                getDocumentBatchMaxLatencyMs(), isCompressResults(), this.yield);
+            }
+            
             // Determine if we have items to return
             prepareKeyValue(span);
         } catch (Exception e) {
             handleException(e);
         } finally {
+            trackYield();
             if (gatherTimingDetails() && trackingSpan != null && querySpanCollector != null) {
+                if (resumed) {
+                    // the time to rebuild the iterator stack and find the first result is the cost of resuming
+                    trackingSpan.resume(System.currentTimeMillis() - seekStartMs);
+                }
                 querySpanCollector.addQuerySpan(trackingSpan);
             }
             if (null != span) {
@@ -591,6 +642,20 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         }
     }
     
+    /**
+     * Count a yield in the tracking span the first time this scan is found to have yielded. Yields are counted where they happen rather than when the scan
+     * resumes, as a scan is also resumed after being torn down.
+     */
+    private void trackYield() {
+        if (!yieldTracked && this.yield != null && this.yield.hasYielded()) {
+            yieldTracked = true;
+            if (gatherTimingDetails() && trackingSpan != null && querySpanCollector != null) {
+                trackingSpan.yield();
+                querySpanCollector.addQuerySpan(trackingSpan);
+            }
+        }
+    }
+    
     /**
      * Handle an exception returned from seek or next. This will silently ignore IterationInterruptedException as that happens when the underlying iterator was
      * interrupted because the client is no longer listening.
@@ -712,7 +777,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 try {
                     
                     myScript = JexlASTHelper.parseJexlQuery(queries.getValue());
-                    eval = new JexlEvaluation(queries.getValue(), myArithmetic);
+                    eval = new JexlEvaluation(queries.getValue(), myArithmetic, isCompiledEvaluation());
                     
                 } catch (Exception e) {
                     throw new IOException("Could not parse the JEXL query: '" + this.getQuery() + "'", e);
@@ -1098,16 +1163,16 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     protected JexlEvaluation getJexlEvaluation(NestedQueryIterator<Key> documentSource) {
         
         if (null == documentSource) {
-            return new JexlEvaluation(query, getArithmetic());
+            return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
         }
         JexlEvaluation jexlEvaluationFunction = null;
         NestedQuery<Key> nestedQuery = documentSource.getNestedQuery();
         if (null == nestedQuery) {
-            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic());
+            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
         } else {
             jexlEvaluationFunction = nestedQuery.getEvaluation();
             if (null == jexlEvaluationFunction) {
-                return new JexlEvaluation(query, getArithmetic());
+                return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
             }
         }
         return jexlEvaluationFunction;
@@ -1464,6 +1529,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .setIvaratorCacheDirConfigs(this.getIvaratorCacheDirConfigs())
                 .setQueryId(this.getQueryId())
                 .setScanId(this.getScanId())
+                .setTableName(this.getTableName())
                 .setIvaratorCacheSubDirPrefix(this.getHdfsCacheSubDirPrefix())
                 .setHdfsFileCompressionCodec(this.getHdfsFileCompressionCodec())
                 .setIvaratorCacheBufferSize(this.getIvaratorCacheBufferSize())
@@ -1475,6 +1541,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .setIvaratorPersistOptions(this.getIvaratorPersistOptions())
                 .setUnsortedIvaratorSource(this.sourceForDeepCopies)
                 .setIvaratorSourcePool(createIvaratorSourcePool(this.maxIvaratorSources))
+                .setSharedIvaratorCache(this.getSharedIvaratorCache())
+                .setSharedIvaratorCacheVersion(this.getIvaratorSharedCacheVersion())
                 .setMaxIvaratorResults(this.getMaxIvaratorResults())
                 .setIncludes(indexedFields)
                 .setTermFrequencyFields(this.getTermFrequencyFields())
@@ -1485,6 +1553,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .limit(this.sourceLimit)
                 .setCollectTimingDetails(this.collectTimingDetails)
                 .setQuerySpanCollector(this.querySpanCollector)
+                .setTrackingSpan(this.trackingSpan)
                 .setIndexOnlyFields(this.getAllIndexOnlyFields())
                 .setAllowTermFrequencyLookup(this.allowTermFrequencyLookup)
                 .setCompositeMetadata(compositeMetadata)
@@ -20,6 +20,7 @@ import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.query.attributes.ExcerptFields;
 import datawave.query.function.JexlEvaluation;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import datawave.query.iterator.ivarator.SharedIvaratorCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.data.type.Type;
 import datawave.ingest.data.config.ingest.CompositeIngest;
@@ -112,6 +113,7 @@ public class QueryOptions implements OptionDescriber {
     public static final String DISABLE_DOCUMENTS_WITHOUT_EVENTS = "disable.index.only.documents";
     public static final String QUERY = "query";
     public static final String QUERY_ID = "query.id";
+    public static final String TABLE_NAME = "table.name";
     public static final String TYPE_METADATA = "type.metadata";
     public static final String TYPE_METADATA_AUTHS = "type.metadata.auths";
     public static final String METADATA_TABLE_NAME = "model.table.name";
@@ -144,6 +146,12 @@ public class QueryOptions implements OptionDescriber {
     public static final String START_TIME = "start.time";
     public static final String END_TIME = "end.time";
     public static final String YIELD_THRESHOLD_MS = "yield.threshold.ms";
+    public static final String ADAPTIVE_YIELD_THRESHOLD = "yield.threshold.adaptive";
+    public static final String MIN_YIELD_THRESHOLD_MS = "yield.threshold.min.ms";
+    public static final String MAX_YIELD_THRESHOLD_MS = "yield.threshold.max.ms";
+    public static final String ADAPTIVE_BACKPRESSURE = "backpressure.adaptive";
+    public static final String BACKPRESSURE_POOL_LOAD_THRESHOLD = "backpressure.pool.load.threshold";
+    public static final String BACKPRESSURE_HEAP_THRESHOLD = "backpressure.heap.threshold";
     
     public static final String FILTER_MASKED_VALUES = "filter.masked.values";
     public static final String INCLUDE_DATATYPE = "include.datatype";
@@ -222,14 +230,34 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String MAX_IVARATOR_RESULTS = "max.ivarator.results";
     
+    public static final String IVARATOR_SHARED_CACHE = "ivarator.shared.cache";
+    
+    public static final String IVARATOR_SHARED_CACHE_MAX_SIZE_MB = "ivarator.shared.cache.max.size.mb";
+    
+    public static final String IVARATOR_SHARED_CACHE_MAX_AGE_MS = "ivarator.shared.cache.max.age.ms";
+    
+    public static final String IVARATOR_SHARED_CACHE_VERSION = "ivarator.shared.cache.version";
+    
     public static final String COMPRESS_SERVER_SIDE_RESULTS = "compress.server.side.results";
     
+    public static final String KRYO_ATTRIBUTE_CLASS_IDS = "kryo.attribute.class.ids";
+    
+    public static final String DOCUMENT_BATCH_SIZE = "document.batch.size";
+    
+    public static final String DOCUMENT_BATCH_MAX_BYTES = "document.batch.max.bytes";
+    
+    public static final String DOCUMENT_BATCH_MAX_LATENCY_MS = "document.batch.max.latency.ms";
+    
     public static final String MAX_EVALUATION_PIPELINES = "max.evaluation.pipelines";
     
     public static final String SERIAL_EVALUATION_PIPELINE = "serial.evaluation.pipeline";
     
     public static final String MAX_PIPELINE_CACHED_RESULTS = "max.pipeline.cached.results";
     
+    public static final String COMPLETION_EVALUATION_PIPELINE = "completion.evaluation.pipeline";
+    
+    public static final String COMPILED_EVALUATION = "compiled.evaluation";
+    
     public static final String BATCHED_QUERY = "query.iterator.batch";
     
     public static final String BATCHED_QUERY_RANGE_PREFIX = "query.iterator.batch.range.";
@@ -255,6 +283,7 @@ public class QueryOptions implements OptionDescriber {
     protected String scanId;
     protected String query;
     protected String queryId;
+    protected String tableName;
     protected boolean disableEvaluation = false;
     protected boolean disableFiEval = false;
     protected long sourceLimit = -1;
@@ -292,6 +321,8 @@ public class QueryOptions implements OptionDescriber {
     
     protected int maxEvaluationPipelines = 25;
     protected int maxPipelineCachedResults = 25;
+    protected boolean completionEvaluationPipeline = false;
+    protected boolean compiledEvaluation = false;
     
     protected Set<String> indexOnlyFields = Sets.newHashSet();
     protected Set<String> indexedFields = Sets.newHashSet();
@@ -342,7 +373,18 @@ public class QueryOptions implements OptionDescriber {
     
     protected long maxIvaratorResults = -1;
     
+    protected boolean ivaratorSharedCache = false;
+    protected long ivaratorSharedCacheMaxSizeMB = 10240;
+    protected long ivaratorSharedCacheMaxAgeMs = 1000L * 60 * 60;
+    protected String ivaratorSharedCacheVersion = null;
+    
     protected long yieldThresholdMs = Long.MAX_VALUE;
+    protected boolean adaptiveYieldThreshold = false;
+    protected long minYieldThresholdMs = 100L;
+    protected long maxYieldThresholdMs = Long.MAX_VALUE;
+    protected boolean adaptiveBackpressure = false;
+    protected double backpressurePoolLoadThreshold = LoadAverageWatchIterator.DISABLED_THRESHOLD;
+    protected double backpressureHeapThreshold = LoadAverageWatchIterator.DISABLED_THRESHOLD;
     
     protected Predicate<Key> fieldIndexKeyDataTypeFilter = KeyIdentity.Function;
     protected Predicate<Key> eventEntryKeyDataTypeFilter = KeyIdentity.Function;
@@ -357,6 +399,13 @@ public class QueryOptions implements OptionDescriber {
     
     protected boolean compressResults = false;
     
+    protected boolean kryoAttributeClassIds = false;
+    
+    // the max number of documents to pack into a single returned value, batching is disabled when this is less than 2
+    protected int documentBatchSize = 0;
+    protected long documentBatchMaxBytes = 1024L * 1024L;
+    protected long documentBatchMaxLatencyMs = 500L;
+    
     protected Boolean compressedMappings = false;
     protected boolean limitOverride = false;
     
@@ -400,6 +449,7 @@ public class QueryOptions implements OptionDescriber {
         this.options = other.options;
         this.query = other.query;
         this.queryId = other.queryId;
+        this.tableName = other.tableName;
         this.scanId = other.scanId;
         this.disableEvaluation = other.disableEvaluation;
         this.disableIndexOnlyDocuments = other.disableIndexOnlyDocuments;
@@ -463,10 +513,24 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorMaxOpenFiles = other.ivaratorMaxOpenFiles;
         this.maxIvaratorSources = other.maxIvaratorSources;
         this.maxIvaratorResults = other.maxIvaratorResults;
+        this.ivaratorSharedCache = other.ivaratorSharedCache;
+        this.ivaratorSharedCacheMaxSizeMB = other.ivaratorSharedCacheMaxSizeMB;
+        this.ivaratorSharedCacheMaxAgeMs = other.ivaratorSharedCacheMaxAgeMs;
+        this.ivaratorSharedCacheVersion = other.ivaratorSharedCacheVersion;
         
         this.yieldThresholdMs = other.yieldThresholdMs;
+        this.adaptiveYieldThreshold = other.adaptiveYieldThreshold;
+        this.minYieldThresholdMs = other.minYieldThresholdMs;
+        this.maxYieldThresholdMs = other.maxYieldThresholdMs;
+        this.adaptiveBackpressure = other.adaptiveBackpressure;
+        this.backpressurePoolLoadThreshold = other.backpressurePoolLoadThreshold;
+        this.backpressureHeapThreshold = other.backpressureHeapThreshold;
         
         this.compressResults = other.compressResults;
+        this.kryoAttributeClassIds = other.kryoAttributeClassIds;
+        this.documentBatchSize = other.documentBatchSize;
+        this.documentBatchMaxBytes = other.documentBatchMaxBytes;
+        this.documentBatchMaxLatencyMs = other.documentBatchMaxLatencyMs;
         this.limitFieldsMap = other.limitFieldsMap;
         this.limitFieldsPreQueryEvaluation = other.limitFieldsPreQueryEvaluation;
         this.limitFieldsField = other.limitFieldsField;
@@ -486,6 +550,8 @@ public class QueryOptions implements OptionDescriber {
         this.batchedQueries = other.batchedQueries;
         this.batchStack = other.batchStack;
         this.maxEvaluationPipelines = other.maxEvaluationPipelines;
+        this.completionEvaluationPipeline = other.completionEvaluationPipeline;
+        this.compiledEvaluation = other.compiledEvaluation;
         
         this.dateIndexTimeTravel = other.dateIndexTimeTravel;
         
@@ -513,6 +579,14 @@ public class QueryOptions implements OptionDescriber {
         this.queryId = queryId;
     }
     
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+    
     public String getScanId() {
         return scanId;
     }
@@ -870,6 +944,47 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorNumRetries = ivaratorNumRetries;
     }
     
+    public boolean isIvaratorSharedCache() {
+        return ivaratorSharedCache;
+    }
+    
+    public void setIvaratorSharedCache(boolean ivaratorSharedCache) {
+        this.ivaratorSharedCache = ivaratorSharedCache;
+    }
+    
+    public long getIvaratorSharedCacheMaxSizeMB() {
+        return ivaratorSharedCacheMaxSizeMB;
+    }
+    
+    public void setIvaratorSharedCacheMaxSizeMB(long ivaratorSharedCacheMaxSizeMB) {
+        this.ivaratorSharedCacheMaxSizeMB = ivaratorSharedCacheMaxSizeMB;
+    }
+    
+    public long getIvaratorSharedCacheMaxAgeMs() {
+        return ivaratorSharedCacheMaxAgeMs;
+    }
+    
+    public void setIvaratorSharedCacheMaxAgeMs(long ivaratorSharedCacheMaxAgeMs) {
+        this.ivaratorSharedCacheMaxAgeMs = ivaratorSharedCacheMaxAgeMs;
+    }
+    
+    public String getIvaratorSharedCacheVersion() {
+        return ivaratorSharedCacheVersion;
+    }
+    
+    public void setIvaratorSharedCacheVersion(String ivaratorSharedCacheVersion) {
+        this.ivaratorSharedCacheVersion = ivaratorSharedCacheVersion;
+    }
+    
+    /**
+     * Get the cache used to share completed ivarator sets across queries, which is shared by all queries on this tserver with the same cache settings
+     *
+     * @return the shared cache, or null if not sharing
+     */
+    public SharedIvaratorCache getSharedIvaratorCache() {
+        return ivaratorSharedCache ? SharedIvaratorCache.getInstance(ivaratorSharedCacheMaxSizeMB, ivaratorSharedCacheMaxAgeMs) : null;
+    }
+    
     public FileSortedSet.PersistOptions getIvaratorPersistOptions() {
         return ivaratorPersistOptions;
     }
@@ -902,6 +1017,42 @@ public class QueryOptions implements OptionDescriber {
         this.compressResults = compressResults;
     }
     
+    public boolean isKryoAttributeClassIds() {
+        return kryoAttributeClassIds;
+    }
+    
+    public void setKryoAttributeClassIds(boolean kryoAttributeClassIds) {
+        this.kryoAttributeClassIds = kryoAttributeClassIds;
+    }
+    
+    public int getDocumentBatchSize() {
+        return documentBatchSize;
+    }
+    
+    public void setDocumentBatchSize(int documentBatchSize) {
+        this.documentBatchSize = documentBatchSize;
+    }
+    
+    public long getDocumentBatchMaxBytes() {
+        return documentBatchMaxBytes;
+    }
+    
+    public void setDocumentBatchMaxBytes(long documentBatchMaxBytes) {
+        this.documentBatchMaxBytes = documentBatchMaxBytes;
+    }
+    
+    public long getDocumentBatchMaxLatencyMs() {
+        return documentBatchMaxLatencyMs;
+    }
+    
+    public void setDocumentBatchMaxLatencyMs(long documentBatchMaxLatencyMs) {
+        this.documentBatchMaxLatencyMs = documentBatchMaxLatencyMs;
+    }
+    
+    public boolean isBatchDocuments() {
+        return documentBatchSize > 1;
+    }
+    
     public Map<String,Integer> getLimitFieldsMap() {
         return limitFieldsMap;
     }
@@ -1010,6 +1161,7 @@ public class QueryOptions implements OptionDescriber {
         options.put(DISABLE_DOCUMENTS_WITHOUT_EVENTS, "Removes documents in which only hits against the index were found, and no event");
         options.put(QUERY, "The JEXL query to evaluate documents against");
         options.put(QUERY_ID, "The UUID of the query");
+        options.put(TABLE_NAME, "The name of the table being scanned, which keeps the entries of the tserver wide caches of different tables apart");
         options.put(TYPE_METADATA, "A mapping of field name to a set of DataType class names");
         options.put(QUERY_MAPPING_COMPRESS, "Boolean value to indicate Normalizer mapping is compressed");
         options.put(REDUCED_RESPONSE, "Whether or not to return visibility markings on each attribute. Default: " + reducedResponse);
@@ -1064,14 +1216,41 @@ public class QueryOptions implements OptionDescriber {
                         "The maximum number of files that can be opened at one time during a merge sort.  If more that this number of files are created, then compactions will occur");
         options.put(IVARATOR_NUM_RETRIES,
                         "The number of times an ivarator should attempt to persist a sorted set to a given ivarator cache directory.  We will use the specified number of retries for each of the configured ivarator cache directories.");
+        options.put(IVARATOR_SHARED_CACHE,
+                        "If true, completed ivarator sets are shared with other queries that ivarate the same term with the same authorizations.  Default is false.");
+        options.put(IVARATOR_SHARED_CACHE_MAX_SIZE_MB,
+                        "The maximum size of the shared ivarator sets across the ivarator cache directories, 0 for no limit.  Default is 10240 (10 GB).");
+        options.put(IVARATOR_SHARED_CACHE_MAX_AGE_MS, "The maximum age of a shared ivarator set before it must be rebuilt.  Default is 60 minutes.");
+        options.put(IVARATOR_SHARED_CACHE_VERSION,
+                        "The version of the data under the shared ivarator sets.  Sets built with a different version are not used.  Default is none.");
         options.put(MAX_IVARATOR_SOURCES,
                         " The maximum number of sources to use for ivarators across all ivarated terms within the query.  Note the thread pool size is controlled via an accumulo property.");
         options.put(YIELD_THRESHOLD_MS,
                         "The threshold in milliseconds that the query iterator will evaluate consecutive documents to false before yielding the scan.");
+        options.put(ADAPTIVE_YIELD_THRESHOLD,
+                        "If true, the yield threshold tightens as the tserver evaluation and ivarator pools back up and loosens when the tserver is idle.");
+        options.put(MIN_YIELD_THRESHOLD_MS, "The lowest threshold in milliseconds that an adaptive yield threshold will tighten to.");
+        options.put(MAX_YIELD_THRESHOLD_MS, "The highest threshold in milliseconds that an adaptive yield threshold will loosen to.");
+        options.put(ADAPTIVE_BACKPRESSURE,
+                        "If true, the evaluation pipelines, cached results and document batch size shrink when the tserver is under load or heap pressure.");
+        options.put(BACKPRESSURE_POOL_LOAD_THRESHOLD,
+                        "The evaluation and ivarator pool backlog, in running plus queued tasks per thread, above which adaptive backpressure applies. "
+                                        + "Ignored unless set.");
+        options.put(BACKPRESSURE_HEAP_THRESHOLD,
+                        "The fraction of the heap in use after a garbage collection above which adaptive backpressure applies. Ignored unless set.");
         options.put(COMPRESS_SERVER_SIDE_RESULTS, "GZIP compress the serialized Documents before returning to the webserver");
+        options.put(KRYO_ATTRIBUTE_CLASS_IDS,
+                        "If true, kryo Documents are written with attribute class ids, which older webservers cannot read.  Default is false.");
+        options.put(DOCUMENT_BATCH_SIZE, "The max number of serialized Documents to pack into a single returned value. Batching is disabled if less than 2.");
+        options.put(DOCUMENT_BATCH_MAX_BYTES, "The max number of serialized bytes to pack into a single returned value");
+        options.put(DOCUMENT_BATCH_MAX_LATENCY_MS, "The max time in milliseconds to spend gathering Documents for a single returned value");
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
+        options.put(COMPLETION_EVALUATION_PIPELINE,
+                        "Start a new evaluation as soon as any evaluation completes instead of waiting on the oldest one. Evaluated results are still returned in order.");
+        options.put(COMPILED_EVALUATION,
+                        "Compile the query once per scan for document evaluation instead of interpreting it for every document. Functions are still interpreted.");
         options.put(DATE_INDEX_TIME_TRAVEL, "Whether the shards from before the event should be gathered from the dateIndex");
         
         options.put(SORTED_UIDS,
@@ -1140,6 +1319,10 @@ public class QueryOptions implements OptionDescriber {
             this.queryId = options.get(QUERY_ID);
         }
         
+        if (options.containsKey(TABLE_NAME)) {
+            this.tableName = options.get(TABLE_NAME);
+        }
+        
         if (options.containsKey(SCAN_ID)) {
             this.scanId = options.get(SCAN_ID);
         }
@@ -1454,6 +1637,22 @@ public class QueryOptions implements OptionDescriber {
             this.setIvaratorNumRetries(Integer.parseInt(options.get(IVARATOR_NUM_RETRIES)));
         }
         
+        if (options.containsKey(IVARATOR_SHARED_CACHE)) {
+            this.setIvaratorSharedCache(Boolean.parseBoolean(options.get(IVARATOR_SHARED_CACHE)));
+        }
+        
+        if (options.containsKey(IVARATOR_SHARED_CACHE_MAX_SIZE_MB)) {
+            this.setIvaratorSharedCacheMaxSizeMB(Long.parseLong(options.get(IVARATOR_SHARED_CACHE_MAX_SIZE_MB)));
+        }
+        
+        if (options.containsKey(IVARATOR_SHARED_CACHE_MAX_AGE_MS)) {
+            this.setIvaratorSharedCacheMaxAgeMs(Long.parseLong(options.get(IVARATOR_SHARED_CACHE_MAX_AGE_MS)));
+        }
+        
+        if (options.containsKey(IVARATOR_SHARED_CACHE_VERSION)) {
+            this.setIvaratorSharedCacheVersion(options.get(IVARATOR_SHARED_CACHE_VERSION));
+        }
+        
         if (options.containsKey(IVARATOR_PERSIST_VERIFY)) {
             boolean verify = Boolean.parseBoolean(options.get(IVARATOR_PERSIST_VERIFY));
             FileSortedSet.PersistOptions persistOptions = getIvaratorPersistOptions();
@@ -1478,10 +1677,50 @@ public class QueryOptions implements OptionDescriber {
             this.setYieldThresholdMs(Long.parseLong(options.get(YIELD_THRESHOLD_MS)));
         }
         
+        if (options.containsKey(ADAPTIVE_YIELD_THRESHOLD)) {
+            this.setAdaptiveYieldThreshold(Boolean.parseBoolean(options.get(ADAPTIVE_YIELD_THRESHOLD)));
+        }
+        
+        if (options.containsKey(MIN_YIELD_THRESHOLD_MS)) {
+            this.setMinYieldThresholdMs(Long.parseLong(options.get(MIN_YIELD_THRESHOLD_MS)));
+        }
+        
+        if (options.containsKey(MAX_YIELD_THRESHOLD_MS)) {
+            this.setMaxYieldThresholdMs(Long.parseLong(options.get(MAX_YIELD_THRESHOLD_MS)));
+        }
+        
+        if (options.containsKey(ADAPTIVE_BACKPRESSURE)) {
+            this.setAdaptiveBackpressure(Boolean.parseBoolean(options.get(ADAPTIVE_BACKPRESSURE)));
+        }
+        
+        if (options.containsKey(BACKPRESSURE_POOL_LOAD_THRESHOLD)) {
+            this.setBackpressurePoolLoadThreshold(Double.parseDouble(options.get(BACKPRESSURE_POOL_LOAD_THRESHOLD)));
+        }
+        
+        if (options.containsKey(BACKPRESSURE_HEAP_THRESHOLD)) {
+            this.setBackpressureHeapThreshold(Double.parseDouble(options.get(BACKPRESSURE_HEAP_THRESHOLD)));
+        }
+        
         if (options.containsKey(COMPRESS_SERVER_SIDE_RESULTS)) {
             this.setCompressResults(Boolean.parseBoolean(options.get(COMPRESS_SERVER_SIDE_RESULTS)));
         }
         
+        if (options.containsKey(KRYO_ATTRIBUTE_CLASS_IDS)) {
+            this.setKryoAttributeClassIds(Boolean.parseBoolean(options.get(KRYO_ATTRIBUTE_CLASS_IDS)));
+        }
+        
+        if (options.containsKey(DOCUMENT_BATCH_SIZE)) {
+            this.setDocumentBatchSize(Integer.parseInt(options.get(DOCUMENT_BATCH_SIZE)));
+        }
+        
+        if (options.containsKey(DOCUMENT_BATCH_MAX_BYTES)) {
+            this.setDocumentBatchMaxBytes(Long.parseLong(options.get(DOCUMENT_BATCH_MAX_BYTES)));
+        }
+        
+        if (options.containsKey(DOCUMENT_BATCH_MAX_LATENCY_MS)) {
+            this.setDocumentBatchMaxLatencyMs(Long.parseLong(options.get(DOCUMENT_BATCH_MAX_LATENCY_MS)));
+        }
+        
         if (options.containsKey(MAX_EVALUATION_PIPELINES)) {
             this.setMaxEvaluationPipelines(Integer.parseInt(options.get(MAX_EVALUATION_PIPELINES)));
         }
@@ -1494,6 +1733,14 @@ public class QueryOptions implements OptionDescriber {
             this.setMaxPipelineCachedResults(Integer.parseInt(options.get(MAX_PIPELINE_CACHED_RESULTS)));
         }
         
+        if (options.containsKey(COMPLETION_EVALUATION_PIPELINE)) {
+            this.setCompletionEvaluationPipeline(Boolean.parseBoolean(options.get(COMPLETION_EVALUATION_PIPELINE)));
+        }
+        
+        if (options.containsKey(COMPILED_EVALUATION)) {
+            this.setCompiledEvaluation(Boolean.parseBoolean(options.get(COMPILED_EVALUATION)));
+        }
+        
         if (options.containsKey(TERM_FREQUENCIES_REQUIRED)) {
             this.setTermFrequenciesRequired(Boolean.parseBoolean(options.get(TERM_FREQUENCIES_REQUIRED)));
         }
@@ -1892,6 +2139,22 @@ public class QueryOptions implements OptionDescriber {
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public boolean isCompletionEvaluationPipeline() {
+        return completionEvaluationPipeline;
+    }
+    
+    public void setCompletionEvaluationPipeline(boolean completionEvaluationPipeline) {
+        this.completionEvaluationPipeline = completionEvaluationPipeline;
+    }
+    
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
     public String getStatsdHostAndPort() {
         return statsdHostAndPort;
     }
@@ -1956,4 +2219,52 @@ public class QueryOptions implements OptionDescriber {
         this.yieldThresholdMs = yieldThresholdMs;
     }
     
+    public boolean isAdaptiveYieldThreshold() {
+        return adaptiveYieldThreshold;
+    }
+    
+    public void setAdaptiveYieldThreshold(boolean adaptiveYieldThreshold) {
+        this.adaptiveYieldThreshold = adaptiveYieldThreshold;
+    }
+    
+    public long getMinYieldThresholdMs() {
+        return minYieldThresholdMs;
+    }
+    
+    public void setMinYieldThresholdMs(long minYieldThresholdMs) {
+        this.minYieldThresholdMs = minYieldThresholdMs;
+    }
+    
+    public long getMaxYieldThresholdMs() {
+        return maxYieldThresholdMs;
+    }
+    
+    public void setMaxYieldThresholdMs(long maxYieldThresholdMs) {
+        this.maxYieldThresholdMs = maxYieldThresholdMs;
+    }
+    
+    public boolean isAdaptiveBackpressure() {
+        return adaptiveBackpressure;
+    }
+    
+    public void setAdaptiveBackpressure(boolean adaptiveBackpressure) {
+        this.adaptiveBackpressure = adaptiveBackpressure;
+    }
+    
+    public double getBackpressurePoolLoadThreshold() {
+        return backpressurePoolLoadThreshold;
+    }
+    
+    public void setBackpressurePoolLoadThreshold(double backpressurePoolLoadThreshold) {
+        this.backpressurePoolLoadThreshold = backpressurePoolLoadThreshold;
+    }
+    
+    public double getBackpressureHeapThreshold() {
+        return backpressureHeapThreshold;
+    }
+    
+    public void setBackpressureHeapThreshold(double backpressureHeapThreshold) {
+        this.backpressureHeapThreshold = backpressureHeapThreshold;
+    }
+    
 }
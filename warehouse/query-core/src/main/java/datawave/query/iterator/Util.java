@@ -137,9 +137,13 @@ public class Util {
     public static <T> Document buildNewDocument(Iterable<? extends NestedIterator<T>> iterators) {
         Document d = new Document();
         for (NestedIterator<T> iterator : iterators) {
-            d.putAll(iterator.document().getDictionary().entrySet().iterator(), false);
+            addToDocument(d, iterator);
         }
         return d;
     }
     
+    public static <T> void addToDocument(Document d, NestedIterator<T> iterator) {
+        d.putAll(iterator.document().getDictionary().entrySet().iterator(), false);
+    }
+    
 }
@@ -90,6 +90,9 @@ public class IndexFilterIteratorBuilder extends IvaratorBuilder implements Itera
                         .withTypeMetadata(typeMetadata)
                         .withIteratorEnv(env)
                         .withIvaratorSourcePool(ivaratorSourcePool)
+                        .withSharedCache(sharedIvaratorCache)
+                        .withSharedCacheVersion(sharedIvaratorCacheVersion)
+                        .withTableName(tableName)
                         .build();
                 // @formatter:on
                 
@@ -96,6 +96,9 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                         .withCompositeSeekThreshold(compositeSeekThreshold)
                         .withTypeMetadata(typeMetadata)
                         .withIvaratorSourcePool(ivaratorSourcePool)
+                        .withSharedCache(sharedIvaratorCache)
+                        .withSharedCacheVersion(sharedIvaratorCacheVersion)
+                        .withTableName(tableName)
                         .withIteratorEnv(env);
                 // @formatter:on
                 if (values != null) {
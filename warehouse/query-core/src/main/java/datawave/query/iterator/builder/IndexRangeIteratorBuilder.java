@@ -93,6 +93,9 @@ public class IndexRangeIteratorBuilder extends IvaratorBuilder implements Iterat
                         .withSubRanges(subRanges)
                         .withIteratorEnv(env)
                         .withIvaratorSourcePool(ivaratorSourcePool)
+                        .withSharedCache(sharedIvaratorCache)
+                        .withSharedCacheVersion(sharedIvaratorCacheVersion)
+                        .withTableName(tableName)
                         .build();
                 // @formatter:on
                 
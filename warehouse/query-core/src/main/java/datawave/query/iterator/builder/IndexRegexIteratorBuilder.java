@@ -73,6 +73,9 @@ public class IndexRegexIteratorBuilder extends IvaratorBuilder implements Iterat
                         .withTypeMetadata(typeMetadata)
                         .withIteratorEnv(env)
                         .withIvaratorSourcePool(ivaratorSourcePool)
+                        .withSharedCache(sharedIvaratorCache)
+                        .withSharedCacheVersion(sharedIvaratorCacheVersion)
+                        .withTableName(tableName)
                         .build();
                 // @formatter:on
                 if (collectTimingDetails) {
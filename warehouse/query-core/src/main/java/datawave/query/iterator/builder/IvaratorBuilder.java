@@ -1,6 +1,7 @@
 package datawave.query.iterator.builder;
 
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.SharedIvaratorCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.iterator.profile.QuerySpanCollector;
@@ -39,6 +40,9 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     protected CompositeMetadata compositeMetadata;
     protected int compositeSeekThreshold;
     protected GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool;
+    protected SharedIvaratorCache sharedIvaratorCache;
+    protected String sharedIvaratorCacheVersion;
+    protected String tableName;
     
     protected void validateIvaratorControlDir(IvaratorCacheDir ivaratorCacheDir) {
         String ivaratorCacheDirURI = ivaratorCacheDir.getPathURI();
@@ -176,4 +180,28 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     public void setIvaratorSourcePool(GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool) {
         this.ivaratorSourcePool = ivaratorSourcePool;
     }
+    
+    public SharedIvaratorCache getSharedIvaratorCache() {
+        return sharedIvaratorCache;
+    }
+    
+    public void setSharedIvaratorCache(SharedIvaratorCache sharedIvaratorCache) {
+        this.sharedIvaratorCache = sharedIvaratorCache;
+    }
+    
+    public String getSharedIvaratorCacheVersion() {
+        return sharedIvaratorCacheVersion;
+    }
+    
+    public void setSharedIvaratorCacheVersion(String sharedIvaratorCacheVersion) {
+        this.sharedIvaratorCacheVersion = sharedIvaratorCacheVersion;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
 }
@@ -185,4 +185,9 @@ public class FieldIndexKeyDataTypeFilter implements Predicate<Key>, SeekingFilte
     public int getMaxNextCount() {
         return maxNextBeforeSeek;
     }
+    
+    @Override
+    public String toString() {
+        return "FieldIndexKeyDataTypeFilter " + sortedDataTypes;
+    }
 }
@@ -1,6 +1,7 @@
 package datawave.query.iterator.ivarator;
 
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 
 public class IvaratorCacheDir {
     
@@ -14,7 +15,12 @@ public class IvaratorCacheDir {
     
     public IvaratorCacheDir(IvaratorCacheDirConfig config, FileSystem fs, String pathURI) {
         this.config = config;
-        this.fs = fs;
+        // a local cache dir writes straight to disk, skipping the checksum files of the hadoop local filesystem
+        if (config != null && config.isLocal() && fs instanceof LocalFileSystem) {
+            this.fs = ((LocalFileSystem) fs).getRawFileSystem();
+        } else {
+            this.fs = fs;
+        }
         this.pathURI = pathURI;
     }
     
@@ -19,6 +19,7 @@ public class IvaratorCacheDirConfig {
     public static final int DEFAULT_PRIORITY = Integer.MAX_VALUE;
     public static final long DEFAULT_MIN_AVAILABLE_STORAGE_MiB = 0L;
     public static final double DEFAULT_MIN_AVAILABLE_STORAGE_PERCENT = 0f;
+    public static final long DEFAULT_MAX_STORAGE_MiB = 0L;
     
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
@@ -34,6 +35,9 @@ public class IvaratorCacheDirConfig {
     // the minimum percent of available storage required to use this filesystem
     final protected double minAvailableStoragePercent;
     
+    // the maximum amount of storage that ivarators may use under the base path, 0 for no quota
+    final protected long maxStorageMiB;
+    
     static {
         objectMapper.configure(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED, true);
         objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
@@ -60,10 +64,15 @@ public class IvaratorCacheDirConfig {
     }
     
     private IvaratorCacheDirConfig(String basePathURI, int priority, long minAvailableStorageMiB, double minAvailableStoragePercent) {
+        this(basePathURI, priority, minAvailableStorageMiB, minAvailableStoragePercent, DEFAULT_MAX_STORAGE_MiB);
+    }
+    
+    public IvaratorCacheDirConfig(String basePathURI, int priority, long minAvailableStorageMiB, double minAvailableStoragePercent, long maxStorageMiB) {
         this.basePathURI = basePathURI;
         this.priority = priority;
         this.minAvailableStorageMiB = minAvailableStorageMiB;
         this.minAvailableStoragePercent = minAvailableStoragePercent;
+        this.maxStorageMiB = maxStorageMiB;
     }
     
     @JsonIgnore
@@ -85,9 +94,25 @@ public class IvaratorCacheDirConfig {
             result = false;
         }
         
+        if (maxStorageMiB < 0l) {
+            log.warn("Invalid maxStorageMiB for IvaratorCacheDirConfig.  'maxStorageMiB' must be greater than or equal to 0");
+            result = false;
+        }
+        
         return result;
     }
     
+    /**
+     * A local cache dir is written to the tserver's own disks without going through the checksummed hadoop local filesystem. Once it fills up or fails, the
+     * ivarators move on to the next cache dir in priority order.
+     *
+     * @return true if this cache dir is on the local filesystem
+     */
+    @JsonIgnore
+    public boolean isLocal() {
+        return basePathURI != null && basePathURI.startsWith("file:/");
+    }
+    
     public String getBasePathURI() {
         return basePathURI;
     }
@@ -104,6 +129,10 @@ public class IvaratorCacheDirConfig {
         return minAvailableStoragePercent;
     }
     
+    public long getMaxStorageMiB() {
+        return maxStorageMiB;
+    }
+    
     public static String toJson(IvaratorCacheDirConfig ivaratorCacheDirConfig) throws JsonProcessingException {
         return toJson(Collections.singletonList(ivaratorCacheDirConfig));
     }
@@ -119,7 +148,7 @@ public class IvaratorCacheDirConfig {
     @Override
     public String toString() {
         return "IvaratorCacheDirConfig: [basePathURI: " + basePathURI + ", priority: " + priority + ", minAvailableStorageMiB: " + minAvailableStorageMiB
-                        + ", minAvailableStoragePercent: " + minAvailableStoragePercent + "]";
+                        + ", minAvailableStoragePercent: " + minAvailableStoragePercent + ", maxStorageMiB: " + maxStorageMiB + "]";
     }
     
     @Override
@@ -130,11 +159,12 @@ public class IvaratorCacheDirConfig {
             return false;
         IvaratorCacheDirConfig that = (IvaratorCacheDirConfig) o;
         return priority == that.priority && minAvailableStorageMiB == that.minAvailableStorageMiB
-                        && Double.compare(that.minAvailableStoragePercent, minAvailableStoragePercent) == 0 && Objects.equals(basePathURI, that.basePathURI);
+                        && Double.compare(that.minAvailableStoragePercent, minAvailableStoragePercent) == 0 && maxStorageMiB == that.maxStorageMiB
+                        && Objects.equals(basePathURI, that.basePathURI);
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(basePathURI, priority, minAvailableStorageMiB, minAvailableStoragePercent);
+        return Objects.hash(basePathURI, priority, minAvailableStorageMiB, minAvailableStoragePercent, maxStorageMiB);
     }
 }
@@ -0,0 +1,477 @@
+package datawave.query.iterator.ivarator;
+
+import com.google.common.hash.Hashing;
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl.HdfsBackedControl;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of completed ivarator results that is shared across queries. Completed and persisted row sets are moved from the query specific directory into
+ * {basePath}/shared/{key}/{row}/{id} under each of the ivarator cache dirs, where the key is a hash of everything that determines the contents of the set (the
+ * field, the pattern or range, the filters, and the authorizations) and the id is unique to the query that built it. A set is only valid while its complete
+ * marker exists, and the marker is always the last thing moved in and the first thing removed.
+ * <p>
+ * The iterators cannot see which files make up the tablet, so the key also includes a version supplied with the query which is changed when the data under
+ * the shared sets changes, and a shared set is trusted for at most maxAgeMs after it was built. The entries are evicted least recently used first once the
+ * shared dirs grow beyond maxSizeMiB.
+ * <p>
+ * A query holds a lease on a set for as long as it is reading it, which is a file under {row}/{id}.leases next to the set. Sets with a live lease are never
+ * evicted. Leases left behind by a tserver that died are ignored once they are older than the lease timeout.
+ */
+public class SharedIvaratorCache {
+    private static final Logger log = Logger.getLogger(SharedIvaratorCache.class);
+    
+    public static final String SHARED_DIR = "shared";
+    public static final String LEASES_SUFFIX = ".leases";
+    
+    // leases older than this were left behind by a tserver that died
+    public static final long DEFAULT_LEASE_TIMEOUT_MS = 1000L * 60 * 60 * 24;
+    
+    // how often the shared dirs are scanned to remove expired entries and correct the tracked size
+    public static final long DEFAULT_EVICTION_INTERVAL_MS = 1000L * 60 * 10;
+    
+    // how often the shared dirs may be scanned while the tracked size is over the limit
+    public static final long MIN_EVICTION_INTERVAL_MS = 1000L * 30;
+    
+    // the caches shared by the ivarators on this tserver, by max size and max age
+    private static final Map<List<Long>,SharedIvaratorCache> instances = new HashMap<>();
+    
+    // the max size of the shared entries across the ivarator cache dirs, 0 for no limit
+    private final long maxSizeBytes;
+    
+    // the max time since a set was built that we will use it, 0 for no limit
+    private final long maxAgeMs;
+    
+    private long leaseTimeoutMs = DEFAULT_LEASE_TIMEOUT_MS;
+    private long evictionIntervalMs = DEFAULT_EVICTION_INTERVAL_MS;
+    
+    // the size of the shared dirs as of the last scan plus what has been published since
+    private final AtomicLong usedBytes = new AtomicLong();
+    private volatile long lastEvictionMs = 0;
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    
+    public SharedIvaratorCache(long maxSizeMiB, long maxAgeMs) {
+        this.maxSizeBytes = maxSizeMiB * 1024L * 1024L;
+        this.maxAgeMs = maxAgeMs;
+    }
+    
+    /**
+     * Get the cache shared by all of the ivarators on this tserver with the same settings
+     *
+     * @param maxSizeMiB
+     *            the max size of the shared entries, 0 for no limit
+     * @param maxAgeMs
+     *            the max time since a set was built that it will be used, 0 for no limit
+     * @return the cache
+     */
+    public static synchronized SharedIvaratorCache getInstance(long maxSizeMiB, long maxAgeMs) {
+        return instances.computeIfAbsent(Arrays.asList(maxSizeMiB, maxAgeMs), k -> new SharedIvaratorCache(maxSizeMiB, maxAgeMs));
+    }
+    
+    /**
+     * Get the cache key for a set
+     *
+     * @param identity
+     *            a string which identifies the contents of the set
+     * @return a key that is safe to use as a directory name
+     */
+    public static String getKey(String identity) {
+        return Hashing.sha256().hashString(identity, StandardCharsets.UTF_8).toString();
+    }
+    
+    /**
+     * Find a complete shared set for a row
+     *
+     * @param ivaratorCacheDirs
+     *            the cache dirs of the querying ivarator
+     * @param key
+     *            the cache key
+     * @param row
+     *            the row
+     * @return the entry, leased until it is released, or null if there is no complete set within the max age
+     * @throws IOException
+     */
+    public Entry find(List<IvaratorCacheDir> ivaratorCacheDirs, String key, String row) throws IOException {
+        long now = System.currentTimeMillis();
+        FileSystem entryFs = null;
+        FileStatus entry = null;
+        long entryBuilt = 0;
+        
+        // the complete marker is in whichever dir was the control dir of the query that built the set
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            FileSystem fs = ivaratorCacheDir.getFs();
+            Path rowDir = getRowDir(ivaratorCacheDir, key, row);
+            if (!fs.exists(rowDir)) {
+                continue;
+            }
+            for (FileStatus candidate : fs.listStatus(rowDir)) {
+                Path marker = new Path(candidate.getPath(), HdfsBackedControl.COMPLETE_FILE);
+                if (candidate.isDirectory() && fs.exists(marker)) {
+                    long built = fs.getFileStatus(marker).getModificationTime();
+                    if ((maxAgeMs <= 0 || now - built <= maxAgeMs) && built > entryBuilt) {
+                        entryFs = fs;
+                        entry = candidate;
+                        entryBuilt = built;
+                    }
+                }
+            }
+        }
+        
+        if (entry == null) {
+            return null;
+        }
+        
+        // take the lease before checking that the set is still complete, as eviction removes the marker before checking for leases
+        Path lease = createLease(entryFs, entry.getPath());
+        if (!entryFs.exists(new Path(entry.getPath(), HdfsBackedControl.COMPLETE_FILE))) {
+            entryFs.delete(lease, false);
+            return null;
+        }
+        
+        // the modification time of the entry dir is the last time it was used
+        try {
+            entryFs.setTimes(entry.getPath(), now, -1);
+        } catch (IOException e) {
+            log.warn("Unable to mark " + entry.getPath() + " as used", e);
+        }
+        
+        return new Entry(getRowDirs(ivaratorCacheDirs, key, row), entry.getPath().getName(), entryFs, lease);
+    }
+    
+    /**
+     * Move a completed and persisted set into the shared cache. The row dir under the control dir, which is the first of the cache dirs, is moved last as it
+     * contains the complete marker.
+     *
+     * @param ivaratorCacheDirs
+     *            the cache dirs of the ivarator that built the set
+     * @param key
+     *            the cache key
+     * @param row
+     *            the row
+     * @return the entry the set can now be loaded from, leased until it is released
+     * @throws IOException
+     *             if the set could not be moved, in which case it has been left where it was
+     */
+    public Entry publish(List<IvaratorCacheDir> ivaratorCacheDirs, String key, String row) throws IOException {
+        String id = UUID.randomUUID().toString();
+        
+        // take the lease first so that the set is not evicted while it is being moved in
+        IvaratorCacheDir controlDir = ivaratorCacheDirs.get(0);
+        Path lease = createLease(controlDir.getFs(), new Path(getRowDir(controlDir, key, row), id));
+        
+        List<Integer> moved = new ArrayList<>();
+        long size = 0;
+        try {
+            for (int i = ivaratorCacheDirs.size() - 1; i >= 0; i--) {
+                IvaratorCacheDir ivaratorCacheDir = ivaratorCacheDirs.get(i);
+                FileSystem fs = ivaratorCacheDir.getFs();
+                Path source = new Path(ivaratorCacheDir.getPathURI(), row);
+                if (fs.exists(source)) {
+                    Path target = new Path(getRowDir(ivaratorCacheDir, key, row), id);
+                    long sourceSize = fs.getContentSummary(source).getLength();
+                    fs.mkdirs(target.getParent());
+                    if (!fs.rename(source, target)) {
+                        throw new IOException("Unable to move " + source + " to " + target);
+                    }
+                    moved.add(i);
+                    size += sourceSize;
+                }
+            }
+        } catch (IOException e) {
+            // put back whatever we moved so that the query can continue with its own set
+            for (int i : moved) {
+                IvaratorCacheDir ivaratorCacheDir = ivaratorCacheDirs.get(i);
+                ivaratorCacheDir.getFs().rename(new Path(getRowDir(ivaratorCacheDir, key, row), id), new Path(ivaratorCacheDir.getPathURI(), row));
+            }
+            controlDir.getFs().delete(lease.getParent(), true);
+            throw e;
+        }
+        
+        usedBytes.addAndGet(size);
+        return new Entry(getRowDirs(ivaratorCacheDirs, key, row), id, controlDir.getFs(), lease);
+    }
+    
+    /**
+     * Create a lease on a set
+     *
+     * @param fs
+     *            the filesystem of the set
+     * @param entryDir
+     *            the dir of the set, which does not need to exist yet
+     * @return the lease file
+     * @throws IOException
+     */
+    private Path createLease(FileSystem fs, Path entryDir) throws IOException {
+        Path lease = new Path(getLeasesDir(entryDir), UUID.randomUUID().toString());
+        fs.mkdirs(lease.getParent());
+        fs.create(lease, false).close();
+        return lease;
+    }
+    
+    private static Path getLeasesDir(Path entryDir) {
+        return new Path(entryDir.getParent(), entryDir.getName() + LEASES_SUFFIX);
+    }
+    
+    /**
+     * Evict from the shared dirs if the eviction interval has passed since they were last scanned, or sooner if the size published since then has put them
+     * over the max size. Only one thread evicts at a time.
+     *
+     * @param ivaratorCacheDirs
+     *            the cache dirs to evict from
+     * @throws IOException
+     */
+    public void evictIfNeeded(List<IvaratorCacheDir> ivaratorCacheDirs) throws IOException {
+        long sinceLastEviction = System.currentTimeMillis() - lastEvictionMs;
+        boolean overLimit = maxSizeBytes > 0 && usedBytes.get() > maxSizeBytes;
+        if (sinceLastEviction < evictionIntervalMs && !(overLimit && sinceLastEviction >= MIN_EVICTION_INTERVAL_MS)) {
+            return;
+        }
+        if (evicting.compareAndSet(false, true)) {
+            try {
+                evict(ivaratorCacheDirs);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Remove the expired entries, and then the least recently used entries until the shared dirs are within the max size
+     *
+     * @param ivaratorCacheDirs
+     *            the cache dirs to evict from
+     * @throws IOException
+     */
+    public void evict(List<IvaratorCacheDir> ivaratorCacheDirs) throws IOException {
+        long now = System.currentTimeMillis();
+        lastEvictionMs = now;
+        Map<String,Long> lastUsed = new HashMap<>();
+        Map<String,Long> sizes = new HashMap<>();
+        Set<String> expired = new HashSet<>();
+        Set<String> leased = new HashSet<>();
+        long used = 0;
+        
+        // entries are identified by their {key}/{row}/{id} path relative to the shared dir
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            FileSystem fs = ivaratorCacheDir.getFs();
+            Path sharedDir = getSharedDir(ivaratorCacheDir);
+            if (!fs.exists(sharedDir)) {
+                continue;
+            }
+            for (FileStatus keyDir : fs.listStatus(sharedDir)) {
+                for (FileStatus rowDir : fs.listStatus(keyDir.getPath())) {
+                    for (FileStatus entryDir : fs.listStatus(rowDir.getPath())) {
+                        String name = entryDir.getPath().getName();
+                        if (name.endsWith(LEASES_SUFFIX)) {
+                            String entry = keyDir.getPath().getName() + Path.SEPARATOR + rowDir.getPath().getName() + Path.SEPARATOR
+                                            + name.substring(0, name.length() - LEASES_SUFFIX.length());
+                            if (hasLiveLease(fs, entryDir.getPath(), now)) {
+                                leased.add(entry);
+                            }
+                            continue;
+                        }
+                        
+                        String entry = keyDir.getPath().getName() + Path.SEPARATOR + rowDir.getPath().getName() + Path.SEPARATOR + name;
+                        long size = fs.getContentSummary(entryDir.getPath()).getLength();
+                        used += size;
+                        sizes.merge(entry, size, Long::sum);
+                        lastUsed.merge(entry, entryDir.getModificationTime(), Math::max);
+                        
+                        Path marker = new Path(entryDir.getPath(), HdfsBackedControl.COMPLETE_FILE);
+                        if (maxAgeMs > 0 && fs.exists(marker) && now - fs.getFileStatus(marker).getModificationTime() > maxAgeMs) {
+                            expired.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+        
+        for (String entry : expired) {
+            if (!leased.contains(entry) && delete(ivaratorCacheDirs, entry)) {
+                used -= sizes.remove(entry);
+                lastUsed.remove(entry);
+            }
+        }
+        
+        if (maxSizeBytes > 0 && used > maxSizeBytes) {
+            List<String> entries = new ArrayList<>(lastUsed.keySet());
+            entries.sort(Comparator.comparing(lastUsed::get));
+            for (String entry : entries) {
+                if (used <= maxSizeBytes) {
+                    break;
+                }
+                if (!leased.contains(entry) && delete(ivaratorCacheDirs, entry)) {
+                    used -= sizes.get(entry);
+                }
+            }
+            
+            if (used > maxSizeBytes) {
+                log.warn("Shared ivarator cache is using " + used + " bytes which is over the limit of " + maxSizeBytes + " bytes");
+            }
+        }
+        
+        usedBytes.set(used);
+    }
+    
+    private boolean hasLiveLease(FileSystem fs, Path leasesDir, long now) throws IOException {
+        for (FileStatus lease : fs.listStatus(leasesDir)) {
+            if (now - lease.getModificationTime() < leaseTimeoutMs) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Delete an entry unless it was leased after the eviction scan
+     *
+     * @return true if the entry was deleted
+     */
+    private boolean delete(List<IvaratorCacheDir> ivaratorCacheDirs, String entry) throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Evicting shared ivarator set " + entry);
+        }
+        long now = System.currentTimeMillis();
+        
+        // remove the complete markers first so that nobody picks up a partially deleted set
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            Path marker = new Path(new Path(getSharedDir(ivaratorCacheDir), entry), HdfsBackedControl.COMPLETE_FILE);
+            if (ivaratorCacheDir.getFs().exists(marker)) {
+                ivaratorCacheDir.getFs().delete(marker, false);
+            }
+        }
+        
+        // a query which found the set before the marker was removed holds a lease on it, so leave the files for a later eviction
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            Path leasesDir = getLeasesDir(new Path(getSharedDir(ivaratorCacheDir), entry));
+            if (ivaratorCacheDir.getFs().exists(leasesDir) && hasLiveLease(ivaratorCacheDir.getFs(), leasesDir, now)) {
+                return false;
+            }
+        }
+        
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            Path entryDir = new Path(getSharedDir(ivaratorCacheDir), entry);
+            for (Path dir : new Path[] {entryDir, getLeasesDir(entryDir)}) {
+                if (ivaratorCacheDir.getFs().exists(dir)) {
+                    ivaratorCacheDir.getFs().delete(dir, true);
+                }
+            }
+        }
+        return true;
+    }
+    
+    protected Path getSharedDir(IvaratorCacheDir ivaratorCacheDir) {
+        return new Path(ivaratorCacheDir.getConfig().getBasePathURI(), SHARED_DIR);
+    }
+    
+    protected Path getRowDir(IvaratorCacheDir ivaratorCacheDir, String key, String row) {
+        return new Path(new Path(getSharedDir(ivaratorCacheDir), key), row);
+    }
+    
+    private List<IvaratorCacheDir> getRowDirs(List<IvaratorCacheDir> ivaratorCacheDirs, String key, String row) {
+        List<IvaratorCacheDir> rowDirs = new ArrayList<>(ivaratorCacheDirs.size());
+        for (IvaratorCacheDir ivaratorCacheDir : ivaratorCacheDirs) {
+            rowDirs.add(new IvaratorCacheDir(ivaratorCacheDir.getConfig(), ivaratorCacheDir.getFs(), getRowDir(ivaratorCacheDir, key, row).toUri().toString()));
+        }
+        return rowDirs;
+    }
+    
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+    
+    public long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+    
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    public long getLeaseTimeoutMs() {
+        return leaseTimeoutMs;
+    }
+    
+    public void setLeaseTimeoutMs(long leaseTimeoutMs) {
+        this.leaseTimeoutMs = leaseTimeoutMs;
+    }
+    
+    public long getEvictionIntervalMs() {
+        return evictionIntervalMs;
+    }
+    
+    public void setEvictionIntervalMs(long evictionIntervalMs) {
+        this.evictionIntervalMs = evictionIntervalMs;
+    }
+    
+    /**
+     * A shared set: the cache dirs re-rooted at the row dirs of the entry, and the id of the set under them. The lease on the set is held until every
+     * ivarator that retained the entry has released it.
+     */
+    public static class Entry {
+        private final List<IvaratorCacheDir> ivaratorCacheDirs;
+        private final String id;
+        private final FileSystem leaseFs;
+        private final Path lease;
+        private final AtomicInteger references = new AtomicInteger(1);
+        
+        public Entry(List<IvaratorCacheDir> ivaratorCacheDirs, String id, FileSystem leaseFs, Path lease) {
+            this.ivaratorCacheDirs = ivaratorCacheDirs;
+            this.id = id;
+            this.leaseFs = leaseFs;
+            this.lease = lease;
+        }
+        
+        /**
+         * Add a reference to the entry, which must be released separately
+         *
+         * @return this entry
+         */
+        public Entry retain() {
+            references.incrementAndGet();
+            return this;
+        }
+        
+        /**
+         * Release a reference to the entry, and the lease on the set once there are none left
+         */
+        public void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    leaseFs.delete(lease, false);
+                } catch (IOException e) {
+                    log.warn("Unable to release the lease " + lease + ", it will expire on its own", e);
+                }
+            }
+        }
+        
+        public List<IvaratorCacheDir> getIvaratorCacheDirs() {
+            return ivaratorCacheDirs;
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public Path getLease() {
+            return lease;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,6 +38,11 @@ import com.google.common.collect.TreeMultimap;
 
 /**
  * Performs a merge join of the child iterators. It is expected that all child iterators return values in sorted order.
+ * <p>
+ * The join leapfrogs: the sparsest include, as observed by how often it moves beyond the target, is advanced first and the others are moved up to it. Sources
+ * that keep landing on the targets they are moved to are assumed to be dense near them, and gallop towards the next target with a few calls to next() before
+ * falling back to a seek. The number of steps grows while they reach the target and shrinks when they do not, so a common term intersected with a rare term is
+ * seeked rather than walked.
  */
 public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>, SeekableIterator {
     // temporary stores of uninitialized streams of iterators
@@ -55,6 +61,14 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
     
     private static final Logger log = Logger.getLogger(AndIterator.class);
     
+    // the most calls to next() a source will make towards a target before seeking
+    public static final int MAX_STEP_BUDGET = 8;
+    // the number of consecutive moves landing on the target before a source starts stepping towards targets
+    public static final int STEP_PROBE_INTERVAL = 8;
+    
+    private final Map<NestedIterator<T>,SourceStats> stats = new IdentityHashMap<>();
+    private final Comparator<NestedIterator<T>> sparsestFirstComparator = Comparator.comparingLong((NestedIterator<T> itr) -> getStats(itr).leads).reversed();
+    
     public AndIterator(Iterable<NestedIterator<T>> sources) {
         this(sources, null);
     }
@@ -364,12 +378,12 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
     protected TreeMultimap<T,NestedIterator<T>> advanceIterators(T key) {
         T highest = null;
         transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
+        for (NestedIterator<T> itr : sparsestFirst(includeHeads.removeAll(key))) {
             T next;
             try {
                 // if there is already a known highest go straight there instead of next
                 if (highest != null) {
-                    next = itr.move(highest);
+                    next = advance(itr, highest);
                 } else if (itr.hasNext()) {
                     next = itr.next();
                 } else {
@@ -386,6 +400,9 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
                 
                 // move the highest if the new key is higher than the current key and the highest seen so far
                 if ((highest == null && transform.compareTo(key) > 0) || (highest != null && transform.compareTo(highest) > 0)) {
+                    if (highest != null) {
+                        getStats(itr).leads++;
+                    }
                     highest = transform;
                 }
             } catch (Exception e) {
@@ -410,8 +427,8 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
      */
     protected TreeMultimap<T,NestedIterator<T>> moveIterators(T key, T to) {
         transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
-            T next = itr.move(to);
+        for (NestedIterator<T> itr : sparsestFirst(includeHeads.removeAll(key))) {
+            T next = advance(itr, to);
             if (next == null) {
                 return Util.getEmpty();
             } else {
@@ -420,6 +437,7 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
                 includeHeads.put(transform, itr);
                 
                 if (transform.compareTo(to) > 0) {
+                    getStats(itr).leads++;
                     to = transform;
                 }
             }
@@ -458,6 +476,71 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         return includeHeads;
     }
     
+    /**
+     * Advance a source to the first value greater than or equal to the target. Sources that have been landing on their targets first try to step there with
+     * next(), and seek with move() if the target is further away than their step budget.
+     *
+     * @param itr
+     *            the source to advance
+     * @param to
+     *            the target
+     * @return the first value of the source at or beyond the target, null if the source is exhausted
+     */
+    protected T advance(NestedIterator<T> itr, T to) {
+        SourceStats sourceStats = getStats(itr);
+        for (int i = 0; i < sourceStats.stepBudget; i++) {
+            if (!itr.hasNext()) {
+                return null;
+            }
+            T next = itr.next();
+            if (transformer.transform(next).compareTo(to) >= 0) {
+                // the target was close, so gallop further next time
+                sourceStats.stepBudget = Math.min(MAX_STEP_BUDGET, sourceStats.stepBudget * 2);
+                return next;
+            }
+        }
+        
+        T next = itr.move(to);
+        if (sourceStats.stepBudget > 0) {
+            // the target was further than we stepped, so seek sooner next time
+            sourceStats.stepBudget /= 2;
+        } else if (next != null && transformer.transform(next).compareTo(to) == 0) {
+            // a source that keeps landing on the target is dense around it, and may be cheaper to step than to seek
+            if (++sourceStats.landings >= STEP_PROBE_INTERVAL) {
+                sourceStats.stepBudget = 1;
+                sourceStats.landings = 0;
+            }
+        } else {
+            sourceStats.landings = 0;
+        }
+        return next;
+    }
+    
+    private List<NestedIterator<T>> sparsestFirst(Collection<NestedIterator<T>> sources) {
+        List<NestedIterator<T>> sorted = new ArrayList<>(sources);
+        if (sorted.size() > 1) {
+            // a stable sort, so ties keep the deterministic ordering of the heads
+            sorted.sort(sparsestFirstComparator);
+        }
+        return sorted;
+    }
+    
+    private SourceStats getStats(NestedIterator<T> itr) {
+        return stats.computeIfAbsent(itr, k -> new SourceStats());
+    }
+    
+    /**
+     * What has been observed of an include while intersecting
+     */
+    private static class SourceStats {
+        // the number of times this source moved beyond the target it was moved to
+        private long leads = 0;
+        // the number of calls to next() to try before seeking, 0 to always seek
+        private int stepBudget = 0;
+        // the number of consecutive seeks that landed exactly on the target
+        private int landings = 0;
+    }
+    
     /**
      * Creates a sorted mapping of values to iterators.
      *
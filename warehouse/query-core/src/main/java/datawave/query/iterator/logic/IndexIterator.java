@@ -3,6 +3,7 @@ package datawave.query.iterator.logic;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
+import datawave.core.iterators.FieldIndexCachingIterator;
 import datawave.query.Constants;
 import datawave.query.attributes.Document;
 import datawave.query.attributes.PreNormalizedAttributeFactory;
@@ -158,6 +159,11 @@ public class IndexIterator implements SortedKeyValueIterator<Key,Value>, Documen
         this.seekColumnFamilies = Lists.newArrayList((ByteSequence) new ArrayByteSequence(columnFamilyBytes));
         this.includeColumnFamilies = true;
         
+        // let a shared cache in front of the field index know which term to serve
+        if (source instanceof FieldIndexCachingIterator) {
+            ((FieldIndexCachingIterator) source).setTerm(this.columnFamily, valueMinPrefix);
+        }
+        
         document = new Document();
         
         this.field = field.toString();
@@ -0,0 +1,184 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.Util;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A tournament (loser) tree over the heads of a set of nested iterators, used by the {@link OrIterator} to merge wide unions. Each internal node holds the
+ * source that lost the match played there, and the overall winner is kept at the root, so replacing the head of a source only replays the matches on the path
+ * from that source to the root: one comparison per level rather than the removal and insertion into a sorted map.
+ * <p>
+ * Sources whose heads are equal are advanced together, which dedupes the union in place. Only the winner is ever replaced, as replaying any other source would
+ * compare it against its own entry on the path.
+ *
+ * @param <T>
+ */
+public class LoserTree<T extends Comparable<T>> {
+    
+    private final List<NestedIterator<T>> sources;
+    private final Comparator<T> keyComp;
+    private final Util.Transformer<T> transformer;
+    
+    // the transformed and original head of each source, null once the source is exhausted
+    private final Object[] heads;
+    private final Object[] originals;
+    
+    // tree[0] is the winner, tree[1..n-1] are the losers of the match played at that node
+    private final int[] tree;
+    
+    /**
+     * Initializes the sources and builds the tree from their first values
+     *
+     * @param sources
+     *            the sources to merge
+     * @param keyComp
+     *            the comparator for the transformed values
+     * @param transformer
+     *            the transformer applied to values before they are compared
+     */
+    public LoserTree(List<NestedIterator<T>> sources, Comparator<T> keyComp, Util.Transformer<T> transformer) {
+        this.sources = sources;
+        this.keyComp = keyComp;
+        this.transformer = transformer;
+        this.heads = new Object[sources.size()];
+        this.originals = new Object[sources.size()];
+        this.tree = new int[Math.max(1, sources.size())];
+        
+        for (int i = 0; i < sources.size(); i++) {
+            NestedIterator<T> source = sources.get(i);
+            source.initialize();
+            if (source.hasNext()) {
+                setHead(i, source.next());
+            }
+        }
+        build();
+    }
+    
+    /**
+     * @return the lowest transformed head, null if all of the sources are exhausted
+     */
+    public T peek() {
+        return sources.isEmpty() ? null : head(tree[0]);
+    }
+    
+    /**
+     * @return the value the lowest head was transformed from, null if all of the sources are exhausted
+     */
+    public T peekOriginal() {
+        return sources.isEmpty() ? null : original(tree[0]);
+    }
+    
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+    
+    /**
+     * Advance all of the sources at the lowest head, one after the other as each is replayed to the root
+     *
+     * @param beforeAdvance
+     *            called with each source at the lowest head before it is advanced, may be null
+     */
+    public void advanceLowest(Consumer<NestedIterator<T>> beforeAdvance) {
+        T lowest = peek();
+        while (lowest != null && head(tree[0]) != null && keyComp.compare(head(tree[0]), lowest) == 0) {
+            int winner = tree[0];
+            NestedIterator<T> itr = sources.get(winner);
+            if (beforeAdvance != null) {
+                beforeAdvance.accept(itr);
+            }
+            setHead(winner, itr.hasNext() ? itr.next() : null);
+            replay(winner);
+        }
+    }
+    
+    /**
+     * Move every source whose head is lower than the minimum to the minimum
+     *
+     * @param minimum
+     *            the value to move to
+     */
+    public void move(T minimum) {
+        T lowest = peek();
+        while (lowest != null && keyComp.compare(lowest, minimum) < 0) {
+            int winner = tree[0];
+            setHead(winner, sources.get(winner).move(minimum));
+            replay(winner);
+            lowest = peek();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T head(int source) {
+        return (T) heads[source];
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T original(int source) {
+        return (T) originals[source];
+    }
+    
+    private void setHead(int source, T next) {
+        originals[source] = next;
+        heads[source] = (next == null ? null : transformer.transform(next));
+    }
+    
+    /**
+     * Does source a win a match against source b. Exhausted sources lose to everything, and ties go to the lower source to keep the merge stable.
+     */
+    private boolean beats(int a, int b) {
+        T headA = head(a);
+        T headB = head(b);
+        if (headA == null || headB == null) {
+            return headB == null && (headA != null || a < b);
+        }
+        int compare = keyComp.compare(headA, headB);
+        return compare < 0 || (compare == 0 && a < b);
+    }
+    
+    /**
+     * Play the full tournament. Sources are the leaves n..2n-1 of an implicit binary tree whose internal nodes are 1..n-1.
+     */
+    private void build() {
+        int n = sources.size();
+        if (n <= 1) {
+            tree[0] = 0;
+            return;
+        }
+        
+        int[] winners = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            winners[n + i] = i;
+        }
+        for (int node = n - 1; node > 0; node--) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (beats(left, right)) {
+                winners[node] = left;
+                tree[node] = right;
+            } else {
+                winners[node] = right;
+                tree[node] = left;
+            }
+        }
+        tree[0] = winners[1];
+    }
+    
+    /**
+     * Replay the matches from a source up to the root after its head has changed
+     */
+    private void replay(int source) {
+        int winner = source;
+        for (int node = (source + sources.size()) >>> 1; node > 0; node >>>= 1) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+}
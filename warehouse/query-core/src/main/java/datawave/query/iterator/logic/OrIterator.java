@@ -20,11 +20,15 @@ import java.util.TreeSet;
 
 /**
  * Performs a deduping merge of iterators.
- *
+ * <p>
+ * Wide unions, with at least {@link #LOSER_TREE_THRESHOLD} includes, merge their includes with a {@link LoserTree} instead of a sorted multimap.
  * 
  * @param <T>
  */
 public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
+    // the number of includes at which a loser tree is cheaper than keeping the heads in a sorted multimap
+    public static final int LOSER_TREE_THRESHOLD = 64;
+    
     // temporary stores of uninitialized streams of iterators
     private List<NestedIterator<T>> includes, contextIncludes, contextExcludes;
     
@@ -32,6 +36,8 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
     private Util.Transformer<T> transformer;
     
     private TreeMultimap<T,NestedIterator<T>> includeHeads, contextIncludeHeads, contextIncludeNullHeads, contextExcludeHeads, contextExcludeNullHeads;
+    // the includes of a wide union, in which case includeHeads is left empty
+    private LoserTree<T> includeTree;
     
     private T prev;
     private T next;
@@ -78,7 +84,11 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
         transforms = new HashMap<>();
         
         includeHeads = TreeMultimap.create(keyComp, itrComp);
-        initSubtree(includeHeads, includes, transformer, transforms, false);
+        if (includes.size() >= LOSER_TREE_THRESHOLD) {
+            includeTree = new LoserTree<>(new ArrayList<>(includes), keyComp, transformer);
+        } else {
+            initSubtree(includeHeads, includes, transformer, transforms, false);
+        }
         
         if (contextIncludes.size() > 0) {
             contextIncludeHeads = TreeMultimap.create(keyComp, itrComp);
@@ -117,9 +127,9 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
         
         SortedSet<T> candidateSet = new TreeSet<>(Util.keyComparator());
         T lowest;
-        if (includeHeads.keySet().size() > 0) {
-            lowest = includeHeads.keySet().first();
-            candidateSet.add(lowest);
+        T lowestInclude = lowestInclude();
+        if (lowestInclude != null) {
+            candidateSet.add(lowestInclude);
         }
         
         T lowestContextInclude = null;
@@ -153,10 +163,19 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
                 // build it from the contextIncludeHeads
                 next = lowestContextInclude;
                 document = Util.buildNewDocument(contextIncludeHeads.get(next));
-            } else if (includeHeads.keySet().size() > 0 && lowest.equals(includeHeads.keySet().first())) {
-                // build it from the includeHeads
-                next = transforms.get(lowest);
-                document = Util.buildNewDocument(includeHeads.get(lowest));
+            } else if (lowestInclude != null && lowest.equals(lowestInclude)) {
+                if (includeTree != null) {
+                    // build it from the includes at the lowest as they are advanced
+                    next = includeTree.peekOriginal();
+                    Document includeDocument = new Document();
+                    includeTree.advanceLowest(itr -> Util.addToDocument(includeDocument, itr));
+                    document = includeDocument;
+                    lowestInclude = null;
+                } else {
+                    // build it from the includeHeads
+                    next = transforms.get(lowest);
+                    document = Util.buildNewDocument(includeHeads.get(lowest));
+                }
             } else {
                 // nothing to build it from all we know is that it wasn't in the exclude set
                 next = evaluationContext;
@@ -164,7 +183,11 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
             }
             
             // regardless of where we hit make sure to advance includeHeads if it matches there
-            if (includeHeads.get(lowest) != null) {
+            if (includeTree != null) {
+                if (lowestInclude != null && lowest.equals(lowestInclude)) {
+                    includeTree.advanceLowest(null);
+                }
+            } else if (includeHeads.get(lowest) != null) {
                 includeHeads = advanceIterators(lowest);
             }
         }
@@ -202,13 +225,17 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
             return next();
         }
         
-        Set<T> headSet = includeHeads.keySet().headSet(minimum);
-        
-        // some iterators need to be moved into the target range before recalculating the next
-        Iterator<T> topKeys = new LinkedList<>(headSet).iterator();
-        while (!includeHeads.isEmpty() && topKeys.hasNext()) {
-            // advance each iterator that is under the threshold
-            includeHeads = moveIterators(topKeys.next(), minimum);
+        if (includeTree != null) {
+            includeTree.move(minimum);
+        } else {
+            Set<T> headSet = includeHeads.keySet().headSet(minimum);
+            
+            // some iterators need to be moved into the target range before recalculating the next
+            Iterator<T> topKeys = new LinkedList<>(headSet).iterator();
+            while (!includeHeads.isEmpty() && topKeys.hasNext()) {
+                // advance each iterator that is under the threshold
+                includeHeads = moveIterators(topKeys.next(), minimum);
+            }
         }
         
         // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
@@ -223,6 +250,13 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
         }
     }
     
+    private T lowestInclude() {
+        if (includeTree != null) {
+            return includeTree.peek();
+        }
+        return includeHeads.isEmpty() ? null : includeHeads.keySet().first();
+    }
+    
     /**
      * Advances all iterators associated with the supplied key and adds them back into the sorted multimap. If any of the sub-trees returns false, then they are
      * dropped.
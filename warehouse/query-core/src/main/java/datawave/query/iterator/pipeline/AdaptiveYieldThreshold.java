@@ -0,0 +1,112 @@
+package datawave.query.iterator.pipeline;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.log4j.Logger;
+
+/**
+ * Scales the yield threshold of a scan with the load on the tserver. The load is taken as the largest of the evaluation pool backlog, the ivarator pool
+ * backlog, and the system load average per processor. The tserver scan queue itself is not visible to iterators, however a deep scan queue shows up as cpu
+ * load.
+ * <p>
+ * When the tserver is busy the threshold tightens in proportion to the load so that queries yield sooner and interleave more fairly. When the tserver is idle
+ * the threshold loosens up to {@link #IDLE_MULTIPLIER} times the base threshold so that queries skip unneeded yield and re-seek overhead.
+ */
+public class AdaptiveYieldThreshold {
+    
+    private static final Logger log = Logger.getLogger(AdaptiveYieldThreshold.class);
+    
+    protected static final OperatingSystemMXBean OS_BEAN = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+    
+    // loads at or below this are considered idle
+    public static final double IDLE_LOAD = 0.25d;
+    
+    // loads above this tighten the threshold
+    public static final double BUSY_LOAD = 1.0d;
+    
+    // the factor applied to the base threshold when the tserver is completely idle
+    public static final double IDLE_MULTIPLIER = 4.0d;
+    
+    // how often the load is sampled
+    public static final long LOAD_SAMPLE_PERIOD_MS = 1000L;
+    
+    private final long baseThresholdMs;
+    private final long minThresholdMs;
+    private final long maxThresholdMs;
+    private final IteratorEnvironment env;
+    
+    private long thresholdMs;
+    private long lastSampleMs = 0L;
+    
+    /**
+     * @param baseThresholdMs
+     *            the configured yield threshold
+     * @param minThresholdMs
+     *            the lowest threshold we will tighten to. This never raises the threshold above the base threshold.
+     * @param maxThresholdMs
+     *            the highest threshold we will loosen to. This never lowers the threshold below the base threshold.
+     * @param env
+     *            the iterator environment used to find the thread pools
+     */
+    public AdaptiveYieldThreshold(long baseThresholdMs, long minThresholdMs, long maxThresholdMs, IteratorEnvironment env) {
+        this.baseThresholdMs = baseThresholdMs;
+        this.minThresholdMs = Math.min(minThresholdMs, baseThresholdMs);
+        this.maxThresholdMs = Math.max(maxThresholdMs, baseThresholdMs);
+        this.env = env;
+        this.thresholdMs = baseThresholdMs;
+    }
+    
+    /**
+     * Get the current yield threshold, resampling the tserver load if it has not been sampled recently.
+     *
+     * @return the yield threshold in milliseconds
+     */
+    public long getThresholdMs() {
+        long now = System.currentTimeMillis();
+        if (now - lastSampleMs >= LOAD_SAMPLE_PERIOD_MS) {
+            lastSampleMs = now;
+            double load = getLoad();
+            thresholdMs = computeThresholdMs(load);
+            if (log.isTraceEnabled()) {
+                log.trace("Yield threshold is " + thresholdMs + "ms at a load of " + load);
+            }
+        }
+        return thresholdMs;
+    }
+    
+    protected double getLoad() {
+        double load = Math.max(IteratorThreadPoolManager.getEvaluationLoad(env), IteratorThreadPoolManager.getIvaratorLoad(env));
+        double systemLoad = OS_BEAN.getSystemLoadAverage();
+        // a negative value means the load average is not available on this platform
+        if (systemLoad >= 0) {
+            load = Math.max(load, systemLoad / OS_BEAN.getAvailableProcessors());
+        }
+        return load;
+    }
+    
+    /**
+     * Compute the yield threshold for a given load.
+     *
+     * @param load
+     *            the tserver load where 1.0 means fully utilized
+     * @return the yield threshold in milliseconds
+     */
+    public long computeThresholdMs(double load) {
+        double threshold = baseThresholdMs;
+        if (load > BUSY_LOAD) {
+            threshold = baseThresholdMs * (BUSY_LOAD / load);
+        } else if (load < IDLE_LOAD) {
+            double idleness = (IDLE_LOAD - Math.max(0.0d, load)) / IDLE_LOAD;
+            threshold = baseThresholdMs * (1.0d + (idleness * (IDLE_MULTIPLIER - 1.0d)));
+        }
+        // note that a cast of a double larger than Long.MAX_VALUE results in Long.MAX_VALUE
+        return Math.max(minThresholdMs, Math.min(maxThresholdMs, (long) threshold));
+    }
+    
+    public long getBaseThresholdMs() {
+        return baseThresholdMs;
+    }
+}
@@ -0,0 +1,255 @@
+package datawave.query.iterator.pipeline;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.NestedQuery;
+import datawave.query.iterator.NestedQueryIterator;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.profile.QuerySpan;
+import datawave.query.iterator.profile.QuerySpanCollector;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pipeline iterator that is driven by the completion of evaluations rather than by polling them in order. Each evaluation signals a completion queue when it
+ * finishes, and a new evaluation is started in its place right away, so one slow evaluation does not leave the other pipelines idle.
+ * <p>
+ * Completed evaluations are tracked in an {@link EvaluationWindow} of up to maxPipelines + maxCachedResults evaluations. A result which completes ahead of the
+ * documents started before it is held in the window until they have all completed, so the results are returned in document order. This keeps the keys
+ * returned monotonic, and the yield position, the last document for which it and all documents before it have been evaluated, is never before a key that
+ * has already been returned. A scan which yields or is torn down therefore resumes without skipping or repeating any documents.
+ */
+public class CompletionPipelineIterator extends PipelineIterator {
+    
+    private static final Logger log = Logger.getLogger(CompletionPipelineIterator.class);
+    
+    protected final EvaluationWindow window;
+    protected final BlockingQueue<Evaluation> completed = new LinkedBlockingQueue<>();
+    protected final Map<Long,Evaluation> running = new HashMap<>();
+    
+    public CompletionPipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, QuerySpanCollector querySpanCollector,
+                    QuerySpan querySpan, QueryIterator sourceIterator, SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env,
+                    YieldCallback<Key> yieldCallback, long yieldThresholdMs, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+        super(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy, env, yieldCallback,
+                        yieldThresholdMs, columnFamilies, inclusive);
+        this.window = new EvaluationWindow(maxPipelines + Math.max(1, maxCachedResults));
+    }
+    
+    @Override
+    public boolean hasNext() {
+        // if we had already yielded, then leave gracefully
+        if (yield != null && yield.hasYielded()) {
+            return false;
+        }
+        
+        Entry<Key,Document> next = getNext(false);
+        if (log.isTraceEnabled()) {
+            log.trace("QueryIterator.hasNext() -> " + (next == null ? null : next.getKey()));
+        }
+        return (next != null);
+    }
+    
+    @Override
+    public Entry<Key,Document> next() {
+        // if we had already yielded, then leave gracefully
+        if (yield != null && yield.hasYielded()) {
+            return null;
+        }
+        
+        Entry<Key,Document> next = getNext(true);
+        if (log.isTraceEnabled()) {
+            log.trace("QueryIterator.next() -> " + (next == null ? null : next.getKey()));
+        }
+        return next;
+    }
+    
+    /**
+     * Get the next non-null result, waiting on the running evaluations as needed. Pop/remove that result as specified.
+     *
+     * @param remove
+     * @return the next non-null entry. null if there are no more entries to get.
+     */
+    private Entry<Key,Document> getNext(boolean remove) {
+        try {
+            long startMs = System.currentTimeMillis();
+            long thresholdMs = getYieldThresholdMs();
+            
+            while (true) {
+                // gather whatever has completed and keep the pipelines busy
+                for (Evaluation evaluation = completed.poll(); evaluation != null; evaluation = completed.poll()) {
+                    complete(evaluation);
+                }
+                release();
+                fill(true);
+                
+                if (!results.isEmpty()) {
+                    return remove ? results.poll() : results.peek();
+                }
+                if (running.isEmpty()) {
+                    return null;
+                }
+                
+                if (log.isTraceEnabled()) {
+                    log.trace("getNext(" + remove + ") waiting on " + running.size() + " evaluations");
+                }
+                
+                // we must have at least evaluated one thing in order to yield, otherwise we will have not progressed at all
+                Evaluation evaluation;
+                if (yield != null && lastKeyEvaluated != null) {
+                    long remaining = thresholdMs - (System.currentTimeMillis() - startMs);
+                    evaluation = (remaining > 0 ? completed.poll(remaining, TimeUnit.MILLISECONDS) : null);
+                    if (evaluation == null) {
+                        yield.yield(lastKeyEvaluated);
+                        if (log.isDebugEnabled())
+                            log.debug("Yielding at " + lastKeyEvaluated);
+                        throw new IterationInterruptedException("Yielding at " + lastKeyEvaluated);
+                    }
+                } else {
+                    evaluation = completed.take();
+                }
+                complete(evaluation);
+            }
+        } catch (Exception e) {
+            // cancel out existing executions
+            cancel();
+            
+            // if we yielded, then leave gracefully
+            if (yield != null && yield.hasYielded()) {
+                return null;
+            }
+            
+            log.error("Failed to retrieve evaluation pipeline result", e);
+            throw new RuntimeException("Failed to retrieve evaluation pipeline result", e);
+        }
+    }
+    
+    /**
+     * Pull the result from a completed evaluation and return its pipeline for reuse
+     *
+     * @param evaluation
+     *            the completed evaluation
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private void complete(Evaluation evaluation) throws InterruptedException, ExecutionException {
+        running.remove(evaluation.sequence);
+        Entry<Key,Document> result;
+        try {
+            // call get to ensure that we throw any exception that occurred
+            evaluation.future.get();
+            result = evaluation.pipeline.getResult();
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("Failed evaluating " + evaluation.key + "; cancelling remaining evaluations and flushing results", e);
+            throw e;
+        } finally {
+            // return the pipeline for reuse
+            pipelines.checkIn(evaluation.pipeline);
+        }
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Evaluation of " + evaluation.key + " was " + (result == null ? "empty" : "successful"));
+        }
+        
+        // hold the result until the documents started before it have completed
+        window.complete(evaluation.sequence, result);
+    }
+    
+    /**
+     * Release the evaluations that are complete in sequence, queueing their results to be returned, and move the yield position up to the last of them
+     */
+    private void release() {
+        if (window.release(results) > 0) {
+            lastKeyEvaluated = window.getLastReleasedKey();
+        }
+    }
+    
+    /**
+     * Start new evaluations until we run out of pipelines, room in the window, room for results, or documents
+     *
+     * @param trackSpan
+     *            whether to add the query span to the collector for each evaluation started
+     */
+    private void fill(boolean trackSpan) {
+        while (running.size() < pipelines.maxPipelines && window.hasCapacity() && results.size() < maxResults && docSource.hasNext()) {
+            Key keySource = docSource.next();
+            NestedQuery<Key> nestedQuery = null;
+            if (docSource instanceof NestedQueryIterator) {
+                nestedQuery = ((NestedQueryIterator) this.docSource).getNestedQuery();
+            }
+            
+            evaluate(keySource, docSource.document(), nestedQuery);
+            if (trackSpan && collectTimingDetails) {
+                querySpanCollector.addQuerySpan(querySpan);
+            }
+        }
+    }
+    
+    private void evaluate(Key key, Document document, NestedQuery<Key> nestedQuery) {
+        if (log.isTraceEnabled()) {
+            log.trace("Adding evaluation of " + key + " to pipeline");
+        }
+        Pipeline pipeline = pipelines.checkOut(key, document, nestedQuery, columnFamilies, inclusive);
+        
+        final Evaluation evaluation = new Evaluation(window.start(key), key, pipeline);
+        running.put(evaluation.sequence, evaluation);
+        evaluation.future = IteratorThreadPoolManager.executeEvaluation(() -> {
+            try {
+                pipeline.run();
+            } finally {
+                completed.add(evaluation);
+            }
+        }, pipeline.toString(), env);
+    }
+    
+    /**
+     * Cancel all of the running evaluations
+     */
+    private void cancel() {
+        for (Evaluation evaluation : running.values()) {
+            evaluation.future.cancel(true);
+            pipelines.checkIn(evaluation.pipeline);
+        }
+        running.clear();
+        completed.clear();
+        window.clear();
+        results.clear();
+    }
+    
+    @Override
+    public void startPipeline() {
+        fill(false);
+    }
+    
+    /**
+     * A running evaluation
+     */
+    protected static class Evaluation {
+        final long sequence;
+        final Key key;
+        final Pipeline pipeline;
+        Future<?> future;
+        
+        Evaluation(long sequence, Key key, Pipeline pipeline) {
+            this.sequence = sequence;
+            this.key = key;
+            this.pipeline = pipeline;
+        }
+    }
+}
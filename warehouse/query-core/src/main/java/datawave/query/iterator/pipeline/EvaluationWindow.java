@@ -0,0 +1,131 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.Map.Entry;
+import java.util.Queue;
+
+import datawave.query.attributes.Document;
+import org.apache.accumulo.core.data.Key;
+
+/**
+ * A bounded ring buffer of evaluations keyed by the sequence in which they were started. Evaluations may complete in any order, but they are released in
+ * sequence so that the key of the last released evaluation is always a safe point to resume from: every document up to and including it has been evaluated.
+ */
+public class EvaluationWindow {
+    
+    private final Key[] keys;
+    private final Entry<Key,Document>[] results;
+    private final boolean[] completed;
+    
+    // the sequence of the next evaluation to be started
+    private long nextSequence = 0;
+    // the sequence of the next evaluation to be released
+    private long releaseSequence = 0;
+    // the key of the last released evaluation
+    private Key lastReleasedKey = null;
+    
+    @SuppressWarnings("unchecked")
+    public EvaluationWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.keys = new Key[capacity];
+        this.results = new Entry[capacity];
+        this.completed = new boolean[capacity];
+    }
+    
+    /**
+     * @return true if another evaluation can be started without overrunning the oldest unreleased evaluation
+     */
+    public boolean hasCapacity() {
+        return nextSequence - releaseSequence < keys.length;
+    }
+    
+    /**
+     * @return true if no evaluations are waiting to be released
+     */
+    public boolean isEmpty() {
+        return nextSequence == releaseSequence;
+    }
+    
+    /**
+     * Reserve a slot for a new evaluation
+     *
+     * @param key
+     *            the key of the document being evaluated
+     * @return the sequence of the evaluation
+     */
+    public long start(Key key) {
+        if (!hasCapacity()) {
+            throw new IllegalStateException("Evaluation window is full");
+        }
+        int slot = slot(nextSequence);
+        keys[slot] = key;
+        results[slot] = null;
+        completed[slot] = false;
+        return nextSequence++;
+    }
+    
+    /**
+     * Record the result of a completed evaluation
+     *
+     * @param sequence
+     *            the sequence returned when the evaluation was started
+     * @param result
+     *            the evaluated result, null if the document did not match
+     */
+    public void complete(long sequence, Entry<Key,Document> result) {
+        if (sequence < releaseSequence || sequence >= nextSequence) {
+            throw new IllegalArgumentException("Evaluation " + sequence + " is not in the window");
+        }
+        int slot = slot(sequence);
+        results[slot] = result;
+        completed[slot] = true;
+    }
+    
+    /**
+     * Release the completed evaluations at the front of the window in the order they were started
+     *
+     * @param released
+     *            the queue to add the non-null results to, null if the results have already been handled
+     * @return the number of evaluations released
+     */
+    public int release(Queue<Entry<Key,Document>> released) {
+        int count = 0;
+        while (releaseSequence < nextSequence && completed[slot(releaseSequence)]) {
+            int slot = slot(releaseSequence);
+            if (released != null && results[slot] != null) {
+                released.add(results[slot]);
+            }
+            lastReleasedKey = keys[slot];
+            keys[slot] = null;
+            results[slot] = null;
+            completed[slot] = false;
+            releaseSequence++;
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * @return the key of the last evaluation released, null if none have been
+     */
+    public Key getLastReleasedKey() {
+        return lastReleasedKey;
+    }
+    
+    /**
+     * Drop all unreleased evaluations
+     */
+    public void clear() {
+        while (releaseSequence < nextSequence) {
+            int slot = slot(releaseSequence++);
+            keys[slot] = null;
+            results[slot] = null;
+            completed[slot] = false;
+        }
+    }
+    
+    private int slot(long sequence) {
+        return (int) (sequence % keys.length);
+    }
+}
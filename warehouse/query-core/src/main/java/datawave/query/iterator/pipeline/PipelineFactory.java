@@ -42,7 +42,43 @@ public class PipelineFactory {
                     QuerySpanCollector querySpanCollector, QuerySpan querySpan, QueryIterator sourceIterator,
                     SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env, YieldCallback<Key> yield, long yieldThresholdMs,
                     Collection<ByteSequence> columnFamilies, boolean inclusive) {
-        if (maxPipelines > 1 && !requestSerialPipeline) {
+        return createIterator(documents, maxPipelines, maxCachedResults, requestSerialPipeline, false, querySpanCollector, querySpan, sourceIterator,
+                        sourceForDeepCopy, env, yield, yieldThresholdMs, columnFamilies, inclusive);
+    }
+    
+    /**
+     * Create a pipeline iterator.
+     * 
+     * @param documents
+     *            Document Iterator.
+     * @param maxPipelines
+     *            maximum number of requested pipelines.
+     * @param maxCachedResults
+     *            maximum cached results.
+     * @param requestSerialPipeline
+     *            request for a serial pipeline. In the future this choice may not be honored
+     * @param requestCompletionPipeline
+     *            request for a pipeline that starts a new evaluation as soon as any evaluation completes
+     * @param querySpanCollector
+     *            query span collector
+     * @param querySpan
+     *            query span
+     * @param sourceIterator
+     *            source iterator.
+     * @param sourceForDeepCopy
+     *            source used for deep copies.
+     * @param env
+     *            iterator environment
+     * @return
+     */
+    public static PipelineIterator createIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, boolean requestSerialPipeline,
+                    boolean requestCompletionPipeline, QuerySpanCollector querySpanCollector, QuerySpan querySpan,
+                    QueryIterator sourceIterator, SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env, YieldCallback<Key> yield,
+                    long yieldThresholdMs, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+        if (maxPipelines > 1 && !requestSerialPipeline && requestCompletionPipeline) {
+            return new CompletionPipelineIterator(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy,
+                            env, yield, yieldThresholdMs, columnFamilies, inclusive);
+        } else if (maxPipelines > 1 && !requestSerialPipeline) {
             return new PipelineIterator(documents, maxPipelines, maxCachedResults, querySpanCollector, querySpan, sourceIterator, sourceForDeepCopy, env,
                             yield, yieldThresholdMs, columnFamilies, inclusive);
         } else {
@@ -37,6 +37,7 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
     private static final Logger log = Logger.getLogger(PipelineIterator.class);
     protected final YieldCallback<Key> yield;
     protected final long yieldThresholdMs;
+    protected AdaptiveYieldThreshold adaptiveYieldThreshold = null;
     protected final NestedIterator<Key> docSource;
     protected final PipelinePool pipelines;
     protected final Queue<Tuple2<Future<?>,Pipeline>> evaluationQueue;
@@ -71,6 +72,22 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
         this.collectTimingDetails = collectTimingDetails;
     }
     
+    public void setAdaptiveYieldThreshold(AdaptiveYieldThreshold adaptiveYieldThreshold) {
+        this.adaptiveYieldThreshold = adaptiveYieldThreshold;
+    }
+    
+    /**
+     * Get the yield threshold to use for the next round of evaluations. This is the configured threshold unless an adaptive threshold was set.
+     *
+     * @return the yield threshold in milliseconds
+     */
+    protected long getYieldThresholdMs() {
+        if (adaptiveYieldThreshold != null) {
+            return adaptiveYieldThreshold.getThresholdMs();
+        }
+        return yieldThresholdMs;
+    }
+    
     /*
      * (non-Javadoc)
      * 
@@ -172,18 +189,19 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
         Entry<Key,Document> result = null;
         
         long startMs = System.currentTimeMillis();
+        long thresholdMs = getYieldThresholdMs();
         while (!evaluationQueue.isEmpty() && result == null) {
             // we must have at least evaluated one thing in order to yield, otherwise we will have not progressed at all
             if (yield != null && lastKeyEvaluated != null) {
                 long delta = System.currentTimeMillis() - startMs;
-                if (delta > yieldThresholdMs) {
+                if (delta > thresholdMs) {
                     yield.yield(lastKeyEvaluated);
                     if (log.isDebugEnabled())
                         log.debug("Yielding at " + lastKeyEvaluated);
                     throw new IterationInterruptedException("Yielding at " + lastKeyEvaluated);
                 }
                 try {
-                    result = poll(yieldThresholdMs - delta);
+                    result = poll(thresholdMs - delta);
                 } catch (TimeoutException e) {
                     yield.yield(lastKeyEvaluated);
                     if (log.isDebugEnabled())
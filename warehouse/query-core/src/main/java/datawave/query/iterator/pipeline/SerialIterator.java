@@ -41,6 +41,7 @@ public class SerialIterator extends PipelineIterator {
         
         if (null == result) {
             long start = System.currentTimeMillis();
+            long thresholdMs = getYieldThresholdMs();
             while (this.docSource.hasNext()) {
                 Key docKey = this.docSource.next();
                 Document doc = this.docSource.document();
@@ -49,7 +50,7 @@ public class SerialIterator extends PipelineIterator {
                 result = currentPipeline.getResult();
                 if (null != result)
                     break;
-                if (yield != null && ((System.currentTimeMillis() - start) > yieldThresholdMs)) {
+                if (yield != null && ((System.currentTimeMillis() - start) > thresholdMs)) {
                     yield.yield(docKey);
                     if (log.isDebugEnabled()) {
                         log.debug("Yielding at " + docKey);
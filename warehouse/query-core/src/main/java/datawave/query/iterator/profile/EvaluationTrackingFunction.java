@@ -18,9 +18,9 @@ public class EvaluationTrackingFunction<F,T> implements Function<F,T> {
     
     @Override
     public T apply(F input) {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         T output = function.apply(input);
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
         return output;
     }
 }
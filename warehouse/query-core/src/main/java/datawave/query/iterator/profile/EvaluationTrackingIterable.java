@@ -34,8 +34,8 @@ public class EvaluationTrackingIterable extends AccumuloTreeIterable<Key,Documen
     
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         iterable.seek(range, columnFamilies, inclusive);
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
     }
 }
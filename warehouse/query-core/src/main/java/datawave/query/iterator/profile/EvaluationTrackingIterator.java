@@ -23,9 +23,9 @@ public class EvaluationTrackingIterator<T> implements Iterator<T> {
     
     @Override
     public T next() {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         T next = itr.next();
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
         return next;
         
     }
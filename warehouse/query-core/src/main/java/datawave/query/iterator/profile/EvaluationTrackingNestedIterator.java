@@ -24,24 +24,24 @@ public class EvaluationTrackingNestedIterator<T> extends SeekableNestedIterator<
     
     @Override
     public T next() {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         T next = super.next();
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
         return next;
     }
     
     @Override
     public T move(T minimum) {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         T next = super.move(minimum);
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
         return next;
     }
     
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         super.seek(range, columnFamilies, inclusive);
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
     }
 }
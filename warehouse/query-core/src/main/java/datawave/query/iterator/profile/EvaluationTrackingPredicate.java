@@ -18,9 +18,9 @@ public class EvaluationTrackingPredicate<T> implements Predicate<T> {
     
     @Override
     public boolean apply(T input) {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         boolean output = predicate.apply(input);
-        mySpan.addStageTimer(stageName, System.currentTimeMillis() - start);
+        mySpan.addStageLatency(stageName, System.nanoTime() - start);
         return output;
     }
 }
@@ -0,0 +1,215 @@
+package datawave.query.iterator.profile;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A histogram of latencies in the manner of an HDR histogram: values are counted in buckets that double in width with every power of two, each split into
+ * {@link #SUB_BUCKET_COUNT} linear sub-buckets, so any recorded value is reported to within about 3% no matter its magnitude. The counts are only allocated up
+ * to the largest bucket recorded and the encoded form only carries the buckets that are in use, which keeps a histogram small enough to ride back on the final
+ * document of a scan and be merged with those from every other tserver.
+ * <p>
+ * Values are in microseconds. This class is not thread safe, the {@link QuerySpan} that owns it synchronizes access.
+ */
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    
+    private long[] counts = new long[0];
+    private long totalCount = 0;
+    private long sum = 0;
+    private long max = 0;
+    
+    public LatencyHistogram() {}
+    
+    public LatencyHistogram(LatencyHistogram other) {
+        add(other);
+    }
+    
+    static int getBucketIndex(long value) {
+        if (value < (SUB_BUCKET_COUNT << 1)) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+    
+    /**
+     * @return the largest value counted in a bucket
+     */
+    static long getHighestEquivalentValue(int index) {
+        if (index < (SUB_BUCKET_COUNT << 1)) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+    
+    /**
+     * Record a latency
+     * 
+     * @param micros
+     *            the latency in microseconds, negative values are counted as 0
+     */
+    public void record(long micros) {
+        record(Math.max(0, micros), 1);
+    }
+    
+    private void record(long value, long count) {
+        int index = getBucketIndex(value);
+        ensureCapacity(index + 1);
+        counts[index] += count;
+        totalCount += count;
+        sum += value * count;
+        max = Math.max(max, value);
+    }
+    
+    private void ensureCapacity(int length) {
+        if (counts.length < length) {
+            counts = Arrays.copyOf(counts, Math.max(length, counts.length + SUB_BUCKET_COUNT));
+        }
+    }
+    
+    /**
+     * Add the counts of another histogram to this one
+     * 
+     * @param other
+     *            the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    public long getMax() {
+        return max;
+    }
+    
+    public double getMean() {
+        return totalCount == 0 ? 0 : ((double) sum) / totalCount;
+    }
+    
+    /**
+     * @param percentile
+     *            a percentile between 0 and 100
+     * @return the value that the given percentage of the recorded values are at or below, to within the precision of the buckets
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(getHighestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+    
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+    
+    public void reset() {
+        counts = new long[0];
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+    
+    /**
+     * Encode the histogram as the buckets in use, each as the varint gap from the previous bucket and its varint count, followed by the sum and max.
+     * 
+     * @return the base64 encoded histogram
+     */
+    public String encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int previous = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, counts[i]);
+                previous = i;
+            }
+        }
+        // a zero gap ends the buckets
+        writeVarLong(out, 0);
+        writeVarLong(out, sum);
+        writeVarLong(out, max);
+        return Base64.getEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+    
+    /**
+     * @param encoded
+     *            a histogram from {@link #encode()}
+     * @return the decoded histogram
+     * @throws IllegalArgumentException
+     *             if the histogram cannot be decoded
+     */
+    public static LatencyHistogram decode(String encoded) {
+        byte[] bytes = Base64.getDecoder().decode(encoded);
+        int[] position = new int[1];
+        LatencyHistogram histogram = new LatencyHistogram();
+        int index = -1;
+        long gap;
+        while ((gap = readVarLong(bytes, position)) != 0) {
+            index += gap;
+            long count = readVarLong(bytes, position);
+            if (index < 0 || count < 0) {
+                throw new IllegalArgumentException("Invalid latency histogram: " + encoded);
+            }
+            histogram.ensureCapacity(index + 1);
+            histogram.counts[index] += count;
+            histogram.totalCount += count;
+        }
+        histogram.sum = readVarLong(bytes, position);
+        histogram.max = readVarLong(bytes, position);
+        return histogram;
+    }
+    
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated latency histogram");
+            }
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in latency histogram");
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("count:").append(totalCount).append(" p50:").append(getValueAtPercentile(50)).append(" p90:").append(getValueAtPercentile(90))
+                        .append(" p99:").append(getValueAtPercentile(99)).append(" max:").append(max).append("us");
+        return sb.toString();
+    }
+}
@@ -51,6 +51,21 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         return getThreadSpecificQuerySpan().getYield();
     }
     
+    @Override
+    public long getYieldCount() {
+        return getThreadSpecificQuerySpan().getYieldCount();
+    }
+    
+    @Override
+    public long getResumeCount() {
+        return getThreadSpecificQuerySpan().getResumeCount();
+    }
+    
+    @Override
+    public long getYieldResumeMs() {
+        return getThreadSpecificQuerySpan().getYieldResumeMs();
+    }
+    
     @Override
     public synchronized void next() {
         getThreadSpecificQuerySpan().next();
@@ -66,6 +81,11 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         getThreadSpecificQuerySpan().yield();
     }
     
+    @Override
+    public synchronized void resume(long elapsed) {
+        getThreadSpecificQuerySpan().resume(elapsed);
+    }
+    
     @Override
     public void reset() {
         super.reset();
@@ -92,6 +112,21 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         return getThreadSpecificQuerySpan().getStageTimerTotal();
     }
     
+    @Override
+    public synchronized void recordLatency(String name, long elapsedNanos) {
+        getThreadSpecificQuerySpan().recordLatency(name, elapsedNanos);
+    }
+    
+    @Override
+    public Map<String,LatencyHistogram> getLatencies() {
+        return getThreadSpecificQuerySpan().getLatencies();
+    }
+    
+    @Override
+    public void setLatencies(Map<String,LatencyHistogram> latencies) {
+        getThreadSpecificQuerySpan().setLatencies(latencies);
+    }
+    
     @Override
     public void setSeek(long seek) {
         getThreadSpecificQuerySpan().setSeek(seek);
@@ -107,6 +142,21 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         getThreadSpecificQuerySpan().setYield(yield);
     }
     
+    @Override
+    public void setYieldCount(long yieldCount) {
+        getThreadSpecificQuerySpan().setYieldCount(yieldCount);
+    }
+    
+    @Override
+    public void setResumeCount(long resumeCount) {
+        getThreadSpecificQuerySpan().setResumeCount(resumeCount);
+    }
+    
+    @Override
+    public void setYieldResumeMs(long yieldResumeMs) {
+        getThreadSpecificQuerySpan().setYieldResumeMs(yieldResumeMs);
+    }
+    
     @Override
     public void setSourceCount(long sourceCount) {
         getThreadSpecificQuerySpan().setSourceCount(sourceCount);
@@ -3,6 +3,7 @@ package datawave.query.iterator.profile;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 import datawave.query.statsd.QueryStatsDClient;
@@ -28,12 +29,37 @@ public class QuerySpan {
     
     protected long seek = 0;
     
-    protected boolean yield = false;
+    protected long yield = 0;
+    
+    protected long resume = 0;
+    
+    protected long yieldResumeMs = 0;
     
     private Map<String,Long> stageTimers = new LinkedHashMap<>();
     
     private long stageTimerTotal = 0;
     
+    private Map<String,LatencyHistogram> latencies = new LinkedHashMap<>();
+    
+    /** the name of the latency histogram for seeks against the underlying source */
+    public static final String SEEK_LATENCY = "Seek";
+    
+    /** the name of the latency histogram for next calls against the underlying source */
+    public static final String NEXT_LATENCY = "Next";
+    
+    /**
+     * The name of a latency histogram broken down by a label, e.g. "Seek:FIELD" for the seeks made on behalf of the query nodes against FIELD
+     * 
+     * @param name
+     *            the name of the histogram, e.g. {@link #SEEK_LATENCY} or {@link #NEXT_LATENCY}
+     * @param label
+     *            the label, may be null
+     * @return the name of the labelled histogram, or the name itself when there is no label
+     */
+    public static String latencyName(String name, String label) {
+        return label == null ? name : name + ':' + label;
+    }
+    
     public enum Stage {
         EmptyTree,
         DocumentSpecificTree,
@@ -43,6 +69,7 @@ public class QuerySpan {
         DocumentPermutation,
         DocumentEvaluation,
         PostProcessing,
+        DocumentSerialization,
         MaskedValueFilter,
         AttributeKeepFilter,
         DocumentProjection,
@@ -97,21 +124,38 @@ public class QuerySpan {
     }
     
     public boolean getYield() {
-        if (yield) {
-            return true;
+        return getYieldCount() > 0;
+    }
+    
+    public long getYieldCount() {
+        long yieldCount = yield;
+        for (QuerySpan subSpan : sources) {
+            yieldCount += subSpan.getYieldCount();
         }
+        return yieldCount;
+    }
+    
+    public long getResumeCount() {
+        long resumeCount = resume;
         for (QuerySpan subSpan : sources) {
-            if (subSpan.getYield()) {
-                return true;
-            }
+            resumeCount += subSpan.getResumeCount();
         }
-        return false;
+        return resumeCount;
+    }
+    
+    public long getYieldResumeMs() {
+        long resumeMs = yieldResumeMs;
+        for (QuerySpan subSpan : sources) {
+            resumeMs += subSpan.getYieldResumeMs();
+        }
+        return resumeMs;
     }
     
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString()).append(" sources:").append(getSourceCount()).append(" next:").append(getNextCount()).append(" seek:")
-                        .append(getSeekCount()).append(" yield:").append(getYield());
+                        .append(getSeekCount()).append(" yield:").append(getYieldCount()).append(" resume:").append(getResumeCount())
+                        .append(" yieldResumeMs:").append(getYieldResumeMs());
         return sb.toString();
     }
     
@@ -147,7 +191,7 @@ public class QuerySpan {
     }
     
     public synchronized void yield() {
-        yield = true;
+        yield++;
         if (client != null) {
             client.yield();
         }
@@ -156,6 +200,24 @@ public class QuerySpan {
         }
     }
     
+    /**
+     * Record that this session resumed a scan that had previously yielded, along with the time it took to get going again.
+     * 
+     * @param elapsed
+     *            the time in milliseconds spent resuming
+     */
+    public synchronized void resume(long elapsed) {
+        resume++;
+        yieldResumeMs += elapsed;
+        if (client != null) {
+            client.resume();
+            client.timing("YieldResume", elapsed);
+        }
+        if (log.isTraceEnabled()) {
+            logStack("resume()");
+        }
+    }
+    
     public void reset() {
         for (QuerySpan source : sources) {
             source.reset();
@@ -163,9 +225,12 @@ public class QuerySpan {
         sourceCount = 0;
         next = 0;
         seek = 0;
-        yield = false;
+        yield = 0;
+        resume = 0;
+        yieldResumeMs = 0;
         stageTimerTotal = 0;
         stageTimers.clear();
+        latencies.clear();
     }
     
     public void addStageTimer(QuerySpan.Stage stageName, long elapsed) {
@@ -176,8 +241,75 @@ public class QuerySpan {
         }
     }
     
+    /**
+     * Record the time taken by a stage in both the stage timers and the latency histogram for that stage.
+     * 
+     * @param stageName
+     *            the stage
+     * @param elapsedNanos
+     *            the time taken in nanoseconds
+     */
+    public void addStageLatency(QuerySpan.Stage stageName, long elapsedNanos) {
+        addStageTimer(stageName, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        recordLatency(stageName.toString(), elapsedNanos);
+    }
+    
+    /**
+     * Record one sample in a latency histogram
+     * 
+     * @param name
+     *            the name of the histogram, a stage name, {@link #SEEK_LATENCY}, {@link #NEXT_LATENCY} or an iterator specific name
+     * @param elapsedNanos
+     *            the time taken in nanoseconds
+     */
+    public synchronized void recordLatency(String name, long elapsedNanos) {
+        LatencyHistogram histogram = latencies.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            latencies.put(name, histogram);
+        }
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+    
+    /**
+     * @return the latency histograms of this span merged with those of its sources
+     */
+    public synchronized Map<String,LatencyHistogram> getLatencies() {
+        Map<String,LatencyHistogram> merged = new LinkedHashMap<>();
+        addLatencies(merged, latencies);
+        for (QuerySpan subSpan : sources) {
+            addLatencies(merged, subSpan.getLatencies());
+        }
+        return merged;
+    }
+    
+    public synchronized void setLatencies(Map<String,LatencyHistogram> latencies) {
+        this.latencies.clear();
+        addLatencies(this.latencies, latencies);
+    }
+    
+    /**
+     * Merge latency histograms into a map of histograms by name, copying any histograms that are not there yet
+     * 
+     * @param target
+     *            the histograms to merge into
+     * @param latencies
+     *            the histograms to merge
+     */
+    public static void addLatencies(Map<String,LatencyHistogram> target, Map<String,LatencyHistogram> latencies) {
+        for (Map.Entry<String,LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = target.get(entry.getKey());
+            if (histogram == null) {
+                target.put(entry.getKey(), new LatencyHistogram(entry.getValue()));
+            } else {
+                histogram.add(entry.getValue());
+            }
+        }
+    }
+    
     public boolean hasEntries() {
-        if (this.getSeekCount() > 0 || this.getNextCount() > 0 || this.getYield() || this.getSourceCount() > 0 || !this.stageTimers.isEmpty()) {
+        if (this.getSeekCount() > 0 || this.getNextCount() > 0 || this.getYield() || this.getResumeCount() > 0 || this.getSourceCount() > 0
+                        || !this.stageTimers.isEmpty() || !this.getLatencies().isEmpty()) {
             return true;
         } else {
             return false;
@@ -205,7 +337,19 @@ public class QuerySpan {
     }
     
     public void setYield(boolean yield) {
-        this.yield = yield;
+        this.yield = yield ? 1 : 0;
+    }
+    
+    public void setYieldCount(long yieldCount) {
+        this.yield = yieldCount;
+    }
+    
+    public void setResumeCount(long resumeCount) {
+        this.resume = resumeCount;
+    }
+    
+    public void setYieldResumeMs(long yieldResumeMs) {
+        this.yieldResumeMs = yieldResumeMs;
     }
     
     public void setSourceCount(long sourceCount) {
@@ -3,16 +3,18 @@ package datawave.query.iterator.profile;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.log4j.Logger;
 
 public class QuerySpanCollector {
     private AtomicLong seekCount = new AtomicLong();
     private AtomicLong nextCount = new AtomicLong();
-    private AtomicBoolean yield = new AtomicBoolean();
+    private AtomicLong yieldCount = new AtomicLong();
+    private AtomicLong resumeCount = new AtomicLong();
+    private AtomicLong yieldResumeMs = new AtomicLong();
     private AtomicLong sourceCount = new AtomicLong();
     private Map<String,Long> stageTimers = new LinkedHashMap<>();
+    private Map<String,LatencyHistogram> latencies = new LinkedHashMap<>();
     private Logger log = Logger.getLogger(QuerySpan.class);
     
     public void addQuerySpan(QuerySpan querySpan) {
@@ -21,7 +23,9 @@ public class QuerySpanCollector {
             synchronized (this) {
                 seekCount.addAndGet(querySpan.getSeekCount());
                 nextCount.addAndGet(querySpan.getNextCount());
-                yield.set(querySpan.getYield());
+                yieldCount.addAndGet(querySpan.getYieldCount());
+                resumeCount.addAndGet(querySpan.getResumeCount());
+                yieldResumeMs.addAndGet(querySpan.getYieldResumeMs());
                 sourceCount.addAndGet(querySpan.getSourceCount());
                 Map<String,Long> timers = querySpan.getStageTimers();
                 for (Map.Entry<String,Long> entry : timers.entrySet()) {
@@ -33,6 +37,8 @@ public class QuerySpanCollector {
                         stageTimers.put(k, entry.getValue());
                     }
                 }
+                // the histograms of every pipeline and ivarator span are merged here
+                QuerySpan.addLatencies(latencies, querySpan.getLatencies());
             }
             if (log.isTraceEnabled()) {
                 log.trace("thread:" + Thread.currentThread().getId() + " collector: " + this + " added querySpan: " + querySpan);
@@ -49,18 +55,22 @@ public class QuerySpanCollector {
                 combinedQuerySpan = new QuerySpan(null);
                 combinedQuerySpan.setNext(this.nextCount.getAndSet(0));
                 combinedQuerySpan.setSeek(this.seekCount.getAndSet(0));
-                combinedQuerySpan.setYield(this.yield.getAndSet(false));
+                combinedQuerySpan.setYieldCount(this.yieldCount.getAndSet(0));
+                combinedQuerySpan.setResumeCount(this.resumeCount.getAndSet(0));
+                combinedQuerySpan.setYieldResumeMs(this.yieldResumeMs.getAndSet(0));
                 combinedQuerySpan.setSourceCount(this.sourceCount.getAndSet(0));
                 combinedQuerySpan.setStageTimers(this.stageTimers);
                 this.stageTimers.clear();
+                combinedQuerySpan.setLatencies(this.latencies);
+                this.latencies.clear();
             }
         }
         return combinedQuerySpan;
     }
     
     public boolean hasEntries() {
-        if (this.seekCount.intValue() > 0 || this.nextCount.intValue() > 0 || this.yield.get() || this.sourceCount.intValue() > 0
-                        || !this.stageTimers.isEmpty()) {
+        if (this.seekCount.intValue() > 0 || this.nextCount.intValue() > 0 || this.yieldCount.intValue() > 0 || this.resumeCount.intValue() > 0
+                        || this.sourceCount.intValue() > 0 || !this.stageTimers.isEmpty() || !this.latencies.isEmpty()) {
             return true;
         } else {
             return false;
@@ -84,8 +94,8 @@ public class QuerySpanCollector {
     
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append(super.toString()).append(" seek:").append(seekCount).append(" next:").append(nextCount).append(" yield:").append(yield).append(" sources:")
-                        .append(sourceCount);
+        sb.append(super.toString()).append(" seek:").append(seekCount).append(" next:").append(nextCount).append(" yield:").append(yieldCount)
+                        .append(" resume:").append(resumeCount).append(" sources:").append(sourceCount);
         return sb.toString();
     }
     
@@ -111,7 +121,19 @@ public class QuerySpanCollector {
     }
     
     public boolean getYield() {
-        return yield.get();
+        return yieldCount.longValue() > 0;
+    }
+    
+    public long getYieldCount() {
+        return yieldCount.longValue();
+    }
+    
+    public long getResumeCount() {
+        return resumeCount.longValue();
+    }
+    
+    public long getYieldResumeMs() {
+        return yieldResumeMs.longValue();
     }
     
     public long getSourceCount() {
@@ -122,4 +144,8 @@ public class QuerySpanCollector {
         return Collections.unmodifiableMap(stageTimers);
     }
     
+    public Map<String,LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+    
 }
@@ -14,32 +14,64 @@ import org.apache.log4j.Logger;
 
 public class SourceTrackingIterator extends WrappingIterator {
     protected QuerySpan querySpan;
+    protected String label;
     private Logger log = Logger.getLogger(QuerySpan.class);
     
     public SourceTrackingIterator(QuerySpan span, SortedKeyValueIterator<Key,Value> kv) {
+        this(span, kv, null);
+    }
+    
+    /**
+     * A labelled iterator only records its latencies in the {@link QuerySpan#latencyName(String, String) labelled} seek and next histograms. It is meant to
+     * wrap a copy of a source that is already tracked, so the seek and next counts are left to the tracked source underneath it.
+     * 
+     * @param span
+     *            the span to record into
+     * @param kv
+     *            the source
+     * @param label
+     *            the label of the histograms, or null to count and record into the plain seek and next histograms
+     */
+    public SourceTrackingIterator(QuerySpan span, SortedKeyValueIterator<Key,Value> kv, String label) {
         setSource(kv);
         querySpan = span;
+        this.label = label;
     }
     
     @Override
     public void next() throws IOException {
-        querySpan.next();
+        if (label == null) {
+            querySpan.next();
+        }
+        long start = System.nanoTime();
         super.next();
+        querySpan.recordLatency(QuerySpan.latencyName(QuerySpan.NEXT_LATENCY, label), System.nanoTime() - start);
     }
     
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
-        querySpan.seek();
+        if (label == null) {
+            querySpan.seek();
+        }
+        long start = System.nanoTime();
         super.seek(range, columnFamilies, inclusive);
+        querySpan.recordLatency(QuerySpan.latencyName(QuerySpan.SEEK_LATENCY, label), System.nanoTime() - start);
     }
     
     @Override
     public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
-        // deep copy the source
+        // deep copy the source, a labelled copy keeps recording into the same span
+        if (label != null) {
+            return new SourceTrackingIterator(querySpan, getSource().deepCopy(env), label);
+        }
         return new SourceTrackingIterator(querySpan.createSource(), getSource().deepCopy(env));
     }
     
     public QuerySpan getQuerySpan() {
         return querySpan;
     }
+    
+    public String getLabel() {
+        return label;
+    }
 }
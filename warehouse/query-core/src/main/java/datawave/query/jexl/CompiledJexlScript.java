@@ -0,0 +1,398 @@
+package datawave.query.jexl;
+
+import datawave.query.attributes.ValueTuple;
+import datawave.query.collections.FunctionalSet;
+import datawave.query.jexl.functions.QueryFunctions;
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import org.apache.commons.jexl2.DatawaveJexlScript;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A jexl script that has been compiled once into a tree of evaluators, so that evaluating a document does not walk the AST through the visitor dispatch and
+ * does not rebuild the string form of every term to look up memoized results as the {@link DatawaveInterpreter} does.
+ * <p>
+ * Unions, intersections, negations, bounded ranges and comparisons of a field against a literal are compiled, with the literals extracted and the regex
+ * automata built up front. The comparisons still go through the arithmetic so that the {@link HitListArithmetic} records the same hits, and the terms are
+ * evaluated in the same order with the same short circuiting as the interpreter. Everything else (functions, methods, markers, assignments) is evaluated by the
+ * interpreter against the original node.
+ */
+public class CompiledJexlScript {
+    private static final Logger log = Logger.getLogger(CompiledJexlScript.class);
+    
+    private final DatawaveJexlScript script;
+    private final JexlArithmetic arithmetic;
+    private final List<Evaluator> evaluators = new ArrayList<>();
+    
+    // counts of compiled and interpreted nodes, for debugging
+    private int compiled = 0;
+    private int interpreted = 0;
+    
+    public CompiledJexlScript(DatawaveJexlScript script, JexlArithmetic arithmetic) {
+        this.script = script;
+        this.arithmetic = arithmetic;
+        
+        ASTJexlScript root = script.getScript();
+        for (int i = 0; i < root.jjtGetNumChildren(); i++) {
+            evaluators.add(compile(root.jjtGetChild(i)));
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Compiled " + compiled + " nodes, " + interpreted + " left to the interpreter, for " + script.getExpression());
+        }
+    }
+    
+    /**
+     * Evaluate the script against a context
+     *
+     * @param context
+     *            the context
+     * @return the same result as the script would return when executed by the interpreter
+     */
+    public Object execute(JexlContext context) {
+        DatawaveInterpreter interpreter = (DatawaveInterpreter) script.createInterpreter(context);
+        Object result = null;
+        for (Evaluator evaluator : evaluators) {
+            result = evaluator.evaluate(interpreter, context);
+        }
+        return result;
+    }
+    
+    public int getCompiledCount() {
+        return compiled;
+    }
+    
+    public int getInterpretedCount() {
+        return interpreted;
+    }
+    
+    /**
+     * An evaluator for a node of the script
+     */
+    protected interface Evaluator {
+        Object evaluate(DatawaveInterpreter interpreter, JexlContext context);
+    }
+    
+    protected Evaluator compile(JexlNode node) {
+        Evaluator evaluator = null;
+        try {
+            evaluator = compileNode(node);
+        } catch (RuntimeException e) {
+            // let the interpreter fail on this node at evaluation time, as it would have
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to compile " + node, e);
+            }
+        }
+        
+        if (evaluator == null) {
+            interpreted++;
+            return (interpreter, context) -> node.jjtAccept(interpreter, null);
+        }
+        compiled++;
+        return evaluator;
+    }
+    
+    private Evaluator compileNode(JexlNode node) {
+        // the interpreter handles the exceeded or threshold markers on both the reference and the and node
+        if ((node instanceof ASTReference || node instanceof ASTAndNode)
+                        && QueryPropertyMarker.findInstance(node).isType(ExceededOrThresholdMarkerJexlNode.class)) {
+            return null;
+        }
+        
+        if (node instanceof ASTReference || node instanceof ASTReferenceExpression) {
+            return (node.jjtGetNumChildren() == 1 ? compile(node.jjtGetChild(0)) : null);
+        }
+        
+        Class<?> type = node.getClass();
+        if (type == ASTAndNode.class) {
+            return compileAnd((ASTAndNode) node);
+        } else if (type == ASTOrNode.class) {
+            return compileOr((ASTOrNode) node);
+        } else if (type == ASTNotNode.class) {
+            Evaluator child = compile(node.jjtGetChild(0));
+            return (interpreter, context) -> arithmetic.toBoolean(child.evaluate(interpreter, context)) ? Boolean.FALSE : Boolean.TRUE;
+        } else if (type == ASTEQNode.class || type == ASTNENode.class || type == ASTERNode.class || type == ASTNRNode.class || type == ASTLTNode.class
+                        || type == ASTLENode.class || type == ASTGTNode.class || type == ASTGENode.class) {
+            return compileComparison(node);
+        }
+        return null;
+    }
+    
+    /**
+     * The union is flattened, and evaluated left to right until a term is true, as the interpreter does. A union of bare identifiers is an argument to a
+     * function and is left to the interpreter.
+     */
+    private Evaluator compileOr(ASTOrNode node) {
+        List<JexlNode> children = new ArrayList<>();
+        flattenOr(node, children);
+        
+        boolean allIdentifiers = true;
+        for (JexlNode child : children) {
+            allIdentifiers &= child instanceof ASTIdentifier;
+        }
+        if (allIdentifiers) {
+            return null;
+        }
+        
+        Evaluator[] evaluators = new Evaluator[children.size()];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = compile(children.get(i));
+        }
+        
+        return (interpreter, context) -> {
+            Object result = null;
+            for (int i = 0; !arithmetic.toBoolean(result) && i < evaluators.length; i++) {
+                result = interpreter.interpretOr(evaluators[i].evaluate(interpreter, context), result);
+            }
+            return result;
+        };
+    }
+    
+    private void flattenOr(JexlNode node, List<JexlNode> children) {
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            JexlNode child = JexlASTHelper.dereference(node.jjtGetChild(i));
+            if (child instanceof ASTOrNode) {
+                flattenOr(child, children);
+            } else {
+                children.add(child);
+            }
+        }
+    }
+    
+    private Evaluator compileAnd(ASTAndNode node) {
+        Evaluator range = compileRange(node);
+        if (range != null) {
+            return range;
+        }
+        
+        List<JexlNode> children = new ArrayList<>();
+        Evaluator[] evaluators = new Evaluator[node.jjtGetNumChildren()];
+        for (int i = 0; i < evaluators.length; i++) {
+            children.add(node.jjtGetChild(i));
+            evaluators[i] = compile(node.jjtGetChild(i));
+        }
+        
+        return (interpreter, context) -> {
+            // holds all values for intersection
+            FunctionalSet functionalSet = new FunctionalSet<>();
+            for (int i = 0; i < evaluators.length; i++) {
+                Object o = evaluators[i].evaluate(interpreter, context);
+                if (o == null) {
+                    o = FunctionalSet.empty();
+                }
+                if (o instanceof Collection) {
+                    if (((Collection<?>) o).isEmpty()) {
+                        return Boolean.FALSE;
+                    } else {
+                        functionalSet.addAll((Collection<?>) o);
+                    }
+                } else {
+                    try {
+                        if (!arithmetic.toBoolean(o)) {
+                            return Boolean.FALSE;
+                        }
+                    } catch (RuntimeException xrt) {
+                        throw new JexlException(children.get(i), "boolean coercion error", xrt);
+                    }
+                }
+            }
+            
+            // the expression evaluated to true. either return the functional set of hits, or boolean true
+            return functionalSet.isEmpty() ? Boolean.TRUE : functionalSet;
+        };
+    }
+    
+    /**
+     * A bounded range is evaluated as a between function, with the same caveats as the interpreter: the hits are all of the values of the field, and a range
+     * that is not made of literal bounds against a single identifier is evaluated as a plain intersection.
+     */
+    private Evaluator compileRange(ASTAndNode node) {
+        LiteralRange range = JexlASTHelper.findRange().getRange(node);
+        if (range == null) {
+            return null;
+        }
+        
+        JexlNode left = range.getLowerNode();
+        JexlNode right = range.getUpperNode();
+        if (left instanceof ASTLENode || left instanceof ASTLTNode) {
+            JexlNode temp = left;
+            left = right;
+            right = temp;
+        }
+        if (!((left instanceof ASTGENode || left instanceof ASTGTNode) && (right instanceof ASTLENode || right instanceof ASTLTNode))) {
+            return null;
+        }
+        
+        JexlNode leftIdentifier = JexlASTHelper.dereference(left.jjtGetChild(0));
+        JexlNode rightIdentifier = JexlASTHelper.dereference(right.jjtGetChild(0));
+        if (!(leftIdentifier instanceof ASTIdentifier && rightIdentifier instanceof ASTIdentifier) || !leftIdentifier.image.equals(rightIdentifier.image)) {
+            return null;
+        }
+        
+        Object leftValue = getLiteral(left.jjtGetChild(1));
+        Object rightValue = getLiteral(right.jjtGetChild(1));
+        if (leftValue == null || rightValue == null) {
+            // not a literal, so give the whole range to the interpreter
+            throw new IllegalArgumentException("Range bounds are not literals");
+        }
+        
+        final String fieldName = leftIdentifier.image;
+        final boolean leftInclusive = left instanceof ASTGENode;
+        final boolean rightInclusive = right instanceof ASTLENode;
+        
+        if (leftValue instanceof Number && rightValue instanceof Number) {
+            final float lower = ((Number) leftValue).floatValue();
+            final float upper = ((Number) rightValue).floatValue();
+            return (interpreter, context) -> {
+                Object fieldValue = context.get(fieldName);
+                Collection<?> evaluation;
+                if (fieldValue instanceof Collection) {
+                    evaluation = QueryFunctions.between((Collection) fieldValue, lower, leftInclusive, upper, rightInclusive);
+                } else {
+                    evaluation = QueryFunctions.between(fieldValue, lower, leftInclusive, upper, rightInclusive);
+                }
+                addHits(fieldValue);
+                return evaluation;
+            };
+        } else {
+            final String lower = String.valueOf(leftValue);
+            final String upper = String.valueOf(rightValue);
+            return (interpreter, context) -> {
+                Object fieldValue = context.get(fieldName);
+                Collection<?> evaluation;
+                if (fieldValue instanceof Collection) {
+                    evaluation = QueryFunctions.between((Collection) fieldValue, lower, leftInclusive, upper, rightInclusive);
+                } else {
+                    evaluation = QueryFunctions.between(fieldValue, lower, leftInclusive, upper, rightInclusive);
+                }
+                addHits(fieldValue);
+                return evaluation;
+            };
+        }
+    }
+    
+    /**
+     * A comparison of an identifier against a literal. The regex automata are built here when the arithmetic would have compiled them anyway.
+     */
+    private Evaluator compileComparison(JexlNode node) {
+        JexlNode identifier = JexlASTHelper.dereference(node.jjtGetChild(0));
+        Object literal = getLiteral(node.jjtGetChild(1));
+        if (!(identifier instanceof ASTIdentifier) || literal == null) {
+            return null;
+        }
+        
+        final String fieldName = identifier.image;
+        Class<?> type = node.getClass();
+        
+        if (type == ASTERNode.class || type == ASTNRNode.class) {
+            if (!(literal instanceof String)) {
+                return null;
+            }
+            final Object pattern = (arithmetic instanceof DefaultArithmetic || arithmetic instanceof HitListArithmetic) ? JexlPatternCache
+                            .getAutomaton((String) literal) : literal;
+            final boolean negated = (type == ASTNRNode.class);
+            return (interpreter, context) -> {
+                try {
+                    return arithmetic.matches(context.get(fieldName), pattern) != negated ? Boolean.TRUE : Boolean.FALSE;
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, (negated ? "!~" : "=~") + " error", xrt);
+                }
+            };
+        }
+        
+        if (type == ASTEQNode.class || type == ASTNENode.class) {
+            final boolean negated = (type == ASTNENode.class);
+            return (interpreter, context) -> {
+                try {
+                    return arithmetic.equals(context.get(fieldName), literal) != negated ? Boolean.TRUE : Boolean.FALSE;
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, (negated ? "!=" : "==") + " error", xrt);
+                }
+            };
+        }
+        
+        if (type == ASTLTNode.class) {
+            return (interpreter, context) -> {
+                try {
+                    return arithmetic.lessThan(context.get(fieldName), literal) ? Boolean.TRUE : Boolean.FALSE;
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, "< error", xrt);
+                }
+            };
+        } else if (type == ASTLENode.class) {
+            return (interpreter, context) -> {
+                try {
+                    return arithmetic.lessThanOrEqual(context.get(fieldName), literal) ? Boolean.TRUE : Boolean.FALSE;
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, "<= error", xrt);
+                }
+            };
+        } else if (type == ASTGTNode.class) {
+            return (interpreter, context) -> {
+                try {
+                    return arithmetic.greaterThan(context.get(fieldName), literal) ? Boolean.TRUE : Boolean.FALSE;
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, "> error", xrt);
+                }
+            };
+        } else {
+            return (interpreter, context) -> {
+                try {
+                    return arithmetic.greaterThanOrEqual(context.get(fieldName), literal) ? Boolean.TRUE : Boolean.FALSE;
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, ">= error", xrt);
+                }
+            };
+        }
+    }
+    
+    /**
+     * @return the value of a string or number literal, or null if the node is not one
+     */
+    private Object getLiteral(JexlNode node) {
+        node = JexlASTHelper.dereference(node);
+        if (node instanceof ASTStringLiteral) {
+            return ((ASTStringLiteral) node).getLiteral();
+        } else if (node instanceof ASTNumberLiteral) {
+            return ((ASTNumberLiteral) node).getLiteral();
+        }
+        return null;
+    }
+    
+    private void addHits(Object fieldValue) {
+        if (arithmetic instanceof HitListArithmetic && fieldValue != null) {
+            if (fieldValue instanceof Collection<?>) {
+                for (Object o : ((Collection<?>) fieldValue)) {
+                    addHits(o);
+                }
+            } else if (fieldValue instanceof ValueTuple) {
+                ((HitListArithmetic) arithmetic).add((ValueTuple) fieldValue);
+            }
+        }
+    }
+}
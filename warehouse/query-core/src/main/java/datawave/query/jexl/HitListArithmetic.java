@@ -91,20 +91,24 @@ public class HitListArithmetic extends DatawaveArithmetic implements StatefulAri
             elements = Collections.singleton(left);
         }
         
-        Set<Pattern> patterns;
-        if (right instanceof Pattern) {
-            patterns = Collections.singleton((Pattern) right);
+        Set<RegexAutomaton> patterns;
+        if (right instanceof RegexAutomaton) {
+            patterns = Collections.singleton((RegexAutomaton) right);
+        } else if (right instanceof Pattern) {
+            patterns = Collections.singleton(JexlPatternCache.getAutomaton(((Pattern) right).pattern(), ((Pattern) right).flags()));
         } else if (right instanceof Set) {
             patterns = new HashSet<>();
             for (Object r : (Set<Object>) right) {
-                if (r instanceof Pattern) {
-                    patterns.add((Pattern) r);
+                if (r instanceof RegexAutomaton) {
+                    patterns.add((RegexAutomaton) r);
+                } else if (r instanceof Pattern) {
+                    patterns.add(JexlPatternCache.getAutomaton(((Pattern) r).pattern(), ((Pattern) r).flags()));
                 } else {
-                    patterns.add(JexlPatternCache.getPattern(r.toString()));
+                    patterns.add(JexlPatternCache.getAutomaton(r.toString()));
                 }
             }
         } else {
-            patterns = Collections.singleton(JexlPatternCache.getPattern(right.toString()));
+            patterns = Collections.singleton(JexlPatternCache.getAutomaton(right.toString()));
         }
         
         boolean matches = false;
@@ -112,8 +116,8 @@ public class HitListArithmetic extends DatawaveArithmetic implements StatefulAri
             // normalize the element
             Object normalizedO = ValueTuple.getNormalizedValue(o);
             
-            for (Pattern p : patterns) {
-                if (p.matcher(normalizedO.toString()).matches()) {
+            for (RegexAutomaton p : patterns) {
+                if (p.matches(normalizedO.toString())) {
                     this.hitSet.add(ValueTuple.toValueTuple(o));
                     if (!exhaustiveHits) {
                         return true;
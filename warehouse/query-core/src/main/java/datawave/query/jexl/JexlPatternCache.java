@@ -7,11 +7,17 @@ import com.google.common.cache.CacheBuilder;
 
 /**
  * This class maintains a cache of compiled {@link Pattern} instances for regex strings. All patterns are compiled with case-insensitive and multiline matching.
+ * A second cache holds the {@link RegexAutomaton} for a regex string and set of flags.
  */
 public class JexlPatternCache {
     
     private static final Cache<String,Pattern> PATTERN_CACHE = CacheBuilder.newBuilder().maximumSize(10000L).initialCapacity(100).concurrencyLevel(10).build();
     
+    private static final Cache<String,RegexAutomaton> AUTOMATON_CACHE = CacheBuilder.newBuilder().maximumSize(10000L).initialCapacity(100).concurrencyLevel(10)
+                    .build();
+    
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL;
+    
     /**
      * Returns a cached {@link Pattern} that has been compiled with case-insensitive and multiline matching for the given regex. If a {@link Pattern} is not
      * already cached, one will be created.
@@ -26,12 +32,46 @@ public class JexlPatternCache {
             return pattern;
         }
         
-        pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
+        pattern = Pattern.compile(regex, FLAGS);
         PATTERN_CACHE.put(regex, pattern);
         
         return pattern;
     }
     
+    /**
+     * Returns a cached {@link RegexAutomaton} that has been compiled with case-insensitive and multiline matching for the given regex, as for
+     * {@link #getPattern(String)}.
+     *
+     * @param regex
+     *            the regex string
+     * @return the cached {@link RegexAutomaton}
+     */
+    public static RegexAutomaton getAutomaton(String regex) {
+        return getAutomaton(regex, FLAGS);
+    }
+    
+    /**
+     * Returns a cached {@link RegexAutomaton} for the given regex and {@link Pattern} flags. If one is not already cached, one will be created.
+     *
+     * @param regex
+     *            the regex string
+     * @param flags
+     *            the {@link Pattern} flags
+     * @return the cached {@link RegexAutomaton}
+     */
+    public static RegexAutomaton getAutomaton(String regex, int flags) {
+        String key = flags + ":" + regex;
+        RegexAutomaton automaton = AUTOMATON_CACHE.getIfPresent(key);
+        if (null != automaton) {
+            return automaton;
+        }
+        
+        automaton = new RegexAutomaton(regex, flags);
+        AUTOMATON_CACHE.put(key, automaton);
+        
+        return automaton;
+    }
+    
     // Do not allow this class to be instantiated.
     private JexlPatternCache() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,356 @@
+package datawave.query.jexl;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.Operations;
+import org.apache.lucene.util.automaton.RegExp;
+import org.apache.lucene.util.automaton.Transition;
+
+import java.util.regex.Pattern;
+
+/**
+ * A regex compiled into a deterministic automaton, so that a value is matched in a single pass over its characters without any backtracking. The automaton is
+ * also used to produce seek hints: given a value that cannot match, the smallest greater string that is a prefix of some match, which lets the index scans skip
+ * over the values in between.
+ * <p>
+ * Only the subset of the java regex syntax that the query language generally uses is compiled: literals, escaped punctuation, '.', character classes and
+ * ranges, groups, alternation, and the greedy quantifiers. The flags may include {@link Pattern#CASE_INSENSITIVE}, {@link Pattern#DOTALL} and
+ * {@link Pattern#MULTILINE}. Anything else (anchors, predefined classes, back references, lookarounds, inline flags, lazy or possessive quantifiers), or a
+ * regex which determinizes into too many states, falls back to the {@link Pattern} which gives no seek hints.
+ */
+public class RegexAutomaton {
+    private static final Logger log = Logger.getLogger(RegexAutomaton.class);
+    
+    public static final int MAX_DETERMINIZED_STATES = 10000;
+    
+    private static final int SUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE;
+    
+    // the characters that '.' does not match without DOTALL
+    private static final int[] LINE_TERMINATORS = {'\n', '\r', 0x85, 0x2028, 0x2029};
+    
+    private final String regex;
+    private final int flags;
+    private final Pattern pattern;
+    
+    // null if the regex could not be compiled into an automaton
+    private final Automaton automaton;
+    private final CharacterRunAutomaton runAutomaton;
+    
+    public RegexAutomaton(String regex, int flags) {
+        this.regex = regex;
+        this.flags = flags;
+        this.pattern = Pattern.compile(regex, flags);
+        
+        Automaton automaton = null;
+        CharacterRunAutomaton runAutomaton = null;
+        String translated = translate(regex, flags);
+        if (translated != null) {
+            try {
+                automaton = Operations.removeDeadStates(new RegExp(translated, RegExp.NONE).toAutomaton(MAX_DETERMINIZED_STATES));
+                runAutomaton = (automaton.getNumStates() == 0 ? null : new CharacterRunAutomaton(automaton, MAX_DETERMINIZED_STATES));
+            } catch (RuntimeException e) {
+                // either we translated something that we should not have, or it is too complex to determinize
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to build an automaton for " + regex + ", falling back to the pattern", e);
+                }
+                automaton = null;
+                runAutomaton = null;
+            }
+        }
+        this.automaton = automaton;
+        this.runAutomaton = runAutomaton;
+    }
+    
+    public String getRegex() {
+        return regex;
+    }
+    
+    public int getFlags() {
+        return flags;
+    }
+    
+    public Pattern getPattern() {
+        return pattern;
+    }
+    
+    /**
+     * @return true if this regex is matched by an automaton, false if it fell back to the pattern
+     */
+    public boolean isAutomaton() {
+        return automaton != null;
+    }
+    
+    /**
+     * @param value
+     *            the value
+     * @return true if the entire value matches the regex
+     */
+    public boolean matches(CharSequence value) {
+        if (automaton == null) {
+            return pattern.matcher(value).matches();
+        }
+        // an automaton without any states accepts nothing
+        return runAutomaton != null && runAutomaton.run(value.toString());
+    }
+    
+    /**
+     * Get the smallest string greater than or equal to the value that is a prefix of some match. The value itself is returned if it is such a prefix, which
+     * includes the case where the regex fell back to the pattern as then we cannot know.
+     *
+     * @param value
+     *            the value
+     * @return the seek hint, or null if no value greater than or equal to this one can match
+     */
+    public String getSeekHint(String value) {
+        if (automaton == null) {
+            return value;
+        }
+        if (automaton.getNumStates() == 0) {
+            return null;
+        }
+        
+        int[] codePoints = value.codePoints().toArray();
+        int[] states = new int[codePoints.length + 1];
+        
+        // follow the value as far as the automaton allows. There are no dead states, so all of it means the value is a prefix of a match
+        int depth = 0;
+        while (depth < codePoints.length) {
+            int next = automaton.step(states[depth], codePoints[depth]);
+            if (next == -1) {
+                break;
+            }
+            states[++depth] = next;
+        }
+        if (depth == codePoints.length) {
+            return value;
+        }
+        
+        // back up from where we stopped until there is a transition on a character greater than the one in the value
+        Transition transition = new Transition();
+        for (int i = depth; i >= 0; i--) {
+            int min = codePoints[i] + 1;
+            int next = -1;
+            int count = automaton.initTransition(states[i], transition);
+            for (int t = 0; t < count; t++) {
+                automaton.getNextTransition(transition);
+                if (transition.max >= min) {
+                    int c = Math.max(transition.min, min);
+                    if (next == -1 || c < next) {
+                        next = c;
+                    }
+                }
+            }
+            if (next != -1) {
+                StringBuilder hint = new StringBuilder();
+                for (int j = 0; j < i; j++) {
+                    hint.appendCodePoint(codePoints[j]);
+                }
+                return hint.appendCodePoint(next).toString();
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public String toString() {
+        return regex;
+    }
+    
+    /**
+     * Translate a java regex into the lucene regex syntax
+     *
+     * @param regex
+     *            the java regex
+     * @param flags
+     *            the {@link Pattern} flags
+     * @return the lucene regex, or null if the regex uses syntax or flags that we do not translate
+     */
+    protected static String translate(String regex, int flags) {
+        if ((flags & ~SUPPORTED_FLAGS) != 0) {
+            return null;
+        }
+        boolean caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+        boolean dotAll = (flags & Pattern.DOTALL) != 0;
+        
+        StringBuilder translated = new StringBuilder();
+        int[] codePoints = regex.codePoints().toArray();
+        boolean quantified = false;
+        int i = 0;
+        while (i < codePoints.length) {
+            int c = codePoints[i++];
+            boolean quantifier = false;
+            switch (c) {
+                case '\\':
+                    if (i == codePoints.length || Character.isLetterOrDigit(codePoints[i])) {
+                        return null;
+                    }
+                    appendLiteral(translated, codePoints[i++], caseInsensitive);
+                    break;
+                case '.':
+                    if (dotAll) {
+                        translated.append('.');
+                    } else {
+                        translated.append("[^");
+                        for (int terminator : LINE_TERMINATORS) {
+                            appendEscaped(translated, terminator);
+                        }
+                        translated.append(']');
+                    }
+                    break;
+                case '(':
+                    if (i < codePoints.length && codePoints[i] == '?') {
+                        return null;
+                    }
+                    translated.append('(');
+                    break;
+                case ')':
+                case '|':
+                    translated.appendCodePoint(c);
+                    break;
+                case '*':
+                case '+':
+                case '?':
+                    if (quantified) {
+                        return null;
+                    }
+                    translated.appendCodePoint(c);
+                    quantifier = true;
+                    break;
+                case '{':
+                    int end = i;
+                    while (end < codePoints.length && (Character.isDigit(codePoints[end]) || codePoints[end] == ',')) {
+                        end++;
+                    }
+                    String bounds = new String(codePoints, i, end - i);
+                    if (quantified || end == codePoints.length || codePoints[end] != '}' || !bounds.matches("[0-9]+(,[0-9]*)?")) {
+                        return null;
+                    }
+                    translated.append('{').append(bounds).append('}');
+                    i = end + 1;
+                    quantifier = true;
+                    break;
+                case '[':
+                    i = translateClass(codePoints, i, translated, caseInsensitive);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                case '^':
+                case '$':
+                    return null;
+                default:
+                    appendLiteral(translated, c, caseInsensitive);
+            }
+            quantified = quantifier;
+        }
+        return translated.toString();
+    }
+    
+    /**
+     * Translate a character class starting just after the '['
+     *
+     * @return the position just after the closing ']', or -1 if the class cannot be translated
+     */
+    private static int translateClass(int[] codePoints, int i, StringBuilder translated, boolean caseInsensitive) {
+        StringBuilder ranges = new StringBuilder();
+        boolean negated = (i < codePoints.length && codePoints[i] == '^');
+        if (negated) {
+            // case folding of a negated class is not worth getting wrong
+            if (caseInsensitive) {
+                return -1;
+            }
+            i++;
+        }
+        
+        boolean first = true;
+        while (i < codePoints.length && (codePoints[i] != ']' || first)) {
+            int low = codePoints[i++];
+            if (low == '[' || low == ']' || (low == '&' && i < codePoints.length && codePoints[i] == '&')) {
+                return -1;
+            }
+            if (low == '\\') {
+                if (i == codePoints.length || Character.isLetterOrDigit(codePoints[i])) {
+                    return -1;
+                }
+                low = codePoints[i++];
+            }
+            int high = low;
+            // a '-' that is not at the end of the class makes a range
+            if (i + 1 < codePoints.length && codePoints[i] == '-' && codePoints[i + 1] != ']') {
+                high = codePoints[i + 1];
+                i += 2;
+                if (high == '[' || high == ']') {
+                    return -1;
+                }
+                if (high == '\\') {
+                    if (i == codePoints.length || Character.isLetterOrDigit(codePoints[i])) {
+                        return -1;
+                    }
+                    high = codePoints[i++];
+                }
+                if (high < low) {
+                    return -1;
+                }
+            }
+            appendRange(ranges, low, high);
+            if (caseInsensitive) {
+                appendCaseRanges(ranges, low, high);
+            }
+            first = false;
+        }
+        if (i == codePoints.length || first) {
+            return -1;
+        }
+        
+        translated.append('[');
+        if (negated) {
+            translated.append('^');
+        }
+        translated.append(ranges).append(']');
+        return i + 1;
+    }
+    
+    private static void appendLiteral(StringBuilder translated, int c, boolean caseInsensitive) {
+        if (caseInsensitive && isAsciiLetter(c)) {
+            translated.append('[').appendCodePoint(Character.toLowerCase(c)).appendCodePoint(Character.toUpperCase(c)).append(']');
+        } else {
+            appendEscaped(translated, c);
+        }
+    }
+    
+    /**
+     * Add the ascii letters in the other case for the letters within a range, as the java CASE_INSENSITIVE flag does
+     */
+    private static void appendCaseRanges(StringBuilder ranges, int low, int high) {
+        int lowerStart = Math.max(low, 'a');
+        int lowerEnd = Math.min(high, 'z');
+        if (lowerStart <= lowerEnd) {
+            appendRange(ranges, lowerStart - 'a' + 'A', lowerEnd - 'a' + 'A');
+        }
+        int upperStart = Math.max(low, 'A');
+        int upperEnd = Math.min(high, 'Z');
+        if (upperStart <= upperEnd) {
+            appendRange(ranges, upperStart - 'A' + 'a', upperEnd - 'A' + 'a');
+        }
+    }
+    
+    private static void appendRange(StringBuilder ranges, int low, int high) {
+        appendEscaped(ranges, low);
+        if (high != low) {
+            ranges.append('-');
+            appendEscaped(ranges, high);
+        }
+    }
+    
+    private static void appendEscaped(StringBuilder translated, int c) {
+        if (!Character.isLetterOrDigit(c)) {
+            translated.append('\\');
+        }
+        translated.appendCodePoint(c);
+    }
+    
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
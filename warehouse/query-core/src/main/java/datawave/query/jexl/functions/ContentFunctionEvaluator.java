@@ -14,7 +14,6 @@ import org.apache.log4j.Logger;
 
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Lists;
 
 /**
  * An abstract class to for the ordered and unordered content evaluators.
@@ -76,7 +75,7 @@ public abstract class ContentFunctionEvaluator {
      *            the offset lists
      * @return List of offset matching the query, often just the first match for efficiency
      */
-    protected abstract boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets);
+    protected abstract boolean evaluate(String field, String eventId, List<TermPositions> offsets);
     
     /**
      * Validate and initialize this class. This will validate the arguments and setup other members.
@@ -123,7 +122,7 @@ public abstract class ContentFunctionEvaluator {
                 
                 return false;
             }
-            if (tfList.fetchOffsets().isEmpty()) {
+            if (tfList.isEmpty()) {
                 if (log.isTraceEnabled()) {
                     log.trace("Failing process() because of an empty offset list for " + term);
                 }
@@ -161,7 +160,7 @@ public abstract class ContentFunctionEvaluator {
             
             // now for each event, lets process the terms
             for (String eventId : eventIds) {
-                ListMultimap<String,List<TermWeightPosition>> offsetsByField = LinkedListMultimap.create();
+                ListMultimap<String,TermPositions> offsetsByField = LinkedListMultimap.create();
                 for (String term : terms) {
                     TermFrequencyList tfList = termOffsetMap.getTermFrequencyList(term);
                     
@@ -169,15 +168,15 @@ public abstract class ContentFunctionEvaluator {
                     // and group the lists together
                     for (String field : tfList.fields()) {
                         TermFrequencyList.Zone zone = new TermFrequencyList.Zone(field, true, eventId);
-                        Collection<TermWeightPosition> offsets = tfList.fetchOffsets().get(zone);
+                        TermPositions offsets = tfList.getPositions(zone);
                         // if no offsets, but we are explicitly looking for this field (i.e. not unfielded), then check for a non-content expansion zone
-                        if (offsets.isEmpty() && (fields != null && fields.contains(field))) {
+                        if ((offsets == null || offsets.isEmpty()) && (fields != null && fields.contains(field))) {
                             zone = new TermFrequencyList.Zone(field, false, eventId);
-                            offsets = tfList.fetchOffsets().get(zone);
+                            offsets = tfList.getPositions(zone);
                         }
                         // not all field/event pairs will have offsets
                         if (offsets != null && !offsets.isEmpty()) {
-                            offsetsByField.put(field, Lists.newArrayList(offsets));
+                            offsetsByField.put(field, offsets);
                         }
                     }
                 }
@@ -193,7 +192,7 @@ public abstract class ContentFunctionEvaluator {
                     if (!fields.isEmpty() && !fields.contains(field)) {
                         continue;
                     }
-                    List<List<TermWeightPosition>> offsets = offsetsByField.get(field);
+                    List<TermPositions> offsets = offsetsByField.get(field);
                     if (offsets == null || offsets.isEmpty()) {
                         continue;
                     }
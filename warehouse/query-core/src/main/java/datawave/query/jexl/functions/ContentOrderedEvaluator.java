@@ -1,18 +1,14 @@
 package datawave.query.jexl.functions;
 
-import datawave.ingest.protobuf.TermWeightPosition;
 import datawave.query.postprocessing.tf.TermOffsetMap;
 import org.apache.log4j.Logger;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.NavigableSet;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * <p>
- * To support phrase() queries on all unicode terms, the terms are presented as an array of Strings and the TermWeightPosition offset lists are stored in the
+ * To support phrase() queries on all unicode terms, the terms are presented as an array of Strings and the TermPositions offset lists are stored in the
  * <code>Map&lt;String, List&lt;TermFrequencyList&gt;&gt;</code>. There should be an entry in the map for each term provided in the function call
  * </p>
  *
@@ -40,9 +36,6 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
     
     private static final Logger log = Logger.getLogger(ContentOrderedEvaluator.class);
     
-    private static final int FORWARD = 1;
-    private static final int REVERSE = -1;
-    
     public ContentOrderedEvaluator(Set<String> fields, int distance, float maxScore, TermOffsetMap termOffsetMap, String... terms) {
         super(fields, distance, maxScore, termOffsetMap, terms);
         if (log.isTraceEnabled()) {
@@ -51,28 +44,33 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
     }
     
     @Override
-    protected boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets) {
+    protected boolean evaluate(String field, String eventId, List<TermPositions> offsets) {
         if (offsets.isEmpty() || offsets.size() < terms.length) {
             return false;
         }
         
-        List<NavigableSet<EvaluateTermPosition>> termPositions = buildTermPositions(offsets);
-        
-        // apply a trim
-        termPositions = trim(termPositions);
+        TermPositions[] termPositions = buildTermPositions(offsets);
         
-        // if a trim resulted in no more term positions we are done
+        // if any term positions were never populated a match is not possible
         if (termPositions == null) {
             return false;
         }
         
-        while (!isConverged(field, eventId, termPositions, distance)) {
+        // the cursor into the positions of each term, everything before a cursor has been ruled out
+        int[] cursors = new int[termPositions.length];
+        
+        // apply a trim, if it resulted in no more term positions we are done
+        if (!trim(termPositions, cursors)) {
+            return false;
+        }
+        
+        while (!isConverged(field, eventId, termPositions, cursors, distance)) {
             // look for alternatives that also satisfy convergence within each term before rolling forward. Move at most one term one position until there are
             // no alternatives that satisfy the distance left
-            List<NavigableSet<EvaluateTermPosition>> alternativeTermPositions = trimAlternatives(termPositions, distance);
+            int[] alternativeCursors = trimAlternatives(termPositions, cursors, distance);
             boolean alternativeConverged = false;
-            while (alternativeTermPositions != null && !(alternativeConverged = isConverged(field, eventId, alternativeTermPositions, distance))) {
-                alternativeTermPositions = trimAlternatives(alternativeTermPositions, distance);
+            while (alternativeCursors != null && !(alternativeConverged = isConverged(field, eventId, termPositions, alternativeCursors, distance))) {
+                alternativeCursors = trimAlternatives(termPositions, alternativeCursors, distance);
             }
             
             // found a valid alternative
@@ -81,18 +79,15 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
             }
             
             // if no alternatives, move to the next first term and start again
-            termPositions.get(0).pollFirst();
+            cursors[0]++;
             
             // ensure that wasn't the last one
-            if (termPositions.get(0).isEmpty()) {
+            if (cursors[0] == termPositions[0].size()) {
                 return false;
             }
             
-            // trim whatever is left
-            termPositions = trim(termPositions);
-            
-            // if term positions are null a trim resulted in an impossible match
-            if (termPositions == null) {
+            // trim whatever is left, if that resulted in an impossible match we are done
+            if (!trim(termPositions, cursors)) {
                 return false;
             }
         }
@@ -102,114 +97,84 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
     }
     
     /**
-     * Convert a List of offsets into a NavigableSet of EvaluateTermPositions
+     * Drop the offsets above the max score from each term
      * 
      * @param offsets
      * @return null if a phrase match is not possible, or the term positions
      */
-    private List<NavigableSet<EvaluateTermPosition>> buildTermPositions(List<List<TermWeightPosition>> offsets) {
-        // build sorted sets for each term
-        int index = 0;
-        List<NavigableSet<EvaluateTermPosition>> termPositions = new ArrayList<>(terms.length);
-        for (List<TermWeightPosition> termOffsets : offsets) {
-            termPositions.add(new TreeSet<>());
-            for (TermWeightPosition twp : termOffsets) {
-                // Skip terms greater then the max score if it score is set
-                if (twp.getScore() > maxScore) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("[" + terms[index] + "] Skip score => " + twp);
-                    }
-                    continue;
-                }
-                
-                EvaluateTermPosition etp = new EvaluateTermPosition(terms[index], index, twp);
-                termPositions.get(index).add(etp);
+    private TermPositions[] buildTermPositions(List<TermPositions> offsets) {
+        TermPositions[] termPositions = new TermPositions[terms.length];
+        for (int index = 0; index < terms.length; index++) {
+            // Skip terms greater then the max score if it score is set
+            termPositions[index] = offsets.get(index).filterScore(maxScore);
+            if (log.isTraceEnabled() && termPositions[index] != offsets.get(index)) {
+                log.trace("[" + terms[index] + "] Skip score => " + offsets.get(index));
             }
             
-            // if any term positions were never populated a match is not possible
-            if (termPositions.get(index).isEmpty()) {
+            if (termPositions[index].isEmpty()) {
                 return null;
             }
-            
-            // increment the index
-            index++;
         }
         
         return termPositions;
     }
     
     /**
-     * Trim impossible offsets from the arrays by removing any terms which are less than the first term walking through the term lists
+     * Trim impossible offsets by advancing the cursors past any positions which are less than the position of the previous term, walking through the terms
      * 
-     * @param offsets
-     * @return null if a terms offsets are empty, otherwise the trimmed list
+     * @param termPositions
+     * @param cursors
+     *            the cursors, which are advanced in place
+     * @return false if a terms offsets are exhausted, otherwise true
      */
-    private List<NavigableSet<EvaluateTermPosition>> trim(List<NavigableSet<EvaluateTermPosition>> offsets) {
-        // sanity check
-        if (offsets == null) {
-            return null;
-        }
-        
+    private boolean trim(TermPositions[] termPositions, int[] cursors) {
         // advance each first/second pair so that second is always >= first
-        for (int i = 0; i + 1 < offsets.size(); i++) {
-            NavigableSet<EvaluateTermPosition> first = offsets.get(i);
-            NavigableSet<EvaluateTermPosition> second = offsets.get(i + 1);
+        for (int i = 0; i + 1 < termPositions.length; i++) {
+            TermPositions first = termPositions[i];
+            TermPositions second = termPositions[i + 1];
             
-            int termCompare = first.first().termWeightPosition.compareTo(second.first().termWeightPosition);
+            int termCompare = first.compare(cursors[i], second, cursors[i + 1]);
             
             // advance second until less than first or while they are the same term and position
-            while (termCompare > 0 || (termCompare == 0 && first.first().isSameTerm(second.first()))) {
-                // advance second
-                second.pollFirst();
-                
-                // test for end condition
-                if (second.isEmpty()) {
-                    return null;
+            while (termCompare > 0 || (termCompare == 0 && isSameTerm(i, i + 1))) {
+                // advance second, and test for end condition
+                if (++cursors[i + 1] == second.size()) {
+                    return false;
                 }
                 
                 // update compare
-                termCompare = first.first().termWeightPosition.compareTo(second.first().termWeightPosition);
+                termCompare = first.compare(cursors[i], second, cursors[i + 1]);
             }
         }
         
-        return offsets;
+        return true;
     }
     
     /**
-     * Taking an existing set of offsets, look for alternatives starting with the second term that also satisfy the distance requirement. Move at most one term
-     * one position. Do not modify offsets, but return a copy
+     * Taking an existing set of cursors, look for alternatives starting with the second term that also satisfy the distance requirement. Move at most one term
+     * one position. Do not modify cursors, but return a copy
      * 
-     * @param offsets
-     *            original offsets
+     * @param termPositions
+     * @param cursors
+     *            original cursors
      * @param distance
      *            distance to accept for alternatives
      * @return alternatives or null if no alternatives exist
      */
-    private List<NavigableSet<EvaluateTermPosition>> trimAlternatives(List<NavigableSet<EvaluateTermPosition>> offsets, int distance) {
-        List<NavigableSet<EvaluateTermPosition>> alternatives = new ArrayList<>(offsets.size());
-        
-        alternatives.add(offsets.get(0));
-        
-        for (int i = 1; i < offsets.size(); i++) {
-            // strip the first offset for this term and make a copy
-            NavigableSet<EvaluateTermPosition> candidateSet = offsets.get(i).tailSet(offsets.get(i).first(), false);
-            
-            // if the candidate set has something in it, and it is within the constraints of the distance this is a valid alternative
-            if (!candidateSet.isEmpty()
-                            && (alternatives.get(i - 1).first().isWithIn(candidateSet.first(), distance) && !alternatives.get(i - 1).first()
-                                            .isSameTerm(candidateSet.first()))) {
-                alternatives.add(candidateSet);
-                
+    private int[] trimAlternatives(TermPositions[] termPositions, int[] cursors, int distance) {
+        for (int i = 1; i < termPositions.length; i++) {
+            // the position after the current one for this term
+            int candidate = cursors[i] + 1;
+            
+            // if the candidate exists, and it is within the constraints of the distance this is a valid alternative
+            if (candidate < termPositions[i].size() && isWithIn(termPositions[i - 1], cursors[i - 1], termPositions[i], candidate, distance)
+                            && !isSameTerm(i - 1, i)) {
                 // once there is a new alternative, leave all other terms alone to test it fully
-                for (int j = i + 1; j < offsets.size(); j++) {
-                    alternatives.add(offsets.get(j));
-                }
+                int[] alternatives = cursors.clone();
+                alternatives[i] = candidate;
                 
                 // send these back for evaluation
                 return alternatives;
-            } else {
-                // nothing to change for this term, add it as-is
-                alternatives.add(offsets.get(i));
             }
         }
         
@@ -224,158 +189,55 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
      *            the field where the offsets were found
      * @param eventId
      *            the event id (see @TermFrequencyList.getEventId(Key))
-     * @param offsets
+     * @param termPositions
+     * @param cursors
      * @param distance
      * @return true if satisfied, false otherwise
      */
-    private boolean isConverged(String field, String eventId, List<NavigableSet<EvaluateTermPosition>> offsets, int distance) {
-        if (offsets.size() == 1) {
+    private boolean isConverged(String field, String eventId, TermPositions[] termPositions, int[] cursors, int distance) {
+        if (termPositions.length == 1) {
             return true;
         }
         
-        int secondIndex = 1;
-        NavigableSet<EvaluateTermPosition> first = offsets.get(0);
-        NavigableSet<EvaluateTermPosition> second = offsets.get(secondIndex);
-        
-        // The start offset of the phrase if satisfied.
-        int startOffset = first.first().termWeightPosition.getOffset();
-        int endOffset;
-        // test that these terms are within distance
-        while (first.first().isWithIn(second.first(), distance)) {
-            // are there more terms?
-            if (secondIndex + 1 < offsets.size()) {
-                // advance and test the next pair
-                secondIndex++;
-                first = second;
-                second = offsets.get(secondIndex);
-            } else {
-                // nope
-                
-                // Establish the end offset of the phrase.
-                endOffset = second.first().termWeightPosition.getOffset();
-                // Record the phrase offsets to fetch excerpts later if desired.
-                termOffsetMap.addPhraseIndexTriplet(field, eventId, startOffset, endOffset);
-                if (log.isTraceEnabled()) {
-                    log.trace("Adding phrase indexes [" + startOffset + "," + endOffset + "] for field " + field + " for event " + eventId + " to jexl context");
-                }
-                return true;
+        // test that each pair of terms are within distance
+        for (int i = 0; i + 1 < termPositions.length; i++) {
+            if (!isWithIn(termPositions[i], cursors[i], termPositions[i + 1], cursors[i + 1], distance)) {
+                // terms not within distance
+                return false;
             }
         }
         
-        // terms not within distance
-        return false;
+        // The start and end offsets of the phrase.
+        int startOffset = termPositions[0].getOffset(cursors[0]);
+        int endOffset = termPositions[termPositions.length - 1].getOffset(cursors[termPositions.length - 1]);
+        // Record the phrase offsets to fetch excerpts later if desired.
+        termOffsetMap.addPhraseIndexTriplet(field, eventId, startOffset, endOffset);
+        if (log.isTraceEnabled()) {
+            log.trace("Adding phrase indexes [" + startOffset + "," + endOffset + "] for field " + field + " for event " + eventId + " to jexl context");
+        }
+        return true;
     }
     
     /**
-     * <p>
-     * EvaluateTermPosition: Is a utility class for sorting terms and their positions
-     * </p>
+     * Is the second position within a distance after the first one, with respect to the skips of each
      *
-     * <ul>
-     * <li>isZeroOffset() two terms have the same offset, if it isn't allowed</li>
-     * <li>isWithIn() are two terms within a certain distance, with respect to direction</li>
-     * <li>comparable =&gt; prioritizes position, then phraseIndex, and finally alphanumeric on term</li>
-     * </ul>
+     * @return true if within the distance, false otherwise or if they are at the same offset and that is not allowed
      */
-    private static class EvaluateTermPosition implements Comparable<EvaluateTermPosition> {
-        String term;
-        int phraseIndex;
-        TermWeightPosition termWeightPosition;
-        
-        public EvaluateTermPosition(String term, Integer phraseIndex, TermWeightPosition termWeightPosition) {
-            this.term = term;
-            this.phraseIndex = phraseIndex;
-            this.termWeightPosition = termWeightPosition;
-        }
+    private static boolean isWithIn(TermPositions first, int firstIndex, TermPositions second, int secondIndex, int distance) {
+        int offset = first.getOffset(firstIndex);
+        int otherOffset = second.getOffset(secondIndex);
         
-        /**
-         *
-         * Conditional if to allow these positions based on offset True if zeroOffset is not allowed, and offsets are equal. False if zeroOffsets are allowed.
-         *
-         * @param o
-         *            Other position
-         * @return True if zeroOffset is not allowed, and offsets are equal
-         */
-        public boolean isZeroOffset(EvaluateTermPosition o) {
-            if ((!this.termWeightPosition.getZeroOffsetMatch()) || (!o.termWeightPosition.getZeroOffsetMatch())) {
-                
-                if (this.termWeightPosition.getOffset() == o.termWeightPosition.getOffset()) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("EvaluateTermPosition.isZeroOffset: " + this.termWeightPosition.getOffset() + " == " + o.termWeightPosition.getOffset());
-                    }
-                    return true;
-                }
-            }
+        // Instructed to not match at the same position
+        if ((!first.getZeroOffsetMatch(firstIndex) || !second.getZeroOffsetMatch(secondIndex)) && offset == otherOffset) {
             return false;
         }
         
-        public boolean isWithIn(EvaluateTermPosition o, int distance) {
-            return isWithIn(o, distance, FORWARD);
-        }
-        
-        public boolean isWithIn(EvaluateTermPosition o, int distance, int direction) {
-            
-            // Instructed to not match at the same position
-            if (isZeroOffset(o)) {
-                return false;
-            }
-            
-            int low, high = -1;
-            EvaluateTermPosition eval;
-            switch (direction) {
-                case FORWARD:
-                    low = termWeightPosition.getLowOffset();
-                    high = termWeightPosition.getOffset() + distance;
-                    eval = o;
-                    break;
-                case REVERSE:
-                    low = o.termWeightPosition.getLowOffset();
-                    high = o.termWeightPosition.getOffset() + distance;
-                    eval = this;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Invalid direction option.");
-            }
-            
-            if (log.isTraceEnabled()) {
-                log.trace("EvaluateTermPosition.isWithIn: " + low + "<=" + eval.termWeightPosition.getOffset() + " && "
-                                + eval.termWeightPosition.getLowOffset() + "<=" + high);
-            }
-            
-            return (low <= eval.termWeightPosition.getOffset() && eval.termWeightPosition.getLowOffset() <= high);
-        }
-        
-        public boolean isSameTerm(EvaluateTermPosition o) {
-            // Fail on same term at same position
-            if (term.equals(o.term)) {
-                return true;
-            }
-            
-            return false;
-        }
-        
-        @Override
-        public int compareTo(EvaluateTermPosition o) {
-            int result = termWeightPosition.compareTo(o.termWeightPosition);
-            if (result != 0) {
-                return result;
-            }
-            
-            // Reverse the phrase index so you hit the other phrases before hitting current phrase index
-            // This helps with end match scenarios
-            result = Integer.compare(o.phraseIndex, phraseIndex);
-            if (result != 0) {
-                return result;
-            }
-            
-            // todo: comparing the term value makes no sense given how this class is used to subset a list of ordered term positions
-            // perhaps we are never supposed to get here?
-            return term.compareTo(o.term);
-        }
-        
-        @Override
-        public String toString() {
-            return "{" + "term='" + term + '\'' + ", index=" + phraseIndex + ", position=" + termWeightPosition + '}';
-        }
+        int low = first.getLowOffset(firstIndex);
+        int high = offset + distance;
+        return (low <= otherOffset && second.getLowOffset(secondIndex) <= high);
+    }
+    
+    private boolean isSameTerm(int index, int otherIndex) {
+        return terms[index].equals(terms[otherIndex]);
     }
 }
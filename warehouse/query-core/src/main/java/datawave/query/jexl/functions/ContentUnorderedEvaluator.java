@@ -1,17 +1,12 @@
 package datawave.query.jexl.functions;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.PriorityQueue;
 import java.util.Set;
 
-import datawave.ingest.protobuf.TermWeightPosition;
 import datawave.query.postprocessing.tf.TermOffsetMap;
 import org.apache.log4j.Logger;
 
@@ -55,118 +50,67 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
      * @return true if we found an unordered list within the specified distance for the specified set of offsets.
      */
     @Override
-    public boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets) {
-        filterOffsets(offsets);
-        MultiOffsetMatcher mlIter = new MultiOffsetMatcher(distance, terms, offsets, field, eventId, termOffsetMap);
+    public boolean evaluate(String field, String eventId, List<TermPositions> offsets) {
+        MultiOffsetMatcher mlIter = new MultiOffsetMatcher(distance, terms, filterOffsets(offsets), field, eventId, termOffsetMap);
         return mlIter.findMatch();
     }
     
-    private void filterOffsets(List<List<TermWeightPosition>> offsets) {
+    private List<TermPositions> filterOffsets(List<TermPositions> offsets) {
         // if max score is maximum possible value short circuit
         if (maxScore == DEFAULT_MAX_SCORE) {
-            return;
+            return offsets;
         }
         
-        for (List<TermWeightPosition> offset : offsets) {
-            Iterator<TermWeightPosition> twpIter = offset.iterator();
-            while (twpIter.hasNext()) {
-                Integer score = twpIter.next().getScore();
-                if (null == score || score > maxScore) {
-                    twpIter.remove();
-                }
-            }
-        }
-    }
-    
-    private static class OffsetList implements Comparable<OffsetList> {
-        private final String term;
-        private final List<TermWeightPosition> offsets;
-        private TermWeightPosition minOffset;
-        private TermWeightPosition maxOffset = null;
-        
-        public OffsetList(String term, List<TermWeightPosition> o) {
-            this.term = term;
-            this.offsets = o;
-            
-            // as long as there is at least one term, grab the last item for a max
-            if (!o.isEmpty()) {
-                // offsets with skip words will sort based on min so for max we need to loop over all offsets
-                maxOffset = Collections.max(offsets, new TermWeightPosition.MaxOffsetComparator());
-            }
-            
-            nextOffset();
-        }
-        
-        public TermWeightPosition getMinOffset() {
-            return minOffset;
-        }
-        
-        /**
-         * 
-         * @return the highest value in this list
-         */
-        public TermWeightPosition getMaxOffset() {
-            return maxOffset;
-        }
-        
-        public Optional<TermWeightPosition> nextOffset() {
-            if (offsets.isEmpty()) {
-                return Optional.empty();
-            } else {
-                minOffset = offsets.remove(0);
-                return Optional.of(minOffset);
-            }
-        }
-        
-        @Override
-        public int compareTo(OffsetList o) {
-            return this.getMinOffset().compareTo(o.getMinOffset());
-        }
-        
-        @Override
-        public boolean equals(Object o) {
-            return minOffset == ((OffsetList) o).minOffset;
-        }
-        
-        @Override
-        public String toString() {
-            return term + ";" + minOffset + ":" + maxOffset;
+        List<TermPositions> filtered = new ArrayList<>(offsets.size());
+        for (TermPositions offset : offsets) {
+            filtered.add(offset.filterScore(maxScore));
         }
+        return filtered;
     }
     
+    /**
+     * Finds the smallest window that contains a position of every term by repeatedly advancing the term with the lowest position. The positions of each term
+     * are walked with a cursor, and a term that appears more than once in the function shares its cursor between its appearances.
+     */
     private static class MultiOffsetMatcher {
         int distance = 0;
         
         final String[] terms;
         
-        final PriorityQueue<OffsetList> offsetQueue = new PriorityQueue<>();
-        Optional<TermWeightPosition> maxOffset = Optional.empty();
+        // the positions and shared cursor of each distinct term
+        TermPositions[] positions;
+        int[] cursors;
+        
+        // for each appearance of a term: which distinct term it is, the index of its current position, and its max offset
+        int[] entryTerms;
+        int[] entryIndexes;
+        int[] entryMaxOffsets;
+        
+        // the entry holding the highest current position
+        int maxEntry = -1;
+        
         final String field;
         final String eventId;
         final TermOffsetMap termOffsetMap;
         
         /**
-         * At the end of this method, terms will contain the query terms. currentOffsets will contain the minimum offset for each term and offsetLists will
-         * contain the remaining offsets for each term.
-         *
-         * The indexes of terms, offsetLists and currentOffsets are parallel in that the i'th item in currentOffsets corresponds to the i'th item in offsetLists
-         * and term[i].
+         * At the end of this method, each term appearance will hold the minimum offset it can take, and the remaining offsets for each distinct term will be
+         * after its cursor.
          *
          * @param distance
          *            the maximum acceptable distance between terms.
          * @param terms
          *            the query terms.
+         * @param termOffsets
+         *            the offsets for the specified terms, these will not be modified in any way.
          * @param field
          *            the field
          * @param eventId
          *            the event id (see @TermFrequencyList.getEventId(Key))
-         * @param termOffsets
-         *            the offsets for the specified terms, these lists will not be modified in any way.
          * @throws IllegalArgumentException
          *             if the number of terms does not match the number of offset lists.
          */
-        public MultiOffsetMatcher(int distance, String[] terms, Collection<List<TermWeightPosition>> termOffsets, String field, String eventId,
-                        TermOffsetMap termOffsetMap) {
+        public MultiOffsetMatcher(int distance, String[] terms, List<TermPositions> termOffsets, String field, String eventId, TermOffsetMap termOffsetMap) {
             this.distance = distance;
             this.terms = terms;
             this.field = field;
@@ -179,84 +123,116 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
                 throw new IllegalArgumentException("Less terms than the number of offset lists received");
             }
             
-            int termPos = 0;
+            positions = new TermPositions[terms.length];
+            cursors = new int[terms.length];
+            entryTerms = new int[terms.length];
+            entryIndexes = new int[terms.length];
+            entryMaxOffsets = new int[terms.length];
             
-            // holds the (canonical) offset list for of each term
-            final Map<String,List<TermWeightPosition>> termsSeen = new HashMap<>();
+            // holds the (canonical) index of each term
+            final Map<String,Integer> termsSeen = new HashMap<>();
             
-            for (List<TermWeightPosition> offsetList : termOffsets) {
-                String term = terms[termPos++];
+            for (int entry = 0; entry < terms.length; entry++) {
+                String term = terms[entry];
                 
-                if (offsetList != null) {
-                    if (!termsSeen.containsKey(term)) {
-                        // new term, create a defensive copy that's safe to modify.
-                        offsetList = new LinkedList<>(offsetList);
-                        termsSeen.put(term, offsetList);
-                    } else {
-                        // already seen term, all matching terms should reference the same list.
-                        offsetList = termsSeen.get(term);
-                    }
+                // all matching terms reference the positions and cursor of the first
+                int termIndex = termsSeen.computeIfAbsent(term, t -> termsSeen.size());
+                if (positions[termIndex] == null) {
+                    positions[termIndex] = termOffsets.get(entry);
                 }
                 
-                if (offsetList == null || offsetList.isEmpty()) {
+                if (positions[termIndex] == null || cursors[termIndex] >= positions[termIndex].size()) {
                     if (log.isTraceEnabled()) {
-                        log.trace("The offset list for " + term + " is null or has no elements: " + offsetList + ". Exiting");
+                        log.trace("The offset list for " + term + " is null or has no elements: " + positions[termIndex] + ". Exiting");
                     }
                     
-                    offsetQueue.clear();
+                    maxEntry = -1;
                     return;
                 }
                 
-                OffsetList entry = new OffsetList(term, offsetList);
-                if ((!maxOffset.isPresent()) || (entry.getMinOffset().compareTo(maxOffset.get()) > 0)) {
-                    maxOffset = Optional.of(entry.getMinOffset());
+                // offsets with skip words will sort based on min so for max we need to look over all of the remaining offsets
+                int maxOffset = Integer.MIN_VALUE;
+                for (int i = cursors[termIndex]; i < positions[termIndex].size(); i++) {
+                    maxOffset = Math.max(maxOffset, positions[termIndex].getOffset(i));
+                }
+                
+                entryTerms[entry] = termIndex;
+                entryMaxOffsets[entry] = maxOffset;
+                entryIndexes[entry] = cursors[termIndex]++;
+                
+                if (maxEntry == -1 || compare(entry, maxEntry) > 0) {
+                    maxEntry = entry;
                 }
-                offsetQueue.add(entry);
             }
         }
         
         public boolean findMatch() {
             // Quick short-circuit -- if we have fewer offsets than terms in the phrase/adjacency/within
             // we're evaluating, we know there are no results
-            if (terms.length > offsetQueue.size() || (!maxOffset.isPresent())) {
+            if (maxEntry == -1) {
                 return false;
             }
             
             while (true) {
-                OffsetList o = offsetQueue.remove();
+                int o = minEntry();
+                int minOffset = offset(o);
+                int maxLowOffset = lowOffset(maxEntry);
                 
-                if (maxOffset.get().getLowOffset() - o.getMinOffset().getOffset() <= distance) {
+                if (maxLowOffset - minOffset <= distance) {
                     // Track the start and end offset for the phrase.
-                    int startOffset = o.getMinOffset().getOffset();
-                    int endOffset = maxOffset.get().getLowOffset();
-                    termOffsetMap.addPhraseIndexTriplet(field, eventId, startOffset, endOffset);
+                    termOffsetMap.addPhraseIndexTriplet(field, eventId, minOffset, maxLowOffset);
                     if (log.isTraceEnabled()) {
-                        log.trace("Adding phrase indexes [" + startOffset + "," + endOffset + "] for field " + field + " to jexl context");
+                        log.trace("Adding phrase indexes [" + minOffset + "," + maxLowOffset + "] for field " + field + " to jexl context");
                     }
                     return true;
                 }
                 
                 // if the maxOffset is more than distance from the largest value in this list, there is no way to satisfy
-                if (maxOffset.get().getLowOffset() - o.getMaxOffset().getOffset() > distance) {
+                if (maxLowOffset - entryMaxOffsets[o] > distance) {
                     return false;
                 }
                 
-                Optional<TermWeightPosition> nextOffset = o.nextOffset();
-                if (!nextOffset.isPresent()) { // no more offsets from this list
+                // no more offsets from this list
+                int term = entryTerms[o];
+                if (cursors[term] == positions[term].size()) {
                     return false;
                 }
+                entryIndexes[o] = cursors[term]++;
                 
-                if (nextOffset.get().compareTo(maxOffset.get()) > 0) {
-                    maxOffset = nextOffset;
+                if (compare(o, maxEntry) > 0) {
+                    maxEntry = o;
+                }
+            }
+        }
+        
+        /**
+         * @return the entry holding the lowest current position, the first of them if there are ties
+         */
+        private int minEntry() {
+            int min = 0;
+            for (int entry = 1; entry < entryTerms.length; entry++) {
+                if (compare(entry, min) < 0) {
+                    min = entry;
                 }
-                
-                offsetQueue.add(o);
             }
+            return min;
+        }
+        
+        private int compare(int entry, int otherEntry) {
+            return positions[entryTerms[entry]].compare(entryIndexes[entry], positions[entryTerms[otherEntry]], entryIndexes[otherEntry]);
+        }
+        
+        private int offset(int entry) {
+            return positions[entryTerms[entry]].getOffset(entryIndexes[entry]);
+        }
+        
+        private int lowOffset(int entry) {
+            return positions[entryTerms[entry]].getLowOffset(entryIndexes[entry]);
         }
         
         @Override
         public String toString() {
-            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxOffset + " queue: " + offsetQueue;
+            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxEntry + " terms: " + Arrays.toString(terms);
         }
     }
 }
@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 import datawave.ingest.protobuf.TermWeightPosition;
 import org.apache.accumulo.core.data.Key;
@@ -17,7 +18,7 @@ import com.google.common.collect.TreeMultimap;
 
 /**
  * Represents a List of offsets represented as TermWeightPositions, corresponding to word positions, in a given field, for a term. This is intended to be used
- * in the scope of a Map from term to {@link TermFrequencyList}
+ * in the scope of a Map from term to {@link TermFrequencyList}. The offsets for each field are held as {@link TermPositions}.
  */
 public class TermFrequencyList {
     
@@ -95,12 +96,20 @@ public class TermFrequencyList {
         return eventId.toString();
     }
     
-    protected final TreeMultimap<Zone,TermWeightPosition> offsetsPerField;
+    protected final TreeMap<Zone,TermPositions> offsetsPerField;
     
     public TermFrequencyList(TreeMultimap<Zone,TermWeightPosition> offsetsByField) {
         checkNotNull(offsetsByField);
         
-        this.offsetsPerField = offsetsByField;
+        this.offsetsPerField = new TreeMap<>();
+        
+        addOffsets(offsetsByField);
+    }
+    
+    public TermFrequencyList(Zone field, TermPositions positions) {
+        this.offsetsPerField = new TreeMap<>();
+        
+        addPositions(field, positions);
     }
     
     public TermFrequencyList(Entry<Zone,Iterable<TermWeightPosition>> offsetsPerField) {
@@ -114,23 +123,50 @@ public class TermFrequencyList {
     public TermFrequencyList(Iterable<Entry<Zone,Iterable<TermWeightPosition>>> offsetsPerField) {
         checkNotNull(offsetsPerField);
         
-        this.offsetsPerField = TreeMultimap.create();
+        this.offsetsPerField = new TreeMap<>();
         
         addOffsets(offsetsPerField);
     }
     
+    private TermFrequencyList() {
+        this.offsetsPerField = new TreeMap<>();
+    }
+    
     public static TermFrequencyList merge(TermFrequencyList list1, TermFrequencyList list2) {
-        TreeMultimap<Zone,TermWeightPosition> offsetsPerField = TreeMultimap.create();
-        offsetsPerField.putAll(list1.offsetsPerField);
-        offsetsPerField.putAll(list2.offsetsPerField);
-        return new TermFrequencyList(offsetsPerField);
+        TermFrequencyList merged = new TermFrequencyList();
+        merged.addPositions(list1);
+        merged.addPositions(list2);
+        return merged;
+    }
+    
+    /**
+     * Add the positions of the term in a field, merging them with any positions we already have for it
+     * 
+     * @param field
+     *            the field
+     * @param positions
+     *            the positions
+     */
+    public void addPositions(Zone field, TermPositions positions) {
+        checkNotNull(field);
+        checkNotNull(positions);
+        
+        this.offsetsPerField.merge(field, positions, TermPositions::merge);
+    }
+    
+    public void addPositions(TermFrequencyList other) {
+        checkNotNull(other);
+        
+        for (Entry<Zone,TermPositions> entry : other.offsetsPerField.entrySet()) {
+            addPositions(entry.getKey(), entry.getValue());
+        }
     }
     
     public void addOffsets(Zone field, Iterable<TermWeightPosition> offsets) {
         checkNotNull(field);
         checkNotNull(offsets);
         
-        this.offsetsPerField.putAll(field, offsets);
+        addPositions(field, TermPositions.of(offsets));
     }
     
     public void addOffsets(Entry<Zone,Iterable<TermWeightPosition>> offsetForField) {
@@ -156,12 +192,27 @@ public class TermFrequencyList {
     }
     
     /**
-     * Return an <code>Immutable</code> copy of the entire mapping
+     * Get the positions of the term in a field
+     * 
+     * @param field
+     *            the field
+     * @return the positions, or null if the term was not found in the field
+     */
+    public TermPositions getPositions(Zone field) {
+        return this.offsetsPerField.get(field);
+    }
+    
+    /**
+     * Return a copy of the entire mapping as position objects. The evaluators use {@link #getPositions(Zone)} which does not build them.
      * 
      * @return
      */
     public TreeMultimap<Zone,TermWeightPosition> fetchOffsets() {
-        return this.offsetsPerField;
+        TreeMultimap<Zone,TermWeightPosition> offsets = TreeMultimap.create();
+        for (Entry<Zone,TermPositions> entry : this.offsetsPerField.entrySet()) {
+            offsets.putAll(entry.getKey(), entry.getValue().toTermWeightPositions());
+        }
+        return offsets;
     }
     
     /**
@@ -173,7 +224,14 @@ public class TermFrequencyList {
     public TreeMultimap<Zone,TermWeightPosition> fetchOffsets(Set<Zone> fields) {
         checkNotNull(fields);
         
-        return (TreeMultimap<Zone,TermWeightPosition>) Multimaps.filterKeys(this.offsetsPerField, new FieldFilterPredicate(fields));
+        return (TreeMultimap<Zone,TermWeightPosition>) Multimaps.filterKeys(fetchOffsets(), new FieldFilterPredicate(fields));
+    }
+    
+    /**
+     * @return true if the term was not found in any field
+     */
+    public boolean isEmpty() {
+        return this.offsetsPerField.isEmpty();
     }
     
     /**
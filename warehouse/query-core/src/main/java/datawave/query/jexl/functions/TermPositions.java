@@ -0,0 +1,413 @@
+package datawave.query.jexl.functions;
+
+import com.google.protobuf.CodedInputStream;
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The positions of a term within one field of one event, held as parallel primitive arrays sorted in {@link TermWeightPosition} order (low offset, then
+ * offset) with no duplicates. The content function evaluators walk these with int cursors rather than building sorted collections of position objects.
+ * <p>
+ * Positions read from the shard table are decoded from the {@link TermWeight.Info} protobuf bytes on first use, directly into the arrays, so terms that never
+ * reach a content function evaluation are never decoded. Bytes that cannot be decoded are logged and treated as no positions.
+ */
+public class TermPositions {
+    private static final Logger log = Logger.getLogger(TermPositions.class);
+    
+    public static final TermPositions EMPTY = new TermPositions(new int[0], new int[0], new int[0], new boolean[0], 0);
+    
+    // the encoded TermWeight.Info, null once decoded
+    private byte[] encoded;
+    
+    private int size;
+    private int[] offsets;
+    private int[] lowOffsets;
+    private int[] scores;
+    private boolean[] zeroOffsetMatches;
+    
+    /**
+     * @param encoded
+     *            the serialized {@link TermWeight.Info}, which will not be decoded until the positions are first used
+     */
+    public TermPositions(byte[] encoded) {
+        this.encoded = encoded;
+    }
+    
+    private TermPositions(int[] offsets, int[] lowOffsets, int[] scores, boolean[] zeroOffsetMatches, int size) {
+        this.offsets = offsets;
+        this.lowOffsets = lowOffsets;
+        this.scores = scores;
+        this.zeroOffsetMatches = zeroOffsetMatches;
+        this.size = size;
+    }
+    
+    /**
+     * Build the positions from position objects, in any order
+     *
+     * @param positions
+     *            the positions
+     * @return the term positions
+     */
+    public static TermPositions of(Iterable<TermWeightPosition> positions) {
+        Builder builder = new Builder();
+        for (TermWeightPosition position : positions) {
+            builder.add(position.getOffset(), position.getLowOffset(), position.getScore(), position.getZeroOffsetMatch());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Merge two sets of positions. Where both have a position at the same low offset and offset, the one from the first is kept.
+     *
+     * @param first
+     *            the first positions
+     * @param second
+     *            the second positions
+     * @return the merged positions
+     */
+    public static TermPositions merge(TermPositions first, TermPositions second) {
+        first.decode();
+        second.decode();
+        if (second.size == 0) {
+            return first;
+        } else if (first.size == 0) {
+            return second;
+        }
+        
+        Builder builder = new Builder(first.size + second.size);
+        int i = 0;
+        int j = 0;
+        while (i < first.size || j < second.size) {
+            int compare = (i == first.size ? 1 : (j == second.size ? -1 : first.compare(i, second, j)));
+            if (compare <= 0) {
+                builder.add(first.offsets[i], first.lowOffsets[i], first.scores[i], first.zeroOffsetMatches[i]);
+                i++;
+                if (compare == 0) {
+                    j++;
+                }
+            } else {
+                builder.add(second.offsets[j], second.lowOffsets[j], second.scores[j], second.zeroOffsetMatches[j]);
+                j++;
+            }
+        }
+        return builder.build();
+    }
+    
+    public int size() {
+        decode();
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * @return the max possible offset of the position at an index, skips can not increase the value
+     */
+    public int getOffset(int index) {
+        decode();
+        return offsets[index];
+    }
+    
+    /**
+     * @return the lowest possible offset of the position at an index with respect to skips
+     */
+    public int getLowOffset(int index) {
+        decode();
+        return lowOffsets[index];
+    }
+    
+    public int getScore(int index) {
+        decode();
+        return scores[index];
+    }
+    
+    public boolean getZeroOffsetMatch(int index) {
+        decode();
+        return zeroOffsetMatches[index];
+    }
+    
+    /**
+     * @return the greatest offset of any of the positions, which is not necessarily that of the last position
+     */
+    public int getMaxOffset() {
+        decode();
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, offsets[i]);
+        }
+        return max;
+    }
+    
+    /**
+     * Compare the position at an index to one in another set of positions, in {@link TermWeightPosition} order
+     */
+    public int compare(int index, TermPositions other, int otherIndex) {
+        decode();
+        other.decode();
+        int result = Integer.compare(lowOffsets[index], other.lowOffsets[otherIndex]);
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(offsets[index], other.offsets[otherIndex]);
+    }
+    
+    /**
+     * Drop the positions scored above a max score
+     *
+     * @param maxScore
+     *            the max score
+     * @return these positions if none are above the max score, otherwise a filtered copy
+     */
+    public TermPositions filterScore(int maxScore) {
+        decode();
+        int keep = 0;
+        for (int i = 0; i < size; i++) {
+            if (scores[i] <= maxScore) {
+                keep++;
+            }
+        }
+        if (keep == size) {
+            return this;
+        }
+        
+        Builder builder = new Builder(keep);
+        for (int i = 0; i < size; i++) {
+            if (scores[i] <= maxScore) {
+                builder.add(offsets[i], lowOffsets[i], scores[i], zeroOffsetMatches[i]);
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * @return the positions as objects, for the callers that still need them
+     */
+    public List<TermWeightPosition> toTermWeightPositions() {
+        decode();
+        List<TermWeightPosition> positions = new ArrayList<>(size);
+        TermWeightPosition.Builder position = new TermWeightPosition.Builder();
+        for (int i = 0; i < size; i++) {
+            position.setOffset(offsets[i]).setPrevSkips(offsets[i] - lowOffsets[i]).setScore(scores[i]).setZeroOffsetMatch(zeroOffsetMatches[i]);
+            positions.add(position.build());
+            position.reset();
+        }
+        return positions;
+    }
+    
+    private void decode() {
+        if (encoded == null) {
+            return;
+        }
+        
+        Builder builder = new Builder();
+        try {
+            builder.decode(encoded);
+        } catch (IOException e) {
+            log.error("Could not deserialize TermWeight protocol buffer", e);
+            builder = new Builder(0);
+        }
+        
+        TermPositions decoded = builder.build();
+        offsets = decoded.offsets;
+        lowOffsets = decoded.lowOffsets;
+        scores = decoded.scores;
+        zeroOffsetMatches = decoded.zeroOffsetMatches;
+        size = decoded.size;
+        encoded = null;
+    }
+    
+    @Override
+    public int hashCode() {
+        decode();
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * (31 * hash + lowOffsets[i]) + offsets[i];
+        }
+        return hash;
+    }
+    
+    /**
+     * Positions are equal when they have the same low offsets and offsets, as with {@link TermWeightPosition}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TermPositions)) {
+            return false;
+        }
+        TermPositions other = (TermPositions) o;
+        decode();
+        other.decode();
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (compare(i, other, i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public String toString() {
+        decode();
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("{zeroMatch=").append(zeroOffsetMatches[i]).append(", offset=").append(offsets[i]).append(", lowOffset=").append(lowOffsets[i])
+                            .append(", score=").append(scores[i]).append('}');
+        }
+        return sb.append(']').toString();
+    }
+    
+    /**
+     * Accumulates positions into growable arrays and then sorts and dedupes them
+     */
+    private static class Builder {
+        private int size = 0;
+        private int[] offsets;
+        private int[] lowOffsets;
+        private int[] scores;
+        private boolean[] zeroOffsetMatches;
+        
+        Builder() {
+            this(8);
+        }
+        
+        Builder(int capacity) {
+            offsets = new int[capacity];
+            lowOffsets = new int[capacity];
+            scores = new int[capacity];
+            zeroOffsetMatches = new boolean[capacity];
+        }
+        
+        void add(int offset, int lowOffset, int score, boolean zeroOffsetMatch) {
+            if (size == offsets.length) {
+                int capacity = Math.max(8, size * 2);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lowOffsets = Arrays.copyOf(lowOffsets, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                zeroOffsetMatches = Arrays.copyOf(zeroOffsetMatches, capacity);
+            }
+            offsets[size] = offset;
+            lowOffsets[size] = lowOffset;
+            scores[size] = score;
+            zeroOffsetMatches[size] = zeroOffsetMatch;
+            size++;
+        }
+        
+        /**
+         * Decode a {@link TermWeight.Info} the way {@link TermWeightPosition.Builder#setTermWeightOffsetInfo(TermWeight.Info, int)} reads it: the skips and
+         * the scores only apply if there are as many of them as there are offsets.
+         */
+        void decode(byte[] encoded) throws IOException {
+            int[][] values = {new int[8], new int[8], new int[8]};
+            int[] counts = new int[3];
+            boolean zeroOffsetMatch = TermWeightPosition.DEFAULT_ZERO_OFFSET_MATCH;
+            
+            CodedInputStream input = CodedInputStream.newInstance(encoded);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                int field = tag >>> 3;
+                if (field == TermWeight.Info.ZEROOFFSETMATCH_FIELD_NUMBER) {
+                    zeroOffsetMatch = input.readBool();
+                } else if (field < TermWeight.Info.TERMOFFSET_FIELD_NUMBER || field > TermWeight.Info.SCORE_FIELD_NUMBER) {
+                    input.skipField(tag);
+                } else {
+                    int index = field - TermWeight.Info.TERMOFFSET_FIELD_NUMBER;
+                    // repeated fields may be either packed or not
+                    if ((tag & 0x7) == 2) {
+                        int limit = input.pushLimit(input.readRawVarint32());
+                        while (input.getBytesUntilLimit() > 0) {
+                            values[index] = append(values[index], counts[index]++, input.readUInt32());
+                        }
+                        input.popLimit(limit);
+                    } else {
+                        values[index] = append(values[index], counts[index]++, input.readUInt32());
+                    }
+                }
+            }
+            
+            int count = counts[0];
+            boolean hasSkips = (counts[1] == count);
+            boolean hasScores = (counts[2] == count);
+            for (int i = 0; i < count; i++) {
+                int offset = values[0][i];
+                int prevSkips = (hasSkips ? values[1][i] : TermWeightPosition.DEFAULT_PREV_SKIPS);
+                add(offset, (prevSkips >= 0 ? offset - prevSkips : offset), (hasScores ? values[2][i] : TermWeightPosition.DEFAULT_SCORE), zeroOffsetMatch);
+            }
+        }
+        
+        private static int[] append(int[] array, int index, int value) {
+            if (index == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[index] = value;
+            return array;
+        }
+        
+        /**
+         * Sort the positions and drop duplicates, keeping the first of each. The offsets of a term are written in order and skips rarely reorder them, so this
+         * is an insertion sort that is linear for input that is already sorted.
+         */
+        TermPositions build() {
+            for (int i = 1; i < size; i++) {
+                int j = i;
+                while (j > 0 && compare(j - 1, j) > 0) {
+                    swap(j - 1, j);
+                    j--;
+                }
+            }
+            
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || compare(unique - 1, i) != 0) {
+                    if (unique != i) {
+                        offsets[unique] = offsets[i];
+                        lowOffsets[unique] = lowOffsets[i];
+                        scores[unique] = scores[i];
+                        zeroOffsetMatches[unique] = zeroOffsetMatches[i];
+                    }
+                    unique++;
+                }
+            }
+            return new TermPositions(offsets, lowOffsets, scores, zeroOffsetMatches, unique);
+        }
+        
+        private int compare(int a, int b) {
+            int result = Integer.compare(lowOffsets[a], lowOffsets[b]);
+            if (result != 0) {
+                return result;
+            }
+            return Integer.compare(offsets[a], offsets[b]);
+        }
+        
+        private void swap(int a, int b) {
+            int offset = offsets[a];
+            offsets[a] = offsets[b];
+            offsets[b] = offset;
+            int lowOffset = lowOffsets[a];
+            lowOffsets[a] = lowOffsets[b];
+            lowOffsets[b] = lowOffset;
+            int score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+            boolean zeroOffsetMatch = zeroOffsetMatches[a];
+            zeroOffsetMatches[a] = zeroOffsetMatches[b];
+            zeroOffsetMatches[b] = zeroOffsetMatch;
+        }
+    }
+}
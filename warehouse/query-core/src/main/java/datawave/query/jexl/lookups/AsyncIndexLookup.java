@@ -24,6 +24,9 @@ public abstract class AsyncIndexLookup extends IndexLookup {
     
     protected ExecutorService execService;
     
+    // set when a lookup task failed, timed out, or was not waited for, in which case the lookup map may be incomplete
+    protected volatile boolean incomplete = false;
+    
     public AsyncIndexLookup(ShardQueryConfiguration config, ScannerFactory scannerFactory, boolean unfieldedLookup, ExecutorService execService) {
         super(config, scannerFactory);
         this.unfieldedLookup = unfieldedLookup;
@@ -36,6 +39,10 @@ public abstract class AsyncIndexLookup extends IndexLookup {
      */
     public abstract void submit();
     
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
     protected long getRemainingTimeMillis(long startTimeMillis) {
         return Math.max(0L, config.getMaxIndexScanTimeMillis() - (System.currentTimeMillis() - startTimeMillis));
     }
@@ -65,9 +72,11 @@ public abstract class AsyncIndexLookup extends IndexLookup {
             
             // Continue in perpetuity iff we swallow the timeout. our state machine has three states 1) timeout exception and continue ( no max lookup ) 2)
             // timeout exception and except ( a max lookup specified ) 3) we receive a value under timeout and we break
+            boolean completed = false;
             while (!execService.isShutdown() && !execService.isTerminated()) {
                 try {
-                    future.get((swallowTimeout) ? maxLookup : getRemainingTimeMillis(startTimeMillis), TimeUnit.MILLISECONDS);
+                    // the lookup tasks return false when they fail or time out
+                    completed = Boolean.TRUE.equals(future.get((swallowTimeout) ? maxLookup : getRemainingTimeMillis(startTimeMillis), TimeUnit.MILLISECONDS));
                 } catch (TimeoutException e) {
                     if (swallowTimeout) {
                         continue;
@@ -77,11 +86,15 @@ public abstract class AsyncIndexLookup extends IndexLookup {
                 }
                 break;
             }
+            if (!completed) {
+                incomplete = true;
+            }
             
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException(e);
         } catch (TimeoutException e) {
             future.cancel(true);
+            incomplete = true;
             if (log.isTraceEnabled())
                 log.trace("Timed out ");
             // Only if not doing an unfielded lookup should we mark all fields as having an exceeded threshold
@@ -0,0 +1,59 @@
+package datawave.query.jexl.lookups;
+
+/**
+ * An index lookup which is served from the {@link IndexExpansionCache} when the same expansion has been looked up recently, and otherwise delegates to the
+ * lookup against the global index and caches its results once it has completed.
+ */
+public class CachedIndexLookup extends AsyncIndexLookup {
+    
+    private final IndexExpansionCache cache;
+    private final IndexExpansionCache.Key key;
+    private final AsyncIndexLookup delegate;
+    
+    private boolean submitted = false;
+    
+    /**
+     * @param cache
+     *            the expansion cache, not null
+     * @param key
+     *            the cache key of the expansion, not null
+     * @param delegate
+     *            the lookup to run when the expansion is not cached, not null
+     */
+    public CachedIndexLookup(IndexExpansionCache cache, IndexExpansionCache.Key key, AsyncIndexLookup delegate) {
+        super(delegate.config, delegate.scannerFactory, delegate.unfieldedLookup, delegate.execService);
+        this.cache = cache;
+        this.key = key;
+        this.delegate = delegate;
+        this.fields = delegate.fields;
+    }
+    
+    @Override
+    public synchronized void submit() {
+        if (!submitted) {
+            submitted = true;
+            indexLookupMap = cache.get(key);
+            if (indexLookupMap == null) {
+                delegate.submit();
+            }
+        }
+    }
+    
+    @Override
+    public synchronized IndexLookupMap lookup() {
+        submit();
+        if (indexLookupMap == null) {
+            indexLookupMap = delegate.lookup();
+            if (delegate.isIncomplete()) {
+                incomplete = true;
+            } else {
+                cache.put(key, indexLookupMap);
+            }
+        }
+        return indexLookupMap;
+    }
+    
+    public AsyncIndexLookup getDelegate() {
+        return delegate;
+    }
+}
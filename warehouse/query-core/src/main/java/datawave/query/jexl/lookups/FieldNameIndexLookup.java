@@ -102,6 +102,12 @@ public class FieldNameIndexLookup extends AsyncIndexLookup {
                 timedScanFuture = execService.submit(createTimedCallable(iter));
             } catch (TableNotFoundException e) {
                 log.error(e);
+                // nothing was looked up, so the empty results are not to be trusted or cached
+                incomplete = true;
+                for (ScannerSession session : sessions) {
+                    scannerFactory.close(session);
+                }
+                sessions.clear();
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -0,0 +1,224 @@
+package datawave.query.jexl.lookups;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.util.UniversalSet;
+import datawave.util.time.DateHelper;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of the global index lookups which expand regexes, bounded ranges, and unfielded terms, so that the same expansion requested again within
+ * the time to live skips the scan of the global index. The results are keyed by the type of expansion, the patterns or terms, the fields, the datatype filter,
+ * the authorizations, the thresholds that shape the results, and the date range bucketed by day.
+ * <p>
+ * The cache is shared by all queries in the webserver with the same cache size and time to live. It is cleared when the metadata table changes, and entries
+ * expire after the configured time to live, which bounds how long newly ingested terms can be missed by a cached expansion. Lookups which failed or timed out
+ * are not cached.
+ */
+public class IndexExpansionCache {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(IndexExpansionCache.class);
+    
+    // the shared caches, keyed by their size and time to live
+    private static final Map<List<Object>,IndexExpansionCache> instances = new HashMap<>();
+    
+    private final Cache<Key,IndexLookupMap> cache;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    /**
+     * @param maxEntries
+     *            the maximum number of expansions to cache
+     * @param ttlMs
+     *            how long an expansion is cached for
+     */
+    public IndexExpansionCache(int maxEntries, long ttlMs) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+    }
+    
+    /**
+     * Get the expansion cache shared by all of the queries with the same cache size and time to live
+     * 
+     * @param config
+     *            the query configuration
+     * @return the expansion cache
+     */
+    public static synchronized IndexExpansionCache getInstance(ShardQueryConfiguration config) {
+        int size = config.getIndexExpansionCacheSize();
+        long ttlMs = config.getIndexExpansionCacheTtlMs();
+        return instances.computeIfAbsent(Arrays.asList(size, ttlMs), k -> new IndexExpansionCache(size, ttlMs));
+    }
+    
+    /**
+     * Clear all of the shared expansion caches
+     */
+    public static synchronized void invalidateShared() {
+        if (!instances.isEmpty()) {
+            log.debug("Clearing the index expansion caches");
+            for (IndexExpansionCache instance : instances.values()) {
+                instance.invalidateAll();
+            }
+        }
+    }
+    
+    /**
+     * Wrap an index lookup so that its results are served from and added to the shared expansion cache, if expansion caching is enabled
+     * 
+     * @param config
+     *            the query configuration
+     * @param lookup
+     *            the index lookup
+     * @param type
+     *            the type of expansion
+     * @param terms
+     *            the normalized terms or patterns being expanded
+     * @param fields
+     *            the fields being expanded against the forward index
+     * @param reverseFields
+     *            the fields being expanded against the reverse index
+     * @return the cached lookup, or the lookup if it cannot be cached
+     */
+    public static IndexLookup cached(ShardQueryConfiguration config, IndexLookup lookup, String type, Collection<String> terms, Collection<String> fields,
+                    Collection<String> reverseFields) {
+        if (!config.isCacheIndexExpansions() || !(lookup instanceof AsyncIndexLookup)) {
+            return lookup;
+        }
+        return new CachedIndexLookup(getInstance(config), createKey(config, type, terms, fields, reverseFields), (AsyncIndexLookup) lookup);
+    }
+    
+    /**
+     * Create the cache key for an expansion
+     * 
+     * @param config
+     *            the query configuration
+     * @param type
+     *            the type of expansion
+     * @param terms
+     *            the normalized terms or patterns being expanded
+     * @param fields
+     *            the fields being expanded against the forward index
+     * @param reverseFields
+     *            the fields being expanded against the reverse index
+     * @return the cache key
+     */
+    public static Key createKey(ShardQueryConfiguration config, String type, Collection<String> terms, Collection<String> fields,
+                    Collection<String> reverseFields) {
+        Set<String> auths = new TreeSet<>();
+        if (config.getAuthorizations() != null) {
+            for (Authorizations authorizations : config.getAuthorizations()) {
+                auths.add(authorizations.toString());
+            }
+        }
+        
+        // a universal datatype filter does not restrict the datatypes
+        Set<String> datatypes = (config.getDatatypeFilter() == null || config.getDatatypeFilter() instanceof UniversalSet) ? null : new TreeSet<>(
+                        config.getDatatypeFilter());
+        
+        // the global index is keyed by day, so lookups within the same days have the same results
+        String beginDay = config.getBeginDate() == null ? null : DateHelper.format(config.getBeginDate());
+        String endDay = config.getEndDate() == null ? null : DateHelper.format(config.getEndDate());
+        
+        return new Key(Arrays.asList(type, sorted(terms), sorted(fields), sorted(reverseFields), datatypes, auths, beginDay, endDay,
+                        config.getIndexTableName(), config.getReverseIndexTableName(), config.getMaxValueExpansionThreshold(),
+                        config.getMaxUnfieldedExpansionThreshold(), config.getFullTableScanEnabled(), config.getLimitAnyFieldLookups(),
+                        sorted(config.getDisallowedRegexPatterns())));
+    }
+    
+    private static Set<String> sorted(Collection<String> values) {
+        return values == null ? null : new TreeSet<>(values);
+    }
+    
+    /**
+     * Get a copy of a cached expansion
+     * 
+     * @param key
+     *            the cache key
+     * @return a copy of the expansion, which may be modified, or null if the expansion is not cached
+     */
+    public IndexLookupMap get(Key key) {
+        IndexLookupMap map = cache.getIfPresent(key);
+        if (map == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Index expansion cache " + (map == null ? "miss" : "hit") + ", " + hits.get() + " hits and " + misses.get() + " misses");
+        }
+        return map == null ? null : copy(map);
+    }
+    
+    /**
+     * Cache a copy of an expansion
+     * 
+     * @param key
+     *            the cache key
+     * @param map
+     *            the expansion
+     */
+    public void put(Key key, IndexLookupMap map) {
+        cache.put(key, copy(map));
+    }
+    
+    // the expansions are modified by the visitors that use them
+    private static IndexLookupMap copy(IndexLookupMap map) {
+        return (IndexLookupMap) SerializationUtils.clone(map);
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long size() {
+        return cache.size();
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    /**
+     * Identifies an expansion by the inputs that determine its results
+     */
+    public static class Key {
+        private final List<Object> parts;
+        
+        Key(List<Object> parts) {
+            this.parts = parts;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Key && parts.equals(((Key) o).parts));
+        }
+        
+        @Override
+        public int hashCode() {
+            return parts.hashCode();
+        }
+        
+        @Override
+        public String toString() {
+            return parts.toString();
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -117,8 +118,8 @@ public class ShardIndexQueryTableStaticMethods {
             }
         }
         
-        return new FieldNameIndexLookup(config, scannerFactory, getIndexedExpansionFields(expansionFields, false, config.getDatatypeFilter(), helperRef),
-                        terms, execService);
+        Set<String> fields = getIndexedExpansionFields(expansionFields, false, config.getDatatypeFilter(), helperRef);
+        return IndexExpansionCache.cached(config, new FieldNameIndexLookup(config, scannerFactory, fields, terms, execService), "field", terms, fields, null);
     }
     
     /**
@@ -279,7 +280,8 @@ public class ShardIndexQueryTableStaticMethods {
         
         Set<String> fields = ShardIndexQueryTableStaticMethods.getIndexedExpansionFields(expansionFields, false, config.getDatatypeFilter(), helperRef);
         Set<String> reverseFields = ShardIndexQueryTableStaticMethods.getIndexedExpansionFields(expansionFields, true, config.getDatatypeFilter(), helperRef);
-        return new RegexIndexLookup(config, scannerFactory, fields, reverseFields, patterns, helperRef, true, execService);
+        return IndexExpansionCache.cached(config, new RegexIndexLookup(config, scannerFactory, fields, reverseFields, patterns, helperRef, true, execService),
+                        "regexFieldName", patterns, fields, reverseFields);
     }
     
     /**
@@ -322,12 +324,14 @@ public class ShardIndexQueryTableStaticMethods {
             }
         }
         
-        return new RegexIndexLookup(config, scannerFactory, fieldName, patterns, helperRef, execService);
+        return IndexExpansionCache.cached(config, new RegexIndexLookup(config, scannerFactory, fieldName, patterns, helperRef, execService), "regex", patterns,
+                        Collections.singleton(fieldName), null);
     }
     
     public static IndexLookup expandRange(ShardQueryConfiguration config, ScannerFactory scannerFactory, LiteralRange<?> range, ExecutorService execService) {
-        
-        return new BoundedRangeIndexLookup(config, scannerFactory, range, execService);
+        // the string form of the range holds the field, the bounds, and their inclusivity
+        return IndexExpansionCache.cached(config, new BoundedRangeIndexLookup(config, scannerFactory, range, execService), "range",
+                        Collections.singleton(range.toString()), Collections.singleton(range.getFieldName()), null);
     }
     
     /**
@@ -27,7 +27,10 @@ import org.apache.log4j.Logger;
 
 /**
  * Visits a Jexl tree, looks for bounded ranges, and replaces them with concrete values from the index
+ *
+ * @deprecated the planner expands bounded ranges together with regex terms using the {@link RegexAndRangeIndexExpansionVisitor}
  */
+@Deprecated
 public class BoundedRangeIndexExpansionVisitor extends BaseIndexExpansionVisitor {
     private static final Logger log = ThreadConfigurableLogger.getLogger(BoundedRangeIndexExpansionVisitor.class);
     
@@ -1,7 +1,6 @@
 package datawave.query.jexl.visitors;
 
 import com.google.common.collect.ImmutableSet;
-import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.AttributeBag;
@@ -9,10 +8,14 @@ import datawave.query.attributes.AttributeFactory;
 import datawave.query.attributes.TypeAttribute;
 import datawave.query.data.parsers.DatawaveKey;
 import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.JexlPatternCache;
 import datawave.query.jexl.LiteralRange;
 import datawave.query.jexl.functions.JexlFunctionArgumentDescriptorFactory;
 import datawave.query.jexl.functions.arguments.JexlArgumentDescriptor;
+import datawave.query.predicate.FieldValueMatcher;
 import datawave.query.predicate.PeekingPredicate;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.commons.jexl2.parser.ASTAndNode;
 import org.apache.commons.jexl2.parser.ASTEQNode;
@@ -29,6 +32,7 @@ import org.apache.commons.jexl2.parser.ASTNRNode;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.log4j.Logger;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -36,10 +40,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static datawave.query.Constants.EMPTY_STRING;
+import static datawave.query.data.parsers.DatawaveKey.FI_COLUMN_BYTES;
 
 /**
  * The EventDataQueryExpressionVisitor traverses the query parse tree and generates a series of ExpressionFilters that will be used to determine if Keys
@@ -56,7 +59,9 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
      * populated by the EventDataQueryExpressionVisitor as it traverses the query parse tree.
      *
      * When traversing tables at query time, the apply method is called for the keys encountered. If the field value embedded in the key matches the literal,
-     * pattern or range, the key is kept indicating that the key is necessary for evaluating that portion of the query.
+     * pattern or range, the key is kept indicating that the key is necessary for evaluating that portion of the query. The literals, patterns and ranges are
+     * compiled into a {@link FieldValueMatcher} for each datatype the first time a key of that datatype is seen, and the field name and value of event keys
+     * are read directly from the column qualifier bytes.
      *
      * The null value flag is a bit of an unusual case and is generated in cases where a null (or non-null) comparison is performed for a field. It indicates
      * that at least one key for a field must be kept regardless of value. As such, this flag is set to false once its predicate has be satisfied.
@@ -69,7 +74,7 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
         /** fieldValues contains a set of literal values for which we need to keep data in order to satisfy the query */
         final Set<String> fieldValues;
         /** fieldPatterns contains a set of patterns for which we need to keep data in order to satisfy the query */
-        final Map<Pattern,Matcher> fieldPatterns;
+        final Set<String> fieldPatterns;
         /** fieldRanges contains a set of ranges for which we need to keep data in order to satisfy the query */
         final Set<LiteralRange<?>> fieldRanges;
         /** nullValueFlag indicates that we need to capture at least one instance of the field in order to satisfy a null value check in the query */
@@ -78,12 +83,18 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
         boolean nonNullValueSeen;
         /** acceptAll indicates that all values should be returned */
         boolean acceptAll;
+        /** the field name as bytes, to compare against the column qualifier of event keys */
+        final byte[] fieldNameBytes;
+        /** the compiled values, patterns and ranges by datatype, cleared whenever any of those change */
+        final Map<ByteSequence,FieldValueMatcher> matchers;
         
         public ExpressionFilter(AttributeFactory attributeFactory, String fieldName) {
             this.attributeFactory = attributeFactory;
             this.fieldName = fieldName;
+            this.fieldNameBytes = fieldName.getBytes(StandardCharsets.UTF_8);
+            this.matchers = new HashMap<>();
             this.fieldValues = new HashSet<>();
-            this.fieldPatterns = new HashMap<>();
+            this.fieldPatterns = new HashSet<>();
             this.fieldRanges = new HashSet<>();
             this.nullValueFlag = false;
             this.nonNullValueSeen = false;
@@ -93,11 +104,10 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
         public ExpressionFilter(ExpressionFilter other) {
             this(other.attributeFactory, other.fieldName);
             this.fieldValues.addAll(other.fieldValues);
-            // making new Matcher objects as they are not thread safe.
-            for (Map.Entry<Pattern,Matcher> entry : other.fieldPatterns.entrySet()) {
-                this.fieldPatterns.put(entry.getKey(), entry.getKey().matcher(""));
-            }
+            this.fieldPatterns.addAll(other.fieldPatterns);
             this.fieldRanges.addAll(other.fieldRanges);
+            // the matchers are never modified once built so they can be shared
+            this.matchers.putAll(other.matchers);
             this.nullValueFlag = other.nullValueFlag;
             this.nonNullValueSeen = other.nonNullValueSeen;
             this.acceptAll = other.acceptAll;
@@ -122,6 +132,7 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
         
         public void addFieldValue(String value) {
             fieldValues.add(value);
+            matchers.clear();
         }
         
         public void setNullValueFlag() {
@@ -129,13 +140,15 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
         }
         
         public void addFieldPattern(String pattern) {
-            Pattern p = Pattern.compile(pattern);
-            Matcher m = p.matcher("");
-            fieldPatterns.put(p, m);
+            // fail on an invalid pattern now rather than when matching
+            JexlPatternCache.getAutomaton(pattern, 0);
+            fieldPatterns.add(pattern);
+            matchers.clear();
         }
         
         public void addFieldRange(LiteralRange range) {
             fieldRanges.add(range);
+            matchers.clear();
         }
         
         public void acceptAllValues() {
@@ -159,125 +172,129 @@ public class EventDataQueryExpressionVisitor extends BaseVisitor {
         }
         
         private boolean apply(Key key, boolean update) {
-            final DatawaveKey datawaveKey = new DatawaveKey(key);
-            final String keyFieldName = JexlASTHelper.deconstructIdentifier(datawaveKey.getFieldName(), false);
+            final ByteSequence cf = key.getColumnFamilyData();
+            final ByteSequence cq = key.getColumnQualifierData();
+            final int dataTypeEnd = indexOf(cf, 0, cf.length());
+            final int valueStart = getEventValueStart(cf, dataTypeEnd, cq);
             
-            if (fieldName.equals(keyFieldName)) {
+            final boolean matched;
+            if (valueStart > 0) {
+                // an event key, match the field name and value without decoding them
+                if (!isFieldName(cq, valueStart - 1)) {
+                    return false;
+                }
                 if (acceptAll) {
                     return true;
                 }
-                
-                final String keyFieldValue = datawaveKey.getFieldValue();
-                final Set<Type> types = EventDataQueryExpressionVisitor.extractTypes(attributeFactory, keyFieldName, keyFieldValue, key);
-                // always add the NoOpType to ensure the original value gets propagated through
-                types.add(new NoOpType(keyFieldValue));
-                final Set<Matcher> normalizedPatternMatchers = new HashSet<>();
-                final Set<String> normalizedFieldValues = new HashSet<>();
-                final Set<LiteralRange> normalizedRanges = new HashSet<>();
-                for (Type type : types) {
-                    // normalize all patterns
-                    for (Pattern fieldPattern : fieldPatterns.keySet()) {
-                        try {
-                            String normalizedPattern = type.normalizeRegex(fieldPattern.toString());
-                            if (normalizedPattern != null) {
-                                normalizedPatternMatchers.add(Pattern.compile(normalizedPattern).matcher(EMPTY_STRING));
-                            } else {
-                                // can't normalize so add the original matcher
-                                normalizedPatternMatchers.add(fieldPatterns.get(fieldPattern));
-                            }
-                        } catch (Exception e) {
-                            // can't normalize this pattern, add the original matcher
-                            normalizedPatternMatchers.add(fieldPatterns.get(fieldPattern));
-                        }
-                    }
-                    
-                    // normalize all values
-                    for (String fieldValue : fieldValues) {
-                        try {
-                            String normalizedValue = type.normalize(fieldValue);
-                            if (normalizedValue != null) {
-                                normalizedFieldValues.add(normalizedValue);
-                            } else {
-                                // can't normalize this value, add the original
-                                normalizedFieldValues.add(fieldValue);
-                            }
-                        } catch (Exception e) {
-                            // can't normalize this value, add the original
-                            normalizedFieldValues.add(fieldValue);
-                        }
-                    }
-                    
-                    // normalize all ranges
-                    for (LiteralRange range : fieldRanges) {
-                        try {
-                            LiteralRange normalizedRange = new LiteralRange(range.getFieldName(), range.getNodeOperand());
-                            
-                            String normalizedLower = type.normalize(range.getLower().toString());
-                            String normalizedUpper = type.normalize(range.getUpper().toString());
-                            
-                            if (normalizedLower != null && normalizedUpper != null) {
-                                normalizedRange.updateLower(normalizedLower, range.isLowerInclusive(), range.getLowerNode());
-                                normalizedRange.updateUpper(normalizedUpper, range.isUpperInclusive(), range.getUpperNode());
-                                
-                                normalizedRanges.add(normalizedRange);
-                            } else {
-                                // can't normalize the range values, add the original
-                                normalizedRanges.add(range);
-                            }
-                        } catch (Exception e) {
-                            // can't normalize the range values, add the original
-                            normalizedRanges.add(range);
-                        }
-                    }
+                matched = getMatcher(cf.subSequence(0, dataTypeEnd)).matches(cq.getBackingArray(), cq.offset() + valueStart, cq.length() - valueStart);
+            } else {
+                final DatawaveKey datawaveKey = new DatawaveKey(key);
+                final String keyFieldName = JexlASTHelper.deconstructIdentifier(datawaveKey.getFieldName(), false);
+                if (!fieldName.equals(keyFieldName)) {
+                    return false;
                 }
-                
-                Set<String> fieldValuesToEvaluate = EventDataQueryExpressionVisitor.extractNormalizedValues(types);
-                
-                for (String normalizedFieldValue : fieldValuesToEvaluate) {
-                    if (normalizedFieldValues.contains(normalizedFieldValue)) {
-                        // field name matches and field value matches, keep.
-                        if (update) {
-                            nonNullValueSeen = true;
-                        }
-                        return true;
-                    }
-                    
-                    for (Matcher m : normalizedPatternMatchers) {
-                        m.reset(normalizedFieldValue);
-                        if (m.matches()) {
-                            // field name matches and field pattern matches, keep.
-                            if (update) {
-                                nonNullValueSeen = true;
-                            }
-                            return true;
-                        }
-                    }
-                    
-                    for (LiteralRange r : normalizedRanges) {
-                        if (r.contains(normalizedFieldValue)) {
-                            // field name patches and value is within range, keep.
-                            if (update) {
-                                nonNullValueSeen = true;
-                            }
-                            return true;
-                        }
-                    }
-                    
-                    if (nullValueFlag && !nonNullValueSeen) {
-                        // field name has a nullValueFlag, keep one and only one instance
-                        // of this field. (The fact of its presence will be sufficient
-                        // to satisfy the null check condition assuming all other conditions are met
-                        if (update) {
-                            nonNullValueSeen = true;
-                        }
-                        return true;
-                    }
+                if (acceptAll) {
+                    return true;
+                }
+                // the datatype is not at the front of the column family of a tf or fi key
+                final String keyFieldValue = datawaveKey.getFieldValue();
+                final ByteSequence dataType = new ArrayByteSequence(datawaveKey.getDataType().getBytes(StandardCharsets.UTF_8));
+                matched = getMatcher(dataType).matches(keyFieldValue == null ? EMPTY_STRING : keyFieldValue);
+            }
+            
+            // field name matches and the field value matches a literal, pattern or range, keep.
+            // Otherwise if the field name has a nullValueFlag, keep one and only one instance of this field.
+            // (The fact of its presence will be sufficient to satisfy the null check condition assuming all other conditions are met)
+            if (matched || (nullValueFlag && !nonNullValueSeen)) {
+                if (update) {
+                    nonNullValueSeen = true;
                 }
+                return true;
             }
             
-            // field name does not match any of the rules above, reject this key.
+            // field value does not match any of the rules above, reject this key.
             return false;
-            
+        }
+        
+        /**
+         * Get the matcher for a datatype, compiling it the first time the datatype is seen
+         * 
+         * @param dataType
+         *            the datatype of the key
+         * @return the matcher
+         */
+        private FieldValueMatcher getMatcher(ByteSequence dataType) {
+            FieldValueMatcher matcher = matchers.get(dataType);
+            if (matcher == null) {
+                byte[] dataTypeBytes = dataType.toArray();
+                List<Type<?>> types = attributeFactory.getTypes(fieldName, new String(dataTypeBytes, StandardCharsets.UTF_8));
+                matcher = new FieldValueMatcher(fieldValues, fieldPatterns, fieldRanges, types);
+                matchers.put(new ArrayByteSequence(dataTypeBytes), matcher);
+            }
+            return matcher;
+        }
+        
+        /**
+         * Find the start of the value in the column qualifier of an event key (datatype\0uid : FIELD\0value), as {@link DatawaveKey} would parse it
+         * 
+         * @return the start of the value, or -1 if this is not an event key
+         */
+        private static int getEventValueStart(ByteSequence cf, int dataTypeEnd, ByteSequence cq) {
+            if (dataTypeEnd == 0 || dataTypeEnd >= cf.length() - 1 || (dataTypeEnd == FI_COLUMN_BYTES.length && startsWith(cf, FI_COLUMN_BYTES))) {
+                return -1;
+            }
+            int nameEnd = indexOf(cq, 0, cq.length() - 1);
+            return nameEnd == cq.length() - 1 ? -1 : nameEnd + 1;
+        }
+        
+        /**
+         * Compare the field name in the column qualifier of an event key to this field, without the grouping context or identifier prefix as
+         * {@link JexlASTHelper#deconstructIdentifier(String, Boolean)} would remove them
+         */
+        private boolean isFieldName(ByteSequence cq, int nameEnd) {
+            byte[] bytes = cq.getBackingArray();
+            int offset = cq.offset();
+            int start = 0;
+            int end = nameEnd;
+            if (end > 1) {
+                int grouping = indexOf(cq, JexlASTHelper.GROUPING_CHARACTER_SEPARATOR, end);
+                if (grouping < end) {
+                    end = grouping;
+                }
+                if (end > 0 && bytes[offset] == JexlASTHelper.IDENTIFIER_PREFIX) {
+                    start = 1;
+                }
+            }
+            if (end - start != fieldNameBytes.length) {
+                return false;
+            }
+            for (int i = 0; i < fieldNameBytes.length; i++) {
+                if (bytes[offset + start + i] != fieldNameBytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * @return the index of the first occurrence of a byte before the limit, or the limit if there is none
+         */
+        private static int indexOf(ByteSequence bytes, int b, int limit) {
+            for (int i = 0; i < limit; i++) {
+                if (bytes.byteAt(i) == b) {
+                    return i;
+                }
+            }
+            return limit;
+        }
+        
+        private static boolean startsWith(ByteSequence bytes, byte[] prefix) {
+            for (int i = 0; i < prefix.length; i++) {
+                if (bytes.byteAt(i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
         
         /**
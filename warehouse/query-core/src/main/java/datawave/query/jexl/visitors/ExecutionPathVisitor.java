@@ -0,0 +1,218 @@
+package datawave.query.jexl.visitors;
+
+import com.google.common.collect.Maps;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.nodes.BoundedRange;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTEvaluationOnly;
+import org.apache.commons.jexl2.parser.ASTFunctionNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Determines how each term of a planned query will be executed: looked up in the global index, delayed until the documents are evaluated, scanned by an
+ * ivarator, or only evaluated against the documents. The path of a term is taken from the markers around it, and otherwise from whether its field is indexed.
+ * Negated terms are never looked up in the index, so they are evaluation only.
+ */
+public class ExecutionPathVisitor extends BaseVisitor {
+    
+    public enum Path {
+        INDEX("index"), DELAYED("delayed"), IVARATOR("ivarator"), EVALUATION_ONLY("evaluation-only");
+        
+        private final String label;
+        
+        Path(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private final Set<String> indexedFields;
+    
+    // the terms in the order they appear in the query
+    private final List<Map.Entry<JexlNode,Path>> paths = new ArrayList<>();
+    
+    public ExecutionPathVisitor(Set<String> indexedFields) {
+        this.indexedFields = indexedFields;
+    }
+    
+    /**
+     * Get the execution path of each term of a query
+     * 
+     * @param script
+     *            the planned query tree
+     * @param indexedFields
+     *            the indexed fields
+     * @return the execution path of each term, in the order the terms appear in the query
+     */
+    public static List<Map.Entry<JexlNode,Path>> getPaths(JexlNode script, Set<String> indexedFields) {
+        ExecutionPathVisitor visitor = new ExecutionPathVisitor(indexedFields);
+        script.jjtAccept(visitor, null);
+        return visitor.paths;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        if (!visitMarker(node, data)) {
+            super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTReferenceExpression node, Object data) {
+        if (!visitMarker(node, data)) {
+            super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTAndNode node, Object data) {
+        if (!visitMarker(node, data)) {
+            super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTNotNode node, Object data) {
+        return super.visit(node, Path.EVALUATION_ONLY);
+    }
+    
+    @Override
+    public Object visit(ASTEQNode node, Object data) {
+        addTerm(node, data, true);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTERNode node, Object data) {
+        addTerm(node, data, true);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTNENode node, Object data) {
+        addTerm(node, Path.EVALUATION_ONLY, false);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTNRNode node, Object data) {
+        addTerm(node, Path.EVALUATION_ONLY, false);
+        return data;
+    }
+    
+    // ranges outside of a bounded range marker cannot be looked up in the index
+    
+    @Override
+    public Object visit(ASTLTNode node, Object data) {
+        addTerm(node, data, false);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTGTNode node, Object data) {
+        addTerm(node, data, false);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTLENode node, Object data) {
+        addTerm(node, data, false);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTGENode node, Object data) {
+        addTerm(node, data, false);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTFunctionNode node, Object data) {
+        addTerm(node, data, false);
+        return data;
+    }
+    
+    /**
+     * Visit the sources of a marker with the path the marker implies
+     * 
+     * @return true if the node is a marker, or false otherwise
+     */
+    private boolean visitMarker(JexlNode node, Object data) {
+        QueryPropertyMarker.Instance instance = QueryPropertyMarker.findInstance(node);
+        if (!instance.isAnyType()) {
+            return false;
+        }
+        
+        Path path = (Path) data;
+        if (path != Path.EVALUATION_ONLY) {
+            if (instance.isType(ASTEvaluationOnly.class)) {
+                path = Path.EVALUATION_ONLY;
+            } else if (instance.isIvarator()) {
+                path = Path.IVARATOR;
+            } else if (instance.isDelayedPredicate()) {
+                path = Path.DELAYED;
+            }
+        }
+        
+        // a bounded range is looked up as one term
+        if (instance.isType(BoundedRange.class)) {
+            addTerm(node, path, true);
+            return true;
+        }
+        
+        int terms = paths.size();
+        for (JexlNode source : instance.getSources()) {
+            source.jjtAccept(this, path);
+        }
+        
+        // the sources of some markers, such as a list of values for an ivarator, are not terms themselves
+        if (paths.size() == terms) {
+            addTerm(node, path, false);
+        }
+        return true;
+    }
+    
+    private void addTerm(JexlNode node, Object data, boolean indexable) {
+        Path path = (Path) data;
+        if (path == null) {
+            path = (indexable && isIndexed(node)) ? Path.INDEX : Path.EVALUATION_ONLY;
+        }
+        paths.add(Maps.immutableEntry(node, path));
+    }
+    
+    private boolean isIndexed(JexlNode node) {
+        Set<String> fields = JexlASTHelper.getIdentifierNames(node);
+        if (indexedFields == null || fields.isEmpty()) {
+            return false;
+        }
+        for (String field : fields) {
+            if (!indexedFields.contains(JexlASTHelper.deconstructIdentifier(field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -6,12 +6,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import datawave.core.iterators.DatawaveFieldIndexListIteratorJexl;
+import datawave.core.iterators.FieldIndexCache;
 import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.data.type.NoOpType;
 import datawave.query.attributes.AttributeFactory;
 import datawave.query.iterator.EventFieldIterator;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import datawave.query.iterator.ivarator.SharedIvaratorCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.Constants;
 import datawave.query.attributes.ValueTuple;
@@ -41,7 +43,9 @@ import datawave.query.iterator.builder.IvaratorBuilder;
 import datawave.query.iterator.builder.NegationBuilder;
 import datawave.query.iterator.builder.OrIteratorBuilder;
 import datawave.query.iterator.builder.TermFrequencyIndexBuilder;
+import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.iterator.profile.QuerySpanCollector;
+import datawave.query.iterator.profile.SourceTrackingIterator;
 import datawave.query.jexl.ArithmeticJexlEngines;
 import datawave.query.jexl.DatawaveJexlContext;
 import datawave.query.jexl.DatawaveJexlEngine;
@@ -146,6 +150,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected List<IvaratorCacheDirConfig> ivaratorCacheDirConfigs;
     protected String queryId;
     protected String scanId;
+    protected String tableName;
     protected String ivaratorCacheSubDirPrefix = "";
     protected long ivaratorCacheScanPersistThreshold = 100000L;
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
@@ -158,6 +163,8 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected SortedKeyValueIterator<Key,Value> unsortedIvaratorSource = null;
     protected int ivaratorCount = 0;
     protected GenericObjectPool<SortedKeyValueIterator<Key,Value>> ivaratorSourcePool = null;
+    protected SharedIvaratorCache sharedIvaratorCache = null;
+    protected String sharedIvaratorCacheVersion = null;
     
     protected TypeMetadata typeMetadata;
     protected EventDataQueryFilter attrFilter;
@@ -189,6 +196,9 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     
     protected QuerySpanCollector querySpanCollector = null;
     
+    // the span that the per field seek and next latencies are recorded into when collecting timing details
+    protected QuerySpan trackingSpan = null;
+    
     protected boolean limitOverride = false;
     // this is final. It will be set by the SatisfactionVisitor and cannot be
     // changed here.
@@ -432,10 +442,10 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     private NestedIterator<Key> buildExceededFromTermFrequency(String identifier, JexlNode rootNode, JexlNode sourceNode, LiteralRange<?> range, Object data) {
         if (limitLookup) {
             ChainableEventDataQueryFilter wrapped = createWrappedTermFrequencyFilter(identifier, sourceNode, attrFilter);
-            NestedIterator<Key> eventFieldIterator = new EventFieldIterator(rangeLimiter, source.deepCopy(env), identifier, new AttributeFactory(
-                            this.typeMetadata), getEventFieldAggregator(identifier, wrapped));
+            NestedIterator<Key> eventFieldIterator = new EventFieldIterator(rangeLimiter, trackSource(source.deepCopy(env), identifier), identifier,
+                            new AttributeFactory(this.typeMetadata), getEventFieldAggregator(identifier, wrapped));
             TermFrequencyIndexBuilder builder = new TermFrequencyIndexBuilder();
-            builder.setSource(source.deepCopy(env));
+            builder.setSource(trackSource(source.deepCopy(env), identifier));
             builder.setTypeMetadata(typeMetadata);
             builder.setFieldsToAggregate(fieldsToAggregate);
             builder.setTimeFilter(timeFilter);
@@ -581,7 +591,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
             throw new RuntimeException(e);
         }
         builder.setQueryId(queryId);
-        builder.setSource(source.deepCopy(env));
+        builder.setSource(getFieldIndexSource(JexlASTHelper.getIdentifier(node)));
         builder.setTypeMetadata(typeMetadata);
         builder.setFieldsToAggregate(fieldsToAggregate);
         builder.setTimeFilter(timeFilter);
@@ -731,7 +741,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
             if (limitLookup && !negation) {
                 
                 if (!disableFiEval && fieldsToAggregate.contains(identifier)) {
-                    kvIter = source.deepCopy(env);
+                    kvIter = getFieldIndexSource(identifier);
                     seekIndexOnlyDocument(kvIter, node);
                 } else if (disableFiEval && fieldsToAggregate.contains(identifier)) {
                     kvIter = createIndexOnlyKey(node);
@@ -742,7 +752,7 @@ public class IteratorBuildingVisitor extends BaseVisitor {
                 }
                 
             } else {
-                kvIter = source.deepCopy(env);
+                kvIter = getFieldIndexSource(identifier);
                 seekIndexOnlyDocument(kvIter, node);
             }
             
@@ -753,6 +763,34 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return kvIter;
     }
     
+    /**
+     * A copy of the source for an index iterator to scan the field index with, which serves popular terms from the tserver wide {@link FieldIndexCache} when it
+     * is enabled
+     * 
+     * @param field
+     *            the field that the source is scanned for
+     * @return the source
+     */
+    protected SortedKeyValueIterator<Key,Value> getFieldIndexSource(String field) {
+        return trackSource(FieldIndexCache.wrap(source.deepCopy(env), tableName, env), field);
+    }
+    
+    /**
+     * Record the seek and next latencies of a copy of the source in histograms labelled with the field it is scanned for, when collecting timing details
+     * 
+     * @param source
+     *            the copy of the source
+     * @param field
+     *            the field
+     * @return the source, wrapped when timing details are collected
+     */
+    protected SortedKeyValueIterator<Key,Value> trackSource(SortedKeyValueIterator<Key,Value> source, String field) {
+        if (collectTimingDetails && trackingSpan != null && field != null) {
+            return new SourceTrackingIterator(trackingSpan, source, field);
+        }
+        return source;
+    }
+    
     protected SortedKeyValueIterator<Key,Value> createIndexOnlyKey(ASTEQNode node) throws IOException {
         Key newStartKey = getKey(node);
         
@@ -1393,6 +1431,9 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         builder.setQuerySpanCollector(querySpanCollector);
         builder.setSortedUIDs(sortedUIDs);
         builder.setIvaratorSourcePool(ivaratorSourcePool);
+        builder.setSharedIvaratorCache(sharedIvaratorCache);
+        builder.setSharedIvaratorCacheVersion(sharedIvaratorCacheVersion);
+        builder.setTableName(tableName);
         builder.setEnv(env);
         builder.setNode(rootNode);
         
@@ -1496,6 +1537,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setTrackingSpan(QuerySpan trackingSpan) {
+        this.trackingSpan = trackingSpan;
+        return this;
+    }
+    
     public IteratorBuildingVisitor limitOverride(boolean limitOverride) {
         this.limitOverride = limitOverride;
         return this;
@@ -1579,6 +1625,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setTableName(String tableName) {
+        this.tableName = tableName;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setIvaratorCacheSubDirPrefix(String ivaratorCacheSubDirPrefix) {
         this.ivaratorCacheSubDirPrefix = (ivaratorCacheSubDirPrefix == null ? "" : ivaratorCacheSubDirPrefix);
         return this;
@@ -1639,6 +1690,16 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setSharedIvaratorCache(SharedIvaratorCache sharedIvaratorCache) {
+        this.sharedIvaratorCache = sharedIvaratorCache;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setSharedIvaratorCacheVersion(String sharedIvaratorCacheVersion) {
+        this.sharedIvaratorCacheVersion = sharedIvaratorCacheVersion;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setIncludes(Collection<String> includes) {
         this.includeReferences = Sets.newHashSet(includes);
         this.includeReferences.add(Constants.ANY_FIELD);
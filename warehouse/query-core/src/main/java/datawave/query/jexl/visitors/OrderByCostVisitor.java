@@ -0,0 +1,210 @@
+package datawave.query.jexl.visitors;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.planner.pushdown.CostEstimator;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.util.MetadataHelper;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParserTreeConstants;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.commons.jexl2.parser.JexlNodes.children;
+import static org.apache.commons.jexl2.parser.JexlNodes.id;
+
+/**
+ * Orders the children of every AND node in a query by their estimated cost, so that the cheapest terms are looked up and evaluated first. The cost of a term
+ * is the number of documents it is estimated to match, using the {@link CostEstimator}. The cost of an AND is the cost of its cheapest child, and the cost of
+ * an OR is the sum of the costs of its children. Ivarators are costlier than any index lookup, and terms which can only be evaluated against the documents are
+ * costlier still.
+ * <p>
+ * When a child of an AND is estimated to be more than {@link ShardQueryConfiguration#getCostBasedDelayRatio()} times costlier than its cheapest sibling, it is
+ * delayed so that it is evaluated against the candidates of its siblings instead of being looked up in the global index.
+ */
+public class OrderByCostVisitor extends BaseVisitor {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(OrderByCostVisitor.class);
+    
+    // ivarators scan the field index, which is costlier than any global index lookup
+    protected static final long IVARATOR_COST = Long.MAX_VALUE / 2;
+    
+    // terms which can only be evaluated against the documents
+    protected static final long EVALUATION_COST = Long.MAX_VALUE;
+    
+    protected final ShardQueryConfiguration config;
+    protected final CostEstimator estimator;
+    
+    // terms on these fields cannot be evaluated against the documents, so they are never delayed
+    private final Set<String> nonEventFields = new HashSet<>();
+    
+    private final Map<JexlNode,Long> costs = new IdentityHashMap<>();
+    
+    public OrderByCostVisitor(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelper helper) throws TableNotFoundException {
+        this.config = config;
+        this.estimator = new CostEstimator(config, scannerFactory, helper);
+        this.nonEventFields.addAll(helper.getNonEventFields(config.getDatatypeFilter()));
+        this.nonEventFields.addAll(helper.getIndexOnlyFields(config.getDatatypeFilter()));
+    }
+    
+    /**
+     * Order the terms of the query by their estimated cost, and delay those that are far costlier than their siblings
+     * 
+     * @param script
+     *            the query tree, which is modified
+     * @param config
+     *            the query configuration
+     * @param scannerFactory
+     *            the scanner factory
+     * @param helper
+     *            the metadata helper
+     * @param <T>
+     *            the Jexl node type
+     * @return the ordered query tree
+     * @throws TableNotFoundException
+     *             if the metadata table does not exist
+     */
+    public static <T extends JexlNode> T order(T script, ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelper helper)
+                    throws TableNotFoundException {
+        OrderByCostVisitor visitor = new OrderByCostVisitor(config, scannerFactory, helper);
+        script.jjtAccept(visitor, null);
+        return script;
+    }
+    
+    @Override
+    public Object visit(ASTAndNode node, Object data) {
+        // order the nested nodes first
+        node.childrenAccept(this, data);
+        
+        List<JexlNode> ordered = new ArrayList<>(Arrays.asList(children(node)));
+        // the sort is stable, so terms of equal cost keep their order
+        ordered.sort(Comparator.comparingLong(this::getCost));
+        children(node, ordered.toArray(new JexlNode[0]));
+        
+        // terms within a negation are not looked up in the global index
+        if (!Boolean.TRUE.equals(data) && config.getCostBasedDelayRatio() > 0 && ordered.size() > 1) {
+            long cheapest = getCost(ordered.get(0));
+            if (cheapest > 0 && cheapest < IVARATOR_COST) {
+                for (JexlNode child : ordered.subList(1, ordered.size())) {
+                    if (isDelayable(child, cheapest)) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Delaying " + JexlStringBuildingVisitor.buildQuery(child) + " with an estimated cost of " + getCost(child)
+                                            + " against the cheapest cost of " + cheapest);
+                        }
+                        ASTDelayedPredicate.create(child);
+                    }
+                }
+            }
+        }
+        
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTNotNode node, Object data) {
+        node.childrenAccept(this, Boolean.TRUE);
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        // the structure of marker nodes must be left alone
+        if (!QueryPropertyMarker.findInstance(node).isAnyType()) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTReferenceExpression node, Object data) {
+        if (!QueryPropertyMarker.findInstance(node).isAnyType()) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    /**
+     * A term can be delayed if it could be looked up in the global index but is far costlier than the cheapest of its siblings, and all of its fields can be
+     * evaluated against the documents
+     */
+    private boolean isDelayable(JexlNode node, long cheapest) {
+        long cost = getCost(node);
+        if (cost >= IVARATOR_COST || cost <= cheapest * config.getCostBasedDelayRatio() || QueryPropertyMarker.findInstance(node).isAnyType()) {
+            return false;
+        }
+        for (String field : JexlASTHelper.getIdentifierNames(node)) {
+            if (nonEventFields.contains(JexlASTHelper.deconstructIdentifier(field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    protected long getCost(JexlNode node) {
+        Long cost = costs.get(node);
+        if (cost == null) {
+            cost = computeCost(node);
+            costs.put(node, cost);
+        }
+        return cost;
+    }
+    
+    private long computeCost(JexlNode node) {
+        QueryPropertyMarker.Instance instance = QueryPropertyMarker.findInstance(node);
+        if (instance.isAnyType()) {
+            return (instance.isDelayedPredicate() && !instance.isIvarator()) ? EVALUATION_COST : IVARATOR_COST;
+        }
+        
+        switch (id(node)) {
+            case ParserTreeConstants.JJTEQNODE:
+            case ParserTreeConstants.JJTERNODE:
+                return Math.max(0L, estimator.computeCostForSubtree(node).totalCost());
+            case ParserTreeConstants.JJTANDNODE: {
+                long cost = EVALUATION_COST;
+                for (JexlNode child : children(node)) {
+                    cost = Math.min(cost, getCost(child));
+                }
+                return cost;
+            }
+            case ParserTreeConstants.JJTORNODE: {
+                long cost = 0L;
+                // an OR is only as executable as its least executable child
+                long unexecutableCost = 0L;
+                for (JexlNode child : children(node)) {
+                    long childCost = getCost(child);
+                    if (childCost >= IVARATOR_COST) {
+                        unexecutableCost = Math.max(unexecutableCost, childCost);
+                    } else {
+                        cost = Math.min(cost + childCost, IVARATOR_COST - 1);
+                    }
+                }
+                return unexecutableCost > 0 ? unexecutableCost : cost;
+            }
+            case ParserTreeConstants.JJTREFERENCE:
+            case ParserTreeConstants.JJTREFERENCEEXPRESSION:
+            case ParserTreeConstants.JJTJEXLSCRIPT:
+                if (node.jjtGetNumChildren() == 1) {
+                    return getCost(node.jjtGetChild(0));
+                }
+                return EVALUATION_COST;
+            default:
+                return EVALUATION_COST;
+        }
+    }
+}
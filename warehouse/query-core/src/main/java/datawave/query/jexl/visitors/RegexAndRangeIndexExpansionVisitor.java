@@ -0,0 +1,150 @@
+package datawave.query.jexl.visitors;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.exceptions.EmptyUnfieldedTermExpansionException;
+import datawave.query.exceptions.IllegalRangeArgumentException;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.JexlNodeFactory;
+import datawave.query.jexl.LiteralRange;
+import datawave.query.jexl.lookups.IndexLookup;
+import datawave.query.jexl.lookups.IndexLookupMap;
+import datawave.query.jexl.lookups.ShardIndexQueryTableStaticMethods;
+import datawave.query.jexl.nodes.BoundedRange;
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import datawave.query.jexl.nodes.ExceededTermThresholdMarkerJexlNode;
+import datawave.query.jexl.nodes.ExceededValueThresholdMarkerJexlNode;
+import datawave.query.jexl.nodes.IndexHoleMarkerJexlNode;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.util.MetadataHelper;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTEvaluationOnly;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParserTreeConstants;
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Visits a Jexl tree, looks for regex terms and bounded ranges, and replaces them with concrete values from the index in a single pass. This does the work of
+ * the {@link RegexIndexExpansionVisitor} followed by the {@link BoundedRangeIndexExpansionVisitor}, but all of the index lookups are submitted to one executor
+ * as the tree is traversed and are waited on together, so the regex and range lookups run concurrently instead of one round after the other.
+ */
+public class RegexAndRangeIndexExpansionVisitor extends RegexIndexExpansionVisitor {
+    private static final Logger log = ThreadConfigurableLogger.getLogger(RegexAndRangeIndexExpansionVisitor.class);
+    
+    private final JexlASTHelper.RangeFinder rangeFinder;
+    
+    // bounded ranges are only expanded when expanding fields or values
+    private final boolean expandRanges;
+    
+    // the bounded range nodes which have been handed an index lookup
+    private final Set<JexlNode> rangeNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    // the depth of delayed markers we are currently within, where bounded ranges are not expanded
+    private int delayedDepth = 0;
+    
+    // The constructor should not be made public so that we can ensure that the executor is setup and shutdown correctly
+    protected RegexAndRangeIndexExpansionVisitor(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelper helper,
+                    Map<String,IndexLookup> lookupMap) throws TableNotFoundException {
+        super(config, scannerFactory, helper, lookupMap, "RegexAndRangeIndexExpansion");
+        
+        this.rangeFinder = JexlASTHelper.findRange().indexedOnly(this.config.getDatatypeFilter(), this.helper).notDelayed();
+        this.expandRanges = config.isExpandFields() || config.isExpandValues();
+    }
+    
+    /**
+     * Visits the Jexl script, looks for regex terms and bounded ranges, and replaces them with concrete values from the index
+     * 
+     * @param config
+     *            the query configuration, not null
+     * @param scannerFactory
+     *            the scanner factory, not null
+     * @param helper
+     *            the metadata helper, not null
+     * @param lookupMap
+     *            the index lookup map to use (or reuse), may be null
+     * @param script
+     *            the Jexl script to expand, not null
+     * @param <T>
+     *            the Jexl node type
+     * @return a rebuilt Jexl tree with it's regex terms and bounded ranges expanded
+     * @throws TableNotFoundException
+     *             if we fail to retrieve fields from the metadata helper
+     */
+    public static <T extends JexlNode> T expandRegexAndRanges(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelper helper,
+                    Map<String,IndexLookup> lookupMap, T script) throws TableNotFoundException {
+        RegexAndRangeIndexExpansionVisitor visitor = new RegexAndRangeIndexExpansionVisitor(config, scannerFactory, helper, lookupMap);
+        return ensureTreeNotEmpty(visitor.expand(script));
+    }
+    
+    private static <T extends JexlNode> T ensureTreeNotEmpty(T script) throws EmptyUnfieldedTermExpansionException {
+        if (script.jjtGetNumChildren() == 0) {
+            log.warn("Did not find any matches in index for the expansion of unfielded terms.");
+            throw new EmptyUnfieldedTermExpansionException("Did not find any matches in index for the expansion of unfielded terms.");
+        }
+        return script;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        QueryPropertyMarker.Instance instance = QueryPropertyMarker.findInstance(node);
+        
+        // regex terms are still expanded within delayed nodes, but bounded ranges are not
+        if (instance.isAnyTypeOf(IndexHoleMarkerJexlNode.class, ASTEvaluationOnly.class, ExceededValueThresholdMarkerJexlNode.class,
+                        ExceededTermThresholdMarkerJexlNode.class, ExceededOrThresholdMarkerJexlNode.class)) {
+            delayedDepth++;
+            try {
+                return super.visit(node, data);
+            } finally {
+                delayedDepth--;
+            }
+        }
+        // handle bounded range
+        else if (expandRanges && delayedDepth == 0 && instance.isType(BoundedRange.class)) {
+            LiteralRange<?> range = rangeFinder.getRange(node);
+            if (range != null) {
+                try {
+                    rangeNodes.add(node);
+                    return buildIndexLookup(node, true, false, () -> createLookup(range));
+                } catch (IllegalRangeArgumentException e) {
+                    rangeNodes.remove(node);
+                    log.error("Cannot expand ["
+                                    + JexlStringBuildingVisitor.buildQuery(node)
+                                    + "] because it creates an invalid Accumulo Range. This is likely due to bad user input or failed normalization. This range will be ignored.",
+                                    e);
+                }
+            }
+        }
+        
+        return super.visit(node, data);
+    }
+    
+    @Override
+    protected boolean shouldExpand(JexlNode node) {
+        return rangeNodes.contains(node) || super.shouldExpand(node);
+    }
+    
+    protected IndexLookup createLookup(LiteralRange<?> range) {
+        return ShardIndexQueryTableStaticMethods.expandRange(config, scannerFactory, range, executor);
+    }
+    
+    @Override
+    protected void rebuildFutureJexlNode(FutureJexlNode futureJexlNode) {
+        JexlNode currentNode = futureJexlNode.getOrigNode();
+        if (rangeNodes.contains(currentNode)) {
+            IndexLookupMap fieldsToTerms = futureJexlNode.getLookup().lookup();
+            
+            futureJexlNode.setRebuiltNode(JexlNodeFactory.createNodeTreeFromFieldsToValues(JexlNodeFactory.ContainerType.OR_NODE, new ASTEQNode(
+                            ParserTreeConstants.JJTEQNODE), currentNode, fieldsToTerms, expandFields, expandValues, futureJexlNode.isKeepOriginalNode()));
+        } else {
+            super.rebuildFutureJexlNode(futureJexlNode);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import datawave.query.function.JexlEvaluation;
 import datawave.query.index.lookup.IndexStream.StreamContext;
 import datawave.query.index.lookup.RangeStream;
 import datawave.query.iterator.CloseableListIterable;
+import datawave.query.iterator.LoadAverageWatchIterator;
 import datawave.query.iterator.QueryIterator;
 import datawave.query.iterator.QueryOptions;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
@@ -47,7 +48,6 @@ import datawave.query.jexl.nodes.BoundedRange;
 import datawave.query.jexl.nodes.ExceededValueThresholdMarkerJexlNode;
 import datawave.query.jexl.visitors.AddShardsAndDaysVisitor;
 import datawave.query.jexl.visitors.BoundedRangeDetectionVisitor;
-import datawave.query.jexl.visitors.BoundedRangeIndexExpansionVisitor;
 import datawave.query.jexl.visitors.CaseSensitivityVisitor;
 import datawave.query.jexl.visitors.ConjunctionEliminationVisitor;
 import datawave.query.jexl.visitors.DepthVisitor;
@@ -70,6 +70,7 @@ import datawave.query.jexl.visitors.IvaratorRequiredVisitor;
 import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.jexl.visitors.NoExpansionFunctionVisitor;
 import datawave.query.jexl.visitors.NodeTypeCountVisitor;
+import datawave.query.jexl.visitors.OrderByCostVisitor;
 import datawave.query.jexl.visitors.PrintingVisitor;
 import datawave.query.jexl.visitors.PullupUnexecutableNodesVisitor;
 import datawave.query.jexl.visitors.PushFunctionsIntoExceededValueRanges;
@@ -81,7 +82,7 @@ import datawave.query.jexl.visitors.QueryOptionsFromQueryVisitor;
 import datawave.query.jexl.visitors.QueryPropertyMarkerSourceConsolidator;
 import datawave.query.jexl.visitors.QueryPruningVisitor;
 import datawave.query.jexl.visitors.RegexFunctionVisitor;
-import datawave.query.jexl.visitors.RegexIndexExpansionVisitor;
+import datawave.query.jexl.visitors.RegexAndRangeIndexExpansionVisitor;
 import datawave.query.jexl.visitors.RewriteNegationsVisitor;
 import datawave.query.jexl.visitors.RewriteNullFunctionsVisitor;
 import datawave.query.jexl.visitors.SetMembershipVisitor;
@@ -97,6 +98,8 @@ import datawave.query.jexl.visitors.whindex.WhindexVisitor;
 import datawave.query.model.QueryModel;
 import datawave.query.planner.comparator.DefaultQueryPlanComparator;
 import datawave.query.planner.comparator.GeoWaveQueryPlanComparator;
+import datawave.query.planner.comparator.MatchedTermsQueryPlanComparator;
+import datawave.query.planner.comparator.RecentShardsQueryPlanComparator;
 import datawave.query.planner.pushdown.PushDownVisitor;
 import datawave.query.planner.pushdown.rules.PushDownRule;
 import datawave.query.planner.rules.NodeTransformRule;
@@ -104,6 +107,7 @@ import datawave.query.planner.rules.NodeTransformVisitor;
 import datawave.query.postprocessing.tf.Function;
 import datawave.query.postprocessing.tf.TermOffsetPopulator;
 import datawave.query.tables.ScannerFactory;
+import datawave.query.statsd.QueryStatsDClient;
 import datawave.query.util.DateIndexHelper;
 import datawave.query.util.MetadataHelper;
 import datawave.query.util.QueryStopwatch;
@@ -142,6 +146,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -306,6 +311,9 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
     // handles boilerplate operations that surround a visitor's execution (e.g., timers, logging, validating)
     protected TimedVisitorManager visitorManager;
     
+    // caches the plans streamed from the global index, if set
+    protected QueryPlanCache queryPlanCache = null;
+    
     public DefaultQueryPlanner() {
         this(Long.MAX_VALUE);
     }
@@ -341,6 +349,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         setDocsToCombineForEvaluation(other.getDocsToCombineForEvaluation());
         setPushdownThreshold(other.getPushdownThreshold());
         this.visitorManager = other.visitorManager;
+        setQueryPlanCache(other.getQueryPlanCache());
     }
     
     public void setMetadataHelper(final MetadataHelper metadataHelper) {
@@ -437,7 +446,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         Tuple2<CloseableIterable<QueryPlan>,Boolean> queryRanges = null;
         
         if (!config.isGeneratePlanOnly()) {
-            queryRanges = getQueryRanges(scannerFactory, metadataHelper, config, config.getQueryTree());
+            queryRanges = getCachedQueryRanges(scannerFactory, metadataHelper, config);
             
             // a full table scan is required if
             isFullTable = queryRanges.second();
@@ -503,10 +512,26 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
                 if (!geoFields.isEmpty()) {
                     queryPlanComparators = new ArrayList<>();
                     queryPlanComparators.add(new GeoWaveQueryPlanComparator(geoFields));
-                    queryPlanComparators.add(new DefaultQueryPlanComparator());
                 }
             }
             
+            // order the plans so that the shards most likely to return results first are scanned first
+            if (config.isSortQueryPlansByMatchedTerms() || config.isSortQueryPlansByRecency()) {
+                if (null == queryPlanComparators) {
+                    queryPlanComparators = new ArrayList<>();
+                }
+                if (config.isSortQueryPlansByMatchedTerms()) {
+                    queryPlanComparators.add(new MatchedTermsQueryPlanComparator());
+                }
+                if (config.isSortQueryPlansByRecency()) {
+                    queryPlanComparators.add(new RecentShardsQueryPlanComparator());
+                }
+            }
+            
+            if (null != queryPlanComparators) {
+                queryPlanComparators.add(new DefaultQueryPlanComparator());
+            }
+            
             // @formatter:off
             return new ThreadedRangeBundler.Builder()
                     .setOriginal(queryData)
@@ -521,6 +546,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
                     .setNumRangesToBuffer(config.getNumRangesToBuffer())
                     .setRangeBufferTimeoutMillis(config.getRangeBufferTimeoutMillis())
                     .setRangeBufferPollMillis(config.getRangeBufferPollMillis())
+                    .setMaxRangeQueueBytes(config.getMaxRangeQueueBytes())
                     .build();
             // @formatter:on
         } else {
@@ -545,6 +571,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         addOption(cfg, QueryOptions.TERM_FREQUENCIES_REQUIRED, Boolean.toString(config.isTermFrequenciesRequired()), true);
         addOption(cfg, QueryOptions.QUERY, newQueryString, false);
         addOption(cfg, QueryOptions.QUERY_ID, config.getQuery().getId().toString(), false);
+        addOption(cfg, QueryOptions.TABLE_NAME, config.getShardTableName(), false);
         addOption(cfg, QueryOptions.FULL_TABLE_SCAN_ONLY, Boolean.toString(isFullTable), false);
         addOption(cfg, QueryOptions.TRACK_SIZES, Boolean.toString(config.isTrackSizes()), true);
         addOption(cfg, QueryOptions.ACTIVE_QUERY_LOG_NAME, config.getActiveQueryLogName(), true);
@@ -784,7 +811,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         
         config.setQueryTree(timedPruneIsNotNullNodes(timers, config.getQueryTree()));
         
-        config.setQueryTree(processTree(config.getQueryTree(), config, settings, metadataHelper, scannerFactory, queryData, timers, queryModel));
+        config.setQueryTree(getCachedProcessedTree(config, settings, metadataHelper, scannerFactory, queryData, timers, queryModel));
         
         // ExpandCompositeTerms was here
         
@@ -814,6 +841,143 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return config.getQueryTree();
     }
     
+    /**
+     * Get the fully expanded query tree from the query plan cache when it is set and the expansion is cached, which skips the expansions against the global
+     * index. Otherwise the tree is expanded by {@link #processTree(ASTJexlScript, ShardQueryConfiguration, Query, MetadataHelper, ScannerFactory, QueryData,
+     * QueryStopwatch, QueryModel)}, and the expansion is cached.
+     *
+     * @param config
+     *            the query configuration, with the query tree to expand
+     * @param settings
+     *            the query settings
+     * @param metadataHelper
+     *            the metadata helper
+     * @param scannerFactory
+     *            the scanner factory
+     * @param queryData
+     *            the query data
+     * @param timers
+     *            the query timers
+     * @param queryModel
+     *            the query model
+     * @return the fully expanded query tree
+     * @throws DatawaveQueryException
+     *             if the query cannot be expanded
+     */
+    protected ASTJexlScript getCachedProcessedTree(ShardQueryConfiguration config, Query settings, MetadataHelper metadataHelper,
+                    ScannerFactory scannerFactory, QueryData queryData, QueryStopwatch timers, QueryModel queryModel) throws DatawaveQueryException {
+        if (null == queryPlanCache) {
+            return processTree(config.getQueryTree(), config, settings, metadataHelper, scannerFactory, queryData, timers, queryModel);
+        }
+        
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, JexlStringBuildingVisitor.buildQuery(config.getQueryTree()),
+                        getQueryExpansionSettings(config, settings, metadataHelper).toArray());
+        String expanded = queryPlanCache.getExpandedQuery(key);
+        recordQueryPlanCacheUse(config, "query_expansion_cache", null != expanded);
+        if (null != expanded) {
+            TraceStopwatch stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Get the expanded query from the query plan cache");
+            config.setQueryTree(parseQueryAndValidatePattern(expanded, stopwatch));
+            stopwatch.stop();
+            
+            // the expansions would also have loaded the field metadata of the query
+            timedFetchDatatypes(timers, "Fetch Required Datatypes", config.getQueryTree(), config);
+            return config.getQueryTree();
+        }
+        
+        ASTJexlScript processed = processTree(config.getQueryTree(), config, settings, metadataHelper, scannerFactory, queryData, timers, queryModel);
+        queryPlanCache.putExpandedQuery(key, JexlStringBuildingVisitor.buildQuery(processed));
+        return processed;
+    }
+    
+    /**
+     * The settings of this planner which shape the query plans, beyond those of the query configuration that {@link QueryPlanCache#createKey} already keys on
+     *
+     * @return the settings
+     */
+    protected List<Object> getQueryPlanSettings() {
+        return Arrays.asList(getClass(), rangeStreamClass, createUidsIteratorClass, (null == uidIntersector ? null : uidIntersector.getClass()));
+    }
+    
+    /**
+     * The settings and field metadata which shape the expansions of a query against the global index, along with the settings which shape its plans
+     *
+     * @param config
+     *            the query configuration
+     * @param settings
+     *            the query settings
+     * @param metadataHelper
+     *            the metadata helper
+     * @return the settings
+     */
+    protected List<Object> getQueryExpansionSettings(ShardQueryConfiguration config, Query settings, MetadataHelper metadataHelper) {
+        Set<String> datatypeFilter = config.getDatatypeFilter();
+        Set<String> fieldTypes = new TreeSet<>();
+        try {
+            for (Entry<String,Type<?>> entry : metadataHelper.getFieldsToDatatypes(datatypeFilter).entries()) {
+                fieldTypes.add(entry.getKey() + ':' + entry.getValue().getClass().getName());
+            }
+            List<String> transformRules = new ArrayList<>();
+            for (NodeTransformRule rule : getTransformRules()) {
+                transformRules.add(rule.getClass().getName());
+            }
+            boolean ivarators = null != config.getIvaratorCacheDirConfigs() && !config.getIvaratorCacheDirConfigs().isEmpty();
+            
+            // @formatter:off
+            return Arrays.asList(
+                            getQueryPlanSettings(),
+                            (null == settings.getBeginDate() ? 0L : settings.getBeginDate().getTime()),
+                            metadataHelper.getIndexedFields(datatypeFilter),
+                            metadataHelper.getReverseIndexedFields(datatypeFilter),
+                            metadataHelper.getIndexOnlyFields(datatypeFilter),
+                            fieldTypes,
+                            config.getMaxUnfieldedExpansionThreshold(),
+                            config.getMaxValueExpansionThreshold(),
+                            config.getMaxOrExpansionThreshold(),
+                            config.getMaxOrExpansionFstThreshold(),
+                            config.getMaxOrRangeThreshold(),
+                            config.getMaxOrRangeIvarators(),
+                            config.getMaxRangesPerRangeIvarator(),
+                            config.isExpandAllTerms(),
+                            config.isExpandFields(),
+                            config.isExpandValues(),
+                            config.isExpandUnfieldedNegations(),
+                            config.getMinSelectivity(),
+                            config.isCostBasedPlanning(),
+                            ivarators,
+                            disableAnyFieldLookup,
+                            disableBoundedLookup,
+                            disableCompositeFields,
+                            disableExpandIndexFunction,
+                            disableTestNonExistentFields,
+                            disableWhindexFieldMappings,
+                            executableExpansion,
+                            reduceQuery,
+                            transformRules);
+            // @formatter:on
+        } catch (InstantiationException | IllegalAccessException | TableNotFoundException e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.METADATA_ACCESS_ERROR, e);
+            throw new DatawaveFatalQueryException(qe);
+        }
+    }
+    
+    /**
+     * Record the use of the query plan cache in the live metrics of the query when they are sent to statsd
+     *
+     * @param config
+     *            the query configuration
+     * @param cache
+     *            the name of the cache that was checked
+     * @param hit
+     *            whether the cache held the query
+     */
+    protected void recordQueryPlanCacheUse(ShardQueryConfiguration config, String cache, boolean hit) {
+        if (config.getSendTimingToStatsd() && null != config.getQuery()) {
+            QueryStatsDClient client = new QueryStatsDClient(config.getQuery().getId().toString(), config.getStatsdHost(), config.getStatsdPort(),
+                            config.getStatsdMaxQueueSize());
+            client.count(cache + (hit ? "_hits" : "_misses"), 1);
+        }
+    }
+    
     protected ASTJexlScript processTree(final ASTJexlScript originalQueryTree, ShardQueryConfiguration config, Query settings, MetadataHelper metadataHelper,
                     ScannerFactory scannerFactory, QueryData queryData, QueryStopwatch timers, QueryModel queryModel) throws DatawaveQueryException {
         config.setQueryTree(originalQueryTree);
@@ -906,15 +1070,11 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             try {
                 Map<String,IndexLookup> indexLookupMap = new HashMap<>();
                 
-                // Check if there is any regex to expand.
+                // Check if there is any regex or bounded ranges to expand, and expand them together so their index lookups run concurrently.
                 NodeTypeCount nodeCount = NodeTypeCountVisitor.countNodes(config.getQueryTree());
-                if (nodeCount.hasAny(ASTNRNode.class, ASTERNode.class)) {
-                    config.setQueryTree(timedExpandRegex(timers, "Expand Regex", config.getQueryTree(), config, metadataHelper, scannerFactory, indexLookupMap));
-                }
-                
-                // Check if there are any bounded ranges to expand.
-                if (nodeCount.isPresent(BoundedRange.class)) {
-                    config.setQueryTree(timedExpandRanges(timers, "Expand Ranges", config.getQueryTree(), config, metadataHelper, scannerFactory));
+                if (nodeCount.hasAny(ASTNRNode.class, ASTERNode.class, BoundedRange.class)) {
+                    config.setQueryTree(timedExpandRegexAndRanges(timers, "Expand Regex and Ranges", config.getQueryTree(), config, metadataHelper,
+                                    scannerFactory, indexLookupMap));
                 }
                 
                 // NOTE: GeoWavePruningVisitor should run before QueryPruningVisitor. If it runs after, there is a chance
@@ -977,6 +1137,11 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             }
         }
         
+        // now that the terms have been expanded, order them by their estimated cost and delay those far costlier than their siblings
+        if (config.isCostBasedPlanning()) {
+            config.setQueryTree(timedOrderByCost(timers, config.getQueryTree(), config, metadataHelper, scannerFactory));
+        }
+        
         return config.getQueryTree();
     }
     
@@ -1422,6 +1587,17 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return config.getQueryTree();
     }
     
+    protected ASTJexlScript timedOrderByCost(QueryStopwatch timers, final ASTJexlScript script, ShardQueryConfiguration config, MetadataHelper metadataHelper,
+                    ScannerFactory scannerFactory) throws DatawaveQueryException {
+        return visitorManager.timedVisit(timers, "Order Terms By Cost", () -> {
+            try {
+                return OrderByCostVisitor.order(script, config, scannerFactory, metadataHelper);
+            } catch (TableNotFoundException e) {
+                throw new DatawaveQueryException("Failed to order terms by cost", e);
+            }
+        });
+    }
+    
     protected ASTJexlScript timedForceFieldToFieldComparison(QueryStopwatch timers, final ASTJexlScript script) throws DatawaveQueryException {
         return visitorManager.timedVisit(timers, "Force Field-to-Field Comparison to Evaluation Only",
                         () -> (FieldToFieldComparisonVisitor.forceEvaluationOnly(script)));
@@ -1482,35 +1658,17 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return containsIndexOnlyFields;
     }
     
-    protected ASTJexlScript timedExpandRegex(QueryStopwatch timers, String stage, final ASTJexlScript script, ShardQueryConfiguration config,
+    protected ASTJexlScript timedExpandRegexAndRanges(QueryStopwatch timers, String stage, final ASTJexlScript script, ShardQueryConfiguration config,
                     MetadataHelper metadataHelper, ScannerFactory scannerFactory, Map<String,IndexLookup> indexLookupMap) throws DatawaveQueryException {
         return visitorManager.timedVisit(timers, stage, () -> {
             try {
-                return RegexIndexExpansionVisitor.expandRegex(config, scannerFactory, metadataHelper, indexLookupMap, script);
+                return RegexAndRangeIndexExpansionVisitor.expandRegexAndRanges(config, scannerFactory, metadataHelper, indexLookupMap, script);
             } catch (TableNotFoundException e) {
-                throw new DatawaveQueryException("Failed to Expand Ranges", e);
+                throw new DatawaveQueryException("Failed to Expand Regex and Ranges", e);
             }
         });
     }
     
-    private ASTJexlScript timedExpandRanges(QueryStopwatch timers, String stage, final ASTJexlScript script, ShardQueryConfiguration config,
-                    MetadataHelper metadataHelper, ScannerFactory scannerFactory) throws DatawaveQueryException {
-        config.setQueryTree(script);
-        TraceStopwatch innerStopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - " + stage);
-        try {
-            config.setQueryTree(BoundedRangeIndexExpansionVisitor.expandBoundedRanges(config, scannerFactory, metadataHelper, config.getQueryTree()));
-        } catch (TableNotFoundException e) {
-            throw new DatawaveQueryException("Failed to Expand Ranges", e);
-        }
-        
-        if (log.isDebugEnabled()) {
-            logQuery(config.getQueryTree(), "Query after expanding ranges:");
-        }
-        
-        innerStopwatch.stop();
-        return config.getQueryTree();
-    }
-    
     protected ASTJexlScript timedAddDelayedPredicates(QueryStopwatch timers, String stage, final ASTJexlScript script, ShardQueryConfiguration config,
                     MetadataHelper metadataHelper, Set<String> indexedFields, Set<String> indexOnlyFields, Set<String> nonEventFields, List<String> debugOutput) {
         TraceStopwatch stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - " + stage);
@@ -1554,27 +1712,13 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         // predicates based on cost...
         config.setExpandAllTerms(true);
         
-        // Check if there is any regex to expand after pulling up delayed predicates.
+        // Check if there is any regex or bounded ranges to expand after pulling up delayed predicates.
         NodeTypeCount nodeCount = NodeTypeCountVisitor.countNodes(config.getQueryTree());
-        if (nodeCount.hasAny(ASTNRNode.class, ASTERNode.class)) {
-            config.setQueryTree(RegexIndexExpansionVisitor.expandRegex(config, scannerFactory, helper, indexLookupMap, config.getQueryTree()));
-            if (log.isDebugEnabled()) {
-                logQuery(config.getQueryTree(), "Query after expanding regex again:");
-            }
-        }
-        
-        // Check if there are any bounded ranges to expand.
-        if (nodeCount.isPresent(BoundedRange.class)) {
-            
-            try {
-                config.setQueryTree(BoundedRangeIndexExpansionVisitor.expandBoundedRanges(config, scannerFactory, metadataHelper, config.getQueryTree()));
-            } catch (TableNotFoundException e) {
-                QueryException qe = new QueryException(DatawaveErrorCode.METADATA_ACCESS_ERROR, e);
-                throw new DatawaveFatalQueryException(qe);
-            }
-            
+        if (nodeCount.hasAny(ASTNRNode.class, ASTERNode.class, BoundedRange.class)) {
+            config.setQueryTree(RegexAndRangeIndexExpansionVisitor.expandRegexAndRanges(config, scannerFactory, helper, indexLookupMap,
+                            config.getQueryTree()));
             if (log.isDebugEnabled()) {
-                logQuery(config.getQueryTree(), "Query after expanding ranges again:");
+                logQuery(config.getQueryTree(), "Query after expanding regex and ranges again:");
             }
         }
         
@@ -2031,12 +2175,42 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
                         addOption(cfg, QueryOptions.IVARATOR_NUM_RETRIES, Integer.toString(config.getIvaratorNumRetries()), false);
                         addOption(cfg, QueryOptions.IVARATOR_PERSIST_VERIFY, Boolean.toString(config.isIvaratorPersistVerify()), false);
                         addOption(cfg, QueryOptions.IVARATOR_PERSIST_VERIFY_COUNT, Integer.toString(config.getIvaratorPersistVerifyCount()), false);
+                        if (config.isIvaratorSharedCache()) {
+                            addOption(cfg, QueryOptions.IVARATOR_SHARED_CACHE, Boolean.toString(true), false);
+                            addOption(cfg, QueryOptions.IVARATOR_SHARED_CACHE_MAX_SIZE_MB, Long.toString(config.getIvaratorSharedCacheMaxSizeMB()), false);
+                            addOption(cfg, QueryOptions.IVARATOR_SHARED_CACHE_MAX_AGE_MS, Long.toString(config.getIvaratorSharedCacheMaxAgeMs()), false);
+                            if (config.getIvaratorSharedCacheVersion() != null) {
+                                addOption(cfg, QueryOptions.IVARATOR_SHARED_CACHE_VERSION, config.getIvaratorSharedCacheVersion(), false);
+                            }
+                        }
                         addOption(cfg, QueryOptions.MAX_EVALUATION_PIPELINES, Integer.toString(config.getMaxEvaluationPipelines()), false);
                         addOption(cfg, QueryOptions.MAX_PIPELINE_CACHED_RESULTS, Integer.toString(config.getMaxPipelineCachedResults()), false);
+                        if (config.isCompletionEvaluationPipeline()) {
+                            addOption(cfg, QueryOptions.COMPLETION_EVALUATION_PIPELINE, Boolean.toString(true), false);
+                        }
+                        if (config.isCompiledEvaluation()) {
+                            addOption(cfg, QueryOptions.COMPILED_EVALUATION, Boolean.toString(true), false);
+                        }
                         addOption(cfg, QueryOptions.MAX_IVARATOR_SOURCES, Integer.toString(config.getMaxIvaratorSources()), false);
                         
                         if (config.getYieldThresholdMs() != Long.MAX_VALUE && config.getYieldThresholdMs() > 0) {
                             addOption(cfg, QueryOptions.YIELD_THRESHOLD_MS, Long.toString(config.getYieldThresholdMs()), false);
+                            if (config.isAdaptiveYieldThreshold()) {
+                                addOption(cfg, QueryOptions.ADAPTIVE_YIELD_THRESHOLD, Boolean.toString(true), false);
+                                addOption(cfg, QueryOptions.MIN_YIELD_THRESHOLD_MS, Long.toString(config.getMinYieldThresholdMs()), false);
+                                addOption(cfg, QueryOptions.MAX_YIELD_THRESHOLD_MS, Long.toString(config.getMaxYieldThresholdMs()), false);
+                            }
+                        }
+                        
+                        if (config.isAdaptiveBackpressure()) {
+                            addOption(cfg, QueryOptions.ADAPTIVE_BACKPRESSURE, Boolean.toString(true), false);
+                            if (config.getBackpressurePoolLoadThreshold() > LoadAverageWatchIterator.DISABLED_THRESHOLD) {
+                                addOption(cfg, QueryOptions.BACKPRESSURE_POOL_LOAD_THRESHOLD, Double.toString(config.getBackpressurePoolLoadThreshold()),
+                                                false);
+                            }
+                            if (config.getBackpressureHeapThreshold() > LoadAverageWatchIterator.DISABLED_THRESHOLD) {
+                                addOption(cfg, QueryOptions.BACKPRESSURE_HEAP_THRESHOLD, Double.toString(config.getBackpressureHeapThreshold()), false);
+                            }
                         }
                         
                         addOption(cfg, QueryOptions.SORTED_UIDS, Boolean.toString(config.isSortedUIDs()), false);
@@ -2303,6 +2477,14 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         addOption(cfg, QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, Boolean.toString(config.isAllowFieldIndexEvaluation()), false);
         addOption(cfg, QueryOptions.ALLOW_TERM_FREQUENCY_LOOKUP, Boolean.toString(config.isAllowTermFrequencyLookup()), false);
         addOption(cfg, QueryOptions.COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isCompressServerSideResults()), false);
+        if (config.isKryoAttributeClassIds()) {
+            addOption(cfg, QueryOptions.KRYO_ATTRIBUTE_CLASS_IDS, Boolean.toString(true), false);
+        }
+        if (config.getDocumentBatchSize() > 1) {
+            addOption(cfg, QueryOptions.DOCUMENT_BATCH_SIZE, Integer.toString(config.getDocumentBatchSize()), false);
+            addOption(cfg, QueryOptions.DOCUMENT_BATCH_MAX_BYTES, Long.toString(config.getDocumentBatchMaxBytes()), false);
+            addOption(cfg, QueryOptions.DOCUMENT_BATCH_MAX_LATENCY_MS, Long.toString(config.getDocumentBatchMaxLatencyMs()), false);
+        }
     }
     
     /**
@@ -2335,6 +2517,44 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return new CloseableListIterable<>(Collections.singletonList(new QueryPlan(queryTree, r)));
     }
     
+    /**
+     * Get the query ranges from the query plan cache when it is set and they are cached. Otherwise the ranges are streamed from the global index by
+     * {@link #getQueryRanges(ScannerFactory, MetadataHelper, ShardQueryConfiguration, JexlNode)}, and cached once they have all been streamed.
+     *
+     * @param scannerFactory
+     *            the scanner factory
+     * @param metadataHelper
+     *            the metadata helper
+     * @param config
+     *            the query configuration, with the fully expanded query tree
+     * @return the query ranges and whether a full table scan is required
+     * @throws DatawaveQueryException
+     *             if the ranges cannot be determined
+     */
+    protected Tuple2<CloseableIterable<QueryPlan>,Boolean> getCachedQueryRanges(ScannerFactory scannerFactory, MetadataHelper metadataHelper,
+                    ShardQueryConfiguration config) throws DatawaveQueryException {
+        if (null == queryPlanCache) {
+            return getQueryRanges(scannerFactory, metadataHelper, config, config.getQueryTree());
+        }
+        
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, JexlStringBuildingVisitor.buildQuery(config.getQueryTree()),
+                        getQueryPlanSettings().toArray());
+        QueryPlanCache.Entry entry = queryPlanCache.get(key);
+        recordQueryPlanCacheUse(config, "query_plan_cache", null != entry);
+        if (null != entry) {
+            TraceStopwatch stopwatch = config.getTimers().newStartedStopwatch("DefaultQueryPlanner - Get ranges from the query plan cache");
+            if (entry.isCollapseUids()) {
+                config.setCollapseUids(true);
+            }
+            CloseableIterable<QueryPlan> plans = entry.getPlans();
+            stopwatch.stop();
+            return new Tuple2<>(plans, entry.isFullTable());
+        }
+        
+        Tuple2<CloseableIterable<QueryPlan>,Boolean> queryRanges = getQueryRanges(scannerFactory, metadataHelper, config, config.getQueryTree());
+        return new Tuple2<>(queryPlanCache.cache(key, queryRanges.first(), queryRanges.second(), config.getCollapseUids()), queryRanges.second());
+    }
+    
     /**
      * Returns a Tuple2&lt;Iterable&lt;Range&gt;,Boolean&gt; whose elements represent the Ranges to use for querying the shard table and whether or not this is
      * a "full-table-scan" query.
@@ -2731,6 +2951,14 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         return pushdownThreshold;
     }
     
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+    
+    public void setQueryPlanCache(QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache;
+    }
+    
     public int getDocsToCombineForEvaluation() {
         return docsToCombineForEvaluation;
     }
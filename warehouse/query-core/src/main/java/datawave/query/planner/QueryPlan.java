@@ -20,6 +20,7 @@ import com.google.common.collect.Lists;
 
 import datawave.query.iterator.QueryIterator;
 import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.RebuildingVisitor;
 import datawave.webservice.common.logging.ThreadConfigurableLogger;
 import datawave.webservice.query.configuration.QueryData;
 
@@ -99,6 +100,23 @@ public class QueryPlan {
         
     }
     
+    /**
+     * Copy a plan, so that the copy can be modified without affecting the original
+     * 
+     * @param other
+     *            the plan to copy
+     */
+    public QueryPlan(QueryPlan other) {
+        if (null != other.queryTree) {
+            this.queryTree = RebuildingVisitor.copy(other.queryTree);
+        }
+        this.queryTreeString = other.queryTreeString;
+        this.ranges = Lists.newArrayList(other.ranges);
+        this.columnFamilies.addAll(other.columnFamilies);
+        this.settings.addAll(other.settings);
+        this.hashCode = other.hashCode;
+    }
+    
     /**
      * @param currentQueryData
      */
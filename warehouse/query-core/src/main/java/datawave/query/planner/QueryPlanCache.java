@@ -0,0 +1,315 @@
+package datawave.query.planner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import datawave.query.CloseableIterable;
+import datawave.query.config.IndexHole;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.iterator.CloseableListIterable;
+import datawave.util.UniversalSet;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the work done against the global index for a query, so that a query that is submitted again can skip it. There are two levels:
+ * <ul>
+ * <li>the fully expanded query, keyed by the query as it was before its unfielded terms, regexes and ranges were expanded against the global index, and the
+ * settings and field metadata which shape those expansions</li>
+ * <li>the query plans streamed from the global index for a fully expanded query, keyed by the expanded query</li>
+ * </ul>
+ * Both are also keyed by the date range, the datatype filter, the authorizations, a stamp of the field metadata that the query was planned with, the shard and
+ * index tables, and the settings which shape the ranges: collapsing uids, the shards per day threshold, the index holes, speculative scanning, parsing tld
+ * uids, the maximum query depth, and any settings of the planner such as the iterator which creates the uids and the intersector of the uids.
+ * <p>
+ * Plans are only cached once they have all been streamed, and only when there are no more than the configured number of them. Entries expire after the
+ * configured time to live, which bounds how long newly ingested data can be missed by a cached plan.
+ */
+public class QueryPlanCache {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(QueryPlanCache.class);
+    
+    private final Cache<Key,Entry> cache;
+    private final Cache<Key,String> expansions;
+    private final int maxPlans;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expansionHits = new AtomicLong();
+    private final AtomicLong expansionMisses = new AtomicLong();
+    
+    /**
+     * @param maxEntries
+     *            the maximum number of queries to cache plans for
+     * @param ttlMs
+     *            how long the plans of a query are cached for
+     * @param maxPlans
+     *            the maximum number of plans to cache for a query
+     */
+    public QueryPlanCache(int maxEntries, long ttlMs, int maxPlans) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+        this.expansions = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+        this.maxPlans = maxPlans;
+    }
+    
+    /**
+     * Create the cache key for a query
+     * 
+     * @param config
+     *            the query configuration after the query tree has been expanded
+     * @param query
+     *            the query string
+     * @param settings
+     *            any other settings which shape the plans, such as those of the planner
+     * @return the cache key
+     */
+    public static Key createKey(ShardQueryConfiguration config, String query, Object... settings) {
+        Set<String> auths = new TreeSet<>();
+        if (config.getAuthorizations() != null) {
+            for (Authorizations authorizations : config.getAuthorizations()) {
+                auths.add(authorizations.toString());
+            }
+        }
+        
+        // the field metadata loaded while planning changes when fields are added or their index and type mappings change
+        int metadataStamp = new HashCodeBuilder().append(config.getIndexedFields()).append(config.getReverseIndexedFields())
+                        .append(config.getQueryFieldsDatatypes()).toHashCode();
+        
+        // a universal datatype filter does not restrict the datatypes
+        Set<String> datatypes = (config.getDatatypeFilter() instanceof UniversalSet) ? null : new TreeSet<>(config.getDatatypeFilter());
+        
+        List<IndexHole> indexHoles = config.getIndexHoles() == null ? null : new ArrayList<>(config.getIndexHoles());
+        
+        return new Key(Arrays.asList(query, time(config.getBeginDate()), time(config.getEndDate()), datatypes, auths, metadataStamp,
+                        config.getShardTableName(), config.getIndexTableName(), config.getReverseIndexTableName(), config.getCollapseUids(),
+                        config.getShardsPerDayThreshold(), indexHoles, config.getSpeculativeScanning(), config.getParseTldUids(),
+                        config.getMaxDepthThreshold(), Arrays.asList(settings)));
+    }
+    
+    private static long time(Date date) {
+        return date == null ? 0L : date.getTime();
+    }
+    
+    /**
+     * Get the cached plans of a query
+     * 
+     * @param key
+     *            the cache key
+     * @return the cached entry, or null if the plans are not cached
+     */
+    public Entry get(Key key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Query plan cache " + (entry == null ? "miss" : "hit") + ", " + hits.get() + " hits and " + misses.get() + " misses");
+        }
+        return entry;
+    }
+    
+    /**
+     * Get the cached expansion of a query
+     * 
+     * @param key
+     *            the cache key of the query before it was expanded
+     * @return the fully expanded query string, or null if it is not cached
+     */
+    public String getExpandedQuery(Key key) {
+        String expanded = expansions.getIfPresent(key);
+        if (expanded == null) {
+            expansionMisses.incrementAndGet();
+        } else {
+            expansionHits.incrementAndGet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Query expansion cache " + (expanded == null ? "miss" : "hit") + ", " + expansionHits.get() + " hits and " + expansionMisses.get()
+                            + " misses");
+        }
+        return expanded;
+    }
+    
+    /**
+     * Cache the expansion of a query
+     * 
+     * @param key
+     *            the cache key of the query before it was expanded
+     * @param expanded
+     *            the fully expanded query string
+     */
+    public void putExpandedQuery(Key key, String expanded) {
+        expansions.put(key, expanded);
+    }
+    
+    /**
+     * Wrap the plans being streamed for a query so that they are cached once they have all been streamed
+     * 
+     * @param key
+     *            the cache key
+     * @param plans
+     *            the plans being streamed
+     * @param fullTable
+     *            whether the plans require a full table scan
+     * @param collapseUids
+     *            whether the uids were collapsed while planning the ranges
+     * @return the plans
+     */
+    public CloseableIterable<QueryPlan> cache(Key key, CloseableIterable<QueryPlan> plans, boolean fullTable, boolean collapseUids) {
+        return new CachingIterable(key, plans, fullTable, collapseUids);
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long getExpansionHitCount() {
+        return expansionHits.get();
+    }
+    
+    public long getExpansionMissCount() {
+        return expansionMisses.get();
+    }
+    
+    public long size() {
+        return cache.size();
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+        expansions.invalidateAll();
+    }
+    
+    /**
+     * The cached plans of a query
+     */
+    public static class Entry {
+        private final List<QueryPlan> plans;
+        private final boolean fullTable;
+        private final boolean collapseUids;
+        
+        Entry(List<QueryPlan> plans, boolean fullTable, boolean collapseUids) {
+            this.plans = plans;
+            this.fullTable = fullTable;
+            this.collapseUids = collapseUids;
+        }
+        
+        /**
+         * @return copies of the cached plans, which are modified as they are bundled
+         */
+        public CloseableIterable<QueryPlan> getPlans() {
+            List<QueryPlan> copies = new ArrayList<>(plans.size());
+            for (QueryPlan plan : plans) {
+                copies.add(new QueryPlan(plan));
+            }
+            return new CloseableListIterable<>(copies);
+        }
+        
+        public boolean isFullTable() {
+            return fullTable;
+        }
+        
+        public boolean isCollapseUids() {
+            return collapseUids;
+        }
+    }
+    
+    /**
+     * Records copies of the plans as they are streamed, and caches them once the stream has been exhausted
+     */
+    private class CachingIterable implements CloseableIterable<QueryPlan> {
+        private final Key key;
+        private final CloseableIterable<QueryPlan> delegate;
+        private final boolean fullTable;
+        private final boolean collapseUids;
+        
+        CachingIterable(Key key, CloseableIterable<QueryPlan> delegate, boolean fullTable, boolean collapseUids) {
+            this.key = key;
+            this.delegate = delegate;
+            this.fullTable = fullTable;
+            this.collapseUids = collapseUids;
+        }
+        
+        @Override
+        public Iterator<QueryPlan> iterator() {
+            final Iterator<QueryPlan> plans = delegate.iterator();
+            return new Iterator<QueryPlan>() {
+                private List<QueryPlan> recorded = new ArrayList<>();
+                
+                @Override
+                public boolean hasNext() {
+                    boolean hasNext = plans.hasNext();
+                    if (!hasNext && recorded != null) {
+                        cache.put(key, new Entry(Collections.unmodifiableList(recorded), fullTable, collapseUids));
+                        recorded = null;
+                    }
+                    return hasNext;
+                }
+                
+                @Override
+                public QueryPlan next() {
+                    QueryPlan plan = plans.next();
+                    if (recorded != null) {
+                        if (recorded.size() < maxPlans) {
+                            recorded.add(new QueryPlan(plan));
+                        } else {
+                            // too many plans to cache
+                            recorded = null;
+                        }
+                    }
+                    return plan;
+                }
+            };
+        }
+        
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+    
+    /**
+     * Identifies a query by the inputs that determine its plans
+     */
+    public static class Key {
+        private final List<Object> parts;
+        
+        Key(List<Object> parts) {
+            this.parts = parts;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Key && parts.equals(((Key) o).parts));
+        }
+        
+        @Override
+        public int hashCode() {
+            return parts.hashCode();
+        }
+        
+        @Override
+        public String toString() {
+            return parts.toString();
+        }
+    }
+}
@@ -24,6 +24,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
     private final long rangeBufferTimeoutMillis;
     private final long rangeBufferPollMillis;
     private final long maxRangeWaitMillis;
+    private final long maxRangeQueueBytes;
     private ThreadedRangeBundlerIterator iterator;
     
     /**
@@ -48,6 +49,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
         this.numRangesToBuffer = builder.numRangesToBuffer;
         this.rangeBufferTimeoutMillis = builder.rangeBufferTimeoutMillis;
         this.rangeBufferPollMillis = builder.rangeBufferPollMillis;
+        this.maxRangeQueueBytes = builder.maxRangeQueueBytes;
     }
     
     public QueryData getOriginal() {
@@ -98,6 +100,10 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
         return maxRangeWaitMillis;
     }
     
+    public long getMaxRangeQueueBytes() {
+        return maxRangeQueueBytes;
+    }
+    
     /**
      * Builds and returns a new {@link ThreadedRangeBundlerIterator}.
      * 
@@ -126,6 +132,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
                 .setNumRangesToBuffer(numRangesToBuffer)
                 .setRangeBufferTimeoutMillis(rangeBufferTimeoutMillis)
                 .setRangeBufferPollMillis(rangeBufferPollMillis)
+                .setMaxRangeQueueBytes(maxRangeQueueBytes)
                 .build();
         // @formatter:on
         
@@ -162,6 +169,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
         private int numRangesToBuffer;
         private long rangeBufferTimeoutMillis;
         private long rangeBufferPollMillis = 100L;
+        private long maxRangeQueueBytes = 0L;
         
         public Builder setOriginal(QueryData original) {
             this.original = original;
@@ -223,6 +231,11 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
             return this;
         }
         
+        public Builder setMaxRangeQueueBytes(long maxRangeQueueBytes) {
+            this.maxRangeQueueBytes = maxRangeQueueBytes;
+            return this;
+        }
+        
         /**
          * Builds and returns a new {@link ThreadedRangeBundler}. The following default values will be used unless specified otherwise in the builder.
          *
@@ -45,6 +45,15 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
     
     private final BlockingQueue<QueryPlan> rangeQueue;
     
+    // bounds the estimated bytes of the plans in the range queue, so that large plans do not have to be buffered in memory
+    private final long maxRangeQueueBytes;
+    private final Object queuedBytesLock = new Object();
+    private long queuedBytes = 0;
+    private volatile boolean waitingForQueuedBytes = false;
+    
+    // the estimated bytes of a range beyond its keys
+    private static final long RANGE_OVERHEAD_BYTES = 64;
+    
     private QueryData next = null;
     private Object producerLock = new Object();
     
@@ -100,6 +109,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             rangeQueue = new ArrayBlockingQueue<>(maxCapacity);
         }
         
+        this.maxRangeQueueBytes = builder.getMaxRangeQueueBytes();
         this.numRangesToBuffer = builder.getNumRangesToBuffer();
         this.rangeBufferTimeoutMillis = builder.getRangeBufferTimeoutMillis();
         this.rangeBufferPollMillis = builder.getRangeBufferPollMillis();
@@ -137,7 +147,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                     
                     // wait until we have a minimum number of ranges buffered OR the buffer is full OR the specified
                     // amount of time to wait has elapsed OR we have processed all of our ranges before continuing
-                    while (this.rangeQueue.size() < numRangesToBuffer && this.rangeQueue.remainingCapacity() > 0
+                    while (this.rangeQueue.size() < numRangesToBuffer && this.rangeQueue.remainingCapacity() > 0 && !waitingForQueuedBytes
                                     && (startTimeMillis + rangeBufferTimeoutMillis) > System.currentTimeMillis() && !rangeConsumer.isStopped()) {
                         Thread.sleep(rangeBufferPollMillis);
                     }
@@ -154,6 +164,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                         next = null;
                         break;
                     }
+                    release(plan);
                     
                     // if the generated query is larger, use the original
                     if (null != queryTree && (plan.getQueryString().length() > original.getQuery().length())) {
@@ -255,7 +266,10 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                                 } else {
                                     plansToCombine.add(nextPlan);
                                     // pop the previous new plan off
-                                    this.rangeQueue.poll();
+                                    QueryPlan polled = this.rangeQueue.poll();
+                                    if (null != polled) {
+                                        release(polled);
+                                    }
                                 }
                                 
                             } else {
@@ -387,6 +401,44 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         
     }
     
+    /**
+     * Estimate the bytes held by a plan while it is queued, from the length of its query and the keys of its ranges
+     * 
+     * @param plan
+     *            the plan
+     * @return the estimated size of the plan in bytes
+     */
+    protected static long estimateSize(QueryPlan plan) {
+        long size = 2L * plan.getQueryString().length();
+        for (Range range : plan.getRanges()) {
+            size += RANGE_OVERHEAD_BYTES;
+            if (null != range) {
+                if (null != range.getStartKey()) {
+                    size += range.getStartKey().getSize();
+                }
+                if (null != range.getEndKey()) {
+                    size += range.getEndKey().getSize();
+                }
+            }
+        }
+        return size;
+    }
+    
+    private void release(QueryPlan plan) {
+        if (maxRangeQueueBytes > 0) {
+            release(estimateSize(plan));
+        }
+    }
+    
+    private void release(long size) {
+        if (maxRangeQueueBytes > 0) {
+            synchronized (queuedBytesLock) {
+                queuedBytes -= size;
+                queuedBytesLock.notifyAll();
+            }
+        }
+    }
+    
     /**
      * Determines if we are running a tld query
      * 
@@ -512,6 +564,10 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             if (log.isTraceEnabled())
                 log.trace("Call called on stop");
             running = false;
+            // wake the consumer if it is waiting for room in the queue
+            synchronized (queuedBytesLock) {
+                queuedBytesLock.notifyAll();
+            }
             try {
                 rangeIterable.close();
             } catch (IOException e) {
@@ -538,8 +594,13 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                     QueryPlan nextPlan = ranges.next();
                     if (log.isTraceEnabled())
                         log.trace("RangeConsumer count is " + count + " " + nextPlan.getRanges());
-                    rangeQueue.put(nextPlan);
                     
+                    long size = maxRangeQueueBytes > 0 ? estimateSize(nextPlan) : 0L;
+                    if (!reserve(size) || !offer(nextPlan)) {
+                        // we were stopped while waiting for room in the queue
+                        release(size);
+                        break;
+                    }
                 }
                 
             } catch (Exception e) {
@@ -549,6 +610,48 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             }
             running = false;
         }
+        
+        /**
+         * Wait until there is room in the queue for the estimated bytes of a plan. A plan is always let into an empty queue, however large it is.
+         * 
+         * @param size
+         *            the estimated size of the plan
+         * @return false if we were stopped while waiting
+         * @throws InterruptedException
+         *             if interrupted while waiting
+         */
+        private boolean reserve(long size) throws InterruptedException {
+            if (maxRangeQueueBytes <= 0) {
+                return running;
+            }
+            synchronized (queuedBytesLock) {
+                while (running && queuedBytes > 0 && queuedBytes + size > maxRangeQueueBytes) {
+                    waitingForQueuedBytes = true;
+                    queuedBytesLock.wait(Math.max(1L, maxWaitUnit.toMillis(maxWaitValue)));
+                }
+                waitingForQueuedBytes = false;
+                queuedBytes += size;
+            }
+            return running;
+        }
+        
+        /**
+         * Offer a plan to the queue, periodically checking whether we have been stopped rather than blocking until there is room
+         * 
+         * @param plan
+         *            the plan
+         * @return false if we were stopped before the plan was queued
+         * @throws InterruptedException
+         *             if interrupted while waiting
+         */
+        private boolean offer(QueryPlan plan) throws InterruptedException {
+            while (running) {
+                if (rangeQueue.offer(plan, Math.max(1L, maxWaitUnit.toMillis(maxWaitValue)), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
     
     public static class Builder {
@@ -565,6 +668,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         protected int numRangesToBuffer = 0;
         protected long rangeBufferTimeoutMillis = 0;
         protected long rangeBufferPollMillis = 100;
+        protected long maxRangeQueueBytes = 0;
         
         public QueryData getOriginal() {
             return original;
@@ -683,6 +787,15 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             return this;
         }
         
+        public long getMaxRangeQueueBytes() {
+            return maxRangeQueueBytes;
+        }
+        
+        public Builder setMaxRangeQueueBytes(long maxRangeQueueBytes) {
+            this.maxRangeQueueBytes = maxRangeQueueBytes;
+            return this;
+        }
+        
         public ThreadedRangeBundlerIterator build() {
             return new ThreadedRangeBundlerIterator(this);
         }
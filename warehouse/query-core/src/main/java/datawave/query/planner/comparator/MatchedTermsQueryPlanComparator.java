@@ -0,0 +1,28 @@
+package datawave.query.planner.comparator;
+
+import datawave.query.jexl.visitors.TermCountingVisitor;
+import datawave.query.planner.QueryPlan;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Sorts QueryPlan objects so that the shards which matched the most query terms in the global index come first. The query of each plan has already been
+ * reduced to the terms that matched its shard, so the shards with more matched terms are the more likely to return results.
+ */
+public class MatchedTermsQueryPlanComparator implements Comparator<QueryPlan> {
+    
+    // counting the terms walks the query tree, so count each plan once
+    private final Map<QueryPlan,Integer> termCounts = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    @Override
+    public int compare(QueryPlan o1, QueryPlan o2) {
+        return Integer.compare(countTerms(o2), countTerms(o1));
+    }
+    
+    private int countTerms(QueryPlan plan) {
+        return termCounts.computeIfAbsent(plan, p -> TermCountingVisitor.countTerms(p.getQueryTree()));
+    }
+}
@@ -0,0 +1,26 @@
+package datawave.query.planner.comparator;
+
+import datawave.query.planner.QueryPlan;
+
+import java.util.Comparator;
+
+/**
+ * Sorts QueryPlan objects so that the shards of the most recent days come first, and by shard id within a day
+ */
+public class RecentShardsQueryPlanComparator implements Comparator<QueryPlan> {
+    @Override
+    public int compare(QueryPlan o1, QueryPlan o2) {
+        String row1 = o1.getRanges().iterator().next().getStartKey().getRow().toString();
+        String row2 = o2.getRanges().iterator().next().getStartKey().getRow().toString();
+        int compare = getDay(row2).compareTo(getDay(row1));
+        if (compare == 0) {
+            compare = row1.compareTo(row2);
+        }
+        return compare;
+    }
+    
+    private static String getDay(String row) {
+        int index = row.indexOf('_');
+        return index < 0 ? row : row.substring(0, index);
+    }
+}
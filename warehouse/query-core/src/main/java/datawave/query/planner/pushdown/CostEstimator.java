@@ -3,9 +3,14 @@ package datawave.query.planner.pushdown;
 import static org.apache.commons.jexl2.parser.JexlNodes.children;
 import static org.apache.commons.jexl2.parser.JexlNodes.id;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+import datawave.data.MetadataCardinalityCounts;
 import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.index.stats.IndexStatsClient;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.parser.JavaRegexAnalyzer;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
@@ -28,6 +33,13 @@ public class CostEstimator {
     protected MetadataHelper helper;
     protected ScannerFactory scannerFactory;
     
+    // the index stats are only read when planning by cost
+    private IndexStatsClient stats = null;
+    private final Map<String,Double> fieldSelectivity = new HashMap<>();
+    
+    // whether the term counts and index stats may be read regardless of the user's auths, which is only safe when the costs are not shown to the user
+    private boolean useRootAuths = true;
+    
     public CostEstimator(PushDownVisitor visitor) {
         this.config = visitor.getConfiguration();
         this.helper = visitor.getHelper();
@@ -97,7 +109,18 @@ public class CostEstimator {
                         log.error("Could not find metadata table", e);
                     }
                     
-                    return new Cost(0l, helper.getCountsByFieldForDays(fieldName, config.getBeginDate(), config.getEndDate(), config.getDatatypeFilter()));
+                    long fieldCount = helper.getCountsByFieldForDays(fieldName, config.getBeginDate(), config.getEndDate(), config.getDatatypeFilter());
+                    
+                    // estimate the number of documents matching the term itself rather than its field
+                    if (config.isCostBasedPlanning()) {
+                        Long termCount = getTermCount(fieldName, JexlASTHelper.getLiteralValue(node));
+                        if (null != termCount) {
+                            return new Cost(0l, termCount);
+                        }
+                        return new Cost(0l, estimateTermCount(fieldName, fieldCount));
+                    }
+                    
+                    return new Cost(0l, fieldCount);
                 } catch (NoSuchElementException e) {
                     log.trace("Could not find field name for EQ node, ignoring for cost");
                     return new Cost();
@@ -144,4 +167,84 @@ public class CostEstimator {
         }
     }
     
+    /**
+     * Whether the term counts may be read with root auths and the index stats with the auths of the tserver user. This is the default, as the costs are
+     * normally only used to plan the query. When the costs are shown to the user this must be false, so that the term counts are limited to the user's auths
+     * and the index stats are not used.
+     * 
+     * @param useRootAuths
+     *            whether the counts may be read regardless of the user's auths
+     */
+    public void setUseRootAuths(boolean useRootAuths) {
+        this.useRootAuths = useRootAuths;
+    }
+    
+    public boolean isUseRootAuths() {
+        return useRootAuths;
+    }
+    
+    /**
+     * Get the number of documents containing a term from the metadata term counts
+     * 
+     * @param fieldName
+     *            the field
+     * @param literal
+     *            the value
+     * @return the term count, or null if the term has not been counted
+     */
+    protected Long getTermCount(String fieldName, Object literal) {
+        try {
+            // We can get the term counts with root auths (ignoring user auths) when this information is not
+            // exposed to the user, and is only used to adjust the query planning.
+            Map<String,Map<String,MetadataCardinalityCounts>> termCounts = useRootAuths ? helper.getTermCountsWithRootAuths() : helper.getTermCounts();
+            Map<String,MetadataCardinalityCounts> valueCounts = termCounts.get(fieldName);
+            if (null != valueCounts) {
+                MetadataCardinalityCounts counts = valueCounts.get(String.valueOf(literal));
+                if (null != counts) {
+                    return counts.getFieldValueCount();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Could not retrieve term counts from metadata helper", e);
+        }
+        return null;
+    }
+    
+    /**
+     * Estimate the number of documents containing a value of a field using the selectivity from the index stats, which is the ratio of unique values to
+     * values. Each value of a field is then expected to occur once per unit of selectivity.
+     * 
+     * @param fieldName
+     *            the field
+     * @param fieldCount
+     *            the number of times the field occurs
+     * @return the estimated term count, or the field count if the field has no stats or they may not be used
+     */
+    protected long estimateTermCount(String fieldName, long fieldCount) {
+        // the index stats are read with the auths of the tserver user
+        Double selectivity = useRootAuths ? getFieldSelectivity(fieldName) : null;
+        if (null != selectivity && selectivity > 0) {
+            long termCount = (long) Math.ceil(1.0d / selectivity);
+            return fieldCount > 0 ? Math.min(fieldCount, termCount) : termCount;
+        }
+        return fieldCount;
+    }
+    
+    protected Double getFieldSelectivity(String fieldName) {
+        if (!fieldSelectivity.containsKey(fieldName)) {
+            Double selectivity = null;
+            if (null != config.getIndexStatsTableName() && null != config.getConnector()) {
+                if (null == stats) {
+                    stats = new IndexStatsClient(config.getConnector(), config.getIndexStatsTableName());
+                }
+                Double value = JexlASTHelper.getNodeSelectivity(Collections.singleton(fieldName), config, stats);
+                if (!IndexStatsClient.DEFAULT_VALUE.equals(value)) {
+                    selectivity = value;
+                }
+            }
+            fieldSelectivity.put(fieldName, selectivity);
+        }
+        return fieldSelectivity.get(fieldName);
+    }
+    
 }
@@ -0,0 +1,258 @@
+package datawave.query.predicate;
+
+import datawave.data.type.NoOpType;
+import datawave.data.type.Type;
+import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.LiteralRange;
+import datawave.query.jexl.RegexAutomaton;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The literals, patterns and ranges that the query compares a field to, normalized up front by each of the types of the field for one datatype, so that a
+ * value is matched without building attributes or normalizing the query for every key. The literals are hashed both as strings and as bytes, patterns are
+ * automata, and the ranges are held in a static interval index.
+ * <p>
+ * Matching is as loose as it is for the attributes: the value, as is and normalized by each type, is tested against the literals, patterns and ranges as
+ * normalized by all of the types. The value is first looked up by its raw bytes, which settles the exact literal matches without decoding it at all.
+ */
+public class FieldValueMatcher {
+    private static final Logger log = Logger.getLogger(FieldValueMatcher.class);
+    
+    private final Set<ByteSequence> literalBytes = new HashSet<>();
+    private final Set<String> literals = new HashSet<>();
+    private final RegexAutomaton[] patterns;
+    private final RangeIndex ranges;
+    
+    // the types other than the NoOpType that values are normalized by
+    private final Type<?>[] types;
+    
+    /**
+     * @param values
+     *            the literals
+     * @param patterns
+     *            the regexes
+     * @param ranges
+     *            the ranges
+     * @param types
+     *            the types of the field for the datatype
+     */
+    public FieldValueMatcher(Collection<String> values, Collection<String> patterns, Collection<LiteralRange<?>> ranges, Collection<Type<?>> types) {
+        List<Type<?>> normalizers = new ArrayList<>();
+        for (Type<?> type : types) {
+            if (!(type instanceof NoOpType)) {
+                normalizers.add(type);
+            }
+        }
+        this.types = normalizers.toArray(new Type<?>[0]);
+        
+        // the original values are what the NoOpType gives, and are kept when a type cannot normalize them
+        for (String value : values) {
+            addLiteral(value);
+            for (Type<?> type : this.types) {
+                try {
+                    String normalized = type.normalize(value);
+                    if (normalized != null) {
+                        addLiteral(normalized);
+                    }
+                } catch (Exception e) {
+                    // can't normalize this value, the original is already there
+                }
+            }
+        }
+        
+        Set<RegexAutomaton> automata = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            automata.add(JexlPatternCache.getAutomaton(pattern, 0));
+            for (Type<?> type : this.types) {
+                try {
+                    String normalized = type.normalizeRegex(pattern);
+                    if (normalized != null) {
+                        automata.add(JexlPatternCache.getAutomaton(normalized, 0));
+                    }
+                } catch (Exception e) {
+                    // can't normalize this pattern, the original is already there
+                }
+            }
+        }
+        this.patterns = automata.toArray(new RegexAutomaton[0]);
+        
+        List<Interval> intervals = new ArrayList<>();
+        for (LiteralRange<?> range : ranges) {
+            intervals.add(new Interval(range.getLower().toString(), range.isLowerInclusive(), range.getUpper().toString(), range.isUpperInclusive()));
+            for (Type<?> type : this.types) {
+                try {
+                    String lower = type.normalize(range.getLower().toString());
+                    String upper = type.normalize(range.getUpper().toString());
+                    if (lower != null && upper != null) {
+                        intervals.add(new Interval(lower, range.isLowerInclusive(), upper, range.isUpperInclusive()));
+                    }
+                } catch (Exception e) {
+                    // can't normalize the range values, the original is already there
+                }
+            }
+        }
+        this.ranges = new RangeIndex(intervals);
+    }
+    
+    private void addLiteral(String literal) {
+        literals.add(literal);
+        literalBytes.add(new ArrayByteSequence(literal.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    /**
+     * @param bytes
+     *            the bytes holding the value
+     * @param offset
+     *            the offset of the value
+     * @param length
+     *            the length of the value
+     * @return true if the value matches
+     */
+    public boolean matches(byte[] bytes, int offset, int length) {
+        if (literalBytes.contains(new ArrayByteSequence(bytes, offset, length))) {
+            return true;
+        }
+        if (patterns.length == 0 && ranges.isEmpty() && types.length == 0) {
+            return false;
+        }
+        return matchesNormalized(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @param value
+     *            the value
+     * @return true if the value matches
+     */
+    public boolean matches(String value) {
+        return literals.contains(value) || matchesNormalized(value);
+    }
+    
+    private boolean matchesNormalized(String value) {
+        if (matchesPatternsOrRanges(value)) {
+            return true;
+        }
+        
+        for (Type<?> type : types) {
+            String normalized;
+            try {
+                normalized = type.normalize(value);
+            } catch (Exception e) {
+                // the type does not apply to this value, which is covered by the original value
+                continue;
+            }
+            if (normalized != null && (literals.contains(normalized) || matchesPatternsOrRanges(normalized))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean matchesPatternsOrRanges(String value) {
+        for (RegexAutomaton pattern : patterns) {
+            if (pattern.matches(value)) {
+                return true;
+            }
+        }
+        return ranges.contains(value);
+    }
+    
+    @Override
+    public String toString() {
+        return "FieldValueMatcher{literals=" + literals + ", patterns=" + Arrays.toString(patterns) + ", ranges=" + ranges + ", types="
+                        + Arrays.toString(types) + '}';
+    }
+    
+    /**
+     * A string interval with inclusive or exclusive bounds
+     */
+    static class Interval {
+        final String lower;
+        final boolean lowerInclusive;
+        final String upper;
+        final boolean upperInclusive;
+        
+        Interval(String lower, boolean lowerInclusive, String upper, boolean upperInclusive) {
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+        
+        boolean contains(String value) {
+            int compare = lower.compareTo(value);
+            if (compare > 0 || (compare == 0 && !lowerInclusive)) {
+                return false;
+            }
+            compare = value.compareTo(upper);
+            return compare < 0 || (compare == 0 && upperInclusive);
+        }
+        
+        @Override
+        public String toString() {
+            return (lowerInclusive ? "[" : "(") + lower + "," + upper + (upperInclusive ? "]" : ")");
+        }
+    }
+    
+    /**
+     * A static interval tree flattened into an array: the intervals are sorted by their lower bound, along with the running max of their upper bounds. A lookup
+     * binary searches for the last interval starting at or before the value and walks back only while an earlier interval could still reach the value.
+     */
+    static class RangeIndex {
+        private final Interval[] intervals;
+        private final String[] maxUpper;
+        
+        RangeIndex(List<Interval> intervals) {
+            this.intervals = intervals.toArray(new Interval[0]);
+            Arrays.sort(this.intervals, Comparator.comparing(i -> i.lower));
+            this.maxUpper = new String[this.intervals.length];
+            for (int i = 0; i < this.intervals.length; i++) {
+                String upper = this.intervals[i].upper;
+                maxUpper[i] = (i == 0 || upper.compareTo(maxUpper[i - 1]) > 0 ? upper : maxUpper[i - 1]);
+            }
+        }
+        
+        boolean isEmpty() {
+            return intervals.length == 0;
+        }
+        
+        boolean contains(String value) {
+            // find the last interval whose lower bound is at or before the value
+            int low = 0;
+            int high = intervals.length - 1;
+            int last = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (intervals[mid].lower.compareTo(value) <= 0) {
+                    last = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            
+            for (int i = last; i >= 0 && maxUpper[i].compareTo(value) >= 0; i--) {
+                if (intervals[i].contains(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public String toString() {
+            return Arrays.toString(intervals);
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
     private final AtomicInteger nextCalls = new AtomicInteger(0);
     private final AtomicInteger seekCalls = new AtomicInteger(0);
     private final AtomicInteger yieldCalls = new AtomicInteger(0);
+    private final AtomicInteger resumeCalls = new AtomicInteger(0);
     private final AtomicInteger sources = new AtomicInteger(0);
     private final Multimap<String,Long> timings;
     private final String prefix;
@@ -102,6 +103,11 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
                 count("yield_calls", value);
                 flushed = true;
             }
+            value = resumeCalls.getAndSet(0);
+            if (value > 0) {
+                count("resume_calls", value);
+                flushed = true;
+            }
             value = sources.getAndSet(0);
             if (value > 0) {
                 count("sources", value);
@@ -150,6 +156,11 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
         flushAsNeeded();
     }
     
+    public void resume() {
+        resumeCalls.incrementAndGet();
+        flushAsNeeded();
+    }
+    
     public void addSource() {
         sources.incrementAndGet();
         flushAsNeeded();
@@ -161,7 +172,7 @@ public class QueryStatsDClient extends ConvenienceMethodProvidingStatsDClient {
     }
     
     public int getSize() {
-        return nextCalls.get() + seekCalls.get() + yieldCalls.get() + sources.get() + timings.size();
+        return nextCalls.get() + seekCalls.get() + yieldCalls.get() + resumeCalls.get() + sources.get() + timings.size();
     }
     
     /**
@@ -22,11 +22,15 @@ import datawave.query.config.Profile;
 import datawave.query.config.ShardQueryConfiguration;
 import datawave.query.enrich.DataEnricher;
 import datawave.query.enrich.EnrichingMaster;
+import datawave.query.function.deserializer.DocumentBatchDeserializer;
 import datawave.query.index.lookup.CreateUidsIterator;
 import datawave.query.index.lookup.IndexInfo;
 import datawave.query.index.lookup.UidIntersector;
 import datawave.query.iterator.QueryOptions;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.ExecutionPathVisitor;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.language.parser.ParseException;
 import datawave.query.language.parser.QueryParser;
 import datawave.query.language.tree.QueryNode;
@@ -34,7 +38,9 @@ import datawave.query.model.QueryModel;
 import datawave.query.planner.DefaultQueryPlanner;
 import datawave.query.planner.MetadataHelperQueryModelProvider;
 import datawave.query.planner.QueryModelProvider;
+import datawave.query.planner.QueryPlanCache;
 import datawave.query.planner.QueryPlanner;
+import datawave.query.planner.pushdown.CostEstimator;
 import datawave.query.scheduler.PushdownScheduler;
 import datawave.query.scheduler.Scheduler;
 import datawave.query.scheduler.SequentialScheduler;
@@ -58,6 +64,9 @@ import datawave.webservice.query.QueryImpl.Parameter;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.configuration.QueryData;
 import datawave.webservice.query.exception.QueryException;
+import datawave.webservice.query.explain.ExplainedTerm;
+import datawave.webservice.query.explain.PlanningStage;
+import datawave.webservice.query.explain.QueryExplainResponse;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.QueryLogicTransformer;
 import datawave.webservice.query.logic.WritesQueryMetrics;
@@ -68,9 +77,14 @@ import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.log4j.Logger;
 
@@ -165,6 +179,8 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     static final ListeningExecutorService reloader = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(1));
     private static Cache<String,QueryModel> queryModelMap = CacheBuilder.newBuilder().maximumSize(100).concurrencyLevel(100)
                     .expireAfterAccess(24, TimeUnit.HOURS).build();
+    // the query plan caches shared by the instances of a query logic class, by cache settings
+    private static final Map<List<Object>,QueryPlanCache> queryPlanCaches = new HashMap<>();
     protected Class<? extends SortedKeyValueIterator<Key,Value>> createUidsIteratorClass = CreateUidsIterator.class;
     protected UidIntersector uidIntersector = new IndexInfo();
     protected CloseableIterable<QueryData> queries = null;
@@ -285,6 +301,71 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         return config.getQueryString();
     }
     
+    /**
+     * Explain how the query would be executed without running it. The query is planned as it would be for execution, which looks up the global index, and the
+     * resulting plans are counted to find the shards and days that would be scanned, but the query iterators are never run. The estimates are only made from
+     * the counts that the user's auths can see.
+     */
+    @Override
+    public QueryExplainResponse getExplain(Connector connection, Query settings, Set<Authorizations> auths) throws Exception {
+        this.config = ShardQueryConfiguration.create(this, settings);
+        if (log.isTraceEnabled())
+            log.trace("Initializing ShardQueryLogic for explain: " + System.identityHashCode(this) + '('
+                            + (this.getSettings() == null ? "empty" : this.getSettings().getId()) + ')');
+        initialize(config, connection, settings, auths);
+        
+        QueryExplainResponse explain = new QueryExplainResponse();
+        explain.setQuery(settings.getQuery());
+        explain.setPlannedQuery(config.getQueryString());
+        
+        TraceStopwatch stopwatch = config.getTimers().newStartedStopwatch("ShardQueryLogic - Count the shards and days of the query plans");
+        Set<String> shards = new HashSet<>();
+        Set<String> days = new HashSet<>();
+        long documentRanges = 0;
+        Iterator<QueryData> queries = config.getQueries();
+        while (queries != null && queries.hasNext()) {
+            for (Range range : queries.next().getRanges()) {
+                String row = range.getStartKey().getRow().toString();
+                days.add(row.length() > 8 ? row.substring(0, 8) : row);
+                if (range.getStartKey().getColumnFamily().getLength() > 0) {
+                    documentRanges++;
+                    shards.add(row);
+                } else if (range.getEndKey() != null && range.getEndKey().getRow().toString().equals(row + Constants.NULL_BYTE_STRING)) {
+                    shards.add(row);
+                }
+            }
+        }
+        explain.setShards((long) shards.size());
+        explain.setDays((long) days.size());
+        explain.setDocumentRanges(documentRanges);
+        stopwatch.stop();
+        
+        // estimate the matches of the query and of its index terms from the counts in the metadata that the user can see
+        MetadataHelper metadataHelper = prepareMetadataHelper(connection, this.getMetadataTableName(), auths, config.isRawTypes());
+        CostEstimator estimator = new CostEstimator(config, getScannerFactory(), metadataHelper);
+        estimator.setUseRootAuths(false);
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(config.getQueryString());
+        explain.setEstimatedUids(toEstimate(estimator.computeCostForSubtree(script).totalCost()));
+        for (Entry<JexlNode,ExecutionPathVisitor.Path> entry : ExecutionPathVisitor.getPaths(script, config.getIndexedFields())) {
+            JexlNode term = entry.getKey();
+            Long estimate = null;
+            if (entry.getValue() == ExecutionPathVisitor.Path.INDEX && (term instanceof ASTEQNode || term instanceof ASTERNode)) {
+                estimate = toEstimate(estimator.computeCostForSubtree(term).totalCost());
+            }
+            explain.getTerms().add(new ExplainedTerm(JexlStringBuildingVisitor.buildQuery(term), entry.getValue().getLabel(), estimate));
+        }
+        
+        for (Entry<String,Long> stage : config.getTimers().getElapsedMillis()) {
+            explain.getStages().add(new PlanningStage(stage.getKey(), stage.getValue()));
+        }
+        return explain;
+    }
+    
+    // the cost of terms which cannot be looked up in the index is unbounded, so it is not an estimate
+    private static Long toEstimate(long cost) {
+        return (cost < 0 || cost == Long.MAX_VALUE) ? null : cost;
+    }
+    
     protected String expandQueryMacros(String query) throws ParseException {
         log.trace("query macros are :" + this.queryMacroFunction);
         if (this.queryMacroFunction != null) {
@@ -404,6 +485,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             
             currentQueryPlanner.setMetadataHelper(metadataHelper);
             currentQueryPlanner.setDateIndexHelper(dateIndexHelper);
+            currentQueryPlanner.setQueryPlanCache(config.isCacheQueryPlans() ? getQueryPlanCache(getClass(), config) : null);
             
             QueryModelProvider queryModelProvider = currentQueryPlanner.getQueryModelProviderFactory().createQueryModelProvider();
             if (queryModelProvider instanceof MetadataHelperQueryModelProvider) {
@@ -460,6 +542,27 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         stopwatch.stop();
     }
     
+    /**
+     * Get the query plan cache shared by all of the query logics of a class with the same cache settings as the query, so that query logics which plan
+     * differently, such as the tld and ancestor logics, never share plans, and a query logic configured with its own size, time to live, or maximum plans gets
+     * a cache of its own
+     *
+     * @param logicClass
+     *            the class of the query logic
+     * @param config
+     *            the query configuration
+     * @return the query plan cache
+     */
+    protected static synchronized QueryPlanCache getQueryPlanCache(Class<? extends ShardQueryLogic> logicClass, ShardQueryConfiguration config) {
+        List<Object> settings = Arrays.asList(logicClass, config.getQueryPlanCacheSize(), config.getQueryPlanCacheTtlMs(), config.getQueryPlanCacheMaxPlans());
+        QueryPlanCache queryPlanCache = queryPlanCaches.get(settings);
+        if (null == queryPlanCache) {
+            queryPlanCache = new QueryPlanCache(config.getQueryPlanCacheSize(), config.getQueryPlanCacheTtlMs(), config.getQueryPlanCacheMaxPlans());
+            queryPlanCaches.put(settings, queryPlanCache);
+        }
+        return queryPlanCache;
+    }
+    
     /**
      * Validate that the configuration is in a consistent state
      *
@@ -561,6 +664,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.scanner = null;
         this.iterator = this.scheduler.iterator();
         
+        if (config.getDocumentBatchSize() > 1) {
+            // the tservers pack documents into batches, unpack them before any further processing
+            this.iterator = DocumentBatchDeserializer.unbatch(this.iterator);
+        }
+        
         if (!config.isSortedUIDs()) {
             this.iterator = new DedupingIterator(this.iterator);
         }
@@ -1422,6 +1530,54 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setYieldThresholdMs(yieldThresholdMs);
     }
     
+    public boolean isAdaptiveYieldThreshold() {
+        return getConfig().isAdaptiveYieldThreshold();
+    }
+    
+    public void setAdaptiveYieldThreshold(boolean adaptiveYieldThreshold) {
+        getConfig().setAdaptiveYieldThreshold(adaptiveYieldThreshold);
+    }
+    
+    public long getMinYieldThresholdMs() {
+        return getConfig().getMinYieldThresholdMs();
+    }
+    
+    public void setMinYieldThresholdMs(long minYieldThresholdMs) {
+        getConfig().setMinYieldThresholdMs(minYieldThresholdMs);
+    }
+    
+    public long getMaxYieldThresholdMs() {
+        return getConfig().getMaxYieldThresholdMs();
+    }
+    
+    public void setMaxYieldThresholdMs(long maxYieldThresholdMs) {
+        getConfig().setMaxYieldThresholdMs(maxYieldThresholdMs);
+    }
+    
+    public boolean isAdaptiveBackpressure() {
+        return getConfig().isAdaptiveBackpressure();
+    }
+    
+    public void setAdaptiveBackpressure(boolean adaptiveBackpressure) {
+        getConfig().setAdaptiveBackpressure(adaptiveBackpressure);
+    }
+    
+    public double getBackpressurePoolLoadThreshold() {
+        return getConfig().getBackpressurePoolLoadThreshold();
+    }
+    
+    public void setBackpressurePoolLoadThreshold(double backpressurePoolLoadThreshold) {
+        getConfig().setBackpressurePoolLoadThreshold(backpressurePoolLoadThreshold);
+    }
+    
+    public double getBackpressureHeapThreshold() {
+        return getConfig().getBackpressureHeapThreshold();
+    }
+    
+    public void setBackpressureHeapThreshold(double backpressureHeapThreshold) {
+        getConfig().setBackpressureHeapThreshold(backpressureHeapThreshold);
+    }
+    
     public boolean isCleanupShardsAndDaysQueryHints() {
         return getConfig().isCleanupShardsAndDaysQueryHints();
     }
@@ -1502,6 +1658,22 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setNumIndexLookupThreads(indexLookupThreads);
     }
     
+    public boolean isCoalesceIndexLookups() {
+        return getConfig().isCoalesceIndexLookups();
+    }
+    
+    public void setCoalesceIndexLookups(boolean coalesceIndexLookups) {
+        getConfig().setCoalesceIndexLookups(coalesceIndexLookups);
+    }
+    
+    public int getMaxTermsPerIndexLookup() {
+        return getConfig().getMaxTermsPerIndexLookup();
+    }
+    
+    public void setMaxTermsPerIndexLookup(int maxTermsPerIndexLookup) {
+        getConfig().setMaxTermsPerIndexLookup(maxTermsPerIndexLookup);
+    }
+    
     public int getDateIndexThreads() {
         return getConfig().getNumDateIndexThreads();
     }
@@ -1755,6 +1927,38 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setMaxIvaratorResults(maxIvaratorResults);
     }
     
+    public boolean isIvaratorSharedCache() {
+        return getConfig().isIvaratorSharedCache();
+    }
+    
+    public void setIvaratorSharedCache(boolean ivaratorSharedCache) {
+        getConfig().setIvaratorSharedCache(ivaratorSharedCache);
+    }
+    
+    public long getIvaratorSharedCacheMaxSizeMB() {
+        return getConfig().getIvaratorSharedCacheMaxSizeMB();
+    }
+    
+    public void setIvaratorSharedCacheMaxSizeMB(long ivaratorSharedCacheMaxSizeMB) {
+        getConfig().setIvaratorSharedCacheMaxSizeMB(ivaratorSharedCacheMaxSizeMB);
+    }
+    
+    public long getIvaratorSharedCacheMaxAgeMs() {
+        return getConfig().getIvaratorSharedCacheMaxAgeMs();
+    }
+    
+    public void setIvaratorSharedCacheMaxAgeMs(long ivaratorSharedCacheMaxAgeMs) {
+        getConfig().setIvaratorSharedCacheMaxAgeMs(ivaratorSharedCacheMaxAgeMs);
+    }
+    
+    public String getIvaratorSharedCacheVersion() {
+        return getConfig().getIvaratorSharedCacheVersion();
+    }
+    
+    public void setIvaratorSharedCacheVersion(String ivaratorSharedCacheVersion) {
+        getConfig().setIvaratorSharedCacheVersion(ivaratorSharedCacheVersion);
+    }
+    
     public int getMaxEvaluationPipelines() {
         return getConfig().getMaxEvaluationPipelines();
     }
@@ -1771,6 +1975,22 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setMaxPipelineCachedResults(maxCachedResults);
     }
     
+    public boolean isCompletionEvaluationPipeline() {
+        return getConfig().isCompletionEvaluationPipeline();
+    }
+    
+    public void setCompletionEvaluationPipeline(boolean completionEvaluationPipeline) {
+        getConfig().setCompletionEvaluationPipeline(completionEvaluationPipeline);
+    }
+    
+    public boolean isCompiledEvaluation() {
+        return getConfig().isCompiledEvaluation();
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        getConfig().setCompiledEvaluation(compiledEvaluation);
+    }
+    
     public void setQueryExecutionForPageTimeout(long queryExecutionForPageTimeout) {
         getConfig().setQueryExecutionForPageTimeout(queryExecutionForPageTimeout);
     }
@@ -1902,6 +2122,38 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setCompressServerSideResults(compressServerSideResults);
     }
     
+    public boolean isKryoAttributeClassIds() {
+        return getConfig().isKryoAttributeClassIds();
+    }
+    
+    public void setKryoAttributeClassIds(boolean kryoAttributeClassIds) {
+        getConfig().setKryoAttributeClassIds(kryoAttributeClassIds);
+    }
+    
+    public int getDocumentBatchSize() {
+        return getConfig().getDocumentBatchSize();
+    }
+    
+    public void setDocumentBatchSize(int documentBatchSize) {
+        getConfig().setDocumentBatchSize(documentBatchSize);
+    }
+    
+    public long getDocumentBatchMaxBytes() {
+        return getConfig().getDocumentBatchMaxBytes();
+    }
+    
+    public void setDocumentBatchMaxBytes(long documentBatchMaxBytes) {
+        getConfig().setDocumentBatchMaxBytes(documentBatchMaxBytes);
+    }
+    
+    public long getDocumentBatchMaxLatencyMs() {
+        return getConfig().getDocumentBatchMaxLatencyMs();
+    }
+    
+    public void setDocumentBatchMaxLatencyMs(long documentBatchMaxLatencyMs) {
+        getConfig().setDocumentBatchMaxLatencyMs(documentBatchMaxLatencyMs);
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -2169,6 +2421,78 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setCacheModel(cacheModel);
     }
     
+    public boolean isCacheQueryPlans() {
+        return getConfig().isCacheQueryPlans();
+    }
+    
+    public void setCacheQueryPlans(boolean cacheQueryPlans) {
+        getConfig().setCacheQueryPlans(cacheQueryPlans);
+    }
+    
+    public int getQueryPlanCacheSize() {
+        return getConfig().getQueryPlanCacheSize();
+    }
+    
+    public void setQueryPlanCacheSize(int queryPlanCacheSize) {
+        getConfig().setQueryPlanCacheSize(queryPlanCacheSize);
+    }
+    
+    public long getQueryPlanCacheTtlMs() {
+        return getConfig().getQueryPlanCacheTtlMs();
+    }
+    
+    public void setQueryPlanCacheTtlMs(long queryPlanCacheTtlMs) {
+        getConfig().setQueryPlanCacheTtlMs(queryPlanCacheTtlMs);
+    }
+    
+    public int getQueryPlanCacheMaxPlans() {
+        return getConfig().getQueryPlanCacheMaxPlans();
+    }
+    
+    public void setQueryPlanCacheMaxPlans(int queryPlanCacheMaxPlans) {
+        getConfig().setQueryPlanCacheMaxPlans(queryPlanCacheMaxPlans);
+    }
+    
+    public boolean isCacheIndexExpansions() {
+        return getConfig().isCacheIndexExpansions();
+    }
+    
+    public void setCacheIndexExpansions(boolean cacheIndexExpansions) {
+        getConfig().setCacheIndexExpansions(cacheIndexExpansions);
+    }
+    
+    public int getIndexExpansionCacheSize() {
+        return getConfig().getIndexExpansionCacheSize();
+    }
+    
+    public void setIndexExpansionCacheSize(int indexExpansionCacheSize) {
+        getConfig().setIndexExpansionCacheSize(indexExpansionCacheSize);
+    }
+    
+    public long getIndexExpansionCacheTtlMs() {
+        return getConfig().getIndexExpansionCacheTtlMs();
+    }
+    
+    public void setIndexExpansionCacheTtlMs(long indexExpansionCacheTtlMs) {
+        getConfig().setIndexExpansionCacheTtlMs(indexExpansionCacheTtlMs);
+    }
+    
+    public boolean isCostBasedPlanning() {
+        return getConfig().isCostBasedPlanning();
+    }
+    
+    public void setCostBasedPlanning(boolean costBasedPlanning) {
+        getConfig().setCostBasedPlanning(costBasedPlanning);
+    }
+    
+    public double getCostBasedDelayRatio() {
+        return getConfig().getCostBasedDelayRatio();
+    }
+    
+    public void setCostBasedDelayRatio(double costBasedDelayRatio) {
+        getConfig().setCostBasedDelayRatio(costBasedDelayRatio);
+    }
+    
     public List<IndexHole> getIndexHoles() {
         return getConfig().getIndexHoles();
     }
@@ -2249,6 +2573,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setRangeBufferPollMillis(rangeBufferPollMillis);
     }
     
+    public long getMaxRangeQueueBytes() {
+        return getConfig().getMaxRangeQueueBytes();
+    }
+    
+    public void setMaxRangeQueueBytes(long maxRangeQueueBytes) {
+        getConfig().setMaxRangeQueueBytes(maxRangeQueueBytes);
+    }
+    
+    public boolean isSortQueryPlansByRecency() {
+        return getConfig().isSortQueryPlansByRecency();
+    }
+    
+    public void setSortQueryPlansByRecency(boolean sortQueryPlansByRecency) {
+        getConfig().setSortQueryPlansByRecency(sortQueryPlansByRecency);
+    }
+    
+    public boolean isSortQueryPlansByMatchedTerms() {
+        return getConfig().isSortQueryPlansByMatchedTerms();
+    }
+    
+    public void setSortQueryPlansByMatchedTerms(boolean sortQueryPlansByMatchedTerms) {
+        getConfig().setSortQueryPlansByMatchedTerms(sortQueryPlansByMatchedTerms);
+    }
+    
     public int getGeometryMaxExpansion() {
         return getConfig().getGeometryMaxExpansion();
     }
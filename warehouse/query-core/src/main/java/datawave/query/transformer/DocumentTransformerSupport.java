@@ -15,6 +15,7 @@ import datawave.query.function.JexlEvaluation;
 import datawave.query.function.LogTiming;
 import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.iterator.QueryOptions;
+import datawave.query.iterator.profile.LatencyHistogram;
 import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.util.StringUtils;
@@ -47,6 +48,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -71,8 +73,11 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
     private long nextCount = 0;
     private long seekCount = 0;
     private long yieldCount = 0L;
+    private long resumeCount = 0L;
+    private long yieldResumeMs = 0L;
     private long docRanges = 0;
     private long fiRanges = 0;
+    private final Map<String,LatencyHistogram> latencies = new LinkedHashMap<>();
     private boolean logTimingDetails = false;
     private CardinalityRecord resultCardinalityDocumentDate = null;
     private CardinalityRecord resultCardinalityQueryDate = null;
@@ -219,11 +224,16 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             long currentNextCount = timingMetadata.getNextCount();
             long currentSeekCount = timingMetadata.getSeekCount();
             long currentYieldCount = timingMetadata.getYieldCount();
+            long currentResumeCount = timingMetadata.getResumeCount();
+            long currentYieldResumeMs = timingMetadata.getYieldResumeMs();
             String host = timingMetadata.getHost();
             sourceCount += currentSourceCount;
             nextCount += currentNextCount;
             seekCount += currentSeekCount;
             yieldCount += currentYieldCount;
+            resumeCount += currentResumeCount;
+            yieldResumeMs += currentYieldResumeMs;
+            QuerySpan.addLatencies(latencies, timingMetadata.getLatencies());
             Map<String,Long> stageTimers = timingMetadata.getStageTimers();
             if (stageTimers.containsKey(QuerySpan.Stage.DocumentSpecificTree.toString())) {
                 docRanges++;
@@ -236,7 +246,8 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
                 sb.append("retrieved document from host:").append(host).append(" at key:").append(documentKey.toStringNoTime()).append(" stageTimers:")
                                 .append(stageTimers);
                 sb.append(" sourceCount:").append(currentSourceCount).append(" nextCount:").append(currentNextCount).append(" seekCount:")
-                                .append(currentSeekCount).append(" yieldCount:").append(currentYieldCount);
+                                .append(currentSeekCount).append(" yieldCount:").append(currentYieldCount)
+                                .append(" resumeCount:").append(currentResumeCount).append(" yieldResumeMs:").append(currentYieldResumeMs);
                 if (log.isTraceEnabled()) {
                     log.trace(sb.toString());
                 } else {
@@ -258,11 +269,36 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             metric.setNextCount(nextCount);
             metric.setSeekCount(seekCount);
             metric.setYieldCount(yieldCount);
+            // the query metric does not carry the resumes or their cost, so log them alongside the yield count
+            if (resumeCount > 0 && log.isDebugEnabled()) {
+                log.debug("Query " + metric.getQueryId() + " yielded " + yieldCount + " times and resumed " + resumeCount + " times in " + yieldResumeMs
+                                + "ms");
+            }
             metric.setDocRanges(docRanges);
             metric.setFiRanges(fiRanges);
+            // nor does it carry the latency distributions, which are merged across every tserver that returned timing metadata
+            if (!latencies.isEmpty() && (logTimingDetails || log.isDebugEnabled())) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("Query ").append(metric.getQueryId()).append(" latencies:");
+                for (Entry<String,LatencyHistogram> entry : latencies.entrySet()) {
+                    sb.append(' ').append(entry.getKey()).append("[").append(entry.getValue()).append(']');
+                }
+                if (logTimingDetails) {
+                    log.info(sb.toString());
+                } else {
+                    log.debug(sb.toString());
+                }
+            }
         }
     }
     
+    /**
+     * @return the latency histograms by stage, operation or ivarator field merged from the timing metadata of all documents seen so far
+     */
+    public Map<String,LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+    
     protected List<String> getFieldValues(Document document, String field, boolean shortCircuit) {
         
         Map<String,String> reverseModel = cardinalityConfiguration.getCardinalityFieldReverseMapping();
@@ -2,6 +2,7 @@ package datawave.query.util;
 
 import java.util.ArrayList;
 
+import datawave.query.jexl.lookups.IndexExpansionCache;
 import datawave.webservice.common.cache.SharedCacheCoordinator;
 
 import org.apache.accumulo.core.client.Connector;
@@ -72,6 +73,8 @@ public class MetadataHelperCacheManagementListener {
                     if (!watcher.checkCounter(metadataTableName, newCount)) {
                         log.debug("will evictCaches for " + metadataTableName);
                         metadataCacheManager.evictCaches();
+                        // the cached index expansions depend on the indexed fields in the metadata
+                        IndexExpansionCache.invalidateShared();
                     } else {
                         log.debug("did not evictCaches for " + metadataTableName);
                     }
@@ -62,6 +62,19 @@ public class QueryStopwatch {
         return entry.getValue();
     }
     
+    /**
+     * Get the time taken by each stopwatch, in the order they were started
+     * 
+     * @return the description and elapsed milliseconds of each stopwatch
+     */
+    public List<Entry<String,Long>> getElapsedMillis() {
+        List<Entry<String,Long>> elapsed = Lists.newArrayListWithCapacity(watches.size());
+        for (Entry<String,TraceStopwatch> entry : watches) {
+            elapsed.add(Maps.immutableEntry(entry.getKey(), entry.getValue().elapsed(TimeUnit.MILLISECONDS)));
+        }
+        return elapsed;
+    }
+    
     public String summarize() {
         List<String> logLines = summarizeAsList();
         
@@ -1,6 +1,7 @@
 package datawave.query.util.sortedset;
 
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -8,7 +9,10 @@ import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import org.apache.hadoop.fs.FileStatus;
@@ -21,6 +25,12 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
     private static final Logger log = Logger.getLogger(HdfsBackedSortedSet.class);
     private static final String FILENAME_PREFIX = "SortedSetFile.";
     
+    // how long the storage used under a cache dir with a quota is trusted before it is measured again
+    public static final long QUOTA_REFRESH_INTERVAL_MS = 1000L * 30;
+    
+    // the storage used under each base path with a quota, shared by all of the sets on this tserver
+    private static final Map<String,StorageUsage> storageUsage = new ConcurrentHashMap<>();
+    
     public HdfsBackedSortedSet(HdfsBackedSortedSet<E> other) throws IOException {
         super(other);
     }
@@ -92,6 +102,41 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
         }
     }
     
+    private static StorageUsage getStorageUsage(String basePathURI) {
+        return storageUsage.computeIfAbsent(basePathURI, k -> new StorageUsage());
+    }
+    
+    /**
+     * Forget the storage used under the cache dirs, so that it is measured again on the next check
+     */
+    static void invalidateStorageUsage() {
+        storageUsage.clear();
+    }
+    
+    /**
+     * The storage used under a cache dir base path, as last measured plus the files written by this tserver since
+     */
+    private static class StorageUsage {
+        private final AtomicLong writtenBytes = new AtomicLong();
+        private long measuredBytes = 0;
+        private long measuredMs = 0;
+        
+        synchronized long getUsedBytes(FileSystem fs, Path basePath) throws IOException {
+            long now = System.currentTimeMillis();
+            if (now - measuredMs >= QUOTA_REFRESH_INTERVAL_MS) {
+                // anything written while measuring may be counted twice until the next measurement, which errs on the side of the quota
+                writtenBytes.set(0);
+                measuredBytes = fs.exists(basePath) ? fs.getContentSummary(basePath).getLength() : 0L;
+                measuredMs = now;
+            }
+            return measuredBytes + writtenBytes.get();
+        }
+        
+        void addWritten(long bytes) {
+            writtenBytes.addAndGet(bytes);
+        }
+    }
+    
     @Override
     public void clear() {
         // This will be a new ArrayList<>() containing the same FileSortedSets
@@ -154,12 +199,50 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
                 
                 // if we are using less than our storage limit, the cache dir is valid
                 return availableStorageMiB >= ivaratorCacheDir.getConfig().getMinAvailableStorageMiB()
-                                && availableStoragePercent >= ivaratorCacheDir.getConfig().getMinAvailableStoragePercent();
+                                && availableStoragePercent >= ivaratorCacheDir.getConfig().getMinAvailableStoragePercent() && isWithinQuota();
             }
             
             return false;
         }
         
+        /**
+         * Determine whether the ivarators are using less than the storage quota for this cache dir, if it has one. The storage used is measured at most once
+         * per {@link #QUOTA_REFRESH_INTERVAL_MS}, and the files written by this tserver in between are added to it.
+         *
+         * @return true if there is no quota or we are under it
+         */
+        private boolean isWithinQuota() {
+            long maxStorageMiB = ivaratorCacheDir.getConfig().getMaxStorageMiB();
+            if (maxStorageMiB <= 0) {
+                return true;
+            }
+            
+            String basePathURI = ivaratorCacheDir.getConfig().getBasePathURI();
+            try {
+                long usedStorageMiB = getStorageUsage(basePathURI).getUsedBytes(getFs(), new Path(basePathURI)) / 0x100000L;
+                if (usedStorageMiB >= maxStorageMiB) {
+                    log.debug("Ivarator cache dir " + basePathURI + " is over its quota of " + maxStorageMiB + " MiB");
+                    return false;
+                }
+                return true;
+            } catch (IOException e) {
+                log.warn("Unable to determine the storage used under " + basePathURI, e);
+                return false;
+            }
+        }
+        
+        /**
+         * Count a file written under this cache dir against its quota until the storage used is next measured
+         *
+         * @param bytes
+         *            the size of the file
+         */
+        void addWritten(long bytes) {
+            if (ivaratorCacheDir.getConfig().getMaxStorageMiB() > 0) {
+                getStorageUsage(ivaratorCacheDir.getConfig().getBasePathURI()).addWritten(bytes);
+            }
+        }
+        
         @Override
         public FileSortedSet.SortedSetFileHandler createHandler() throws IOException {
             FileSystem fs = getFs();
@@ -171,7 +254,11 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             // generate a unique file name
             fileCount++;
             Path file = new Path(uniqueDir, FILENAME_PREFIX + fileCount + '.' + System.currentTimeMillis());
-            return new SortedSetHdfsFileHandler(fs, file, persistOptions);
+            SortedSetHdfsFileHandler handler = new SortedSetHdfsFileHandler(fs, file, persistOptions);
+            if (ivaratorCacheDir.getConfig().getMaxStorageMiB() > 0) {
+                handler.quotaFactory = this;
+            }
+            return handler;
         }
         
         private void ensureDirsCreated() throws IOException {
@@ -212,6 +299,8 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
         private FileSystem fs;
         private Path file;
         private FileSortedSet.PersistOptions persistOptions;
+        // the factory of the cache dir whose quota the file counts against, null if it has no quota
+        private SortedSetHdfsFileHandlerFactory quotaFactory = null;
         
         public SortedSetHdfsFileHandler(FileSystem fs, Path file, FileSortedSet.PersistOptions persistOptions) {
             this.fs = fs;
@@ -240,7 +329,35 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             if (log.isDebugEnabled()) {
                 log.debug("Creating " + file);
             }
-            return fs.create(file);
+            OutputStream out = fs.create(file);
+            if (quotaFactory == null) {
+                return out;
+            }
+            
+            // count the bytes written against the quota once the file is closed
+            final SortedSetHdfsFileHandlerFactory factory = quotaFactory;
+            return new FilterOutputStream(out) {
+                private long written = 0;
+                
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    written++;
+                }
+                
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    written += len;
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    factory.addWritten(written);
+                    written = 0;
+                }
+            };
         }
         
         @Override
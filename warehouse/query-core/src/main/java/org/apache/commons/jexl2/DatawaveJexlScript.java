@@ -43,6 +43,26 @@ public class DatawaveJexlScript implements Expression, Script {
         return new DatawaveJexlScript(expression.jexl, expression.expression, expression.script);
     }
     
+    /**
+     * @return the flattened script
+     */
+    public ASTJexlScript getScript() {
+        return script;
+    }
+    
+    /**
+     * Create an interpreter for evaluating nodes of this script against a context
+     * 
+     * @param context
+     *            the context
+     * @return the interpreter
+     */
+    public Interpreter createInterpreter(JexlContext context) {
+        Interpreter interpreter = jexl.createInterpreter(context);
+        interpreter.setFrame(script.createFrame((Object[]) null));
+        return interpreter;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,192 @@
+package datawave.core.iterators;
+
+import datawave.query.iterator.SortedListKeyValueIterator;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FieldIndexCachingIteratorTest {
+    
+    private static final String ROW = "20200101_0";
+    private static final String CF = "fi\0FOO";
+    private static final Collection<ByteSequence> FI_CF = Collections.singleton(new ArrayByteSequence(CF));
+    
+    private List<Map.Entry<Key,Value>> data;
+    private int seeks;
+    
+    @Before
+    public void setup() {
+        data = new ArrayList<>();
+        add(ROW, CF, "ba\0dt1\0uid0", "A");
+        for (int i = 1; i <= 5; i++) {
+            add(ROW, CF, "bar\0dt1\0uid" + i, (i % 2 == 0 ? "A" : "B"));
+            add(ROW, CF, "bar\0dt2\0uid" + i, "A");
+        }
+        add(ROW, CF, "barn\0dt1\0uid6", "A");
+        add(ROW, CF, "baz\0dt1\0uid7", "A");
+        add(ROW, "fi\0FOOD", "bar\0dt1\0uid8", "A");
+        add(ROW, "dt1\0uid1", "FOO\0bar", "A");
+        add("20200101_1", CF, "bar\0dt1\0uid9", "A");
+        seeks = 0;
+    }
+    
+    private void add(String row, String cf, String cq, String cv) {
+        data.add(new AbstractMap.SimpleEntry<>(new Key(row, cf, cq, cv, 10), new Value(new byte[0])));
+    }
+    
+    @Test
+    public void testTermScans() throws IOException {
+        FieldIndexCache cache = new FieldIndexCache(1, 60000, 100);
+        
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW + "\0"), false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW, CF, "bar\0\uffff"), false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0dt1\0uid3"), true, new Key(ROW + "\0"), false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0dt1\0uid3"), false, new Key(ROW, CF, "bar\0dt2\0uid2"), true), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0dt2\0uid5"), true, new Key(ROW, CF, "bar\0dt2\0uid5\uffff"), false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0"), true, null, false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0"), true, null, false), Collections.emptyList(), false);
+        assertEquals(1, cache.size());
+        
+        // not within the term
+        assertSame(cache, new Range(new Key(ROW, CF, "ba\0"), true, new Key(ROW + "\0"), false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW), true, new Key(ROW + "\0"), false), FI_CF, true);
+        assertSame(cache, new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW + "\0"), false), FI_CF, false);
+        assertEquals(1, cache.size());
+        
+        assertSame(cache, new Range(new Key("20200101_1", CF, "bar\0"), true, null, false), FI_CF, true);
+        assertEquals(2, cache.size());
+    }
+    
+    @Test
+    public void testCacheHit() throws IOException {
+        FieldIndexCache cache = new FieldIndexCache(1, 60000, 100);
+        Range range = new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW, CF, "bar\1"), false);
+        
+        List<Key> expected = scan(createCaching(cache), range, FI_CF, true);
+        assertEquals(10, expected.size());
+        assertEquals(1, seeks);
+        
+        seeks = 0;
+        assertEquals(expected, scan(createCaching(cache), range, FI_CF, true));
+        assertEquals(0, seeks);
+    }
+    
+    @Test
+    public void testTooLarge() throws IOException {
+        FieldIndexCache cache = new FieldIndexCache(1, 60000, 4);
+        Range range = new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW + "\0"), false);
+        
+        assertSame(cache, range, FI_CF, true);
+        assertEquals(1, cache.size());
+        
+        // the term is not read again to find out that it is too large
+        seeks = 0;
+        assertEquals(scan(createSource(), range, FI_CF, true), scan(createCaching(cache), range, FI_CF, true));
+        assertEquals(2, seeks);
+    }
+    
+    @Test
+    public void testNoTerm() throws IOException {
+        FieldIndexCache cache = new FieldIndexCache(1, 60000, 100);
+        Range range = new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW + "\0"), false);
+        FieldIndexCachingIterator iterator = new FieldIndexCachingIterator(createSource(), cache, "shard", new ArrayByteSequence("A"));
+        
+        assertEquals(scan(createSource(), range, FI_CF, true), scan(iterator, range, FI_CF, true));
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testTablesAreSeparate() throws IOException {
+        FieldIndexCache cache = new FieldIndexCache(1, 60000, 100);
+        Range range = new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW, CF, "bar\1"), false);
+        
+        List<Key> expected = scan(createCaching(cache), range, FI_CF, true);
+        assertEquals(1, seeks);
+        
+        // the same term in another table is read from that table
+        seeks = 0;
+        assertEquals(expected, scan(createCaching(cache, "errorShard"), range, FI_CF, true));
+        assertEquals(1, seeks);
+        assertEquals(2, cache.size());
+    }
+    
+    @Test
+    public void testInitWithoutCache() throws IOException {
+        Range range = new Range(new Key(ROW, CF, "bar\0"), true, new Key(ROW + "\0"), false);
+        
+        // the cache is disabled in the default configuration, so every seek is passed through
+        FieldIndexCachingIterator iterator = new FieldIndexCachingIterator();
+        iterator.init(createSource(), Collections.singletonMap(FieldIndexCachingIterator.TABLE_NAME, "shard"), null);
+        iterator.setTerm(new Text(CF), new Text("bar\0"));
+        
+        assertEquals(scan(createSource(), range, FI_CF, true), scan(iterator, range, FI_CF, true));
+    }
+    
+    @Test
+    public void testExhausted() throws IOException {
+        FieldIndexCache cache = new FieldIndexCache(1, 60000, 100);
+        SortedKeyValueIterator<Key,Value> iterator = createCaching(cache);
+        iterator.seek(new Range(new Key(ROW, CF, "bar\0dt9"), true, new Key(ROW, CF, "bar\0dt9\uffff"), false), FI_CF, true);
+        assertFalse(iterator.hasTop());
+    }
+    
+    private void assertSame(FieldIndexCache cache, Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        assertEquals(range.toString(), scan(createSource(), range, columnFamilies, inclusive), scan(createCaching(cache), range, columnFamilies, inclusive));
+    }
+    
+    private List<Key> scan(SortedKeyValueIterator<Key,Value> iterator, Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+                    throws IOException {
+        List<Key> keys = new ArrayList<>();
+        iterator.seek(range, columnFamilies, inclusive);
+        while (iterator.hasTop()) {
+            keys.add(iterator.getTopKey());
+            iterator.next();
+        }
+        return keys;
+    }
+    
+    private FieldIndexCachingIterator createCaching(FieldIndexCache cache) {
+        return createCaching(cache, "shard");
+    }
+    
+    private FieldIndexCachingIterator createCaching(FieldIndexCache cache, String tableName) {
+        FieldIndexCachingIterator iterator = new FieldIndexCachingIterator(createSource(), cache, tableName, new ArrayByteSequence("A,B"));
+        iterator.setTerm(new Text(CF), new Text("bar\0"));
+        return iterator;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private SortedKeyValueIterator<Key,Value> createSource() {
+        WrappingIterator counting = new WrappingIterator() {
+            @Override
+            public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+                seeks++;
+                super.seek(range, columnFamilies, inclusive);
+            }
+        };
+        try {
+            counting.init(new SortedListKeyValueIterator(data), null, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return counting;
+    }
+}
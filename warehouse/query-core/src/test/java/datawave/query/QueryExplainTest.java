@@ -0,0 +1,93 @@
+package datawave.query;
+
+import datawave.query.jexl.visitors.ExecutionPathVisitor;
+import datawave.query.testframework.AbstractFunctionalQuery;
+import datawave.query.testframework.AccumuloSetup;
+import datawave.query.testframework.CitiesDataType;
+import datawave.query.testframework.DataTypeHadoopConfig;
+import datawave.query.testframework.FieldConfig;
+import datawave.query.testframework.FileType;
+import datawave.query.testframework.GenericCityFields;
+import datawave.webservice.query.explain.ExplainedTerm;
+import datawave.webservice.query.explain.QueryExplainResponse;
+import org.apache.log4j.Logger;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * QueryExplainTest verifies the plan and the estimates that are returned when a query is explained rather than run.
+ */
+public class QueryExplainTest extends AbstractFunctionalQuery {
+    
+    @ClassRule
+    public static AccumuloSetup accumuloSetup = new AccumuloSetup();
+    
+    private static final Logger log = Logger.getLogger(QueryExplainTest.class);
+    
+    public QueryExplainTest() {
+        super(CitiesDataType.getManager());
+    }
+    
+    @Override
+    protected void testInit() {
+        this.auths = CitiesDataType.getTestAuths();
+    }
+    
+    @BeforeClass
+    public static void filterSetup() throws Exception {
+        FieldConfig generic = new GenericCityFields();
+        generic.addIndexField(CitiesDataType.CityField.STATE.name());
+        DataTypeHadoopConfig dataType = new CitiesDataType(CitiesDataType.CityEntry.generic, generic);
+        accumuloSetup.setData(FileType.CSV, dataType);
+        
+        connector = accumuloSetup.loadTables(log);
+    }
+    
+    @Test
+    public void testIndexedTerm() throws Exception {
+        String query = CitiesDataType.CityField.CITY.name() + " == 'rome'";
+        QueryExplainResponse explain = getExplain(query);
+        
+        assertEquals(query, explain.getQuery());
+        assertTrue(explain.getPlannedQuery(), explain.getPlannedQuery().contains("CITY == 'rome'"));
+        assertTrue(explain.getShards() > 0);
+        assertTrue(explain.getDays() > 0);
+        assertFalse(explain.getStages().isEmpty());
+        
+        assertEquals(1, explain.getTerms().size());
+        ExplainedTerm term = explain.getTerms().get(0);
+        assertEquals("CITY == 'rome'", term.getTerm());
+        assertEquals(ExecutionPathVisitor.Path.INDEX.getLabel(), term.getPath());
+        assertNotNull(term.getEstimatedUids());
+        assertTrue(term.getEstimatedUids() >= 0);
+        assertNotNull(explain.getEstimatedUids());
+        assertTrue(explain.getEstimatedUids() >= term.getEstimatedUids());
+    }
+    
+    @Test
+    public void testUnindexedTerm() throws Exception {
+        String city = CitiesDataType.CityField.CITY.name() + " == 'rome'";
+        String code = CitiesDataType.CityField.CODE.name() + " == 'ita'";
+        QueryExplainResponse explain = getExplain(city + " && " + code);
+        
+        assertEquals(2, explain.getTerms().size());
+        for (ExplainedTerm term : explain.getTerms()) {
+            if (term.getTerm().equals(code)) {
+                // a term that is not in the index is only evaluated, so it has no estimate
+                assertEquals(ExecutionPathVisitor.Path.EVALUATION_ONLY.getLabel(), term.getPath());
+                assertNull(term.getEstimatedUids());
+            } else {
+                assertEquals(city, term.getTerm());
+                assertEquals(ExecutionPathVisitor.Path.INDEX.getLabel(), term.getPath());
+                assertNotNull(term.getEstimatedUids());
+            }
+        }
+    }
+}
@@ -2,12 +2,17 @@ package datawave.query.attributes;
 
 import datawave.query.function.deserializer.KryoDocumentDeserializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.google.common.collect.Maps;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.util.Map.Entry;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -31,6 +36,15 @@ public class AttributeTest {
         
         Attribute<?> nextAttr = next.get("KEY");
         assertEquals(expected, nextAttr.isToKeep());
+        
+        // round trip through a Value using attribute class ids
+        Key docKey = new Key("shard", "datatype\0uid");
+        Entry<Key,Value> value = new KryoDocumentSerializer(false, false, true).apply(Maps.immutableEntry(docKey, d));
+        next = de.apply(value).getValue();
+        
+        nextAttr = next.get("KEY");
+        assertEquals(attr.getClass(), nextAttr.getClass());
+        assertEquals(expected, nextAttr.isToKeep());
     }
     
     private void testDefaultSerialization(Attribute<?> attr, boolean expected) {
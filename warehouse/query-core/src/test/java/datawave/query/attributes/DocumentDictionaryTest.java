@@ -0,0 +1,147 @@
+package datawave.query.attributes;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentDictionaryTest {
+    
+    private final Key docKey = new Key("shard", "datatype\0uid");
+    
+    private Attribute<? extends Comparable<?>> content(String value) {
+        return new Content(value, docKey, true);
+    }
+    
+    @Test
+    public void testMatchesTreeMap() {
+        DocumentDictionary dict = new DocumentDictionary();
+        Map<String,Attribute<? extends Comparable<?>>> expected = new TreeMap<>();
+        
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            fields.add("FIELD_" + i);
+        }
+        Collections.shuffle(fields, new Random(42));
+        
+        for (String field : fields) {
+            Attribute<? extends Comparable<?>> value = content(field.toLowerCase());
+            assertNull(dict.put(field, value));
+            expected.put(field, value);
+        }
+        assertEquals(expected, dict);
+        assertEquals(expected.hashCode(), dict.hashCode());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(dict.keySet()));
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(dict.values()));
+        
+        for (int i = 0; i < 100; i += 3) {
+            assertEquals(expected.remove("FIELD_" + i), dict.remove("FIELD_" + i));
+        }
+        assertNull(dict.remove("FIELD_0"));
+        assertFalse(dict.containsKey("FIELD_3"));
+        assertTrue(dict.containsKey("FIELD_4"));
+        assertEquals(expected, dict);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(dict.keySet()));
+    }
+    
+    @Test
+    public void testReplace() {
+        DocumentDictionary dict = new DocumentDictionary(1);
+        Attribute<? extends Comparable<?>> first = content("first");
+        Attribute<? extends Comparable<?>> second = content("second");
+        assertNull(dict.put("FIELD", first));
+        assertSame(first, dict.put("FIELD", second));
+        assertSame(second, dict.get("FIELD"));
+        assertEquals(1, dict.size());
+    }
+    
+    @Test
+    public void testIteratorRemoveAndSetValue() {
+        DocumentDictionary dict = new DocumentDictionary();
+        for (String field : new String[] {"A", "B", "C", "D", "E"}) {
+            dict.put(field, content(field));
+        }
+        
+        Attribute<? extends Comparable<?>> replacement = content("replacement");
+        Iterator<Map.Entry<String,Attribute<? extends Comparable<?>>>> it = dict.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String,Attribute<? extends Comparable<?>>> entry = it.next();
+            if (entry.getKey().equals("B") || entry.getKey().equals("C")) {
+                it.remove();
+            } else if (entry.getKey().equals("D")) {
+                entry.setValue(replacement);
+            }
+        }
+        
+        assertEquals(3, dict.size());
+        assertEquals(Arrays.asList("A", "D", "E"), new ArrayList<>(dict.keySet()));
+        assertSame(replacement, dict.get("D"));
+    }
+    
+    @Test
+    public void testFieldNamesInterned() {
+        DocumentDictionary dict1 = new DocumentDictionary();
+        DocumentDictionary dict2 = new DocumentDictionary();
+        dict1.put(new String("FIELD"), content("a"));
+        dict2.put(new String("FIELD"), content("b"));
+        assertSame(dict1.keySet().iterator().next(), dict2.keySet().iterator().next());
+    }
+    
+    @Test
+    public void testDocumentOrdering() {
+        Document d = new Document();
+        d.put("ZED", content("z"));
+        d.put("ALPHA", content("a"));
+        d.put("MIKE", content("m"));
+        d.put("ALPHA", content("b"));
+        
+        assertEquals(Arrays.asList("ALPHA", "MIKE", "ZED"), new ArrayList<>(d.getDictionary().keySet()));
+        assertEquals(4, d.size());
+        assertTrue(d.get("ALPHA") instanceof Attributes);
+        
+        Document copy = d.copy();
+        assertEquals(d, copy);
+        assertEquals(0, d.compareTo(copy));
+    }
+    
+    @Test
+    public void testJavaSerialization() throws Exception {
+        Document d = new Document();
+        d.put("ZED", content("z"));
+        d.put("ALPHA", content("a"));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(d);
+        }
+        Document read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Document) in.readObject();
+        }
+        
+        assertEquals(Arrays.asList("ALPHA", "ZED"), new ArrayList<>(read.getDictionary().keySet()));
+        assertEquals("z", ((Content) read.get("ZED")).getContent());
+        assertSame(d.getDictionary().keySet().iterator().next(), read.getDictionary().keySet().iterator().next());
+        
+        // the dictionary can still grow after being read
+        read.put("MIKE", content("m"));
+        assertEquals(Arrays.asList("ALPHA", "MIKE", "ZED"), new ArrayList<>(read.getDictionary().keySet()));
+    }
+}
@@ -79,6 +79,9 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(0, config.getNumRangesToBuffer());
         Assert.assertEquals(0, config.getRangeBufferTimeoutMillis());
         Assert.assertEquals(100, config.getRangeBufferPollMillis());
+        Assert.assertEquals(0, config.getMaxRangeQueueBytes());
+        Assert.assertFalse(config.isSortQueryPlansByRecency());
+        Assert.assertFalse(config.isSortQueryPlansByMatchedTerms());
         Assert.assertEquals(8, config.getGeometryMaxExpansion());
         Assert.assertEquals(32, config.getPointMaxExpansion());
         Assert.assertEquals(16, config.getGeoWaveRangeSplitThreshold());
@@ -95,6 +98,8 @@ public class ShardQueryConfigurationTest {
         Assert.assertTrue(config.isCleanupShardsAndDaysQueryHints());
         Assert.assertEquals(new Integer(8), config.getNumQueryThreads());
         Assert.assertEquals(new Integer(8), config.getNumIndexLookupThreads());
+        Assert.assertFalse(config.isCoalesceIndexLookups());
+        Assert.assertEquals(100, config.getMaxTermsPerIndexLookup());
         Assert.assertEquals(new Integer(8), config.getNumDateIndexThreads());
         Assert.assertEquals(new Integer(-1), config.getMaxDocScanTimeout());
         Assert.assertNotNull(config.getFstCount());
@@ -164,6 +169,12 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(5, config.getMaxRangesPerRangeIvarator());
         Assert.assertEquals(750, config.getMaxOrExpansionFstThreshold());
         Assert.assertEquals(Long.MAX_VALUE, config.getYieldThresholdMs());
+        Assert.assertFalse(config.isAdaptiveYieldThreshold());
+        Assert.assertEquals(100L, config.getMinYieldThresholdMs());
+        Assert.assertEquals(Long.MAX_VALUE, config.getMaxYieldThresholdMs());
+        Assert.assertFalse(config.isAdaptiveBackpressure());
+        Assert.assertEquals(0.0d, config.getBackpressurePoolLoadThreshold(), 0.0d);
+        Assert.assertEquals(0.0d, config.getBackpressureHeapThreshold(), 0.0d);
         Assert.assertNull(config.getHdfsSiteConfigURLs());
         Assert.assertNull(config.getHdfsFileCompressionCodec());
         Assert.assertNull(config.getZookeeperConfig());
@@ -180,6 +191,12 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(33, config.getMaxIvaratorSources());
         Assert.assertEquals(25, config.getMaxEvaluationPipelines());
         Assert.assertEquals(25, config.getMaxPipelineCachedResults());
+        Assert.assertFalse(config.isCompletionEvaluationPipeline());
+        Assert.assertFalse(config.isCompiledEvaluation());
+        Assert.assertFalse(config.isIvaratorSharedCache());
+        Assert.assertEquals(10240, config.getIvaratorSharedCacheMaxSizeMB());
+        Assert.assertEquals(1000L * 60 * 60, config.getIvaratorSharedCacheMaxAgeMs());
+        Assert.assertNull(config.getIvaratorSharedCacheVersion());
         Assert.assertFalse(config.isExpandAllTerms());
         Assert.assertNull(config.getQueryModel());
         Assert.assertNull(config.getModelName());
@@ -187,6 +204,10 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isExpansionLimitedToModelContents());
         Assert.assertEquals(new QueryImpl(), config.getQuery());
         Assert.assertFalse(config.isCompressServerSideResults());
+        Assert.assertFalse(config.isKryoAttributeClassIds());
+        Assert.assertEquals(0, config.getDocumentBatchSize());
+        Assert.assertEquals(1024L * 1024L, config.getDocumentBatchMaxBytes());
+        Assert.assertEquals(500L, config.getDocumentBatchMaxLatencyMs());
         Assert.assertFalse(config.isIndexOnlyFilterFunctionsEnabled());
         Assert.assertFalse(config.isCompositeFilterFunctionsEnabled());
         Assert.assertEquals(0, config.getGroupFieldsBatchSize());
@@ -194,6 +215,15 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(Sets.newHashSet(), config.getGroupFields());
         Assert.assertEquals(new UniqueFields(), config.getUniqueFields());
         Assert.assertFalse(config.getCacheModel());
+        Assert.assertFalse(config.isCacheQueryPlans());
+        Assert.assertEquals(100, config.getQueryPlanCacheSize());
+        Assert.assertEquals(300000L, config.getQueryPlanCacheTtlMs());
+        Assert.assertEquals(10000, config.getQueryPlanCacheMaxPlans());
+        Assert.assertFalse(config.isCacheIndexExpansions());
+        Assert.assertEquals(1000, config.getIndexExpansionCacheSize());
+        Assert.assertEquals(300000L, config.getIndexExpansionCacheTtlMs());
+        Assert.assertFalse(config.isCostBasedPlanning());
+        Assert.assertEquals(1000.0d, config.getCostBasedDelayRatio(), 0.0d);
         Assert.assertTrue(config.isTrackSizes());
         Assert.assertEquals(Lists.newArrayList(), config.getContentFieldNames());
         Assert.assertNull(config.getActiveQueryLogNameSource());
@@ -461,7 +491,7 @@ public class ShardQueryConfigurationTest {
      */
     @Test
     public void testCheckForNewAdditions() throws IOException {
-        int expectedObjectCount = 186;
+        int expectedObjectCount = 216;
         ShardQueryConfiguration config = ShardQueryConfiguration.create();
         ObjectMapper mapper = new ObjectMapper();
         JsonNode root = mapper.readTree(mapper.writeValueAsString(config));
@@ -0,0 +1,100 @@
+package datawave.query.function.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KryoDocumentSerializerTest {
+    
+    private final Key docKey = new Key("20200101_0", "datatype\0uid");
+    private Document document;
+    
+    @Before
+    public void setup() {
+        document = new Document(docKey, true);
+        for (int i = 0; i < 20; i++) {
+            document.put("FIELD_" + i, new Content("value " + i, docKey, true));
+            document.put("NUM_" + i, new Numeric(i, docKey, true));
+        }
+        document.put("FIELD_0", new Content("another value", docKey, true));
+    }
+    
+    @Test
+    public void testLegacyByDefault() {
+        Value value = new KryoDocumentSerializer().apply(Maps.immutableEntry(docKey, document)).getValue();
+        
+        // the legacy header, which older webservers can read
+        assertEquals(DocumentSerialization.LEGACY_VERSION, DocumentSerialization.getVersion(value.get()));
+        byte[] header = DocumentSerialization.getHeader();
+        assertTrue(Arrays.equals(header, Arrays.copyOf(value.get(), header.length)));
+        
+        Entry<Key,Document> result = new KryoDocumentDeserializer().apply(Maps.immutableEntry(docKey, value));
+        assertEquals(document, result.getValue());
+    }
+    
+    @Test
+    public void testClassIdRoundTrip() {
+        Value value = new KryoDocumentSerializer(false, false, true).apply(Maps.immutableEntry(docKey, document)).getValue();
+        
+        assertEquals(DocumentSerialization.CLASS_ID_VERSION, DocumentSerialization.getVersion(value.get()));
+        assertEquals(DocumentSerialization.NONE, DocumentSerialization.getCompression(value.get()));
+        
+        Entry<Key,Document> result = new KryoDocumentDeserializer().apply(Maps.immutableEntry(docKey, value));
+        assertEquals(document, result.getValue());
+    }
+    
+    @Test
+    public void testCompressedRoundTrip() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, true, true);
+        for (int i = 0; i < 1000; i++) {
+            document.put("BIG_" + i, new Content("a larger value to push the document over the compression threshold " + i, docKey, true));
+        }
+        
+        Value value = serializer.apply(Maps.immutableEntry(docKey, document)).getValue();
+        
+        assertEquals(DocumentSerialization.CLASS_ID_VERSION, DocumentSerialization.getVersion(value.get()));
+        assertEquals(DocumentSerialization.GZIP, DocumentSerialization.getCompression(value.get()));
+        
+        Entry<Key,Document> result = new KryoDocumentDeserializer().apply(Maps.immutableEntry(docKey, value));
+        assertEquals(document, result.getValue());
+    }
+    
+    @Test
+    public void testLegacyRoundTrip() {
+        // a legacy value is the header without a version followed by the class name encoding
+        byte[] body = new KryoDocumentSerializer().serialize(document);
+        byte[] header = DocumentSerialization.getHeader();
+        byte[] legacy = Arrays.copyOf(header, header.length + body.length);
+        System.arraycopy(body, 0, legacy, header.length, body.length);
+        
+        assertEquals(DocumentSerialization.LEGACY_VERSION, DocumentSerialization.getVersion(legacy));
+        
+        Entry<Key,Document> result = new KryoDocumentDeserializer().apply(Maps.immutableEntry(docKey, new Value(legacy)));
+        assertEquals(document, result.getValue());
+        
+        assertEquals(document, new KryoDocumentDeserializer().deserialize(new ByteArrayInputStream(body)));
+    }
+    
+    @Test
+    public void testClassIdsAreSmaller() {
+        Value legacy = new KryoDocumentSerializer().apply(Maps.immutableEntry(docKey, document)).getValue();
+        Value value = new KryoDocumentSerializer(false, false, true).apply(Maps.immutableEntry(docKey, document)).getValue();
+        assertTrue(value.get().length < legacy.get().length);
+    }
+}
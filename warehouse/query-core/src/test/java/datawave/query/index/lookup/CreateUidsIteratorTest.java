@@ -53,6 +53,30 @@ public class CreateUidsIteratorTest {
         assertEquals(expectedRootKey, CreateUidsIterator.makeRootKey(indexKey));
     }
     
+    @Test
+    public void testParseUidsCountOnly() throws IOException {
+        Uid.List.Builder builder = Uid.List.newBuilder();
+        builder.addAllUID(Arrays.asList("doc1", "doc2", "doc3"));
+        builder.addREMOVEDUID("doc4");
+        builder.setCOUNT(3);
+        builder.setIGNORE(false);
+        Value value = new Value(builder.build().toByteArray());
+        Key key = new Key("row", "cf", "shard_1\u0000datatype");
+        
+        assertEquals(Arrays.asList("datatype\u0000doc1", "datatype\u0000doc2", "datatype\u0000doc3"), CreateUidsIterator.parseUids(key, value).third());
+        
+        assertEquals(Long.valueOf(3L), CreateUidsIterator.parseUids(key, value, true).first());
+        assertFalse(CreateUidsIterator.parseUids(key, value, true).second());
+        assertTrue(CreateUidsIterator.parseUids(key, value, true).third().isEmpty());
+        
+        builder = Uid.List.newBuilder();
+        builder.setCOUNT(500L);
+        builder.setIGNORE(true);
+        value = new Value(builder.build().toByteArray());
+        assertEquals(Long.valueOf(500L), CreateUidsIterator.parseUids(key, value, true).first());
+        assertTrue(CreateUidsIterator.parseUids(key, value, true).second());
+    }
+    
     /**
      * Ensure that for a known set of data the iterator will correctly seek to each next value.
      *
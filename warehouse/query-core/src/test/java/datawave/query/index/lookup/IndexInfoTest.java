@@ -325,4 +325,40 @@ public class IndexInfoTest {
         assertEquals(expectedMerged, left.union(right));
         assertEquals(expectedMerged, right.union(left));
     }
+    
+    /**
+     * Intersection of sorted uids matches the intersection of unsorted uids, whichever side has more of them.
+     */
+    @Test
+    public void testIntersection_SortedMatchesUnsorted() {
+        List<String> everyThird = new ArrayList<>();
+        List<String> fewOdd = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 == 0) {
+                everyThird.add(String.format("doc%04d", i));
+            }
+            if (i % 97 == 1) {
+                fewOdd.add(String.format("doc%04d", i));
+            }
+        }
+        
+        IndexInfo intersector = new IndexInfo();
+        Set<IndexMatch> left = ImmutableSortedSet.copyOf(buildIndexMatches("FIELD", "VALUE", everyThird.toArray(new String[0])));
+        Set<IndexMatch> right = ImmutableSortedSet.copyOf(buildIndexMatches("FIELD", "VALUE", fewOdd.toArray(new String[0])));
+        
+        Set<IndexMatch> expected = intersector.intersect(new HashSet<>(left), new HashSet<>(right), new ArrayList<>());
+        assertEquals(3, expected.size());
+        assertEquals(expected, intersector.intersect(left, right, new ArrayList<>()));
+        assertEquals(expected, intersector.intersect(right, left, new ArrayList<>()));
+    }
+    
+    @Test
+    public void testGallop() {
+        IndexMatch[] matches = buildIndexMatches("FIELD", "VALUE", "doc1", "doc3", "doc5", "doc7", "doc9").toArray(new IndexMatch[0]);
+        assertEquals(1, IndexInfo.gallop(matches, 0, "doc2"));
+        assertEquals(1, IndexInfo.gallop(matches, 0, "doc3"));
+        assertEquals(3, IndexInfo.gallop(matches, 1, "doc6"));
+        assertEquals(4, IndexInfo.gallop(matches, 0, "doc9"));
+        assertEquals(5, IndexInfo.gallop(matches, 2, "doc99"));
+    }
 }
@@ -1592,4 +1592,85 @@ public class RangeStreamTest {
         }
         assertTrue("Expected ranges not found in query plan: " + expectedRanges.toString(), expectedRanges.isEmpty());
     }
+    
+    @Test
+    public void testOrBothIndexed_coalescedLookups() throws Exception {
+        String originalQuery = "(FOO == 'bag' || FOO == 'ba' || FOO == 'barglegarglebarsh')";
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(originalQuery);
+        
+        config.setBeginDate(new Date(0));
+        config.setEndDate(new Date(System.currentTimeMillis()));
+        config.setCoalesceIndexLookups(true);
+        // split the terms across two lookups
+        config.setMaxTermsPerIndexLookup(2);
+        
+        Multimap<String,Type<?>> dataTypes = HashMultimap.create();
+        dataTypes.putAll("FOO", Sets.newHashSet(new LcNoDiacriticsType()));
+        dataTypes.putAll("NUM", Sets.newHashSet(new NumberType()));
+        
+        config.setQueryFieldsDatatypes(dataTypes);
+        config.setIndexedFields(dataTypes);
+        
+        MockMetadataHelper helper = new MockMetadataHelper();
+        helper.setIndexedFields(dataTypes.keySet());
+        
+        Range range1 = makeTestRange("20190314", "datatype1\u0000234");
+        Range range2 = makeTestRange("20190314", "datatype1\u0000345");
+        Range range3 = makeTestRange("20190314", "datatype1\u0000123");
+        Set<Range> expectedRanges = Sets.newHashSet(range1, range2, range3);
+        
+        RangeStream rangeStream = new RangeStream(config, new ScannerFactory(config.getConnector(), 1), helper);
+        rangeStream.setLimitScanners(true);
+        for (QueryPlan queryPlan : rangeStream.streamPlans(script)) {
+            for (Range range : queryPlan.getRanges()) {
+                assertTrue("Tried to remove unexpected range " + range.toString() + " from expected ranges: " + expectedRanges.toString(),
+                                expectedRanges.remove(range));
+            }
+        }
+        assertTrue("Expected ranges not found in query plan: " + expectedRanges.toString(), expectedRanges.isEmpty());
+    }
+    
+    // (A || B) && (C || D), where the unions are seeked by advancing the streams of their coalesced lookups
+    @Test
+    public void testIntersection_OfTwoNestedUnions_coalescedLookups() throws Exception {
+        String originalQuery = "(FOO == 'low_card' || FOO == 'lowest_card') && (FOO == 'high_card' || FOO == 'highest_card')";
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(originalQuery);
+        
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+        config.setBeginDate(sdf.parse("20190310"));
+        config.setEndDate(sdf.parse("20190320"));
+        config.setCoalesceIndexLookups(true);
+        
+        config.setDatatypeFilter(Sets.newHashSet("datatype1", "datatype2"));
+        
+        Multimap<String,Type<?>> dataTypes = HashMultimap.create();
+        dataTypes.putAll("FOO", Sets.newHashSet(new LcNoDiacriticsType()));
+        dataTypes.putAll("LAUGH", Sets.newHashSet(new LcNoDiacriticsType()));
+        
+        config.setQueryFieldsDatatypes(dataTypes);
+        config.setIndexedFields(dataTypes);
+        
+        MockMetadataHelper helper = new MockMetadataHelper();
+        helper.setIndexedFields(dataTypes.keySet());
+        
+        Range range1 = makeTestRange("20190310_1", "datatype1\u0000a.b.c");
+        Range range2 = makeTestRange("20190312_1", "datatype1\u0000a.b.c");
+        Range range3 = makeTestRange("20190314_22", "datatype1\u0000a.b.c");
+        Range range4 = makeTestRange("20190315_33", "datatype1\u0000a.b.c");
+        Range range5 = makeTestRange("20190315_49", "datatype1\u0000a.b.c");
+        Range range6 = makeTestRange("20190317_1", "datatype1\u0000a.b.c");
+        Set<Range> expectedRanges = Sets.newHashSet(range1, range2, range3, range4, range5, range6);
+        
+        RangeStream rangeStream = new RangeStream(config, new ScannerFactory(config.getConnector(), 1), helper);
+        rangeStream.setLimitScanners(true);
+        CloseableIterable<QueryPlan> queryPlans = rangeStream.streamPlans(script);
+        assertEquals(IndexStream.StreamContext.PRESENT, rangeStream.context());
+        for (QueryPlan queryPlan : queryPlans) {
+            for (Range range : queryPlan.getRanges()) {
+                assertTrue("Tried to remove unexpected range " + range.toString() + "\nfrom expected ranges: " + expectedRanges.toString(),
+                                expectedRanges.remove(range));
+            }
+        }
+        assertTrue("Expected ranges not found in query plan: " + expectedRanges.toString(), expectedRanges.isEmpty());
+    }
 }
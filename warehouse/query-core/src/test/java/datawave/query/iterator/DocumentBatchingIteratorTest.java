@@ -0,0 +1,138 @@
+package datawave.query.iterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.function.deserializer.DocumentBatchDeserializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.junit.Test;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentBatchingIteratorTest {
+    
+    private List<Entry<Key,Value>> documents(int count) {
+        List<Entry<Key,Value>> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] header = DocumentSerialization.getHeader();
+            byte[] value = Arrays.copyOf(header, header.length + 10);
+            Arrays.fill(value, header.length, value.length, (byte) i);
+            documents.add(Maps.immutableEntry(new Key("20200101_0", "datatype\0uid" + i), new Value(value)));
+        }
+        return documents;
+    }
+    
+    private void assertSameDocuments(List<Entry<Key,Value>> expected, List<Entry<Key,Value>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            assertArrayEquals(expected.get(i).getValue().get(), actual.get(i).getValue().get());
+        }
+    }
+    
+    @Test
+    public void testBatchBySize() {
+        List<Entry<Key,Value>> documents = documents(10);
+        List<Entry<Key,Value>> batches = Lists.newArrayList(new DocumentBatchingIterator(documents.iterator(), 4, Long.MAX_VALUE, Long.MAX_VALUE, false, null));
+        
+        // 4 + 4 + 2
+        assertEquals(3, batches.size());
+        for (Entry<Key,Value> batch : batches) {
+            assertTrue(DocumentSerialization.isBatch(batch.getValue().get()));
+        }
+        // a batch is keyed by its last document
+        assertEquals(documents.get(3).getKey(), batches.get(0).getKey());
+        assertEquals(documents.get(9).getKey(), batches.get(2).getKey());
+        
+        assertSameDocuments(documents, Lists.newArrayList(DocumentBatchDeserializer.unbatch(batches.iterator())));
+    }
+    
+    @Test
+    public void testBatchByBytes() {
+        List<Entry<Key,Value>> documents = documents(10);
+        long size = documents.get(0).getKey().getSize() + documents.get(0).getValue().getSize();
+        List<Entry<Key,Value>> batches = Lists.newArrayList(new DocumentBatchingIterator(documents.iterator(), 100, size * 5, Long.MAX_VALUE, true, null));
+        
+        assertEquals(2, batches.size());
+        assertSameDocuments(documents, Lists.newArrayList(DocumentBatchDeserializer.unbatch(batches.iterator())));
+    }
+    
+    @Test
+    public void testSingleDocumentNotBatched() {
+        List<Entry<Key,Value>> documents = documents(1);
+        List<Entry<Key,Value>> batches = Lists.newArrayList(new DocumentBatchingIterator(documents.iterator(), 4, Long.MAX_VALUE, Long.MAX_VALUE, false, null));
+        
+        assertEquals(1, batches.size());
+        assertFalse(DocumentSerialization.isBatch(batches.get(0).getValue().get()));
+        assertSameDocuments(documents, Lists.newArrayList(DocumentBatchDeserializer.unbatch(batches.iterator())));
+    }
+    
+    @Test
+    public void testYieldHeldUntilBatchReturned() {
+        List<Entry<Key,Value>> documents = documents(3);
+        YieldCallback<Key> yield = new YieldCallback<>();
+        Key yieldKey = new Key("20200101_0", "datatype\0yield");
+        
+        // yield after the documents have been returned
+        Iterator<Entry<Key,Value>> source = new Iterator<Entry<Key,Value>>() {
+            Iterator<Entry<Key,Value>> delegate = documents.iterator();
+            
+            @Override
+            public boolean hasNext() {
+                if (delegate.hasNext()) {
+                    return true;
+                }
+                if (!yield.hasYielded()) {
+                    yield.yield(yieldKey);
+                }
+                return false;
+            }
+            
+            @Override
+            public Entry<Key,Value> next() {
+                return delegate.next();
+            }
+        };
+        
+        DocumentBatchingIterator batching = new DocumentBatchingIterator(source, 10, Long.MAX_VALUE, Long.MAX_VALUE, false, yield);
+        
+        assertTrue(batching.hasNext());
+        assertFalse(yield.hasYielded());
+        Entry<Key,Value> batch = batching.next();
+        assertSameDocuments(documents, Lists.newArrayList(DocumentBatchDeserializer.unbatch(Iterators.singletonIterator(batch))));
+        
+        assertFalse(batching.hasNext());
+        assertTrue(yield.hasYielded());
+        assertEquals(yieldKey, yield.getPositionAndReset());
+    }
+    
+    @Test
+    public void testYieldWithoutDocuments() {
+        YieldCallback<Key> yield = new YieldCallback<>();
+        Key yieldKey = new Key("20200101_0", "datatype\0yield");
+        yield.yield(yieldKey);
+        
+        List<Entry<Key,Value>> documents = new ArrayList<>();
+        DocumentBatchingIterator batching = new DocumentBatchingIterator(documents.iterator(), 10, Long.MAX_VALUE, Long.MAX_VALUE, false, yield);
+        
+        assertFalse(batching.hasNext());
+        assertTrue(yield.hasYielded());
+        assertEquals(yieldKey, yield.getPositionAndReset());
+        assertNull(yield.getPositionAndReset());
+    }
+}
@@ -0,0 +1,145 @@
+package datawave.query.iterator;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import datawave.query.exceptions.LoadAverageWatchException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoadAverageWatchIteratorTest {
+    
+    private static class PressuredIterator extends LoadAverageWatchIterator {
+        private double fixedPressure = 0.0d;
+        
+        @Override
+        protected double getPressure() {
+            return fixedPressure;
+        }
+    }
+    
+    @Test
+    public void testRelieve() {
+        Assert.assertEquals(25, LoadAverageWatchIterator.relieve(25, 0.5d));
+        Assert.assertEquals(25, LoadAverageWatchIterator.relieve(25, 1.0d));
+        Assert.assertEquals(12, LoadAverageWatchIterator.relieve(25, 2.0d));
+        Assert.assertEquals(1, LoadAverageWatchIterator.relieve(25, 100.0d));
+        // a batch size of 0 means unbounded and is left alone
+        Assert.assertEquals(0, LoadAverageWatchIterator.relieve(0, 2.0d));
+    }
+    
+    @Test
+    public void testNoPressure() throws IOException {
+        PressuredIterator iterator = createIterator(Collections.emptyMap());
+        Assert.assertEquals(5, scan(iterator).size());
+    }
+    
+    @Test(expected = LoadAverageWatchException.class)
+    public void testFailsUnderPressure() throws IOException {
+        PressuredIterator iterator = createIterator(Collections.emptyMap());
+        iterator.fixedPressure = 2.0d;
+        iterator.seek(new Range(), Collections.emptyList(), false);
+    }
+    
+    @Test
+    public void testFailsOnNextUnderPressure() throws IOException {
+        PressuredIterator iterator = createIterator(Collections.emptyMap());
+        iterator.seek(new Range(), Collections.emptyList(), false);
+        Assert.assertTrue(iterator.hasTop());
+        
+        // the pressure rises after the first key is returned
+        iterator.fixedPressure = 2.0d;
+        try {
+            iterator.next();
+            Assert.fail("Expected the scan to fail under pressure");
+        } catch (LoadAverageWatchException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testYieldsAfterReturnedKeyUnderPressure() throws IOException {
+        PressuredIterator iterator = createIterator(Collections.singletonMap(LoadAverageWatchIterator.YIELD_ON_LOAD, "true"));
+        YieldCallback<Key> yield = new YieldCallback<>();
+        iterator.enableYielding(yield);
+        
+        // a seek under pressure is let through so that a key can be returned before yielding
+        iterator.fixedPressure = 2.0d;
+        iterator.seek(new Range(), Collections.emptyList(), false);
+        Assert.assertTrue(iterator.hasTop());
+        Key returned = iterator.getTopKey();
+        
+        iterator.next();
+        Assert.assertFalse(iterator.hasTop());
+        Assert.assertTrue(yield.hasYielded());
+        
+        // the scan resumes right after the returned key without skipping the next one
+        Key position = yield.getPositionAndReset();
+        Assert.assertTrue(position.compareTo(returned) > 0);
+        iterator.fixedPressure = 0.0d;
+        iterator.seek(new Range(position, false, null, true), Collections.emptyList(), false);
+        Assert.assertTrue(iterator.hasTop());
+        Assert.assertEquals(new Key("row", "dt\0uid1"), iterator.getTopKey());
+    }
+    
+    @Test
+    public void testDoesNotYieldPastTheRange() throws IOException {
+        PressuredIterator iterator = createIterator(Collections.singletonMap(LoadAverageWatchIterator.YIELD_ON_LOAD, "true"));
+        YieldCallback<Key> yield = new YieldCallback<>();
+        iterator.enableYielding(yield);
+        
+        Key last = new Key("row", "dt\0uid0");
+        iterator.fixedPressure = 2.0d;
+        iterator.seek(new Range(last, true, last, true), Collections.emptyList(), false);
+        Assert.assertTrue(iterator.hasTop());
+        
+        iterator.next();
+        Assert.assertFalse(yield.hasYielded());
+        Assert.assertFalse(iterator.hasTop());
+    }
+    
+    @Test(expected = LoadAverageWatchException.class)
+    public void testFailsUnderPressureWithoutYieldCallback() throws IOException {
+        PressuredIterator iterator = createIterator(Collections.singletonMap(LoadAverageWatchIterator.YIELD_ON_LOAD, "true"));
+        iterator.fixedPressure = 2.0d;
+        iterator.seek(new Range(), Collections.emptyList(), false);
+    }
+    
+    @Test
+    public void testPoolAndHeapThresholdsAreDisabledByDefault() {
+        // the pools are not looked up and the heap is not divided by a zero threshold when they are not watched
+        double pressure = LoadAverageWatchIterator.getPressure(null, Double.MAX_VALUE, LoadAverageWatchIterator.DISABLED_THRESHOLD,
+                        LoadAverageWatchIterator.DISABLED_THRESHOLD);
+        Assert.assertTrue(pressure < 1.0d);
+    }
+    
+    private List<Key> scan(SortedKeyValueIterator<Key,Value> iterator) throws IOException {
+        List<Key> keys = new ArrayList<>();
+        iterator.seek(new Range(), Collections.emptyList(), false);
+        while (iterator.hasTop()) {
+            keys.add(iterator.getTopKey());
+            iterator.next();
+        }
+        return keys;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private PressuredIterator createIterator(Map<String,String> options) throws IOException {
+        List<Map.Entry<Key,Value>> data = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            data.add(new AbstractMap.SimpleEntry<>(new Key("row", "dt\0uid" + i), new Value(new byte[0])));
+        }
+        PressuredIterator iterator = new PressuredIterator();
+        iterator.init(new SortedListKeyValueIterator(data), options, null);
+        return iterator;
+    }
+}
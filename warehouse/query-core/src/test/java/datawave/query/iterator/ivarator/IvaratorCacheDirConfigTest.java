@@ -15,16 +15,19 @@ public class IvaratorCacheDirConfigTest {
         
         ivaratorCacheDirConfigs.add(new IvaratorCacheDirConfig("file:/some/path", 0, 1024));
         ivaratorCacheDirConfigs.add(new IvaratorCacheDirConfig("hdfs:/some/other/path", 1, 0.5));
+        ivaratorCacheDirConfigs.add(new IvaratorCacheDirConfig("file:/some/local/path", 2, 1024, 0.1, 4096));
         
         String json = IvaratorCacheDirConfig.toJson(ivaratorCacheDirConfigs);
         List<IvaratorCacheDirConfig> parsedConfigs = IvaratorCacheDirConfig.fromJson(json);
         
         Assert.assertNotNull(parsedConfigs);
-        Assert.assertEquals(2, parsedConfigs.size());
+        Assert.assertEquals(3, parsedConfigs.size());
         
         // ensure order is preserved
         Assert.assertEquals(ivaratorCacheDirConfigs.get(0), parsedConfigs.get(0));
         Assert.assertEquals(ivaratorCacheDirConfigs.get(1), parsedConfigs.get(1));
+        Assert.assertEquals(ivaratorCacheDirConfigs.get(2), parsedConfigs.get(2));
+        Assert.assertEquals(4096, parsedConfigs.get(2).getMaxStorageMiB());
         
         String singleJson = IvaratorCacheDirConfig.toJson(ivaratorCacheDirConfigs.get(0));
         parsedConfigs = IvaratorCacheDirConfig.fromJson(singleJson);
@@ -43,5 +46,13 @@ public class IvaratorCacheDirConfigTest {
         Assert.assertEquals(IvaratorCacheDirConfig.DEFAULT_PRIORITY, config.getPriority());
         Assert.assertEquals(IvaratorCacheDirConfig.DEFAULT_MIN_AVAILABLE_STORAGE_MiB, config.getMinAvailableStorageMiB());
         Assert.assertEquals(IvaratorCacheDirConfig.DEFAULT_MIN_AVAILABLE_STORAGE_PERCENT, config.getMinAvailableStoragePercent(), 0.0);
+        Assert.assertEquals(IvaratorCacheDirConfig.DEFAULT_MAX_STORAGE_MiB, config.getMaxStorageMiB());
+    }
+    
+    @Test
+    public void localTierTest() {
+        Assert.assertTrue(new IvaratorCacheDirConfig("file:/some/path").isLocal());
+        Assert.assertFalse(new IvaratorCacheDirConfig("hdfs:/some/path").isLocal());
+        Assert.assertFalse(new IvaratorCacheDirConfig("file:/some/path", 0, 0, 0.0, -1).isValid());
     }
 }
@@ -0,0 +1,256 @@
+package datawave.query.iterator.ivarator;
+
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl.HdfsBackedControl;
+import datawave.query.util.sortedset.FileSortedSet;
+import datawave.query.util.sortedset.HdfsBackedSortedSet;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class SharedIvaratorCacheTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private File baseDir;
+    private FileSystem fs;
+    
+    @Before
+    public void setup() throws IOException {
+        baseDir = temporaryFolder.newFolder();
+        LocalFileSystem localFs = new LocalFileSystem();
+        localFs.initialize(baseDir.toURI(), new Configuration());
+        fs = localFs.getRawFileSystem();
+    }
+    
+    private List<IvaratorCacheDir> getCacheDirs(String term) {
+        String path = new File(baseDir, "query/" + term).toURI().toString();
+        return Collections.singletonList(new IvaratorCacheDir(new IvaratorCacheDirConfig(baseDir.toURI().toString()), fs, path));
+    }
+    
+    private void buildCompleteSet(List<IvaratorCacheDir> cacheDirs, String row, String... values) throws IOException {
+        HdfsBackedSortedSet<String> set = new HdfsBackedSortedSet<>(cacheDirs, row, 100, 2, new FileSortedSet.PersistOptions());
+        Collections.addAll(set, values);
+        set.persist();
+        fs.create(new Path(new Path(cacheDirs.get(0).getPathURI(), row), HdfsBackedControl.COMPLETE_FILE)).close();
+    }
+    
+    private void addFiller(List<IvaratorCacheDir> cacheDirs, SharedIvaratorCache.Entry entry, int size) throws IOException {
+        File dir = new File(new Path(entry.getIvaratorCacheDirs().get(0).getPathURI(), entry.getId()).toUri());
+        try (OutputStream out = new FileOutputStream(new File(dir, "filler"))) {
+            out.write(new byte[size]);
+        }
+    }
+    
+    private void setLastUsed(SharedIvaratorCache.Entry entry, long time) throws IOException {
+        fs.setTimes(new Path(entry.getIvaratorCacheDirs().get(0).getPathURI(), entry.getId()), time, -1);
+    }
+    
+    @Test
+    public void keyTest() {
+        Assert.assertEquals(SharedIvaratorCache.getKey("FOO\0ba.*"), SharedIvaratorCache.getKey("FOO\0ba.*"));
+        Assert.assertNotEquals(SharedIvaratorCache.getKey("FOO\0ba.*"), SharedIvaratorCache.getKey("FOO\0bar.*"));
+        Assert.assertTrue(SharedIvaratorCache.getKey("FOO\0ba.*").matches("[0-9a-f]+"));
+    }
+    
+    @Test
+    public void publishAndFindTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(0, 0);
+        String key = SharedIvaratorCache.getKey("FOO\0ba.*");
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term1");
+        Assert.assertNull(cache.find(cacheDirs, key, "20200101_0"));
+        
+        buildCompleteSet(cacheDirs, "20200101_0", "a", "b", "c");
+        SharedIvaratorCache.Entry published = cache.publish(cacheDirs, key, "20200101_0");
+        
+        // the set has moved out of the query dir
+        Assert.assertFalse(fs.exists(new Path(cacheDirs.get(0).getPathURI(), "20200101_0")));
+        
+        // and is found by another query for the same row only
+        List<IvaratorCacheDir> otherCacheDirs = getCacheDirs("term7");
+        Assert.assertNull(cache.find(otherCacheDirs, key, "20200101_1"));
+        SharedIvaratorCache.Entry found = cache.find(otherCacheDirs, key, "20200101_0");
+        Assert.assertNotNull(found);
+        Assert.assertEquals(published.getId(), found.getId());
+        
+        HdfsBackedSortedSet<String> set = new HdfsBackedSortedSet<>(found.getIvaratorCacheDirs(), found.getId(), 100, 2, new FileSortedSet.PersistOptions());
+        Assert.assertEquals(3, set.size());
+        Assert.assertEquals("a", set.first());
+        Assert.assertEquals("c", set.last());
+    }
+    
+    @Test
+    public void incompleteTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(0, 0);
+        String key = SharedIvaratorCache.getKey("FOO\0ba.*");
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term1");
+        buildCompleteSet(cacheDirs, "20200101_0", "a");
+        SharedIvaratorCache.Entry entry = cache.publish(cacheDirs, key, "20200101_0");
+        fs.delete(new Path(new Path(entry.getIvaratorCacheDirs().get(0).getPathURI(), entry.getId()), HdfsBackedControl.COMPLETE_FILE), false);
+        
+        Assert.assertNull(cache.find(cacheDirs, key, "20200101_0"));
+    }
+    
+    private void assertFound(SharedIvaratorCache cache, List<IvaratorCacheDir> cacheDirs, String key, boolean expected) throws IOException {
+        SharedIvaratorCache.Entry entry = cache.find(cacheDirs, key, "20200101_0");
+        Assert.assertEquals(expected, entry != null);
+        if (entry != null) {
+            entry.release();
+        }
+    }
+    
+    @Test
+    public void instanceTest() {
+        Assert.assertSame(SharedIvaratorCache.getInstance(10, 1000L), SharedIvaratorCache.getInstance(10, 1000L));
+        Assert.assertNotSame(SharedIvaratorCache.getInstance(10, 1000L), SharedIvaratorCache.getInstance(20, 1000L));
+    }
+    
+    @Test
+    public void leaseTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(0, 0);
+        String key = SharedIvaratorCache.getKey("FOO\0ba.*");
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term1");
+        buildCompleteSet(cacheDirs, "20200101_0", "a");
+        SharedIvaratorCache.Entry published = cache.publish(cacheDirs, key, "20200101_0");
+        SharedIvaratorCache.Entry found = cache.find(cacheDirs, key, "20200101_0");
+        Assert.assertTrue(fs.exists(published.getLease()));
+        Assert.assertTrue(fs.exists(found.getLease()));
+        Assert.assertNotEquals(published.getLease(), found.getLease());
+        
+        // the lease is held until every reference to the entry is released
+        found.retain();
+        found.release();
+        Assert.assertTrue(fs.exists(found.getLease()));
+        found.release();
+        Assert.assertFalse(fs.exists(found.getLease()));
+        published.release();
+        Assert.assertFalse(fs.exists(published.getLease()));
+    }
+    
+    @Test
+    public void expiredTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(0, 1000L * 60);
+        String key = SharedIvaratorCache.getKey("FOO\0ba.*");
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term1");
+        buildCompleteSet(cacheDirs, "20200101_0", "a");
+        SharedIvaratorCache.Entry entry = cache.publish(cacheDirs, key, "20200101_0");
+        Path entryDir = new Path(entry.getIvaratorCacheDirs().get(0).getPathURI(), entry.getId());
+        assertFound(cache, cacheDirs, key, true);
+        
+        // built two minutes ago
+        long twoMinutesAgo = System.currentTimeMillis() - 1000L * 60 * 2;
+        fs.setTimes(new Path(entryDir, HdfsBackedControl.COMPLETE_FILE), twoMinutesAgo, -1);
+        fs.setTimes(entryDir, twoMinutesAgo, -1);
+        assertFound(cache, cacheDirs, key, false);
+        
+        // not evicted while the query that built it is still reading it
+        cache.evict(cacheDirs);
+        Assert.assertTrue(fs.exists(entryDir));
+        
+        entry.release();
+        cache.evict(cacheDirs);
+        Assert.assertFalse(fs.exists(entryDir));
+        Assert.assertFalse(fs.exists(entry.getLease().getParent()));
+    }
+    
+    @Test
+    public void expiredLeaseTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(0, 1000L * 60);
+        String key = SharedIvaratorCache.getKey("FOO\0ba.*");
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term1");
+        buildCompleteSet(cacheDirs, "20200101_0", "a");
+        SharedIvaratorCache.Entry entry = cache.publish(cacheDirs, key, "20200101_0");
+        Path entryDir = new Path(entry.getIvaratorCacheDirs().get(0).getPathURI(), entry.getId());
+        fs.setTimes(new Path(entryDir, HdfsBackedControl.COMPLETE_FILE), System.currentTimeMillis() - 1000L * 60 * 2, -1);
+        
+        // a lease that was never released is ignored once it times out
+        fs.setTimes(entry.getLease(), System.currentTimeMillis() - 1000L * 60 * 2, -1);
+        cache.setLeaseTimeoutMs(1000L * 60);
+        cache.evict(cacheDirs);
+        Assert.assertFalse(fs.exists(entryDir));
+    }
+    
+    @Test
+    public void evictLeastRecentlyUsedTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(1, 0);
+        
+        List<SharedIvaratorCache.Entry> entries = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<IvaratorCacheDir> cacheDirs = getCacheDirs("term" + i);
+            keys.add(SharedIvaratorCache.getKey("FOO\0term" + i));
+            buildCompleteSet(cacheDirs, "20200101_0", "a");
+            SharedIvaratorCache.Entry entry = cache.publish(cacheDirs, keys.get(i), "20200101_0");
+            addFiller(cacheDirs, entry, 400 * 1024);
+            entry.release();
+            entries.add(entry);
+        }
+        
+        // entry 1 was used longest ago, then entry 0, and entry 2 was just used
+        long now = System.currentTimeMillis();
+        setLastUsed(entries.get(0), now - 1000L * 60 * 5);
+        setLastUsed(entries.get(1), now - 1000L * 60 * 10);
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term9");
+        cache.evict(cacheDirs);
+        
+        assertFound(cache, cacheDirs, keys.get(0), true);
+        assertFound(cache, cacheDirs, keys.get(1), false);
+        assertFound(cache, cacheDirs, keys.get(2), true);
+        
+        // a leased entry is not evicted even when it was used longest ago
+        SharedIvaratorCache.Entry leased = cache.find(cacheDirs, keys.get(0), "20200101_0");
+        setLastUsed(entries.get(0), now - 1000L * 60 * 5);
+        addFiller(cacheDirs, entries.get(2), 1024 * 1024);
+        cache.evict(cacheDirs);
+        assertFound(cache, cacheDirs, keys.get(0), true);
+        assertFound(cache, cacheDirs, keys.get(2), false);
+        leased.release();
+    }
+    
+    @Test
+    public void evictIfNeededTest() throws IOException {
+        SharedIvaratorCache cache = new SharedIvaratorCache(1, 1000L * 60);
+        String key = SharedIvaratorCache.getKey("FOO\0ba.*");
+        
+        List<IvaratorCacheDir> cacheDirs = getCacheDirs("term1");
+        buildCompleteSet(cacheDirs, "20200101_0", "a");
+        SharedIvaratorCache.Entry entry = cache.publish(cacheDirs, key, "20200101_0");
+        entry.release();
+        
+        // the size of the published set is tracked without scanning the shared dirs
+        long published = cache.getUsedBytes();
+        Assert.assertTrue(published > 0);
+        
+        // the first call scans, and then nothing is scanned until the interval has passed
+        cache.evictIfNeeded(cacheDirs);
+        Path entryDir = new Path(entry.getIvaratorCacheDirs().get(0).getPathURI(), entry.getId());
+        fs.setTimes(new Path(entryDir, HdfsBackedControl.COMPLETE_FILE), System.currentTimeMillis() - 1000L * 60 * 2, -1);
+        cache.evictIfNeeded(cacheDirs);
+        Assert.assertTrue(fs.exists(entryDir));
+        
+        cache.setEvictionIntervalMs(0);
+        cache.evictIfNeeded(cacheDirs);
+        Assert.assertFalse(fs.exists(entryDir));
+        Assert.assertEquals(0, cache.getUsedBytes());
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -292,6 +294,64 @@ public class AndIteratorTest {
         Assert.assertFalse(iterator.hasNext());
     }
     
+    @Test
+    public void testRareAndCommonInclude() {
+        List<String> common = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            common.add(String.format("%04d", i));
+        }
+        CountingItr rare = new CountingItr(Lists.newArrayList("0010", "0500", "0501", "0502", "0503", "0990", "2000"));
+        CountingItr dense = new CountingItr(common);
+        
+        List<NestedIterator<String>> includes = new ArrayList<>();
+        includes.add(dense);
+        includes.add(rare);
+        
+        AndIterator iterator = new AndIterator(includes);
+        iterator.initialize();
+        
+        List<String> results = new ArrayList<>();
+        while (iterator.hasNext()) {
+            results.add((String) iterator.next());
+        }
+        Assert.assertEquals(Lists.newArrayList("0010", "0500", "0501", "0502", "0503", "0990"), results);
+        
+        // the common term is seeked to the rare term rather than walked
+        Assert.assertTrue("walked the common term " + dense.nexts + " times", dense.nexts < 20);
+    }
+    
+    /**
+     * A sorted list iterator which counts calls to next, and seeks on move
+     */
+    private static class CountingItr extends NegationFilterTest.Itr<String> {
+        private final List<String> values;
+        private int index = 0;
+        private int nexts = 0;
+        
+        CountingItr(List<String> values) {
+            super(values);
+            this.values = values;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return index < values.size();
+        }
+        
+        @Override
+        public String next() {
+            nexts++;
+            return values.get(index++);
+        }
+        
+        @Override
+        public String move(String minimum) {
+            int found = Collections.binarySearch(values, minimum);
+            index = Math.max(index, found < 0 ? -found - 1 : found);
+            return hasNext() ? values.get(index++) : null;
+        }
+    }
+    
     private NegationFilterTest.Itr<String> getItr(List<String> source, boolean contextRequired) {
         return new NegationFilterTest.Itr<>(source, contextRequired);
     }
@@ -5,10 +5,13 @@ import datawave.query.iterator.NestedIterator;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 public class OrIteratorTest {
     @Test
@@ -353,6 +356,39 @@ public class OrIteratorTest {
         Assert.assertFalse(iterator.hasNext());
     }
     
+    @Test
+    public void testWideInclude() {
+        // enough includes to merge with a loser tree, overlapping so that most values come from several of them
+        List<NestedIterator<String>> includes = new ArrayList<>();
+        SortedSet<String> expected = new TreeSet<>();
+        for (int i = 0; i < OrIterator.LOSER_TREE_THRESHOLD * 2; i++) {
+            List<String> values = new ArrayList<>();
+            for (int j = i % 7; j < 300; j += 1 + (i % 5)) {
+                values.add(String.format("%03d", j));
+            }
+            expected.addAll(values);
+            includes.add(getItr(values, false));
+        }
+        includes.add(getItr(Collections.emptyList(), false));
+        
+        OrIterator iterator = new OrIterator(includes);
+        iterator.initialize();
+        
+        List<String> results = new ArrayList<>();
+        while (iterator.hasNext()) {
+            results.add((String) iterator.next());
+            if (results.size() == 100) {
+                // skip ahead
+                Assert.assertEquals("200", iterator.move("200"));
+                results.add("200");
+            }
+        }
+        
+        List<String> expectedResults = new ArrayList<>(expected.headSet("100"));
+        expectedResults.addAll(expected.tailSet("200"));
+        Assert.assertEquals(expectedResults, results);
+    }
+    
     private NegationFilterTest.Itr<String> getItr(List<String> source, boolean contextRequired) {
         return new NegationFilterTest.Itr<>(source, contextRequired);
     }
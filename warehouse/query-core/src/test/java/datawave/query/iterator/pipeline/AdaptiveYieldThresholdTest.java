@@ -0,0 +1,49 @@
+package datawave.query.iterator.pipeline;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveYieldThresholdTest {
+    
+    @Test
+    public void testNormalLoadUsesBaseThreshold() {
+        AdaptiveYieldThreshold threshold = new AdaptiveYieldThreshold(1000L, 100L, Long.MAX_VALUE, null);
+        Assert.assertEquals(1000L, threshold.computeThresholdMs(AdaptiveYieldThreshold.IDLE_LOAD));
+        Assert.assertEquals(1000L, threshold.computeThresholdMs(0.5d));
+        Assert.assertEquals(1000L, threshold.computeThresholdMs(AdaptiveYieldThreshold.BUSY_LOAD));
+    }
+    
+    @Test
+    public void testBusyLoadTightensThreshold() {
+        AdaptiveYieldThreshold threshold = new AdaptiveYieldThreshold(1000L, 100L, Long.MAX_VALUE, null);
+        Assert.assertEquals(500L, threshold.computeThresholdMs(2.0d));
+        Assert.assertEquals(250L, threshold.computeThresholdMs(4.0d));
+        // bounded by the min threshold
+        Assert.assertEquals(100L, threshold.computeThresholdMs(100.0d));
+    }
+    
+    @Test
+    public void testIdleLoadLoosensThreshold() {
+        AdaptiveYieldThreshold threshold = new AdaptiveYieldThreshold(1000L, 100L, Long.MAX_VALUE, null);
+        Assert.assertEquals(4000L, threshold.computeThresholdMs(0.0d));
+        Assert.assertEquals(2500L, threshold.computeThresholdMs(AdaptiveYieldThreshold.IDLE_LOAD / 2));
+        
+        // bounded by the max threshold
+        threshold = new AdaptiveYieldThreshold(1000L, 100L, 2000L, null);
+        Assert.assertEquals(2000L, threshold.computeThresholdMs(0.0d));
+    }
+    
+    @Test
+    public void testBoundsNeverCrossBaseThreshold() {
+        // a min above the base and a max below the base pin the threshold to the base
+        AdaptiveYieldThreshold threshold = new AdaptiveYieldThreshold(10L, 100L, 1L, null);
+        Assert.assertEquals(10L, threshold.computeThresholdMs(2.0d));
+        Assert.assertEquals(10L, threshold.computeThresholdMs(0.0d));
+    }
+    
+    @Test
+    public void testUnboundedBaseThreshold() {
+        AdaptiveYieldThreshold threshold = new AdaptiveYieldThreshold(Long.MAX_VALUE, 100L, Long.MAX_VALUE, null);
+        Assert.assertEquals(Long.MAX_VALUE, threshold.computeThresholdMs(0.0d));
+    }
+}
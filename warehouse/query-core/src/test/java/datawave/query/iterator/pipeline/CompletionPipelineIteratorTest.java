@@ -0,0 +1,182 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.NestedQueryIterator;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.profile.QuerySpanCollector;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.accumulo.core.iterators.system.SortedMapIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class CompletionPipelineIteratorTest {
+    
+    private static final int DOCUMENTS = 10;
+    
+    // holds up the evaluation of the slow document until released
+    private final CountDownLatch slow = new CountDownLatch(1);
+    
+    @After
+    public void release() {
+        slow.countDown();
+    }
+    
+    private Key key(int i) {
+        return new Key("20200101_0", "datatype\0uid" + i);
+    }
+    
+    private List<Key> keys(int from) {
+        List<Key> keys = new ArrayList<>();
+        for (int i = from; i < DOCUMENTS; i++) {
+            keys.add(key(i));
+        }
+        return keys;
+    }
+    
+    private CompletionPipelineIterator createIterator(List<Key> documents, Key slowKey, long slowMs, YieldCallback<Key> yield) {
+        QueryIterator sourceIterator = new QueryIterator() {
+            @Override
+            public Iterator<Entry<Key,Document>> createDocumentPipeline(SortedKeyValueIterator<Key,Value> deepSourceCopy,
+                            final NestedQueryIterator<Key> documentSpecificSource, Collection<ByteSequence> columnFamilies, boolean inclusive,
+                            QuerySpanCollector querySpanCollector) {
+                return new Iterator<Entry<Key,Document>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return documentSpecificSource.hasNext();
+                    }
+                    
+                    @Override
+                    public Entry<Key,Document> next() {
+                        Key key = documentSpecificSource.next();
+                        if (key.equals(slowKey)) {
+                            try {
+                                slow.await(slowMs, TimeUnit.MILLISECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return Maps.immutableEntry(key, new Document());
+                    }
+                };
+            }
+        };
+        
+        CompletionPipelineIterator iterator = new CompletionPipelineIterator(new ListNestedIterator(documents), 4, 4, new QuerySpanCollector(), null,
+                        sourceIterator, new SortedMapIterator(new TreeMap<>()), null, yield, yield == null ? Long.MAX_VALUE : 500L,
+                        Collections.emptySet(), false);
+        iterator.startPipeline();
+        return iterator;
+    }
+    
+    private List<Key> drain(Iterator<Entry<Key,Document>> iterator) {
+        List<Key> returned = new ArrayList<>();
+        while (iterator.hasNext()) {
+            returned.add(iterator.next().getKey());
+        }
+        return returned;
+    }
+    
+    @Test
+    public void testReturnedInDocumentOrder() {
+        // the slow document completes after the documents started behind it
+        List<Key> returned = drain(createIterator(keys(0), key(1), 200L, null));
+        Assert.assertEquals(keys(0), returned);
+    }
+    
+    @Test
+    public void testYieldMidPipeline() {
+        YieldCallback<Key> yield = new YieldCallback<>();
+        
+        // the documents after the slow one complete, but must not be returned ahead of it
+        List<Key> returned = drain(createIterator(keys(0), key(2), Long.MAX_VALUE, yield));
+        Assert.assertTrue(yield.hasYielded());
+        Assert.assertEquals(keys(0).subList(0, 2), returned);
+        
+        // the yield position is never before a key that has already been returned
+        Key position = yield.getPositionAndReset();
+        for (Key key : returned) {
+            Assert.assertTrue(position.compareTo(key) >= 0);
+        }
+        
+        // resuming after the yield position returns the remaining documents without skipping or repeating any
+        slow.countDown();
+        List<Key> remaining = new ArrayList<>();
+        for (Key key : keys(0)) {
+            if (key.compareTo(position) > 0) {
+                remaining.add(key);
+            }
+        }
+        returned.addAll(drain(createIterator(remaining, null, 0L, new YieldCallback<>())));
+        Assert.assertEquals(keys(0), returned);
+    }
+    
+    /**
+     * Iterates over a list of document keys
+     */
+    private static class ListNestedIterator implements NestedIterator<Key> {
+        private final Iterator<Key> keys;
+        
+        ListNestedIterator(List<Key> keys) {
+            this.keys = keys.iterator();
+        }
+        
+        @Override
+        public void initialize() {}
+        
+        @Override
+        public boolean hasNext() {
+            return keys.hasNext();
+        }
+        
+        @Override
+        public Key next() {
+            return keys.next();
+        }
+        
+        @Override
+        public Key move(Key minimum) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Collection<NestedIterator<Key>> leaves() {
+            return Collections.emptySet();
+        }
+        
+        @Override
+        public Collection<NestedIterator<Key>> children() {
+            return Collections.emptySet();
+        }
+        
+        @Override
+        public Document document() {
+            return new Document();
+        }
+        
+        @Override
+        public boolean isContextRequired() {
+            return false;
+        }
+        
+        @Override
+        public void setContext(Key context) {}
+    }
+}
@@ -0,0 +1,84 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.LinkedList;
+import java.util.Map.Entry;
+import java.util.Queue;
+
+import datawave.query.attributes.Document;
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class EvaluationWindowTest {
+    
+    private Key key(int i) {
+        return new Key("20200101_0", "datatype\0uid" + i);
+    }
+    
+    private Entry<Key,Document> result(int i) {
+        return Maps.immutableEntry(key(i), new Document());
+    }
+    
+    @Test
+    public void testReleasedInSequence() {
+        EvaluationWindow window = new EvaluationWindow(4);
+        Queue<Entry<Key,Document>> results = new LinkedList<>();
+        
+        long first = window.start(key(0));
+        long second = window.start(key(1));
+        long third = window.start(key(2));
+        
+        // completing out of order does not release anything until the first is done
+        window.complete(third, result(2));
+        window.complete(second, null);
+        Assert.assertEquals(0, window.release(results));
+        Assert.assertTrue(results.isEmpty());
+        Assert.assertNull(window.getLastReleasedKey());
+        
+        window.complete(first, result(0));
+        Assert.assertEquals(3, window.release(results));
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(key(0), results.poll().getKey());
+        Assert.assertEquals(key(2), results.poll().getKey());
+        Assert.assertEquals(key(2), window.getLastReleasedKey());
+        Assert.assertTrue(window.isEmpty());
+    }
+    
+    @Test
+    public void testCapacity() {
+        EvaluationWindow window = new EvaluationWindow(2);
+        long first = window.start(key(0));
+        window.start(key(1));
+        Assert.assertFalse(window.hasCapacity());
+        
+        window.complete(first, null);
+        Assert.assertEquals(1, window.release(null));
+        Assert.assertTrue(window.hasCapacity());
+        Assert.assertEquals(key(0), window.getLastReleasedKey());
+        
+        // wraps around the ring
+        long third = window.start(key(2));
+        Assert.assertEquals(2, third);
+        Assert.assertFalse(window.hasCapacity());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testStartWhenFull() {
+        EvaluationWindow window = new EvaluationWindow(1);
+        window.start(key(0));
+        window.start(key(1));
+    }
+    
+    @Test
+    public void testClear() {
+        EvaluationWindow window = new EvaluationWindow(2);
+        window.start(key(0));
+        window.start(key(1));
+        window.clear();
+        Assert.assertTrue(window.isEmpty());
+        Assert.assertTrue(window.hasCapacity());
+        Assert.assertEquals(0, window.release(new LinkedList<>()));
+    }
+}
@@ -0,0 +1,84 @@
+package datawave.query.iterator.profile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (int index = 0; index < 1000; index++) {
+            long highest = LatencyHistogram.getHighestEquivalentValue(index);
+            // the buckets are contiguous and every value in them maps back to the bucket
+            Assert.assertEquals(index, LatencyHistogram.getBucketIndex(previous + 1));
+            Assert.assertEquals(index, LatencyHistogram.getBucketIndex(highest));
+            // within about 3%
+            Assert.assertTrue(highest - (previous + 1) <= Math.max(0, (previous + 1) / 32));
+            previous = highest;
+        }
+    }
+    
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.getTotalCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        assertWithin(500, histogram.getValueAtPercentile(50));
+        assertWithin(900, histogram.getValueAtPercentile(90));
+        assertWithin(990, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+    
+    @Test
+    public void testAdd() {
+        LatencyHistogram first = new LatencyHistogram();
+        first.record(10);
+        first.record(-5);
+        LatencyHistogram second = new LatencyHistogram();
+        second.record(1000000);
+        
+        first.add(second);
+        Assert.assertEquals(3, first.getTotalCount());
+        Assert.assertEquals(1000000, first.getMax());
+        Assert.assertEquals(0, first.getValueAtPercentile(1));
+        Assert.assertEquals(10, first.getValueAtPercentile(50));
+        Assert.assertEquals(1, second.getTotalCount());
+    }
+    
+    @Test
+    public void testEncoding() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value : new long[] {0, 3, 3, 70, 5000, 5001, 123456789L}) {
+            histogram.record(value);
+        }
+        LatencyHistogram decoded = LatencyHistogram.decode(histogram.encode());
+        Assert.assertEquals(histogram.getTotalCount(), decoded.getTotalCount());
+        Assert.assertEquals(histogram.getMax(), decoded.getMax());
+        Assert.assertEquals(histogram.getMean(), decoded.getMean(), 0.0);
+        for (double percentile : new double[] {10, 25, 50, 75, 90, 99, 100}) {
+            Assert.assertEquals(histogram.getValueAtPercentile(percentile), decoded.getValueAtPercentile(percentile));
+        }
+        Assert.assertEquals(histogram.encode(), decoded.encode());
+        
+        Assert.assertTrue(LatencyHistogram.decode(new LatencyHistogram().encode()).isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedEncoding() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345);
+        String encoded = histogram.encode();
+        LatencyHistogram.decode(encoded.substring(0, 2));
+    }
+    
+    private void assertWithin(long expected, long actual) {
+        Assert.assertTrue(expected + " vs " + actual, Math.abs(expected - actual) <= expected / 32 + 1);
+    }
+}
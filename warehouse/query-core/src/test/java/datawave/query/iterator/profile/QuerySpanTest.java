@@ -1,8 +1,16 @@
 package datawave.query.iterator.profile;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.util.SimpleThreadPool;
 import org.junit.Assert;
 import org.junit.Test;
@@ -33,6 +41,46 @@ public class QuerySpanTest {
         Assert.assertEquals(1, qs1.getSourceCount());
     }
     
+    @Test
+    public void testQuerySpanYieldCounts() {
+        
+        QuerySpan qs1 = new QuerySpan(null);
+        advanceIterators(qs1);
+        Assert.assertEquals(3, qs1.getYieldCount());
+        Assert.assertEquals(0, qs1.getResumeCount());
+        Assert.assertEquals(0, qs1.getYieldResumeMs());
+        
+        // resuming a scan is not a yield
+        qs1.resume(25L);
+        qs1.createSource().resume(10L);
+        Assert.assertEquals(3, qs1.getYieldCount());
+        Assert.assertEquals(2, qs1.getResumeCount());
+        Assert.assertEquals(35L, qs1.getYieldResumeMs());
+        
+        QuerySpanCollector qsc = new QuerySpanCollector();
+        QuerySpan combined = qsc.getCombinedQuerySpan(qs1);
+        Assert.assertEquals(3, combined.getYieldCount());
+        Assert.assertEquals(2, combined.getResumeCount());
+        Assert.assertEquals(35L, combined.getYieldResumeMs());
+        
+        // the collector resets the span once it has been added
+        Assert.assertEquals(0, qs1.getYieldCount());
+        Assert.assertEquals(0, qs1.getResumeCount());
+        Assert.assertEquals(0, qs1.getYieldResumeMs());
+    }
+    
+    @Test
+    public void testQuerySpanResumeWithoutYielding() {
+        
+        // a scan torn down and resumed has not yielded
+        QuerySpan qs1 = new QuerySpan(null);
+        advanceIteratorsWithoutYield(qs1);
+        qs1.resume(5L);
+        Assert.assertFalse(qs1.getYield());
+        Assert.assertEquals(1, qs1.getResumeCount());
+        Assert.assertTrue(qs1.hasEntries());
+    }
+    
     @Test
     public void testMultiThreadedQuerySpanAggregation() {
         
@@ -102,6 +150,68 @@ public class QuerySpanTest {
         Assert.assertEquals(12, qs4.getSourceCount());
     }
     
+    @Test
+    public void testLatencyAggregation() {
+        
+        MultiThreadedQuerySpan qs1 = new MultiThreadedQuerySpan(null);
+        qs1.recordLatency(QuerySpan.SEEK_LATENCY, TimeUnit.MILLISECONDS.toNanos(2));
+        qs1.createSource().recordLatency(QuerySpan.SEEK_LATENCY, TimeUnit.MILLISECONDS.toNanos(8));
+        qs1.addStageLatency(QuerySpan.Stage.DocumentEvaluation, TimeUnit.MILLISECONDS.toNanos(5));
+        QuerySpan qs2 = new QuerySpan(null);
+        qs2.recordLatency(QuerySpan.NEXT_LATENCY, TimeUnit.MICROSECONDS.toNanos(40));
+        qs2.recordLatency(QuerySpan.SEEK_LATENCY, TimeUnit.MILLISECONDS.toNanos(1));
+        
+        Assert.assertEquals(2, qs1.getLatencies().get(QuerySpan.SEEK_LATENCY).getTotalCount());
+        Assert.assertEquals(5L, qs1.getStageTimer(QuerySpan.Stage.DocumentEvaluation.toString()).longValue());
+        
+        QuerySpanCollector qsc = new QuerySpanCollector();
+        qsc.addQuerySpan(qs1);
+        qsc.addQuerySpan(qs2);
+        Assert.assertTrue(qs1.getLatencies().isEmpty());
+        Assert.assertTrue(qsc.hasEntries());
+        QuerySpan combined = qsc.getCombinedQuerySpan(null);
+        
+        LatencyHistogram seek = combined.getLatencies().get(QuerySpan.SEEK_LATENCY);
+        Assert.assertEquals(3, seek.getTotalCount());
+        Assert.assertEquals(8000, seek.getMax());
+        Assert.assertEquals(1, combined.getLatencies().get(QuerySpan.NEXT_LATENCY).getTotalCount());
+        Assert.assertEquals(5000, combined.getLatencies().get(QuerySpan.Stage.DocumentEvaluation.toString()).getMax());
+        Assert.assertFalse(qsc.hasEntries());
+    }
+    
+    @Test
+    public void testLatencyByLabel() throws Exception {
+        TreeMap<Key,Value> data = new TreeMap<>();
+        for (int i = 0; i < 5; i++) {
+            data.put(new Key("row" + i), new Value(new byte[0]));
+        }
+        
+        MultiThreadedQuerySpan span = new MultiThreadedQuerySpan(null);
+        SourceTrackingIterator tracked = new SourceTrackingIterator(span, new SortedMapIterator(data));
+        
+        // each node scans its own copy of the tracked source
+        SourceTrackingIterator foo = new SourceTrackingIterator(span, tracked.deepCopy(null), "FOO");
+        SortedKeyValueIterator<Key,Value> bar = new SourceTrackingIterator(span, tracked.deepCopy(null), "BAR").deepCopy(null);
+        
+        foo.seek(new Range(), Collections.emptyList(), false);
+        foo.next();
+        foo.next();
+        bar.seek(new Range(), Collections.emptyList(), false);
+        bar.next();
+        
+        // the labelled copies do not count their calls again
+        Assert.assertEquals(2, span.getSeekCount());
+        Assert.assertEquals(3, span.getNextCount());
+        
+        Map<String,LatencyHistogram> latencies = span.getLatencies();
+        Assert.assertEquals(2, latencies.get(QuerySpan.SEEK_LATENCY).getTotalCount());
+        Assert.assertEquals(3, latencies.get(QuerySpan.NEXT_LATENCY).getTotalCount());
+        Assert.assertEquals(1, latencies.get("Seek:FOO").getTotalCount());
+        Assert.assertEquals(2, latencies.get("Next:FOO").getTotalCount());
+        Assert.assertEquals(1, latencies.get(QuerySpan.latencyName(QuerySpan.SEEK_LATENCY, "BAR")).getTotalCount());
+        Assert.assertEquals(1, latencies.get(QuerySpan.latencyName(QuerySpan.NEXT_LATENCY, "BAR")).getTotalCount());
+    }
+    
     private class QSRunnable implements Runnable {
         
         private QuerySpan querySpan = null;
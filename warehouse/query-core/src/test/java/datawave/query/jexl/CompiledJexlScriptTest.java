@@ -0,0 +1,96 @@
+package datawave.query.jexl;
+
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import org.apache.accumulo.core.data.Key;
+import org.apache.commons.jexl2.DatawaveJexlScript;
+import org.apache.commons.jexl2.ExpressionImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class CompiledJexlScriptTest {
+    
+    private Document document;
+    
+    @Before
+    public void setup() {
+        Key key = new Key("shard", "datatype\0uid");
+        document = new Document();
+        document.put("FOO", new Content("bar", key, true));
+        document.put("FOO", new Content("bazaar", key, true));
+        document.put("NAME", new Content("alice", key, true));
+        document.put("AGE", new Numeric("42", key, true));
+    }
+    
+    private void assertSameEvaluation(String query, boolean expected) {
+        HitListArithmetic interpretedArithmetic = new HitListArithmetic();
+        DatawaveJexlScript script = DatawaveJexlScript.create((ExpressionImpl) ArithmeticJexlEngines.getEngine(interpretedArithmetic).createScript(query));
+        Object interpreted = script.execute(context());
+        
+        HitListArithmetic compiledArithmetic = new HitListArithmetic();
+        DatawaveJexlScript compiledScript = DatawaveJexlScript.create((ExpressionImpl) ArithmeticJexlEngines.getEngine(compiledArithmetic).createScript(query));
+        CompiledJexlScript compiled = new CompiledJexlScript(compiledScript, compiledArithmetic);
+        Object result = compiled.execute(context());
+        
+        Assert.assertEquals(query, expected, ArithmeticJexlEngines.isMatched(interpreted));
+        Assert.assertEquals(query, expected, ArithmeticJexlEngines.isMatched(result));
+        Assert.assertEquals(query, interpretedArithmetic.getHitSet(), compiledArithmetic.getHitSet());
+    }
+    
+    private DatawaveJexlContext context() {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        document.visit(Arrays.asList("FOO", "NAME", "AGE"), context);
+        return context;
+    }
+    
+    @Test
+    public void testComparisons() {
+        assertSameEvaluation("FOO == 'bar'", true);
+        assertSameEvaluation("FOO == 'baz'", false);
+        assertSameEvaluation("FOO != 'baz'", true);
+        assertSameEvaluation("FOO =~ 'baz.*'", true);
+        assertSameEvaluation("FOO !~ 'ba.*'", false);
+        assertSameEvaluation("AGE > 40", true);
+        assertSameEvaluation("AGE <= 40", false);
+        assertSameEvaluation("MISSING == 'bar'", false);
+    }
+    
+    @Test
+    public void testBooleanLogic() {
+        assertSameEvaluation("FOO == 'bar' && NAME == 'alice'", true);
+        assertSameEvaluation("FOO == 'bar' && NAME == 'bob'", false);
+        assertSameEvaluation("FOO == 'nope' || NAME =~ 'ali.*' || FOO == 'bazaar'", true);
+        assertSameEvaluation("(FOO == 'bar' && NAME == 'bob') || (FOO =~ 'baz.*' && !(NAME == 'bob'))", true);
+        assertSameEvaluation("!(FOO == 'bar' || FOO == 'baz')", false);
+    }
+    
+    @Test
+    public void testBoundedRange() {
+        assertSameEvaluation("((_Bounded_ = true) && (AGE >= 40 && AGE <= 50))", true);
+        assertSameEvaluation("((_Bounded_ = true) && (AGE > 42 && AGE <= 50))", false);
+        assertSameEvaluation("NAME == 'alice' && ((_Bounded_ = true) && (NAME >= 'a' && NAME < 'b'))", true);
+    }
+    
+    @Test
+    public void testInterpretedFunctions() {
+        assertSameEvaluation("NAME == 'alice' && filter:includeRegex(FOO, 'baz.*')", true);
+        assertSameEvaluation("NAME == 'alice' && filter:includeRegex((FOO||NAME), 'nope.*')", false);
+        assertSameEvaluation("filter:includeRegex(FOO, 'baz.*').size() > 0 || NAME == 'bob'", true);
+    }
+    
+    @Test
+    public void testCompiledCounts() {
+        HitListArithmetic arithmetic = new HitListArithmetic();
+        String query = "NAME == 'alice' && filter:includeRegex(FOO, 'baz.*')";
+        DatawaveJexlScript script = DatawaveJexlScript.create((ExpressionImpl) ArithmeticJexlEngines.getEngine(arithmetic).createScript(query));
+        CompiledJexlScript compiled = new CompiledJexlScript(script, arithmetic);
+        
+        // only the function is left to the interpreter
+        Assert.assertEquals(1, compiled.getInterpretedCount());
+        Assert.assertTrue(compiled.getCompiledCount() > 1);
+    }
+}
@@ -0,0 +1,108 @@
+package datawave.query.jexl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class RegexAutomatonTest {
+    
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL;
+    
+    private static final List<String> VALUES = Arrays.asList("", "a", "ab", "abc", "ABC", "abd", "abz", "aXb", "a\nb", "foo.bar", "foobar", "foo-bar", "123",
+                    "1234", "cat", "dog", "CatDog", "zzz");
+    
+    private void assertSameMatches(String regex, int flags) {
+        RegexAutomaton automaton = new RegexAutomaton(regex, flags);
+        Assert.assertTrue(regex, automaton.isAutomaton());
+        Pattern pattern = Pattern.compile(regex, flags);
+        for (String value : VALUES) {
+            Assert.assertEquals(regex + " against " + value, pattern.matcher(value).matches(), automaton.matches(value));
+        }
+    }
+    
+    @Test
+    public void testMatchesAgreeWithPattern() {
+        for (int flags : new int[] {0, FLAGS}) {
+            assertSameMatches("ab.*", flags);
+            assertSameMatches("a.b", flags);
+            assertSameMatches("ab[c-e]", flags);
+            assertSameMatches("[^a-c].*", 0);
+            assertSameMatches("foo\\.bar", flags);
+            assertSameMatches("foo.bar", flags);
+            assertSameMatches("(cat|dog)", flags);
+            assertSameMatches("[0-9]{3,4}", flags);
+            assertSameMatches("[0-9]+", flags);
+            assertSameMatches("a?b?c?", flags);
+            assertSameMatches("cat(dog)?", flags);
+            assertSameMatches("foo-bar", flags);
+            assertSameMatches("z{2}", flags);
+        }
+    }
+    
+    @Test
+    public void testFallback() {
+        for (String regex : new String[] {"\\d+", "^abc", "abc$", "(?i)abc", "ab*?", "ab*+", "[a-c&&b]", "[[a-c]]"}) {
+            RegexAutomaton automaton = new RegexAutomaton(regex, 0);
+            Assert.assertFalse(regex, automaton.isAutomaton());
+            Assert.assertEquals(regex, "zzz", automaton.getSeekHint("zzz"));
+            Pattern pattern = Pattern.compile(regex);
+            for (String value : VALUES) {
+                Assert.assertEquals(regex + " against " + value, pattern.matcher(value).matches(), automaton.matches(value));
+            }
+        }
+        
+        // a case insensitive negated class is not translated
+        Assert.assertFalse(new RegexAutomaton("[^a-c]", Pattern.CASE_INSENSITIVE).isAutomaton());
+    }
+    
+    @Test
+    public void testSeekHint() {
+        RegexAutomaton automaton = new RegexAutomaton("ab[c-e].*", 0);
+        Assert.assertEquals("", automaton.getSeekHint(""));
+        Assert.assertEquals("a", automaton.getSeekHint("a"));
+        Assert.assertEquals("ab", automaton.getSeekHint("aa"));
+        Assert.assertEquals("abc", automaton.getSeekHint("abc"));
+        Assert.assertEquals("abcxyz", automaton.getSeekHint("abcxyz"));
+        Assert.assertEquals("abc", automaton.getSeekHint("abb"));
+        Assert.assertEquals("abc", automaton.getSeekHint("abAzz"));
+        Assert.assertNull(automaton.getSeekHint("abz"));
+        Assert.assertNull(automaton.getSeekHint("b"));
+        
+        automaton = new RegexAutomaton("(cat|dog)s?", 0);
+        Assert.assertEquals("c", automaton.getSeekHint("bird"));
+        Assert.assertEquals("d", automaton.getSeekHint("cow"));
+        Assert.assertEquals("cats", automaton.getSeekHint("cats"));
+        Assert.assertEquals("d", automaton.getSeekHint("cats0"));
+        Assert.assertNull(automaton.getSeekHint("eel"));
+    }
+    
+    @Test
+    public void testSeekHintCaseInsensitive() {
+        RegexAutomaton automaton = new RegexAutomaton("ab.*", FLAGS);
+        Assert.assertEquals("AB", automaton.getSeekHint("AAA"));
+        Assert.assertEquals("Ab", automaton.getSeekHint("Aa"));
+        Assert.assertEquals("a", automaton.getSeekHint("B"));
+        Assert.assertNull(automaton.getSeekHint("b"));
+    }
+    
+    @Test
+    public void testDegenerateRegexes() {
+        RegexAutomaton automaton = new RegexAutomaton("a[b&&c]", 0);
+        Assert.assertFalse(automaton.matches("ab"));
+        
+        automaton = new RegexAutomaton("a{0}b{0}", 0);
+        Assert.assertTrue(automaton.isAutomaton());
+        Assert.assertTrue(automaton.matches(""));
+        Assert.assertNull(automaton.getSeekHint("a"));
+    }
+    
+    @Test
+    public void testCache() {
+        Assert.assertSame(JexlPatternCache.getAutomaton("ab.*"), JexlPatternCache.getAutomaton("ab.*"));
+        Assert.assertNotSame(JexlPatternCache.getAutomaton("ab.*"), JexlPatternCache.getAutomaton("ab.*", 0));
+        Assert.assertEquals(FLAGS, JexlPatternCache.getAutomaton("ab.*").getFlags());
+    }
+}
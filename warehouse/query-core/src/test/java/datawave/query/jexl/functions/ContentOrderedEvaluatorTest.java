@@ -18,7 +18,7 @@ public class ContentOrderedEvaluatorTest {
     
     private static final String EVENT_ID = "shard\u0000dt\u0000uid";
     private TermOffsetMap termOffsetMap;
-    private final List<List<TermWeightPosition>> offsets = new ArrayList<>();
+    private final List<TermPositions> offsets = new ArrayList<>();
     private String field;
     private String eventId = EVENT_ID;
     private int distance;
@@ -277,7 +277,7 @@ public class ContentOrderedEvaluatorTest {
         for (int offset : offsets) {
             list.add(new TermWeightPosition.Builder().setOffset(offset).setZeroOffsetMatch(true).build());
         }
-        this.offsets.add(list);
+        this.offsets.add(TermPositions.of(list));
     }
     
     private void givenDistance(int distance) {
@@ -315,7 +315,7 @@ public class ContentOrderedEvaluatorTest {
         }
         
         @Override
-        protected boolean evaluate(String field, String eventId, List<List<TermWeightPosition>> offsets) {
+        protected boolean evaluate(String field, String eventId, List<TermPositions> offsets) {
             return super.evaluate(field, eventId, offsets);
         }
     }
@@ -0,0 +1,121 @@
+package datawave.query.jexl.functions;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TermPositionsTest {
+    
+    private List<TermWeightPosition> decodeWithInfo(TermWeight.Info info) {
+        List<TermWeightPosition> positions = new ArrayList<>();
+        TermWeightPosition.Builder position = new TermWeightPosition.Builder();
+        for (int i = 0; i < info.getTermOffsetCount(); i++) {
+            position.setTermWeightOffsetInfo(info, i);
+            positions.add(position.build());
+            position.reset();
+        }
+        return positions;
+    }
+    
+    private void assertSamePositions(List<TermWeightPosition> expected, TermPositions actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getOffset(), actual.getOffset(i));
+            Assert.assertEquals(expected.get(i).getLowOffset(), actual.getLowOffset(i));
+            Assert.assertEquals(expected.get(i).getScore(), actual.getScore(i));
+            Assert.assertEquals(expected.get(i).getZeroOffsetMatch(), actual.getZeroOffsetMatch(i));
+        }
+    }
+    
+    @Test
+    public void testDecode() {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(2, 5, 9, 12)).addAllPrevSkips(Arrays.asList(0, 1, 0, 2))
+                        .addAllScore(Arrays.asList(10, 20, 30, 40)).setZeroOffsetMatch(false).build();
+        TermPositions positions = new TermPositions(info.toByteArray());
+        
+        assertSamePositions(decodeWithInfo(info), positions);
+        Assert.assertEquals(12, positions.getMaxOffset());
+        Assert.assertFalse(positions.getZeroOffsetMatch(0));
+    }
+    
+    @Test
+    public void testDecodeIgnoresMismatchedSkipsAndScores() {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(1, 3, 7)).addAllPrevSkips(Arrays.asList(1, 1))
+                        .addAllScore(Arrays.asList(5)).build();
+        TermPositions positions = new TermPositions(info.toByteArray());
+        
+        assertSamePositions(decodeWithInfo(info), positions);
+        Assert.assertEquals(3, positions.getLowOffset(1));
+        Assert.assertEquals(TermWeightPosition.DEFAULT_SCORE, positions.getScore(2));
+        Assert.assertTrue(positions.getZeroOffsetMatch(2));
+    }
+    
+    @Test
+    public void testSortedAndDeduped() {
+        // 10 with 6 skips sorts ahead of 5, and the second 5 is a duplicate
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(3, 5, 5, 10)).addAllPrevSkips(Arrays.asList(0, 0, 0, 6)).build();
+        TermPositions positions = new TermPositions(info.toByteArray());
+        
+        Assert.assertEquals(3, positions.size());
+        Assert.assertEquals(3, positions.getOffset(0));
+        Assert.assertEquals(10, positions.getOffset(1));
+        Assert.assertEquals(4, positions.getLowOffset(1));
+        Assert.assertEquals(5, positions.getOffset(2));
+        Assert.assertEquals(10, positions.getMaxOffset());
+    }
+    
+    @Test
+    public void testInvalidBytes() {
+        TermPositions positions = new TermPositions(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff});
+        Assert.assertTrue(positions.isEmpty());
+    }
+    
+    @Test
+    public void testMerge() {
+        TermPositions first = TermPositions.of(Arrays.asList(position(1, 7), position(4, 1), position(9, 1)));
+        TermPositions second = TermPositions.of(Arrays.asList(position(4, 2), position(6, 2)));
+        TermPositions merged = TermPositions.merge(first, second);
+        
+        Assert.assertEquals(4, merged.size());
+        Assert.assertEquals(1, merged.getOffset(0));
+        Assert.assertEquals(4, merged.getOffset(1));
+        // the first position at 4 is kept
+        Assert.assertEquals(1, merged.getScore(1));
+        Assert.assertEquals(6, merged.getOffset(2));
+        Assert.assertEquals(9, merged.getOffset(3));
+        
+        Assert.assertSame(first, TermPositions.merge(first, TermPositions.EMPTY));
+    }
+    
+    @Test
+    public void testFilterScore() {
+        TermPositions positions = TermPositions.of(Arrays.asList(position(1, 5), position(2, 50), position(3, 10)));
+        Assert.assertSame(positions, positions.filterScore(50));
+        
+        TermPositions filtered = positions.filterScore(10);
+        Assert.assertEquals(2, filtered.size());
+        Assert.assertEquals(1, filtered.getOffset(0));
+        Assert.assertEquals(3, filtered.getOffset(1));
+    }
+    
+    @Test
+    public void testEquality() {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(1, 2, 3)).build();
+        TermPositions decoded = new TermPositions(info.toByteArray());
+        TermPositions built = TermPositions.of(decodeWithInfo(info));
+        
+        Assert.assertEquals(built, decoded);
+        Assert.assertEquals(built.hashCode(), decoded.hashCode());
+        Assert.assertEquals(decodeWithInfo(info).size(), built.toTermWeightPositions().size());
+        Assert.assertEquals(TermPositions.of(built.toTermWeightPositions()), built);
+    }
+    
+    private TermWeightPosition position(int offset, int score) {
+        return new TermWeightPosition.Builder().setOffset(offset).setScore(score).build();
+    }
+}
@@ -0,0 +1,185 @@
+package datawave.query.jexl.lookups;
+
+import com.google.common.collect.Sets;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.tables.AnyFieldScanner;
+import datawave.query.tables.ScannerFactory;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexExpansionCacheTest {
+    
+    private ShardQueryConfiguration config;
+    private IndexExpansionCache cache;
+    
+    @Before
+    public void setup() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd HHmmss");
+        config = ShardQueryConfiguration.create();
+        config.setBeginDate(format.parse("20200101 000000"));
+        config.setEndDate(format.parse("20200102 235959"));
+        config.setCacheIndexExpansions(true);
+        cache = new IndexExpansionCache(10, 60000L);
+    }
+    
+    @Test
+    public void testRepeatedExpansionIsCached() {
+        IndexExpansionCache.Key key = IndexExpansionCache.createKey(config, "regex", Collections.singleton("ba.*"), Collections.singleton("FOO"), null);
+        
+        StubLookup first = new StubLookup(config, false);
+        IndexLookupMap expected = new CachedIndexLookup(cache, key, first).lookup();
+        assertEquals(1, first.lookups);
+        assertEquals(Sets.newHashSet("bar", "baz"), expected.get("FOO"));
+        
+        // the cached expansion is copied, so changes to the results of a query are not cached
+        expected.remove("FOO");
+        
+        StubLookup second = new StubLookup(config, false);
+        IndexLookupMap cached = new CachedIndexLookup(cache, key, second).lookup();
+        assertEquals(0, second.lookups);
+        assertEquals(Sets.newHashSet("bar", "baz"), cached.get("FOO"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+    
+    @Test
+    public void testIncompleteExpansionIsNotCached() {
+        IndexExpansionCache.Key key = IndexExpansionCache.createKey(config, "regex", Collections.singleton("ba.*"), Collections.singleton("FOO"), null);
+        
+        CachedIndexLookup lookup = new CachedIndexLookup(cache, key, new StubLookup(config, true));
+        lookup.lookup();
+        assertTrue(lookup.isIncomplete());
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testFailedLookupIsNotCached() throws Exception {
+        ScannerFactory scannerFactory = EasyMock.createMock(ScannerFactory.class);
+        EasyMock.expect(scannerFactory.newLimitedScanner(EasyMock.eq(AnyFieldScanner.class), EasyMock.anyString(), EasyMock.anyObject(), EasyMock.anyObject()))
+                        .andThrow(new TableNotFoundException(null, config.getIndexTableName(), "missing"));
+        EasyMock.replay(scannerFactory);
+        
+        IndexExpansionCache.Key key = IndexExpansionCache.createKey(config, "field", Collections.singleton("bar"), Collections.singleton("FOO"), null);
+        CachedIndexLookup lookup = new CachedIndexLookup(cache, key, new FieldNameIndexLookup(config, scannerFactory, Collections.singleton("FOO"),
+                        Collections.singleton("bar"), null));
+        
+        // the index could not be scanned, so the empty expansion is not cached
+        assertTrue(lookup.lookup().isEmpty());
+        assertTrue(lookup.isIncomplete());
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testSharedInstances() {
+        IndexExpansionCache instance = IndexExpansionCache.getInstance(config);
+        assertSame(instance, IndexExpansionCache.getInstance(config));
+        
+        // queries with other cache settings do not share the cache
+        ShardQueryConfiguration other = ShardQueryConfiguration.create();
+        other.setIndexExpansionCacheSize(config.getIndexExpansionCacheSize() + 1);
+        IndexExpansionCache otherSize = IndexExpansionCache.getInstance(other);
+        assertNotSame(instance, otherSize);
+        other = ShardQueryConfiguration.create();
+        other.setIndexExpansionCacheTtlMs(config.getIndexExpansionCacheTtlMs() + 1);
+        IndexExpansionCache otherTtl = IndexExpansionCache.getInstance(other);
+        assertNotSame(instance, otherTtl);
+        assertNotSame(otherSize, otherTtl);
+        
+        // all of them are cleared
+        IndexExpansionCache.Key key = IndexExpansionCache.createKey(config, "regex", Collections.singleton("ba.*"), Collections.singleton("FOO"), null);
+        for (IndexExpansionCache shared : new IndexExpansionCache[] {instance, otherSize, otherTtl}) {
+            new CachedIndexLookup(shared, key, new StubLookup(config, false)).lookup();
+            assertEquals(1, shared.size());
+        }
+        IndexExpansionCache.invalidateShared();
+        assertEquals(0, instance.size());
+        assertEquals(0, otherSize.size());
+        assertEquals(0, otherTtl.size());
+    }
+    
+    @Test
+    public void testInvalidateAll() {
+        IndexExpansionCache.Key key = IndexExpansionCache.createKey(config, "regex", Collections.singleton("ba.*"), Collections.singleton("FOO"), null);
+        new CachedIndexLookup(cache, key, new StubLookup(config, false)).lookup();
+        assertEquals(1, cache.size());
+        
+        cache.invalidateAll();
+        StubLookup lookup = new StubLookup(config, false);
+        new CachedIndexLookup(cache, key, lookup).lookup();
+        assertEquals(1, lookup.lookups);
+    }
+    
+    @Test
+    public void testKeys() throws Exception {
+        IndexExpansionCache.Key key = IndexExpansionCache.createKey(config, "regex", Sets.newHashSet("ba.*", "fo.*"), Collections.singleton("FOO"), null);
+        
+        // the order of the terms does not matter
+        assertEquals(key, IndexExpansionCache.createKey(config, "regex", Sets.newLinkedHashSet(Sets.newHashSet("fo.*", "ba.*")), Collections.singleton("FOO"),
+                        null));
+        assertNotEquals(key, IndexExpansionCache.createKey(config, "regex", Sets.newHashSet("ba.*", "fo.*"), Collections.singleton("BAR"), null));
+        assertNotEquals(key, IndexExpansionCache.createKey(config, "range", Sets.newHashSet("ba.*", "fo.*"), Collections.singleton("FOO"), null));
+        
+        // the dates are bucketed by day
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd HHmmss");
+        ShardQueryConfiguration other = ShardQueryConfiguration.create();
+        other.setBeginDate(format.parse("20200101 120000"));
+        other.setEndDate(format.parse("20200102 120000"));
+        assertEquals(key, IndexExpansionCache.createKey(other, "regex", Sets.newHashSet("ba.*", "fo.*"), Collections.singleton("FOO"), null));
+        
+        other.setEndDate(format.parse("20200103 000000"));
+        assertNotEquals(key, IndexExpansionCache.createKey(other, "regex", Sets.newHashSet("ba.*", "fo.*"), Collections.singleton("FOO"), null));
+        
+        other.setEndDate(format.parse("20200102 120000"));
+        other.setDatatypeFilter(Sets.newHashSet("dt"));
+        assertNotEquals(key, IndexExpansionCache.createKey(other, "regex", Sets.newHashSet("ba.*", "fo.*"), Collections.singleton("FOO"), null));
+    }
+    
+    @Test
+    public void testNotCachedUnlessEnabled() {
+        StubLookup lookup = new StubLookup(config, false);
+        IndexLookup cached = IndexExpansionCache.cached(config, lookup, "regex", Collections.singleton("ba.*"), Collections.singleton("FOO"), null);
+        assertTrue(cached instanceof CachedIndexLookup);
+        
+        config.setCacheIndexExpansions(false);
+        assertEquals(lookup, IndexExpansionCache.cached(config, lookup, "regex", Collections.singleton("ba.*"), Collections.singleton("FOO"), null));
+        assertFalse(lookup.isIncomplete());
+    }
+    
+    /**
+     * Expands every pattern to the same terms, without a global index
+     */
+    private static class StubLookup extends AsyncIndexLookup {
+        private int lookups = 0;
+        private final boolean fail;
+        
+        StubLookup(ShardQueryConfiguration config, boolean fail) {
+            super(config, null, false, null);
+            this.fail = fail;
+        }
+        
+        @Override
+        public void submit() {}
+        
+        @Override
+        public IndexLookupMap lookup() {
+            lookups++;
+            incomplete = fail;
+            IndexLookupMap map = new IndexLookupMap(10, 10);
+            map.put("FOO", "bar");
+            map.put("FOO", "baz");
+            return map;
+        }
+    }
+}
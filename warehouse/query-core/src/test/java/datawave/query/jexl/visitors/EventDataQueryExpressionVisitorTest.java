@@ -200,6 +200,38 @@ public class EventDataQueryExpressionVisitorTest {
         assertFalse(f.apply(k4));
     }
     
+    @Test
+    public void testExpressionFilterTermFrequencyKeyDatatype() {
+        // BAZ is only a number for the ingest datatype
+        ExpressionFilter f = new ExpressionFilter(attrFactory, "BAZ");
+        f.addFieldValue("5");
+        String normalized = new NumberType().normalize("5");
+        
+        Key k1 = new Key("shard", "tf", DATATYPE + '\0' + UID + '\0' + normalized + '\0' + "BAZ");
+        Key k2 = new Key("shard", "tf", "other" + '\0' + UID + '\0' + normalized + '\0' + "BAZ");
+        Key k3 = new Key("shard", "tf", DATATYPE + '\0' + UID + '\0' + new NumberType().normalize("6") + '\0' + "BAZ");
+        
+        assertTrue(f.apply(k1));
+        assertFalse(f.apply(k2));
+        assertFalse(f.apply(k3));
+    }
+    
+    @Test
+    public void testExpressionFilterFieldIndexKeyDatatype() {
+        // BAZ is only a number for the ingest datatype
+        ExpressionFilter f = new ExpressionFilter(attrFactory, "BAZ");
+        f.addFieldValue("5");
+        String normalized = new NumberType().normalize("5");
+        
+        Key k1 = new Key("shard", "fi\0BAZ", normalized + '\0' + DATATYPE + '\0' + UID);
+        Key k2 = new Key("shard", "fi\0BAZ", normalized + '\0' + "other" + '\0' + UID);
+        Key k3 = new Key("shard", "fi\0BAZ", new NumberType().normalize("6") + '\0' + DATATYPE + '\0' + UID);
+        
+        assertTrue(f.apply(k1));
+        assertFalse(f.apply(k2));
+        assertFalse(f.apply(k3));
+    }
+    
     @Test
     public void test() throws Exception {
         String originalQuery = "FOO == 'abc'";
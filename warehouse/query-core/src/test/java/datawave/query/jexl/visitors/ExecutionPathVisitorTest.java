@@ -0,0 +1,59 @@
+package datawave.query.jexl.visitors;
+
+import com.google.common.collect.Sets;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.ExecutionPathVisitor.Path;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExecutionPathVisitorTest {
+    
+    private final Set<String> indexedFields = Sets.newHashSet("FOO");
+    
+    @Test
+    public void testIndexedAndUnindexedTerms() throws Exception {
+        test("FOO == 'a' && (BAR == 'b' || FOO =~ 'c.*')", "FOO == 'a' -> index", "BAR == 'b' -> evaluation-only", "FOO =~ 'c.*' -> index");
+    }
+    
+    @Test
+    public void testNegatedTerms() throws Exception {
+        test("FOO == 'a' && !(FOO == 'b') && FOO != 'c'", "FOO == 'a' -> index", "FOO == 'b' -> evaluation-only", "FOO != 'c' -> evaluation-only");
+    }
+    
+    @Test
+    public void testMarkedTerms() throws Exception {
+        test("FOO == 'a' && ((_Delayed_ = true) && (FOO == 'b')) && ((_Value_ = true) && (FOO =~ 'c.*')) && ((_Eval_ = true) && (FOO == 'd'))",
+                        "FOO == 'a' -> index", "FOO == 'b' -> delayed", "FOO =~ 'c.*' -> ivarator", "FOO == 'd' -> evaluation-only");
+    }
+    
+    @Test
+    public void testIvaratorWithoutTerms() throws Exception {
+        test("FOO == 'a' && ((_List_ = true) && ((id = '123') && (field = 'FOO') && (params = '{\"values\":[\"b\",\"c\"]}')))", "FOO == 'a' -> index",
+                        "((_List_ = true) && ((id = '123') && (field = 'FOO') && (params = '{\"values\":[\"b\",\"c\"]}'))) -> ivarator");
+    }
+    
+    @Test
+    public void testBoundedRangesAndFunctions() throws Exception {
+        test("((_Bounded_ = true) && (FOO >= 'a' && FOO <= 'b')) && BAR > 'c' && filter:includeRegex(FOO, 'd.*')",
+                        "((_Bounded_ = true) && (FOO >= 'a' && FOO <= 'b')) -> index", "BAR > 'c' -> evaluation-only",
+                        "filter:includeRegex(FOO, 'd.*') -> evaluation-only");
+    }
+    
+    private void test(String query, String... expected) throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(query);
+        List<String> paths = new ArrayList<>();
+        for (Map.Entry<JexlNode,Path> entry : ExecutionPathVisitor.getPaths(script, indexedFields)) {
+            paths.add(JexlStringBuildingVisitor.buildQuery(entry.getKey()) + " -> " + entry.getValue().getLabel());
+        }
+        assertEquals(Arrays.asList(expected), paths);
+    }
+}
@@ -0,0 +1,83 @@
+package datawave.query.jexl.visitors;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.util.MockMetadataHelper;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderByCostVisitorTest {
+    
+    private ShardQueryConfiguration config;
+    private MockMetadataHelper helper;
+    
+    @Before
+    public void setup() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+        config = ShardQueryConfiguration.create();
+        config.setBeginDate(format.parse("20200101"));
+        config.setEndDate(format.parse("20200102"));
+        config.setDatatypeFilter(Sets.newHashSet("dt"));
+        config.setCostBasedPlanning(true);
+        
+        helper = new MockMetadataHelper();
+        helper.setIndexedFields(Sets.newHashSet("RARE", "COMMON", "INDEX_ONLY"));
+        helper.setIndexOnlyFields(Sets.newHashSet("INDEX_ONLY"));
+        
+        Map<Map.Entry<String,String>,Map<String,Long>> cardinalities = new HashMap<>();
+        cardinalities.put(Maps.immutableEntry("RARE", "20200101"), Collections.singletonMap("dt", 10L));
+        cardinalities.put(Maps.immutableEntry("COMMON", "20200101"), Collections.singletonMap("dt", 100000L));
+        cardinalities.put(Maps.immutableEntry("INDEX_ONLY", "20200101"), Collections.singletonMap("dt", 100000L));
+        helper.setCardinalities(cardinalities);
+    }
+    
+    @Test
+    public void testOrderByCost() throws Exception {
+        config.setCostBasedDelayRatio(0);
+        test("UNINDEXED == 'x' && COMMON == 'b' && RARE == 'a'", "RARE == 'a' && COMMON == 'b' && UNINDEXED == 'x'");
+    }
+    
+    @Test
+    public void testOrderNestedByCost() throws Exception {
+        config.setCostBasedDelayRatio(0);
+        test("(COMMON == 'b' || COMMON == 'c') && (UNINDEXED == 'x' || RARE == 'a') && RARE == 'a'",
+                        "RARE == 'a' && (COMMON == 'b' || COMMON == 'c') && (UNINDEXED == 'x' || RARE == 'a')");
+        test("UNINDEXED == 'x' && (COMMON == 'b' || (COMMON == 'c' && RARE == 'a'))", "(COMMON == 'b' || (RARE == 'a' && COMMON == 'c')) && UNINDEXED == 'x'");
+    }
+    
+    @Test
+    public void testDelayCostlyTerms() throws Exception {
+        test("UNINDEXED == 'x' && COMMON == 'b' && RARE == 'a'", "RARE == 'a' && ((_Delayed_ = true) && (COMMON == 'b')) && UNINDEXED == 'x'");
+    }
+    
+    @Test
+    public void testIndexOnlyTermsNotDelayed() throws Exception {
+        test("INDEX_ONLY == 'b' && RARE == 'a'", "RARE == 'a' && INDEX_ONLY == 'b'");
+    }
+    
+    @Test
+    public void testNegatedTermsNotDelayed() throws Exception {
+        test("RARE == 'a' && !(COMMON == 'b' && RARE == 'c')", "RARE == 'a' && !(RARE == 'c' && COMMON == 'b')");
+    }
+    
+    @Test
+    public void testMarkersUnchanged() throws Exception {
+        test("((_Delayed_ = true) && (RARE == 'c')) && COMMON == 'b'", "COMMON == 'b' && ((_Delayed_ = true) && (RARE == 'c'))");
+    }
+    
+    private void test(String query, String expected) throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(query);
+        ASTJexlScript ordered = OrderByCostVisitor.order(script, config, null, helper);
+        assertEquals(JexlStringBuildingVisitor.buildQuery(JexlASTHelper.parseJexlQuery(expected)), JexlStringBuildingVisitor.buildQuery(ordered));
+    }
+}
@@ -0,0 +1,217 @@
+package datawave.query.jexl.visitors;
+
+import com.google.common.collect.Sets;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.LiteralRange;
+import datawave.query.jexl.NodeTypeCount;
+import datawave.query.jexl.lookups.IndexLookup;
+import datawave.query.jexl.lookups.IndexLookupMap;
+import datawave.query.jexl.nodes.BoundedRange;
+import datawave.query.jexl.nodes.ExceededValueThresholdMarkerJexlNode;
+import datawave.query.util.MockMetadataHelper;
+import datawave.test.JexlNodeAssert;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTEvaluationOnly;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class RegexAndRangeIndexExpansionVisitorTest {
+    
+    private static final String RANGE = "((_Bounded_ = true) && (NUM >= '1' && NUM <= '3'))";
+    
+    private ShardQueryConfiguration config;
+    private MockMetadataHelper helper;
+    
+    // the order in which the index lookups were created and waited on
+    private final List<String> events = new ArrayList<>();
+    
+    @Before
+    public void setup() {
+        config = new ShardQueryConfiguration();
+        config.setExpandAllTerms(true);
+        
+        helper = new MockMetadataHelper();
+        helper.addFields(Arrays.asList("FOO", "NUM"));
+        helper.setIndexedFields(Sets.newHashSet("FOO", "NUM"));
+    }
+    
+    @Test
+    public void testRegexAndRangeInOneTree() throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO =~ 'ba.*' && " + RANGE);
+        
+        ASTJexlScript expanded = new TestRegexAndRangeVisitor(null).expand(script);
+        
+        // both lookups are created before either is waited on
+        Assert.assertEquals(Arrays.asList("create FOO", "create NUM"), events.subList(0, 2));
+        for (String event : events.subList(2, events.size())) {
+            Assert.assertTrue(event, event.startsWith("lookup"));
+        }
+        
+        NodeTypeCount count = NodeTypeCountVisitor.countNodes(expanded);
+        Assert.assertFalse(count.hasAny(ASTERNode.class, BoundedRange.class));
+        Assert.assertEquals(5, count.getTotal(ASTEQNode.class));
+        JexlNodeAssert.assertThat(expanded).hasValidLineage();
+    }
+    
+    @Test
+    public void testRangeWithinExceededValueMarkerIsNotExpanded() throws Exception {
+        String marked = "((_Value_ = true) && " + RANGE + ")";
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO =~ 'ba.*' && " + marked);
+        
+        ASTJexlScript expanded = new TestRegexAndRangeVisitor(null).expand(script);
+        
+        // the regex is expanded, but the range is left for the ivarator
+        Assert.assertEquals(Collections.singletonList("create FOO"), events.subList(0, 1));
+        Assert.assertFalse(events.contains("create NUM"));
+        
+        NodeTypeCount count = NodeTypeCountVisitor.countNodes(expanded);
+        Assert.assertFalse(count.isPresent(ASTERNode.class));
+        Assert.assertEquals(1, count.getTotal(ExceededValueThresholdMarkerJexlNode.class));
+        Assert.assertEquals(1, count.getTotal(BoundedRange.class));
+        Assert.assertTrue(JexlStringBuildingVisitor.buildQuery(expanded).contains(marked));
+    }
+    
+    @Test
+    public void testRangeWithinEvaluationOnlyMarkerIsNotExpanded() throws Exception {
+        String marked = "((_Eval_ = true) && " + RANGE + ")";
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'bar' && " + marked);
+        
+        ASTJexlScript expanded = new TestRegexAndRangeVisitor(null).expand(script);
+        
+        Assert.assertTrue(events.isEmpty());
+        
+        NodeTypeCount count = NodeTypeCountVisitor.countNodes(expanded);
+        Assert.assertEquals(1, count.getTotal(ASTEvaluationOnly.class));
+        Assert.assertEquals(1, count.getTotal(BoundedRange.class));
+        Assert.assertTrue(JexlStringBuildingVisitor.buildQuery(expanded).contains(marked));
+    }
+    
+    @Test
+    public void testExpansionAfterPullup() throws Exception {
+        Map<String,IndexLookup> lookupMap = new HashMap<>();
+        
+        // the first expansion looks up the regex
+        new TestRegexAndRangeVisitor(lookupMap).expand(JexlASTHelper.parseJexlQuery("FOO =~ 'ba.*'"));
+        Assert.assertEquals(Collections.singletonList("create FOO"), events.subList(0, 1));
+        events.clear();
+        
+        // the delayed terms are not executable within the or, so they are pulled back up
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'a' || ((_Delayed_ = true) && (FOO =~ 'ba.*')) || ((_Delayed_ = true) && " + RANGE
+                        + ")");
+        Set<String> indexedFields = Sets.newHashSet("FOO", "NUM");
+        script = (ASTJexlScript) PullupUnexecutableNodesVisitor.pullupDelayedPredicates(script, false, config, indexedFields, Collections.emptySet(),
+                        Collections.emptySet(), helper);
+        Assert.assertFalse(NodeTypeCountVisitor.countNodes(script).isPresent(ASTDelayedPredicate.class));
+        
+        // the re-expansion reuses the regex lookup and only looks up the range
+        ASTJexlScript expanded = new TestRegexAndRangeVisitor(lookupMap).expand(script);
+        Assert.assertFalse(events.contains("create FOO"));
+        Assert.assertEquals(Collections.singletonList("create NUM"), events.subList(0, 1));
+        
+        NodeTypeCount count = NodeTypeCountVisitor.countNodes(expanded);
+        Assert.assertFalse(count.hasAny(ASTERNode.class, BoundedRange.class, ASTDelayedPredicate.class));
+        Assert.assertEquals(6, count.getTotal(ASTEQNode.class));
+        JexlNodeAssert.assertThat(expanded).hasValidLineage();
+    }
+    
+    @Test
+    public void testSameAsRegexThenRangeExpansion() throws Exception {
+        // @formatter:off
+        String[] queries = {
+            "FOO =~ 'ba.*'",
+            RANGE,
+            "FOO =~ 'ba.*' && " + RANGE,
+            "FOO =~ 'ba.*' || " + RANGE,
+            "FOO == 'a' && (FOO =~ 'ba.*' || " + RANGE + ")",
+            "FOO =~ 'ba.*' && ((_Value_ = true) && " + RANGE + ")",
+            "((_Eval_ = true) && (FOO =~ 'ba.*')) && " + RANGE
+        };
+        // @formatter:on
+        
+        for (String query : queries) {
+            ASTJexlScript onePass = new TestRegexAndRangeVisitor(null).expand(JexlASTHelper.parseJexlQuery(query));
+            
+            ASTJexlScript twoPass = new TestRegexVisitor().expand(JexlASTHelper.parseJexlQuery(query));
+            twoPass = new TestRangeVisitor().expand(twoPass);
+            
+            JexlNodeAssert.assertThat(onePass).isEqualTo(twoPass).hasValidLineage();
+        }
+    }
+    
+    private IndexLookup lookup(String field, String... values) {
+        events.add("create " + field);
+        IndexLookupMap map = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        for (String value : values) {
+            map.put(field, value);
+        }
+        return new IndexLookup(config, null) {
+            @Override
+            public IndexLookupMap lookup() {
+                events.add("lookup " + field);
+                return map;
+            }
+        };
+    }
+    
+    private IndexLookup regexLookup(JexlNode node) {
+        return lookup(JexlASTHelper.getIdentifier(node), "bar", "baz");
+    }
+    
+    private IndexLookup rangeLookup(LiteralRange<?> range) {
+        return lookup(range.getFieldName(), "1", "2", "3");
+    }
+    
+    private class TestRegexAndRangeVisitor extends RegexAndRangeIndexExpansionVisitor {
+        TestRegexAndRangeVisitor(Map<String,IndexLookup> lookupMap) throws TableNotFoundException {
+            super(config, null, helper, lookupMap);
+        }
+        
+        @Override
+        protected IndexLookup createLookup(JexlNode node) {
+            return regexLookup(node);
+        }
+        
+        @Override
+        protected IndexLookup createLookup(LiteralRange<?> range) {
+            return rangeLookup(range);
+        }
+    }
+    
+    private class TestRegexVisitor extends RegexIndexExpansionVisitor {
+        TestRegexVisitor() throws TableNotFoundException {
+            super(config, null, helper, null);
+        }
+        
+        @Override
+        protected IndexLookup createLookup(JexlNode node) {
+            return regexLookup(node);
+        }
+    }
+    
+    @SuppressWarnings("deprecation")
+    private class TestRangeVisitor extends BoundedRangeIndexExpansionVisitor {
+        TestRangeVisitor() throws TableNotFoundException {
+            super(config, null, helper);
+        }
+        
+        @Override
+        protected IndexLookup createLookup(LiteralRange<?> range) {
+            return rangeLookup(range);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package datawave.query.planner;
+
+import datawave.query.CloseableIterable;
+import datawave.query.config.IndexHole;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.index.lookup.AncestorCreateUidsIterator;
+import datawave.query.index.lookup.CreateUidsIterator;
+import datawave.query.iterator.CloseableListIterable;
+import datawave.query.jexl.JexlASTHelper;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPlanCacheTest {
+    
+    private static final String QUERY = "FOO == 'bar'";
+    
+    private ShardQueryConfiguration config;
+    
+    @Before
+    public void setup() {
+        config = ShardQueryConfiguration.create();
+        config.setBeginDate(new Date(0));
+        config.setEndDate(new Date(1000));
+        config.setAuthorizations(Collections.singleton(new Authorizations("A", "B")));
+    }
+    
+    @Test
+    public void testCachedOnceStreamed() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, 60000, 10);
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, QUERY);
+        assertNull(cache.get(key));
+        
+        CloseableIterable<QueryPlan> plans = cache.cache(key, createPlans(3), false, true);
+        List<QueryPlan> streamed = new ArrayList<>();
+        for (QueryPlan plan : plans) {
+            // the plans are modified as they are bundled
+            plan.setRanges(Collections.singleton(new Range("modified")));
+            streamed.add(plan);
+        }
+        assertEquals(3, streamed.size());
+        
+        QueryPlanCache.Entry entry = cache.get(QueryPlanCache.createKey(config, QUERY));
+        assertNotNull(entry);
+        assertFalse(entry.isFullTable());
+        assertTrue(entry.isCollapseUids());
+        
+        List<QueryPlan> cached = new ArrayList<>();
+        for (QueryPlan plan : entry.getPlans()) {
+            cached.add(plan);
+        }
+        assertEquals(3, cached.size());
+        for (int i = 0; i < cached.size(); i++) {
+            assertEquals(Collections.singletonList(new Range("20200101_" + i)), cached.get(i).getRanges());
+            assertEquals(QUERY, cached.get(i).getQueryString());
+            assertNotSame(streamed.get(i).getQueryTree(), cached.get(i).getQueryTree());
+        }
+        
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+    
+    @Test
+    public void testNotCachedUntilStreamed() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, 60000, 10);
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, QUERY);
+        
+        cache.cache(key, createPlans(3), false, false).iterator().next();
+        assertNull(cache.get(key));
+    }
+    
+    @Test
+    public void testTooManyPlans() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(10, 60000, 2);
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, QUERY);
+        
+        int count = 0;
+        for (QueryPlan plan : cache.cache(key, createPlans(3), false, false)) {
+            count++;
+        }
+        assertEquals(3, count);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testKey() {
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, QUERY);
+        assertEquals(key, QueryPlanCache.createKey(config, QUERY));
+        assertEquals(key.hashCode(), QueryPlanCache.createKey(config, QUERY).hashCode());
+        
+        assertNotEquals(key, QueryPlanCache.createKey(config, "FOO == 'baz'"));
+        
+        config.setEndDate(new Date(2000));
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        config.setEndDate(new Date(1000));
+        
+        config.setAuthorizations(Collections.singleton(new Authorizations("A")));
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        config.setAuthorizations(Collections.singleton(new Authorizations("A", "B")));
+        
+        config.setDatatypeFilter(Collections.singleton("dt1"));
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        // the field metadata changed
+        config.setIndexedFields(Collections.singleton("FOO"));
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        // the tables and the settings that shape the ranges
+        config.setIndexTableName("otherIndex");
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        config.setCollapseUids(!config.getCollapseUids());
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        config.setShardsPerDayThreshold(config.getShardsPerDayThreshold() + 1);
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        config.setIndexHoles(Collections.singletonList(new IndexHole(new String[] {"20200101", "20200102"}, new String[] {"a", "b"})));
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        config.setSpeculativeScanning(!config.getSpeculativeScanning());
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        config.setParseTldUids(!config.getParseTldUids());
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        config.setMaxDepthThreshold(config.getMaxDepthThreshold() + 1);
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY));
+        key = QueryPlanCache.createKey(config, QUERY);
+        
+        // the settings of the planner
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY, CreateUidsIterator.class));
+        key = QueryPlanCache.createKey(config, QUERY, CreateUidsIterator.class);
+        assertEquals(key, QueryPlanCache.createKey(config, QUERY, CreateUidsIterator.class));
+        assertNotEquals(key, QueryPlanCache.createKey(config, QUERY, AncestorCreateUidsIterator.class));
+    }
+    
+    @Test
+    public void testExpandedQuery() {
+        QueryPlanCache cache = new QueryPlanCache(10, 60000, 10);
+        QueryPlanCache.Key key = QueryPlanCache.createKey(config, "FOO =~ 'ba.*'");
+        assertNull(cache.getExpandedQuery(key));
+        
+        cache.putExpandedQuery(key, "FOO == 'bar' || FOO == 'baz'");
+        assertEquals("FOO == 'bar' || FOO == 'baz'", cache.getExpandedQuery(QueryPlanCache.createKey(config, "FOO =~ 'ba.*'")));
+        
+        // the expansions are kept apart from the plans
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+        
+        assertEquals(1, cache.getExpansionHitCount());
+        assertEquals(1, cache.getExpansionMissCount());
+        assertEquals(1, cache.getMissCount());
+        
+        cache.invalidateAll();
+        assertNull(cache.getExpandedQuery(key));
+    }
+    
+    private CloseableIterable<QueryPlan> createPlans(int count) throws ParseException {
+        List<QueryPlan> plans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            plans.add(new QueryPlan(QUERY, JexlASTHelper.parseJexlQuery(QUERY), Collections.singleton(new Range("20200101_" + i))));
+        }
+        return new CloseableListIterable<>(plans);
+    }
+}
@@ -1,8 +1,12 @@
 package datawave.query.planner;
 
 import datawave.query.CloseableIterable;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.planner.comparator.MatchedTermsQueryPlanComparator;
 import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.configuration.QueryData;
+import org.apache.accumulo.core.data.Range;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.junit.Rule;
 import org.junit.Test;
@@ -10,8 +14,19 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import static org.easymock.EasyMock.mock;
 import static org.easymock.EasyMock.replay;
@@ -42,6 +57,7 @@ public class ThreadedRangeBundlerTest {
         assertEquals(0L, bundler.getRangeBufferTimeoutMillis());
         assertEquals(100L, bundler.getRangeBufferPollMillis());
         assertEquals(50L, bundler.getMaxRangeWaitMillis());
+        assertEquals(0L, bundler.getMaxRangeQueueBytes());
     }
     
     @Test
@@ -66,6 +82,7 @@ public class ThreadedRangeBundlerTest {
                         .setNumRangesToBuffer(1)
                         .setRangeBufferTimeoutMillis(10)
                         .setRangeBufferPollMillis(5)
+                        .setMaxRangeQueueBytes(1024)
                         .build();
         // @formatter:on
         
@@ -81,6 +98,7 @@ public class ThreadedRangeBundlerTest {
         assertEquals(10L, bundler.getRangeBufferTimeoutMillis());
         assertEquals(5L, bundler.getRangeBufferPollMillis());
         assertEquals(1L, bundler.getMaxRangeWaitMillis());
+        assertEquals(1024L, bundler.getMaxRangeQueueBytes());
     }
     
     @Test
@@ -110,6 +128,188 @@ public class ThreadedRangeBundlerTest {
         verify(iterator);
     }
     
+    @Test
+    public void whenQueueIsFullOfBytes_thenProducerBlocksUntilPlansAreTaken() throws Exception {
+        List<QueryPlan> plans = createPlans("FOO == 'bar'", 5);
+        CountingPlans ranges = new CountingPlans(plans);
+        
+        // room for two plans
+        long maxBytes = 2 * ThreadedRangeBundlerIterator.estimateSize(plans.get(0));
+        ThreadedRangeBundlerIterator iterator = createBundler(ranges).setMaxRangeQueueBytes(maxBytes).build().iterator();
+        try {
+            // the third plan is pulled, but it does not fit until a plan is taken
+            waitFor(() -> ranges.pulled.get() == 3);
+            Thread.sleep(200);
+            assertEquals(3, ranges.pulled.get());
+            
+            assertTrue(iterator.hasNext());
+            assertEquals("20200101_0", iterator.next().getRanges().iterator().next().getStartKey().getRow().toString());
+            waitFor(() -> ranges.pulled.get() == 4);
+            
+            List<QueryData> results = new ArrayList<>();
+            while (iterator.hasNext()) {
+                results.add(iterator.next());
+            }
+            assertEquals(4, results.size());
+            assertEquals(5, ranges.pulled.get());
+        } finally {
+            iterator.close();
+        }
+    }
+    
+    @Test
+    public void whenStopped_thenBlockedProducerIsWoken() throws Exception {
+        List<QueryPlan> plans = createPlans("FOO == 'bar'", 5);
+        CountingPlans ranges = new CountingPlans(plans);
+        
+        // room for one plan, and a wait so long that the producer only stops in time when it is woken
+        long maxBytes = ThreadedRangeBundlerIterator.estimateSize(plans.get(0));
+        ThreadedRangeBundlerIterator iterator = createBundler(ranges).setMaxRangeWaitMillis(60000).setMaxRangeQueueBytes(maxBytes).build().iterator();
+        waitFor(() -> ranges.pulled.get() == 2);
+        
+        // close waits half a second for the producer before it interrupts it
+        long start = System.currentTimeMillis();
+        iterator.close();
+        assertTrue(System.currentTimeMillis() - start < 500);
+        assertTrue(ranges.closed.get());
+        assertEquals(2, ranges.pulled.get());
+    }
+    
+    @Test
+    public void whenProducerStops_thenBufferingConsumerIsWoken() throws Exception {
+        // the plans are released one at a time, so the producer is still running while the consumer buffers
+        CountDownLatch release = new CountDownLatch(1);
+        List<QueryPlan> plans = createPlans("FOO == 'bar'", 2);
+        CountingPlans ranges = new CountingPlans(plans) {
+            @Override
+            protected void beforeNext() throws InterruptedException {
+                release.await();
+            }
+        };
+        
+        // far more plans to buffer than there are, and a buffer timeout that is never reached
+        ThreadedRangeBundlerIterator iterator = createBundler(ranges).setNumRangesToBuffer(100).setRangeBufferTimeoutMillis(60000).setRangeBufferPollMillis(10)
+                        .build().iterator();
+        try {
+            AtomicBoolean hasNext = new AtomicBoolean(false);
+            Thread consumer = new Thread(() -> hasNext.set(iterator.hasNext()));
+            consumer.start();
+            Thread.sleep(200);
+            assertTrue(consumer.isAlive());
+            
+            release.countDown();
+            consumer.join(5000);
+            assertFalse(consumer.isAlive());
+            assertTrue(hasNext.get());
+            
+            int results = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                results++;
+            }
+            assertEquals(2, results);
+        } finally {
+            iterator.close();
+        }
+    }
+    
+    @Test
+    public void whenMatchedTermsComparatorIsSet_thenPlansWithMoreTermsComeFirst() throws Exception {
+        List<QueryPlan> plans = new ArrayList<>();
+        plans.add(new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'a'"), new Range("20200101_0")));
+        plans.add(new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'a' && BAR == 'b' && BAZ == 'c'"), new Range("20200101_1")));
+        plans.add(new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'a' && BAR == 'b'"), new Range("20200101_2")));
+        
+        // every plan is buffered before the first is taken, so they are taken in the order of the comparator
+        // @formatter:off
+        ThreadedRangeBundlerIterator iterator = createBundler(new CountingPlans(plans))
+                        .setQueryPlanComparators(Collections.singletonList(new MatchedTermsQueryPlanComparator()))
+                        .setNumRangesToBuffer(plans.size())
+                        .setRangeBufferTimeoutMillis(60000)
+                        .setRangeBufferPollMillis(10)
+                        .build()
+                        .iterator();
+        // @formatter:on
+        try {
+            List<String> rows = new ArrayList<>();
+            while (iterator.hasNext()) {
+                rows.add(iterator.next().getRanges().iterator().next().getStartKey().getRow().toString());
+            }
+            assertEquals(Arrays.asList("20200101_1", "20200101_2", "20200101_0"), rows);
+        } finally {
+            iterator.close();
+        }
+    }
+    
+    private ThreadedRangeBundler.Builder createBundler(CloseableIterable<QueryPlan> ranges) {
+        QueryImpl settings = new QueryImpl();
+        settings.setId(UUID.randomUUID());
+        // @formatter:off
+        return ThreadedRangeBundler.builder()
+                        .setOriginal(new QueryData("FOO == 'bar'", Collections.emptyList(), new ArrayList<>()))
+                        .setRanges(ranges)
+                        .setMaxRanges(100)
+                        .setSettings(settings)
+                        .setMaxRangeWaitMillis(50);
+        // @formatter:on
+    }
+    
+    private List<QueryPlan> createPlans(String query, int count) throws Exception {
+        List<QueryPlan> plans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            plans.add(new QueryPlan(JexlASTHelper.parseJexlQuery(query), new Range("20200101_" + i)));
+        }
+        return plans;
+    }
+    
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+    
+    /**
+     * The plans to bundle, counting how many of them the bundler has pulled
+     */
+    private static class CountingPlans implements CloseableIterable<QueryPlan> {
+        private final List<QueryPlan> plans;
+        private final AtomicInteger pulled = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        
+        CountingPlans(List<QueryPlan> plans) {
+            this.plans = plans;
+        }
+        
+        protected void beforeNext() throws InterruptedException {}
+        
+        @Override
+        public Iterator<QueryPlan> iterator() {
+            return new Iterator<QueryPlan>() {
+                @Override
+                public boolean hasNext() {
+                    return pulled.get() < plans.size();
+                }
+                
+                @Override
+                public QueryPlan next() {
+                    try {
+                        beforeNext();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return plans.get(pulled.getAndIncrement());
+                }
+            };
+        }
+        
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+    
     private void setIterator(final ThreadedRangeBundler bundler, final ThreadedRangeBundlerIterator iterator) throws NoSuchFieldException,
                     IllegalAccessException {
         Field field = bundler.getClass().getDeclaredField("iterator");
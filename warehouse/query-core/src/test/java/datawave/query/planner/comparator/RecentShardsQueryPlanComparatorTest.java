@@ -0,0 +1,45 @@
+package datawave.query.planner.comparator;
+
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.planner.QueryPlan;
+import org.apache.accumulo.core.data.Range;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecentShardsQueryPlanComparatorTest {
+    
+    @Test
+    public void testMostRecentDaysFirst() throws ParseException {
+        List<QueryPlan> plans = new ArrayList<>();
+        for (String row : Arrays.asList("20200101_1", "20200103_0", "20200102", "20200103_1", "20200101_0")) {
+            plans.add(new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'bar'"), new Range(row)));
+        }
+        plans.sort(new RecentShardsQueryPlanComparator());
+        
+        List<String> rows = new ArrayList<>();
+        for (QueryPlan plan : plans) {
+            rows.add(plan.getRanges().iterator().next().getStartKey().getRow().toString());
+        }
+        assertEquals(Arrays.asList("20200103_0", "20200103_1", "20200102", "20200101_0", "20200101_1"), rows);
+    }
+    
+    @Test
+    public void testMostMatchedTermsFirst() throws ParseException {
+        QueryPlan one = new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'bar'"), new Range("20200101_0"));
+        QueryPlan three = new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'bar' || FOO == 'baz' || FOO == 'qux'"), new Range("20200101_1"));
+        QueryPlan two = new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'bar' || FOO == 'baz'"), new Range("20200101_2"));
+        
+        List<QueryPlan> plans = new ArrayList<>(Arrays.asList(one, three, two));
+        plans.sort(new MatchedTermsQueryPlanComparator());
+        assertEquals(Arrays.asList(three, two, one), plans);
+        
+        // ties are left for the next comparator to break
+        assertEquals(0, new MatchedTermsQueryPlanComparator().compare(one, new QueryPlan(JexlASTHelper.parseJexlQuery("FOO == 'baz'"), new Range("20200101_3"))));
+    }
+}
@@ -0,0 +1,74 @@
+package datawave.query.planner.pushdown;
+
+import datawave.data.MetadataCardinalityCounts;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.util.MockMetadataHelper;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class CostEstimatorTest {
+    
+    private ShardQueryConfiguration config;
+    private MockMetadataHelper helper;
+    
+    // the counts of every document, and of the documents the user can see
+    private final Map<String,Map<String,MetadataCardinalityCounts>> rootCounts = new HashMap<>();
+    private final Map<String,Map<String,MetadataCardinalityCounts>> userCounts = new HashMap<>();
+    
+    @Before
+    public void setup() {
+        config = ShardQueryConfiguration.create();
+        config.setBeginDate(new Date(0));
+        config.setEndDate(new Date(1000));
+        config.setCostBasedPlanning(true);
+        
+        rootCounts.put("FOO", Collections.singletonMap("bar", counts(100)));
+        userCounts.put("FOO", Collections.singletonMap("bar", counts(7)));
+        
+        helper = new MockMetadataHelper() {
+            @Override
+            public Map<String,Map<String,MetadataCardinalityCounts>> getTermCountsWithRootAuths() {
+                return rootCounts;
+            }
+        };
+        helper.setIndexedFields(Collections.singleton("FOO"));
+        helper.setTermCounts(userCounts);
+    }
+    
+    @Test
+    public void testTermCountsWithRootAuths() throws Exception {
+        CostEstimator estimator = new CostEstimator(config, null, helper);
+        assertEquals(100, estimator.computeCostForSubtree(parse("FOO == 'bar'")).totalCost());
+    }
+    
+    @Test
+    public void testTermCountsWithUserAuths() throws Exception {
+        CostEstimator estimator = new CostEstimator(config, null, helper);
+        estimator.setUseRootAuths(false);
+        assertEquals(7, estimator.computeCostForSubtree(parse("FOO == 'bar'")).totalCost());
+        
+        // a term the user cannot see falls back to the counts of its field rather than to the index stats
+        assertEquals(0, estimator.computeCostForSubtree(parse("FOO == 'baz'")).totalCost());
+    }
+    
+    private ASTJexlScript parse(String query) throws Exception {
+        return JexlASTHelper.parseJexlQuery(query);
+    }
+    
+    private MetadataCardinalityCounts counts(long fieldValueCount) {
+        MetadataCardinalityCounts counts = EasyMock.createMock(MetadataCardinalityCounts.class);
+        EasyMock.expect(counts.getFieldValueCount()).andReturn(fieldValueCount).anyTimes();
+        EasyMock.replay(counts);
+        return counts;
+    }
+}
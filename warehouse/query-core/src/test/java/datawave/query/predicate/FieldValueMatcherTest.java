@@ -0,0 +1,95 @@
+package datawave.query.predicate;
+
+import datawave.data.type.Type;
+import datawave.query.jexl.LiteralRange;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+public class FieldValueMatcherTest {
+    
+    private static final Collection<Type<?>> NO_TYPES = Collections.emptyList();
+    
+    private LiteralRange<String> range(String lower, boolean lowerInclusive, String upper, boolean upperInclusive) {
+        return new LiteralRange<>(lower, lowerInclusive, upper, upperInclusive, "FIELD", LiteralRange.NodeOperand.AND);
+    }
+    
+    private boolean matchesBytes(FieldValueMatcher matcher, String value) {
+        // embed the value in a larger array as it would be in a column qualifier
+        byte[] bytes = ("FIELD\u0000" + value).getBytes(StandardCharsets.UTF_8);
+        return matcher.matches(bytes, 6, bytes.length - 6);
+    }
+    
+    private void assertMatches(FieldValueMatcher matcher, String value, boolean expected) {
+        Assert.assertEquals(value, expected, matcher.matches(value));
+        Assert.assertEquals(value, expected, matchesBytes(matcher, value));
+    }
+    
+    @Test
+    public void testLiterals() {
+        FieldValueMatcher matcher = new FieldValueMatcher(Arrays.asList("foo", "bar"), Collections.emptyList(), Collections.emptyList(), NO_TYPES);
+        assertMatches(matcher, "foo", true);
+        assertMatches(matcher, "bar", true);
+        assertMatches(matcher, "fo", false);
+        assertMatches(matcher, "foobar", false);
+        assertMatches(matcher, "", false);
+    }
+    
+    @Test
+    public void testPatterns() {
+        FieldValueMatcher matcher = new FieldValueMatcher(Collections.singletonList("baz"), Arrays.asList("ab.*", "[0-9]+"), Collections.emptyList(),
+                        NO_TYPES);
+        assertMatches(matcher, "baz", true);
+        assertMatches(matcher, "abc", true);
+        assertMatches(matcher, "ab", true);
+        assertMatches(matcher, "123", true);
+        assertMatches(matcher, "a", false);
+        assertMatches(matcher, "12a", false);
+    }
+    
+    @Test
+    public void testRanges() {
+        FieldValueMatcher matcher = new FieldValueMatcher(Collections.emptyList(), Collections.emptyList(), Arrays.asList(range("b", true, "d", false),
+                        range("m", false, "p", true)), NO_TYPES);
+        assertMatches(matcher, "a", false);
+        assertMatches(matcher, "b", true);
+        assertMatches(matcher, "c", true);
+        assertMatches(matcher, "d", false);
+        assertMatches(matcher, "m", false);
+        assertMatches(matcher, "n", true);
+        assertMatches(matcher, "p", true);
+        assertMatches(matcher, "q", false);
+    }
+    
+    @Test
+    public void testRangeIndex() {
+        // a long interval followed by short ones, so a value past the short ones has to walk back to the long one
+        FieldValueMatcher.RangeIndex index = new FieldValueMatcher.RangeIndex(Arrays.asList(new FieldValueMatcher.Interval("a", true, "z", true),
+                        new FieldValueMatcher.Interval("b", true, "c", true), new FieldValueMatcher.Interval("e", true, "f", false),
+                        new FieldValueMatcher.Interval("g", false, "h", true)));
+        Assert.assertTrue(index.contains("a"));
+        Assert.assertTrue(index.contains("d"));
+        Assert.assertTrue(index.contains("f"));
+        Assert.assertTrue(index.contains("y"));
+        Assert.assertTrue(index.contains("z"));
+        Assert.assertFalse(index.contains("0"));
+        Assert.assertFalse(index.contains("za"));
+        
+        index = new FieldValueMatcher.RangeIndex(Arrays.asList(new FieldValueMatcher.Interval("b", true, "c", true), new FieldValueMatcher.Interval("e",
+                        true, "f", false), new FieldValueMatcher.Interval("g", false, "h", true)));
+        Assert.assertTrue(index.contains("bb"));
+        Assert.assertFalse(index.contains("d"));
+        Assert.assertFalse(index.contains("f"));
+        Assert.assertFalse(index.contains("g"));
+        Assert.assertTrue(index.contains("h"));
+        Assert.assertFalse(index.contains("i"));
+        
+        index = new FieldValueMatcher.RangeIndex(Collections.emptyList());
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertFalse(index.contains("a"));
+    }
+}
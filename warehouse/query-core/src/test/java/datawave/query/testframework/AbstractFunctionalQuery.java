@@ -31,6 +31,7 @@ import datawave.security.util.DnUtils;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.explain.QueryExplainResponse;
 import datawave.webservice.query.result.event.DefaultResponseObjectFactory;
 import datawave.webservice.query.result.event.EventBase;
 import datawave.webservice.query.result.event.FieldBase;
@@ -547,6 +548,30 @@ public abstract class AbstractFunctionalQuery implements QueryLogicTestHarness.T
         return this.logic.getPlan(connector, q, this.authSet, expandFields, expandValues);
     }
     
+    /**
+     * Used by test cases that verify the explanation of a query
+     *
+     * @param queryStr
+     *            query string for evaluation
+     * @return the explanation of the query
+     * @throws Exception
+     *             error condition from query planning
+     */
+    protected QueryExplainResponse getExplain(final String queryStr) throws Exception {
+        Date[] startEndDate = this.dataManager.getShardStartEndDate();
+        
+        QueryImpl q = new QueryImpl();
+        q.setBeginDate(startEndDate[0]);
+        q.setEndDate(startEndDate[1]);
+        q.setQuery(queryStr);
+        
+        q.setId(UUID.randomUUID());
+        q.setPagesize(Integer.MAX_VALUE);
+        q.setQueryAuthorizations(auths.toString());
+        
+        return this.logic.getExplain(connector, q, this.authSet);
+    }
+    
     /**
      * Configures the Ivarator cache to use a single HDFS directory.
      *
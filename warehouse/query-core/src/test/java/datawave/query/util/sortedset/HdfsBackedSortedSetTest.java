@@ -13,6 +13,8 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -78,6 +80,60 @@ public class HdfsBackedSortedSetTest {
         Assert.assertEquals(someTestString, reloadedSortedSet.first());
     }
     
+    @Test
+    public void localQuotaFallbackTest() throws Exception {
+        File tempDir = temporaryFolder.newFolder();
+        
+        File localDir = new File(tempDir, "local");
+        Assert.assertTrue(localDir.mkdirs());
+        
+        File fallbackDir = new File(tempDir, "fallback");
+        Assert.assertTrue(fallbackDir.mkdirs());
+        
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.initialize(tempDir.toURI(), new Configuration());
+        
+        String uniquePath = "blah";
+        
+        // a local dir with a 1 MiB quota
+        List<IvaratorCacheDir> ivaratorCacheDirs = new ArrayList<>();
+        ivaratorCacheDirs.add(new IvaratorCacheDir(new IvaratorCacheDirConfig(localDir.toURI().toString(), 0, 0, 0.0, 1), fs, localDir.toURI().toString()));
+        ivaratorCacheDirs.add(new IvaratorCacheDir(new IvaratorCacheDirConfig(fallbackDir.toURI().toString(), 1), fs, fallbackDir.toURI().toString()));
+        
+        HdfsBackedSortedSet<String> sortedSet = new HdfsBackedSortedSet<>(ivaratorCacheDirs, uniquePath, 9999, 2, new FileSortedSet.PersistOptions());
+        sortedSet.add("some test string");
+        sortedSet.persist();
+        
+        // under the quota the local dir is used, and no checksum files are written
+        File localSubDir = new File(localDir, uniquePath);
+        String[] files = localSubDir.list();
+        Assert.assertNotNull(files);
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].startsWith("SortedSet"));
+        
+        // fill the local dir past its quota
+        try (OutputStream out = new FileOutputStream(new File(localDir, "filler"))) {
+            out.write(new byte[2 * 0x100000]);
+        }
+        
+        // the storage used is not measured again until the refresh interval has passed
+        sortedSet = new HdfsBackedSortedSet<>(ivaratorCacheDirs, "cached", 9999, 2, new FileSortedSet.PersistOptions());
+        sortedSet.add("a cached test string");
+        sortedSet.persist();
+        Assert.assertTrue(new File(localDir, "cached").exists());
+        
+        HdfsBackedSortedSet.invalidateStorageUsage();
+        sortedSet = new HdfsBackedSortedSet<>(ivaratorCacheDirs, "other", 9999, 2, new FileSortedSet.PersistOptions());
+        sortedSet.add("another test string");
+        sortedSet.persist();
+        
+        // over the quota we fall back to the next dir
+        Assert.assertFalse(new File(localDir, "other").exists());
+        files = new File(fallbackDir, "other").list();
+        Assert.assertNotNull(files);
+        Assert.assertEquals(1, files.length);
+    }
+    
     @Test
     public void persistCompactReloadTest() throws Exception {
         File tempDir = temporaryFolder.newFolder();
@@ -0,0 +1,60 @@
+package datawave.webservice.query.explain;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import java.io.Serializable;
+
+/**
+ * A term of a planned query, with the path it will be executed by and the number of documents it is estimated to match.
+ */
+@XmlAccessorType(XmlAccessType.NONE)
+public class ExplainedTerm implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    @XmlElement
+    private String term;
+    @XmlElement
+    private String path;
+    @XmlElement(nillable = true)
+    private Long estimatedUids;
+    
+    public ExplainedTerm() {}
+    
+    public ExplainedTerm(String term, String path, Long estimatedUids) {
+        this.term = term;
+        this.path = path;
+        this.estimatedUids = estimatedUids;
+    }
+    
+    public String getTerm() {
+        return term;
+    }
+    
+    public void setTerm(String term) {
+        this.term = term;
+    }
+    
+    /**
+     * @return how the term is executed, one of index, delayed, ivarator, or evaluation-only
+     */
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+    
+    /**
+     * @return the number of documents the term is estimated to match, or null if the term is not looked up in the index
+     */
+    public Long getEstimatedUids() {
+        return estimatedUids;
+    }
+    
+    public void setEstimatedUids(Long estimatedUids) {
+        this.estimatedUids = estimatedUids;
+    }
+}
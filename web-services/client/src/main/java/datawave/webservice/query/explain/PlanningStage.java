@@ -0,0 +1,43 @@
+package datawave.webservice.query.explain;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import java.io.Serializable;
+
+/**
+ * A timed stage of planning a query, such as a visitor applied to the query tree.
+ */
+@XmlAccessorType(XmlAccessType.NONE)
+public class PlanningStage implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    @XmlElement
+    private String name;
+    @XmlElement
+    private long elapsedMillis;
+    
+    public PlanningStage() {}
+    
+    public PlanningStage(String name, long elapsedMillis) {
+        this.name = name;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
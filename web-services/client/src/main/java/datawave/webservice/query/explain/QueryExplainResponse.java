@@ -0,0 +1,179 @@
+package datawave.webservice.query.explain;
+
+import datawave.webservice.HtmlProvider;
+import datawave.webservice.result.BaseResponse;
+import org.apache.commons.lang.StringEscapeUtils;
+
+import javax.xml.bind.annotation.XmlAccessOrder;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorOrder;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Explains how a query would be executed without running it: the planned query, the execution path and estimated cost of each of its terms, the shards and
+ * days found in the global index, and the time taken by each stage of planning.
+ */
+@XmlRootElement(name = "QueryExplainResponse")
+@XmlAccessorType(XmlAccessType.NONE)
+@XmlAccessorOrder(XmlAccessOrder.ALPHABETICAL)
+public class QueryExplainResponse extends BaseResponse implements HtmlProvider {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private static final String TITLE = "Query Explanation", EMPTY = "";
+    
+    @XmlElement(name = "Query")
+    private String query = null;
+    
+    @XmlElement(name = "PlannedQuery")
+    private String plannedQuery = null;
+    
+    @XmlElement(name = "EstimatedUids", nillable = true)
+    private Long estimatedUids = null;
+    
+    @XmlElement(name = "Shards", nillable = true)
+    private Long shards = null;
+    
+    @XmlElement(name = "Days", nillable = true)
+    private Long days = null;
+    
+    @XmlElement(name = "DocumentRanges", nillable = true)
+    private Long documentRanges = null;
+    
+    @XmlElementWrapper(name = "Terms")
+    @XmlElement(name = "Term")
+    private List<ExplainedTerm> terms = new ArrayList<>();
+    
+    @XmlElementWrapper(name = "Stages")
+    @XmlElement(name = "Stage")
+    private List<PlanningStage> stages = new ArrayList<>();
+    
+    public String getQuery() {
+        return query;
+    }
+    
+    public void setQuery(String query) {
+        this.query = query;
+    }
+    
+    public String getPlannedQuery() {
+        return plannedQuery;
+    }
+    
+    public void setPlannedQuery(String plannedQuery) {
+        this.plannedQuery = plannedQuery;
+    }
+    
+    /**
+     * @return the number of documents the query is estimated to match, from the counts in the metadata
+     */
+    public Long getEstimatedUids() {
+        return estimatedUids;
+    }
+    
+    public void setEstimatedUids(Long estimatedUids) {
+        this.estimatedUids = estimatedUids;
+    }
+    
+    /**
+     * @return the number of shards the global index found for the query
+     */
+    public Long getShards() {
+        return shards;
+    }
+    
+    public void setShards(Long shards) {
+        this.shards = shards;
+    }
+    
+    /**
+     * @return the number of days the global index found for the query
+     */
+    public Long getDays() {
+        return days;
+    }
+    
+    public void setDays(Long days) {
+        this.days = days;
+    }
+    
+    /**
+     * @return the number of ranges the global index narrowed to a single document
+     */
+    public Long getDocumentRanges() {
+        return documentRanges;
+    }
+    
+    public void setDocumentRanges(Long documentRanges) {
+        this.documentRanges = documentRanges;
+    }
+    
+    public List<ExplainedTerm> getTerms() {
+        return terms;
+    }
+    
+    public void setTerms(List<ExplainedTerm> terms) {
+        this.terms = terms;
+    }
+    
+    public List<PlanningStage> getStages() {
+        return stages;
+    }
+    
+    public void setStages(List<PlanningStage> stages) {
+        this.stages = stages;
+    }
+    
+    @Override
+    public String getTitle() {
+        return TITLE;
+    }
+    
+    @Override
+    public String getPageHeader() {
+        return getTitle();
+    }
+    
+    @Override
+    public String getHeadContent() {
+        return EMPTY;
+    }
+    
+    @Override
+    public String getMainContent() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<h2>Planned Query</h2>\n<pre>").append(escape(plannedQuery)).append("</pre>\n");
+        builder.append("<table>\n<tr><th>Estimated UIDs</th><th>Shards</th><th>Days</th><th>Document Ranges</th></tr>\n");
+        builder.append("<tr><td>").append(estimatedUids).append("</td><td>").append(shards).append("</td><td>").append(days).append("</td><td>")
+                        .append(documentRanges).append("</td></tr>\n</table>\n");
+        
+        builder.append("<h2>Terms</h2>\n<table>\n<tr><th>Term</th><th>Path</th><th>Estimated UIDs</th></tr>\n");
+        int x = 0;
+        for (ExplainedTerm term : terms) {
+            // highlight alternating rows
+            builder.append(x++ % 2 == 0 ? "<tr class=\"highlight\">" : "<tr>");
+            builder.append("<td>").append(escape(term.getTerm())).append("</td><td>").append(term.getPath()).append("</td><td>")
+                            .append(term.getEstimatedUids() == null ? EMPTY : term.getEstimatedUids()).append("</td></tr>\n");
+        }
+        builder.append("</table>\n");
+        
+        builder.append("<h2>Planning Stages</h2>\n<table>\n<tr><th>Stage</th><th>Elapsed (ms)</th></tr>\n");
+        x = 0;
+        for (PlanningStage stage : stages) {
+            builder.append(x++ % 2 == 0 ? "<tr class=\"highlight\">" : "<tr>");
+            builder.append("<td>").append(escape(stage.getName())).append("</td><td>").append(stage.getElapsedMillis()).append("</td></tr>\n");
+        }
+        builder.append("</table>\n");
+        
+        return builder.toString();
+    }
+    
+    private static String escape(String value) {
+        return value == null ? EMPTY : StringEscapeUtils.escapeHtml(value);
+    }
+}
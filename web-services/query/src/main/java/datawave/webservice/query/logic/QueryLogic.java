@@ -10,6 +10,7 @@ import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
+import datawave.webservice.query.explain.QueryExplainResponse;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
 import datawave.webservice.result.BaseResponse;
 import org.apache.accumulo.core.client.Connector;
@@ -43,6 +44,26 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
     String getPlan(Connector connection, Query settings, Set<Authorizations> runtimeQueryAuthorizations, boolean expandFields, boolean expandValues)
                     throws Exception;
     
+    /**
+     * A mechanism to explain how a query would be executed without running it. Like {@link #getPlan}, this can be called without having to call initialize.
+     *
+     * The default implementation explains the query with its fully expanded plan only
+     *
+     * @param connection
+     *            - Accumulo connector to use for this query
+     * @param settings
+     *            - query settings (query, begin date, end date, etc.)
+     * @param runtimeQueryAuthorizations
+     *            - authorizations that have been calculated for this query based on the caller and server.
+     * @return the explanation of the query
+     */
+    default QueryExplainResponse getExplain(Connector connection, Query settings, Set<Authorizations> runtimeQueryAuthorizations) throws Exception {
+        QueryExplainResponse explain = new QueryExplainResponse();
+        explain.setQuery(settings.getQuery());
+        explain.setPlannedQuery(getPlan(connection, settings, runtimeQueryAuthorizations, true, true));
+        return explain;
+    }
+    
     /**
      * Implementations create a configuration using the connection, settings, and runtimeQueryAuthorizations.
      * 
@@ -55,6 +55,7 @@ import datawave.webservice.query.exception.NotFoundQueryException;
 import datawave.webservice.query.exception.PreConditionFailedQueryException;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.exception.UnauthorizedQueryException;
+import datawave.webservice.query.explain.QueryExplainResponse;
 import datawave.webservice.query.factory.Persister;
 import datawave.webservice.query.logic.QueryLogic;
 import datawave.webservice.query.logic.QueryLogicFactory;
@@ -824,9 +825,50 @@ public class QueryExecutorBean implements QueryExecutor {
     @Interceptors({RequiredInterceptor.class, ResponseInterceptor.class})
     @Timed(name = "dw.query.planQuery", absolute = true)
     public GenericResponse<String> planQuery(@Required("logicName") @PathParam("logicName") String queryLogicName, MultivaluedMap<String,String> queryParameters) {
-        QueryData qd = validateQuery(queryLogicName, queryParameters, null);
-        
         GenericResponse<String> response = new GenericResponse<>();
+        return planQuery(queryLogicName, queryParameters, response, false, (logic, connection, q, auths, expandFields, expandValues) -> response
+                        .setResult(logic.getPlan(connection, q, auths, expandFields, expandValues)));
+    }
+    
+    /**
+     * Explains how a query would be executed without running it. The query is planned with its fields and values expanded, which looks up the global index,
+     * and the response holds the planned query, the execution path and estimated cost of each of its terms, and the time taken by each stage of planning.
+     *
+     * @param queryLogicName
+     * @param queryParameters
+     * @return the explanation of the query
+     */
+    @POST
+    @Produces({"application/xml", "text/xml", "application/json", "text/yaml", "text/x-yaml", "application/x-yaml", "text/html"})
+    @Path("/{logicName}/explain")
+    @Interceptors({RequiredInterceptor.class, ResponseInterceptor.class})
+    @Timed(name = "dw.query.explainQuery", absolute = true)
+    public QueryExplainResponse explainQuery(@Required("logicName") @PathParam("logicName") String queryLogicName,
+                    MultivaluedMap<String,String> queryParameters) {
+        QueryExplainResponse response = new QueryExplainResponse();
+        return planQuery(queryLogicName, queryParameters, response, true, (logic, connection, q, auths, expandFields, expandValues) -> {
+            QueryExplainResponse explain = logic.getExplain(connection, q, auths);
+            response.setQuery(explain.getQuery());
+            response.setPlannedQuery(explain.getPlannedQuery());
+            response.setEstimatedUids(explain.getEstimatedUids());
+            response.setShards(explain.getShards());
+            response.setDays(explain.getDays());
+            response.setDocumentRanges(explain.getDocumentRanges());
+            response.setTerms(explain.getTerms());
+            response.setStages(explain.getStages());
+        });
+    }
+    
+    /**
+     * Fills in the response of a plan or explain request once the query has been created and audited
+     */
+    private interface PlanFunction {
+        void apply(QueryLogic<?> logic, Connector connection, Query q, Set<Authorizations> auths, boolean expandFields, boolean expandValues) throws Exception;
+    }
+    
+    private <T extends BaseResponse> T planQuery(String queryLogicName, MultivaluedMap<String,String> queryParameters, T response, boolean explain,
+                    PlanFunction planFunction) {
+        QueryData qd = validateQuery(queryLogicName, queryParameters, null);
         
         Query q = null;
         Connector connection = null;
@@ -835,13 +877,13 @@ public class QueryExecutorBean implements QueryExecutor {
             // Default hasResults to true.
             response.setHasResults(true);
             
-            // by default we will expand the fields but not the values.
+            // by default we will expand the fields but not the values, while an explanation always expands both
             boolean expandFields = true;
-            boolean expandValues = false;
-            if (queryParameters.containsKey(EXPAND_FIELDS)) {
+            boolean expandValues = explain;
+            if (!explain && queryParameters.containsKey(EXPAND_FIELDS)) {
                 expandFields = Boolean.valueOf(queryParameters.getFirst(EXPAND_FIELDS));
             }
-            if (queryParameters.containsKey(EXPAND_VALUES)) {
+            if (!explain && queryParameters.containsKey(EXPAND_VALUES)) {
                 expandValues = Boolean.valueOf(queryParameters.getFirst(EXPAND_VALUES));
             }
             
@@ -896,8 +938,7 @@ public class QueryExecutorBean implements QueryExecutor {
             }
             
             Set<Authorizations> calculatedAuths = AuthorizationsUtil.getDowngradedAuthorizations(qp.getAuths(), qd.p);
-            String plan = qd.logic.getPlan(connection, q, calculatedAuths, expandFields, expandValues);
-            response.setResult(plan);
+            planFunction.apply(qd.logic, connection, q, calculatedAuths, expandFields, expandValues);
             
             return response;
         } catch (Throwable t) {